@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Arranque rapido: definiciones de beans generadas con Spring AOT + archivo CDS (class-data sharing) de la JVM.
+#   scripts/arranque-rapido.sh preparar [argumentos de Spring]  -> empaqueta con -Parranque-rapido, extrae el jar y
+#                                                                  genera el archivo CDS con un arranque de prueba
+#   scripts/arranque-rapido.sh iniciar  [argumentos de Spring]  -> arranca con AOT, CDS y el perfil "rapido"
+# El arranque de prueba crea el contexto una vez y sale (spring.context.exit=onRefresh), por eso necesita la BD
+# configurada y con el esquema ya creado. CLASSPATH_EXTRA agrega jars al classpath (por ejemplo H2 en el benchmark)
+# y tiene que ser el mismo en las dos fases para que la JVM acepte el archivo CDS.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+DESTINO=${DESTINO:-target/arranque-rapido}
+MVN=${MVN:-mvn}
+PRINCIPAL=mini_biblioteca.MiniBibliotecaSpringbootApplication
+
+classpath() {
+    local jar
+    jar=$(ls "$DESTINO"/*.jar | head -1)
+    echo "$jar${CLASSPATH_EXTRA:+:$CLASSPATH_EXTRA}"
+}
+
+comando=${1:-}
+shift || true
+case "$comando" in
+    preparar)
+        "$MVN" -q -B -DskipTests -Parranque-rapido package
+        rm -rf "$DESTINO"
+        java -Djarmode=tools -jar target/mini-biblioteca-springboot-*.jar extract --destination "$DESTINO"
+        java -XX:ArchiveClassesAtExit="$DESTINO/aplicacion.jsa" -Dspring.aot.enabled=true \
+            -Dspring.context.exit=onRefresh -cp "$(classpath)" "$PRINCIPAL" --spring.profiles.active=rapido "$@"
+        ;;
+    iniciar)
+        exec java -XX:SharedArchiveFile="$DESTINO/aplicacion.jsa" -Dspring.aot.enabled=true \
+            -cp "$(classpath)" "$PRINCIPAL" --spring.profiles.active=rapido "$@"
+        ;;
+    *)
+        echo "uso: $0 preparar|iniciar [argumentos de Spring]" >&2
+        exit 1
+        ;;
+esac
@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+# Benchmark de arranque: milisegundos desde que se lanza la JVM hasta la primera respuesta 200 de /autores/listar,
+# con una BD embebida (H2 en archivo, modo MySQL) para no depender de MySQL.
+#   scripts/benchmark-arranque.sh [repeticiones]
+# Variantes:
+#   normal   jar extraido con la configuracion por defecto (ddl-auto=update, escaneo de componentes)
+#   aot      perfil "rapido" + definiciones de beans AOT
+#   aot+cds  lo anterior + archivo CDS (scripts/arranque-rapido.sh)
+# El primer arranque normal crea el esquema y no se cuenta.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+REPETICIONES=${1:-5}
+PUERTO=${PUERTO:-8097}
+MVN=${MVN:-mvn}
+TRABAJO=target/benchmark-arranque
+PRINCIPAL=mini_biblioteca.MiniBibliotecaSpringbootApplication
+
+rm -rf "$TRABAJO"
+mkdir -p "$TRABAJO"
+"$MVN" -q -B dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile="$TRABAJO/classpath.txt"
+H2=$(tr ':' '\n' < "$TRABAJO/classpath.txt" | grep '/h2-' | head -1)
+
+BD=(--spring.datasource.url="jdbc:h2:file:$PWD/$TRABAJO/bd/biblioteca;MODE=MySQL"
+    --spring.datasource.driver-class-name=org.h2.Driver
+    --spring.datasource.username=sa --spring.datasource.password=
+    --spring.jpa.database-platform=org.hibernate.dialect.H2Dialect
+    --server.port="$PUERTO"
+    --biblioteca.segmentos.directorio="$TRABAJO/segmentos")
+
+#medir <nombre> <comando...>: imprime los ms hasta la primera respuesta y detiene la aplicacion
+medir() {
+    local nombre=$1
+    shift
+    local inicio fin pid
+    inicio=$(date +%s%N)
+    "$@" > "$TRABAJO/$nombre.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PUERTO/autores/listar"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "La variante $nombre termino sin responder, ver $TRABAJO/$nombre.log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    fin=$(date +%s%N)
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo $(( (fin - inicio) / 1000000 ))
+}
+
+#serie <nombre> <comando...>: repite la medicion y muestra cada valor y la mediana
+serie() {
+    local nombre=$1
+    shift
+    local tiempos=()
+    for ((i = 0; i < REPETICIONES; i++)); do
+        tiempos+=("$(medir "$nombre" "$@")")
+    done
+    local mediana
+    mediana=$(printf '%s\n' "${tiempos[@]}" | sort -n | awk '{v[NR]=$1} END {print v[int((NR+1)/2)]}')
+    printf '%-8s mediana %6s ms   (%s)\n' "$nombre" "$mediana" "${tiempos[*]}"
+}
+
+"$MVN" -q -B -DskipTests package
+java -Djarmode=tools -jar target/mini-biblioteca-springboot-*.jar extract --destination "$TRABAJO/normal"
+NORMAL=(java -cp "$(ls "$TRABAJO"/normal/*.jar | head -1):$H2" "$PRINCIPAL" "${BD[@]}")
+medir esquema "${NORMAL[@]}" > /dev/null
+
+CLASSPATH_EXTRA="$H2" DESTINO="$TRABAJO/rapido" scripts/arranque-rapido.sh preparar "${BD[@]}" \
+    > "$TRABAJO/preparar.log" 2>&1
+AOT=(java -Dspring.aot.enabled=true -cp "$(ls "$TRABAJO"/rapido/*.jar | head -1):$H2" "$PRINCIPAL"
+    --spring.profiles.active=rapido "${BD[@]}")
+AOT_CDS=(env CLASSPATH_EXTRA="$H2" DESTINO="$TRABAJO/rapido" scripts/arranque-rapido.sh iniciar "${BD[@]}")
+
+serie normal "${NORMAL[@]}"
+serie aot "${AOT[@]}"
+serie aot+cds "${AOT_CDS[@]}"
@@ -0,0 +1,330 @@
+package mini_biblioteca.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mini_biblioteca.catalogo.CatalogoEnMemoria;
+import mini_biblioteca.catalogo.DetectorDuplicados;
+import mini_biblioteca.catalogo.FiltrosExistencia;
+import mini_biblioteca.catalogo.IndiceCoautores;
+import mini_biblioteca.catalogo.IndiceFacetas;
+import mini_biblioteca.catalogo.IndiceNombresAutores;
+import mini_biblioteca.catalogo.IndiceSimilares;
+import mini_biblioteca.entities.VersionCambio;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.VersionCambioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Invalidacion de caches entre nodos usando solo la base de datos compartida:
+- La tabla version_cambio tiene una fila por TipoEntidad. Cada escritura de un servicio sube en uno la version de su
+  fila dentro de la misma transaccion (si la escritura se revierte, la version tambien). Borrar un autor, una
+  editorial o una categoria tambien cambia libros (libro_autor, borrado en cascada): sube ademas la version de LIBRO.
+- Los cambios de una transaccion se suman en un solo UPDATE por fila justo antes del commit (un bloque de un trabajo
+  por lotes no actualiza la fila por cada autor), antes que la numeracion del outbox: las dos filas se bloquean
+  siempre en el mismo orden y por poco tiempo.
+- Despues del commit, el nodo que escribio limpia sus propias caches de inmediato.
+- Cada nodo revisa la tabla cada biblioteca.invalidacion.intervalo-ms (4 filas, consulta muy barata).
+  Si alguna version subio por una escritura de otro nodo, limpia las caches de esa region y reconstruye solo las
+  estructuras en memoria que dependen de ese tipo (ESTRUCTURAS_POR_TIPO). El indice de nombres de autores y los
+  filtros de Bloom no se reconstruyen: leen del outbox solo las filas que cambiaron. El filtro del tipo se marca
+  atrasado en la misma revision y no se usa hasta ponerse al dia. El retraso maximo es el intervalo de
+  revision mas lo que tarde la reconstruccion. Metrica: biblioteca.invalidacion.reconstrucciones{estructura}.
+- Las reconstrucciones no corren en el hilo de la revision: van a un pool propio (biblioteca.invalidacion.hilos) con
+  a lo mas una reconstruccion en curso por estructura. Si llega otro cambio mientras una corre, se repite una sola
+  vez al terminar (los cambios que lleguen mientras tanto se juntan en esa repeticion).
+- Una fusion (FusionCatalogo) mueve libros sin un evento por libro: sube la version de LIBRO sin marcarla como
+  propia, asi la revision periodica tambien reconstruye los indices de libros de este nodo.
+* */
+@Component
+public class InvalidacionDistribuida {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidacionDistribuida.class);
+
+    //Caches de Spring que dependen de cada tipo de entidad
+    static final Map<TipoEntidad, List<String>> CACHES_POR_TIPO = Map.of(
+            TipoEntidad.LIBRO, List.of("conteoLibrosEditorial", "conteoLibrosCategoria"),
+            TipoEntidad.AUTOR, List.of(),
+            TipoEntidad.EDITORIAL, List.of("editoriales", "conteoLibrosEditorial"),
+            TipoEntidad.CATEGORIA, List.of("categorias", "conteoLibrosCategoria"));
+
+    //Estructuras en memoria que hay que reconstruir cuando otro nodo cambia cada tipo de entidad
+    static final Map<TipoEntidad, List<String>> ESTRUCTURAS_POR_TIPO = Map.of(
+            TipoEntidad.LIBRO, List.of("catalogo", "facetas", "coautores", "similares", "duplicados", "bloom-LIBRO"),
+            TipoEntidad.AUTOR, List.of("catalogo", "nombres-autores", "bloom-AUTOR"),
+            TipoEntidad.EDITORIAL, List.of("catalogo", "bloom-EDITORIAL"),
+            TipoEntidad.CATEGORIA, List.of("catalogo", "bloom-CATEGORIA"));
+
+    private static final long MAXIMO_HUECO = 10_000;
+
+    @Autowired
+    private VersionCambioRepository versionCambioRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private IndiceFacetas indiceFacetas;
+
+    @Autowired
+    private IndiceCoautores indiceCoautores;
+
+    @Autowired
+    private IndiceSimilares indiceSimilares;
+
+    @Autowired
+    private DetectorDuplicados detectorDuplicados;
+
+    @Autowired
+    private IndiceNombresAutores indiceNombresAutores;
+
+    @Autowired
+    private FiltrosExistencia filtrosExistencia;
+
+    private final Map<String, Runnable> reconstrucciones = new HashMap<>();
+
+    //Reconstrucciones pedidas por estructura: 0 = ninguna en curso; mas de 0 = una en curso (y las que llegaron)
+    private final Map<String, AtomicInteger> pedidas = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor pool;
+
+    //Solo la modifica la tarea programada (y la inicializacion)
+    private final Map<TipoEntidad, Long> ultimaVista = new ConcurrentHashMap<>();
+
+    //Versiones que escribio este mismo nodo, para no invalidar dos veces por sus propios cambios
+    private final Set<String> versionesPropias = ConcurrentHashMap.newKeySet();
+
+    private final MeterRegistry meterRegistry;
+
+    public InvalidacionDistribuida(MeterRegistry meterRegistry,
+                                   @Value("${biblioteca.invalidacion.hilos:2}") int hilos) {
+        this.meterRegistry = meterRegistry;
+        AtomicInteger numero = new AtomicInteger();
+        //Cola acotada: cada estructura tiene a lo mas una tarea en la cola o corriendo
+        int estructuras = (int) ESTRUCTURAS_POR_TIPO.values().stream().flatMap(List::stream).distinct().count();
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(estructuras),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "reconstruccion-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        reconstrucciones.put("catalogo", () -> {
+            if (catalogoEnMemoria.snapshot().isPresent()) {
+                log.info("Cambios de otro nodo detectados, reconstruyendo catalogo en memoria");
+                catalogoEnMemoria.reconstruir();
+            }
+        });
+        reconstrucciones.put("facetas", () -> {
+            if (indiceFacetas.estaListo()) {
+                indiceFacetas.reconstruir();
+            }
+        });
+        reconstrucciones.put("coautores", () -> {
+            if (indiceCoautores.estaListo()) {
+                indiceCoautores.reconstruir();
+            }
+        });
+        reconstrucciones.put("similares", indiceSimilares::programarCalculoCompleto);
+        reconstrucciones.put("duplicados", () -> {
+            if (detectorDuplicados.estaListo()) {
+                detectorDuplicados.reconstruir();
+            }
+        });
+        //No se reconstruye: aplica los eventos de autores del outbox (salvo un hueco de versiones muy grande)
+        reconstrucciones.put("nombres-autores", () -> indiceNombresAutores.ponerseAlDia(MAXIMO_HUECO));
+        for (TipoEntidad tipo : TipoEntidad.values()) {
+            reconstrucciones.put("bloom-" + tipo.name(), () -> filtrosExistencia.ponerseAlDia(tipo));
+        }
+        for (TipoEntidad tipo : TipoEntidad.values()) {
+            if (!versionCambioRepository.existsById(tipo.name())) {
+                try {
+                    versionCambioRepository.save(new VersionCambio(tipo.name(), 0L));
+                } catch (DataIntegrityViolationException e) {
+                    //Otro nodo creo la fila al mismo tiempo
+                }
+            }
+        }
+        for (VersionCambio version : versionCambioRepository.findAll()) {
+            ultimaVista.put(TipoEntidad.valueOf(version.getRegion()), version.getVersion());
+        }
+    }
+
+    //Sincrono: corre dentro de la transaccion del servicio que publico el cambio
+    @EventListener
+    public void registrarCambio(CambioCatalogo cambio) {
+        registrarVersion(cambio.tipo());
+        if (cambio.eliminado() && cambio.tipo() != TipoEntidad.LIBRO) {
+            registrarVersion(TipoEntidad.LIBRO);
+        }
+    }
+
+    private void registrarVersion(TipoEntidad tipo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordarPropias(tipo, sumarVersion(tipo, 1), 1);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<TipoEntidad, Integer> cambios = (Map<TipoEntidad, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (cambios == null) {
+            cambios = new EnumMap<>(TipoEntidad.class);
+            TransactionSynchronizationManager.bindResource(this, cambios);
+            TransactionSynchronizationManager.registerSynchronization(versionesDeTransaccion(cambios));
+        }
+        cambios.merge(tipo, 1, Integer::sum);
+    }
+
+    private TransactionSynchronization versionesDeTransaccion(Map<TipoEntidad, Integer> cambios) {
+        Map<TipoEntidad, Long> versiones = new EnumMap<>(TipoEntidad.class);
+        return new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                cambios.forEach((tipo, cantidad) -> versiones.put(tipo, sumarVersion(tipo, cantidad)));
+            }
+
+            @Override
+            public void afterCommit() {
+                versiones.forEach((tipo, version) -> recordarPropias(tipo, version, cambios.get(tipo)));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(InvalidacionDistribuida.this);
+            }
+        };
+    }
+
+    //Devuelve la nueva version
+    private long sumarVersion(TipoEntidad tipo, int cantidad) {
+        versionCambioRepository.sumar(tipo.name(), cantidad);
+        return versionCambioRepository.versionDe(tipo.name());
+    }
+
+    private void recordarPropias(TipoEntidad tipo, long version, int cantidad) {
+        for (long v = version - cantidad + 1; v <= version; v++) {
+            //Si la revision periodica ya paso esta version no hace falta recordarla
+            if (v > ultimaVista.getOrDefault(tipo, 0L)) {
+                versionesPropias.add(tipo.name() + ":" + v);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void invalidarLocal(CambioCatalogo cambio) {
+        limpiarCaches(cambio.tipo());
+        if (cambio.eliminado() && cambio.tipo() != TipoEntidad.LIBRO) {
+            limpiarCaches(TipoEntidad.LIBRO);
+        }
+    }
+
+    //Sincrono, como registrarCambio; la version no va a versionesPropias a proposito
+    @EventListener
+    public void registrarFusion(FusionCatalogo fusion) {
+        versionCambioRepository.incrementar(TipoEntidad.LIBRO.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void invalidarLocal(FusionCatalogo fusion) {
+        limpiarCaches(TipoEntidad.LIBRO);
+        limpiarCaches(fusion.tipo());
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.invalidacion.intervalo-ms:1000}")
+    public void revisarCambiosRemotos() {
+        Set<String> aReconstruir = new LinkedHashSet<>();
+        for (VersionCambio fila : versionCambioRepository.findAll()) {
+            TipoEntidad tipo = TipoEntidad.valueOf(fila.getRegion());
+            long anterior = ultimaVista.getOrDefault(tipo, 0L);
+            long actual = fila.getVersion();
+            if (actual <= anterior) {
+                continue;
+            }
+            boolean remoto = actual - anterior > MAXIMO_HUECO;
+            for (long v = anterior + 1; v <= actual && actual - anterior <= MAXIMO_HUECO; v++) {
+                if (!versionesPropias.remove(fila.getRegion() + ":" + v)) {
+                    remoto = true;
+                }
+            }
+            ultimaVista.put(tipo, actual);
+            if (remoto) {
+                filtrosExistencia.marcarAtrasado(tipo);
+                limpiarCaches(tipo);
+                aReconstruir.addAll(ESTRUCTURAS_POR_TIPO.get(tipo));
+            }
+        }
+        aReconstruir.forEach(this::programar);
+    }
+
+    //Una reconstruccion en curso por estructura; los pedidos que llegan mientras corre la repiten una vez al terminar
+    private void programar(String estructura) {
+        AtomicInteger pendientes = pedidas.computeIfAbsent(estructura, e -> new AtomicInteger());
+        if (pendientes.getAndIncrement() == 0) {
+            pool.execute(() -> reconstruir(estructura, pendientes));
+        }
+    }
+
+    private void reconstruir(String estructura, AtomicInteger pendientes) {
+        int atendidas;
+        do {
+            atendidas = pendientes.get();
+            meterRegistry.counter("biblioteca.invalidacion.reconstrucciones", "estructura", estructura).increment();
+            try {
+                reconstrucciones.get(estructura).run();
+            } catch (RuntimeException e) {
+                log.warn("No se pudo reconstruir {} despues de cambios de otro nodo", estructura, e);
+            }
+        } while (pendientes.addAndGet(-atendidas) > 0);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+
+    private void limpiarCaches(TipoEntidad tipo) {
+        for (String nombre : CACHES_POR_TIPO.get(tipo)) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
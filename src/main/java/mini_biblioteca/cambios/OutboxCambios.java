@@ -0,0 +1,156 @@
+package mini_biblioteca.cambios;
+
+import jakarta.annotation.PostConstruct;
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.entities.SecuenciaOutbox;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.EventoCatalogoRepository;
+import mini_biblioteca.repositories.SecuenciaOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/*
+Outbox transaccional del catalogo:
+- Cada CambioCatalogo se guarda como una fila de evento_catalogo dentro de la transaccion del servicio,
+  asi un cambio confirmado siempre tiene su evento y un cambio revertido nunca lo tiene.
+- El offset del feed no es el id (se reparte al insertar, no al confirmar: una transaccion lenta puede confirmar un
+  id menor que otro ya leido) sino la secuencia de commit: justo antes del commit la transaccion reserva numeros en
+  la fila de secuencia_outbox y se los pone a sus eventos. La fila queda bloqueada hasta el commit, asi las
+  transacciones confirman en el orden de su secuencia y un consumidor que leyo hasta N ya no puede recibir un
+  evento menor que N. No depende de relojes ni de margenes de tiempo.
+- Borrar una editorial o categoria borra sus libros en cascada y borrar un autor lo quita de sus libros: se registra
+  un evento por libro afectado con un INSERT ... SELECT, igual que en las fusiones.
+- Los eventos mas viejos que biblioteca.cambios.retencion-dias se borran periodicamente.
+* */
+@Component
+public class OutboxCambios {
+
+    @Autowired
+    private EventoCatalogoRepository eventoCatalogoRepository;
+
+    @Autowired
+    private SecuenciaOutboxRepository secuenciaOutboxRepository;
+
+    @Value("${biblioteca.cambios.retencion-dias:7}")
+    private long retencionDias;
+
+    private final TransactionTemplate transaccion;
+
+    public OutboxCambios(PlatformTransactionManager transactionManager) {
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        if (!secuenciaOutboxRepository.existsById(1)) {
+            try {
+                secuenciaOutboxRepository.save(new SecuenciaOutbox(1, 0L));
+            } catch (DataIntegrityViolationException e) {
+                //Otro nodo creo la fila al mismo tiempo
+            }
+        }
+    }
+
+    //Sincrono: corre dentro de la transaccion del servicio que publico el cambio
+    @EventListener
+    public void registrar(CambioCatalogo cambio) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            transaccion.executeWithoutResult(estado -> registrar(cambio));
+            return;
+        }
+        String actual = transaccionActual();
+        Instant ahora = Instant.now();
+        eventoCatalogoRepository.save(new EventoCatalogo(cambio.tipo(), cambio.id(), cambio.eliminado(), ahora, actual));
+        if (cambio.eliminado()) {
+            //Se publica antes del borrado, mientras los libros todavia existen
+            switch (cambio.tipo()) {
+                case EDITORIAL -> eventoCatalogoRepository.registrarLibrosDeEditorial(cambio.id(), TipoEntidad.LIBRO,
+                        true, ahora, actual);
+                case CATEGORIA -> eventoCatalogoRepository.registrarLibrosDeCategoria(cambio.id(), TipoEntidad.LIBRO,
+                        true, ahora, actual);
+                case AUTOR -> eventoCatalogoRepository.registrarLibrosDeAutor(cambio.id(), TipoEntidad.LIBRO, ahora, actual);
+                default -> {
+                }
+            }
+        }
+    }
+
+    //Una fusion mueve libros sin un CambioCatalogo por libro; el consumidor recibe igual un evento por cada uno
+    @EventListener
+    public void registrar(FusionCatalogo fusion) {
+        String actual = transaccionActual();
+        Instant ahora = Instant.now();
+        switch (fusion.tipo()) {
+            case EDITORIAL -> eventoCatalogoRepository.registrarLibrosDeEditorial(fusion.origen(), TipoEntidad.LIBRO,
+                    false, ahora, actual);
+            case CATEGORIA -> eventoCatalogoRepository.registrarLibrosDeCategoria(fusion.origen(), TipoEntidad.LIBRO,
+                    false, ahora, actual);
+            case AUTOR -> eventoCatalogoRepository.registrarLibrosDeAutor(fusion.origen(), TipoEntidad.LIBRO, ahora, actual);
+            default -> throw new IllegalArgumentException("Fusion no soportada: " + fusion.tipo());
+        }
+    }
+
+    public List<EventoCatalogo> leerDesde(long desde, int limite) {
+        return eventoCatalogoRepository.buscarDesde(desde, PageRequest.of(0, limite));
+    }
+
+    @Scheduled(cron = "${biblioteca.cambios.limpieza-cron:0 0 3 * * *}")
+    public void limpiarEventosViejos() {
+        eventoCatalogoRepository.eliminarAnterioresA(Instant.now().minus(Duration.ofDays(retencionDias)));
+    }
+
+    //Identificador de la transaccion en curso; la primera vez registra la numeracion de sus eventos antes del commit
+    private String transaccionActual() {
+        String actual = (String) TransactionSynchronizationManager.getResource(this);
+        if (actual != null) {
+            return actual;
+        }
+        String nueva = UUID.randomUUID().toString();
+        TransactionSynchronizationManager.bindResource(this, nueva);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                numerar(nueva);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OutboxCambios.this);
+            }
+        });
+        return nueva;
+    }
+
+    /*
+    Los ids de una transaccion no siempre son contiguos (otras insertan al mismo tiempo): se reservan tantos numeros
+    como el rango de sus ids y cada evento recibe id + desplazamiento. Quedan huecos en la secuencia, pero el orden
+    dentro de la transaccion se mantiene y ningun numero se repite.
+    * */
+    private void numerar(String actual) {
+        Object[] rango = eventoCatalogoRepository.rangoDeTransaccion(actual).get(0);
+        if (rango[0] == null) {
+            return;
+        }
+        long minimo = ((Number) rango[0]).longValue();
+        long maximo = ((Number) rango[1]).longValue();
+        secuenciaOutboxRepository.reservar(maximo - minimo + 1);
+        long primero = secuenciaOutboxRepository.valor() - (maximo - minimo);
+        eventoCatalogoRepository.numerar(actual, primero - minimo);
+    }
+}
@@ -0,0 +1,121 @@
+package mini_biblioteca.cambios;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mini_biblioteca.entities.EventoCatalogo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Relay en segundo plano que publica los eventos del outbox a los suscriptores SSE:
+- Cada suscriptor recuerda el ultimo offset (secuencia de commit, ver OutboxCambios) que recibio.
+- En cada ciclo se lee una sola vez el outbox desde el offset mas bajo y a cada suscriptor se le envian
+  solo los eventos que le faltan. El id del evento SSE es el offset, asi el navegador puede reanudar con Last-Event-ID.
+- Corre en su propio hilo (relay-cambios) cada biblioteca.cambios.intervalo-ms: un envio lento a un cliente no frena
+  las tareas programadas, ni ellas al relay.
+* */
+@Component
+public class RelayCambios {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayCambios.class);
+
+    private static final class Suscriptor {
+        final SseEmitter emitter;
+        volatile long ultimoOffset;
+
+        Suscriptor(SseEmitter emitter, long ultimoOffset) {
+            this.emitter = emitter;
+            this.ultimoOffset = ultimoOffset;
+        }
+    }
+
+    @Autowired
+    private OutboxCambios outboxCambios;
+
+    @Value("${biblioteca.cambios.lote:500}")
+    private int lote;
+
+    @Value("${biblioteca.cambios.intervalo-ms:500}")
+    private long intervaloMs;
+
+    private final List<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread relay = new Thread(tarea, "relay-cambios");
+        relay.setDaemon(true);
+        return relay;
+    });
+
+    @PostConstruct
+    public void iniciar() {
+        hilo.scheduleWithFixedDelay(() -> {
+            try {
+                publicar();
+            } catch (RuntimeException e) {
+                log.warn("Fallo un ciclo del relay de cambios", e);
+            }
+        }, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        hilo.shutdownNow();
+    }
+
+    public SseEmitter suscribir(long desde) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Suscriptor suscriptor = new Suscriptor(emitter, desde);
+        emitter.onCompletion(() -> suscriptores.remove(suscriptor));
+        emitter.onTimeout(() -> suscriptores.remove(suscriptor));
+        emitter.onError(e -> suscriptores.remove(suscriptor));
+        suscriptores.add(suscriptor);
+        return emitter;
+    }
+
+    void publicar() {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        long desde = Long.MAX_VALUE;
+        for (Suscriptor suscriptor : suscriptores) {
+            desde = Math.min(desde, suscriptor.ultimoOffset);
+        }
+        List<EventoCatalogo> eventos = outboxCambios.leerDesde(desde, lote);
+        if (eventos.isEmpty()) {
+            return;
+        }
+        for (Suscriptor suscriptor : suscriptores) {
+            enviar(suscriptor, eventos);
+        }
+    }
+
+    private void enviar(Suscriptor suscriptor, List<EventoCatalogo> eventos) {
+        try {
+            for (EventoCatalogo evento : eventos) {
+                if (evento.getSecuencia() > suscriptor.ultimoOffset) {
+                    suscriptor.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(evento.getSecuencia()))
+                            .name("cambio")
+                            .data(evento, MediaType.APPLICATION_JSON));
+                    suscriptor.ultimoOffset = evento.getSecuencia();
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            //El cliente se desconecto
+            suscriptores.remove(suscriptor);
+            suscriptor.emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.repositories.LibroRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+/*
+Modelo de lectura opcional (biblioteca.catalogo.en-memoria=true):
+- Al arrancar se construye un CatalogoSnapshot con consultas de proyeccion (sin hidratar entidades JPA).
+- Cada CambioCatalogo que publican los servicios crea un snapshot nuevo con el cambio aplicado.
+- Los controladores leen el snapshot actual sin locks y sin tocar la base de datos.
+- El tiempo de construccion y la memoria estimada se registran en el log y como metricas.
+* */
+@Component
+public class CatalogoEnMemoria {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoEnMemoria.class);
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private AutorRepository autorRepository;
+
+    @Autowired
+    private EditorialRepository editorialRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    private final boolean habilitado;
+
+    //null mientras el catalogo no se ha construido (o si esta deshabilitado)
+    private volatile CatalogoSnapshot actual;
+
+    private volatile long ultimaConstruccionMs;
+
+    public CatalogoEnMemoria(MeterRegistry meterRegistry,
+                             @Value("${biblioteca.catalogo.en-memoria:false}") boolean habilitado) {
+        this.habilitado = habilitado;
+        Gauge.builder("biblioteca.catalogo.construccion_ms", this, c -> c.ultimaConstruccionMs)
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.catalogo.bytes", this, c -> c.actual == null ? 0 : c.actual.bytesEstimados())
+                .register(meterRegistry);
+    }
+
+    public Optional<CatalogoSnapshot> snapshot() {
+        return Optional.ofNullable(actual);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public synchronized void reconstruir() {
+        long inicio = System.nanoTime();
+        CatalogoSnapshot nuevo = CatalogoSnapshot.construir(
+                libroRepository.proyectarLibros(),
+                libroRepository.proyectarLibrosAutores(),
+                autorRepository.proyectarNombres(),
+                editorialRepository.proyectarNombres(),
+                categoriaRepository.proyectarNombres());
+        ultimaConstruccionMs = (System.nanoTime() - inicio) / 1_000_000;
+        actual = nuevo;
+        log.info("Catalogo en memoria construido: {} libros en {} ms, ~{} KB",
+                nuevo.totalLibros(), ultimaConstruccionMs, nuevo.bytesEstimados() / 1024);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aplicar(CambioCatalogo cambio) {
+        CatalogoSnapshot snapshot = actual;
+        if (snapshot == null) {
+            return;
+        }
+        long id = cambio.id();
+        actual = switch (cambio.tipo()) {
+            case LIBRO -> cambio.eliminado() ? snapshot.sinLibro(id) : conLibro(snapshot, (Libro) cambio.entidad());
+            case AUTOR -> cambio.eliminado() ? snapshot.sinAutor(id)
+                    : snapshot.conAutor(id, ((Autor) cambio.entidad()).getNombre());
+            case EDITORIAL -> cambio.eliminado() ? snapshot.sinEditorial(id)
+                    : snapshot.conEditorial(id, ((Editorial) cambio.entidad()).getNombre());
+            case CATEGORIA -> cambio.eliminado() ? snapshot.sinCategoria(id)
+                    : snapshot.conCategoria(id, ((Categoria) cambio.entidad()).getNombre());
+        };
+    }
+
+    //Se aplica antes que el CambioCatalogo.eliminado del origen (se publican en ese orden), que ya no quita libros
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aplicar(FusionCatalogo fusion) {
+        CatalogoSnapshot snapshot = actual;
+        if (snapshot == null) {
+            return;
+        }
+        actual = switch (fusion.tipo()) {
+            case EDITORIAL -> snapshot.conEditorialMovida(fusion.origen(), fusion.destino());
+            case CATEGORIA -> snapshot.conCategoriaMovida(fusion.origen(), fusion.destino());
+            case AUTOR -> snapshot.conAutorMovido(fusion.origen(), fusion.destino());
+            default -> snapshot;
+        };
+    }
+
+    private CatalogoSnapshot conLibro(CatalogoSnapshot snapshot, Libro libro) {
+        long[] autorIds = libro.getAutores().stream().mapToLong(Autor::getId).toArray();
+        long categoriaId = libro.getCategoria() == null ? CatalogoSnapshot.SIN_ID : libro.getCategoria().getId();
+        long editorialId = libro.getEditorial() == null ? CatalogoSnapshot.SIN_ID : libro.getEditorial().getId();
+        return snapshot.conLibro(libro.getId(), libro.getTitulo(), categoriaId, editorialId, autorIds);
+    }
+}
@@ -0,0 +1,473 @@
+package mini_biblioteca.catalogo;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/*
+Copia inmutable y desnormalizada del catalogo completo.
+- Los libros, autores, editoriales y categorias se guardan en arreglos primitivos ordenados por id,
+  y se buscan con busqueda binaria (sin mapas ni objetos por fila).
+- Los nombres y titulos se internan para no repetir el mismo String en memoria.
+- Nunca se modifica: cada cambio crea un snapshot nuevo (copy-on-write), asi los lectores no necesitan locks.
+- SIN_ID (0) indica que un libro no tiene categoria o editorial.
+* */
+public final class CatalogoSnapshot {
+
+    public static final long SIN_ID = 0L;
+
+    private static final long[] SIN_AUTORES = new long[0];
+
+    public static final CatalogoSnapshot VACIO = new CatalogoSnapshot(
+            new long[0], new String[0], new long[0], new long[0], new long[0][],
+            Tabla.VACIA, Tabla.VACIA, Tabla.VACIA);
+
+    //Libros: todos los arreglos estan alineados por posicion
+    private final long[] libroIds;
+    private final String[] titulos;
+    private final long[] categoriaDeLibro;
+    private final long[] editorialDeLibro;
+    private final long[][] autoresDeLibro;
+
+    private final Tabla autores;
+    private final Tabla editoriales;
+    private final Tabla categorias;
+
+    private CatalogoSnapshot(long[] libroIds, String[] titulos, long[] categoriaDeLibro, long[] editorialDeLibro,
+                             long[][] autoresDeLibro, Tabla autores, Tabla editoriales, Tabla categorias) {
+        this.libroIds = libroIds;
+        this.titulos = titulos;
+        this.categoriaDeLibro = categoriaDeLibro;
+        this.editorialDeLibro = editorialDeLibro;
+        this.autoresDeLibro = autoresDeLibro;
+        this.autores = autores;
+        this.editoriales = editoriales;
+        this.categorias = categorias;
+    }
+
+    //==================================================================================================================
+    // Construccion completa
+
+    /*
+    Construye el snapshot a partir de las filas que devuelven las consultas de proyeccion de los repositorios:
+    - libros: [id, titulo, categoria_id, editorial_id]
+    - librosAutores: [libro_id, autor_id]
+    - autores, editoriales, categorias: [id, nombre]
+    * */
+    public static CatalogoSnapshot construir(List<Object[]> libros, List<Object[]> librosAutores,
+                                             List<Object[]> autores, List<Object[]> editoriales,
+                                             List<Object[]> categorias) {
+        Object[][] filas = libros.toArray(new Object[0][]);
+        Arrays.sort(filas, (a, b) -> Long.compare(idDe(a[0]), idDe(b[0])));
+
+        int n = filas.length;
+        long[] libroIds = new long[n];
+        String[] titulos = new String[n];
+        long[] categoriaDeLibro = new long[n];
+        long[] editorialDeLibro = new long[n];
+        for (int i = 0; i < n; i++) {
+            libroIds[i] = idDe(filas[i][0]);
+            titulos[i] = internar((String) filas[i][1]);
+            categoriaDeLibro[i] = idDe(filas[i][2]);
+            editorialDeLibro[i] = idDe(filas[i][3]);
+        }
+
+        //Primero se cuentan los autores de cada libro para crear arreglos del tamaño exacto
+        int[] conteo = new int[n];
+        for (Object[] fila : librosAutores) {
+            int i = Arrays.binarySearch(libroIds, idDe(fila[0]));
+            if (i >= 0) {
+                conteo[i]++;
+            }
+        }
+        long[][] autoresDeLibro = new long[n][];
+        for (int i = 0; i < n; i++) {
+            autoresDeLibro[i] = conteo[i] == 0 ? SIN_AUTORES : new long[conteo[i]];
+            conteo[i] = 0;
+        }
+        for (Object[] fila : librosAutores) {
+            int i = Arrays.binarySearch(libroIds, idDe(fila[0]));
+            if (i >= 0) {
+                autoresDeLibro[i][conteo[i]++] = idDe(fila[1]);
+            }
+        }
+
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, editorialDeLibro, autoresDeLibro,
+                Tabla.de(autores), Tabla.de(editoriales), Tabla.de(categorias));
+    }
+
+    //==================================================================================================================
+    // Cambios incrementales (cada uno devuelve un snapshot nuevo)
+
+    public CatalogoSnapshot conLibro(long id, String titulo, long categoriaId, long editorialId, long[] autorIds) {
+        int i = Arrays.binarySearch(libroIds, id);
+        if (i >= 0) {
+            String[] nuevosTitulos = titulos.clone();
+            long[] nuevasCategorias = categoriaDeLibro.clone();
+            long[] nuevasEditoriales = editorialDeLibro.clone();
+            long[][] nuevosAutores = autoresDeLibro.clone();
+            nuevosTitulos[i] = internar(titulo);
+            nuevasCategorias[i] = categoriaId;
+            nuevasEditoriales[i] = editorialId;
+            nuevosAutores[i] = autorIds;
+            return new CatalogoSnapshot(libroIds, nuevosTitulos, nuevasCategorias, nuevasEditoriales, nuevosAutores,
+                    autores, editoriales, categorias);
+        }
+        int pos = -i - 1;
+        return new CatalogoSnapshot(insertar(libroIds, pos, id), insertar(titulos, pos, internar(titulo)),
+                insertar(categoriaDeLibro, pos, categoriaId), insertar(editorialDeLibro, pos, editorialId),
+                insertar(autoresDeLibro, pos, autorIds), autores, editoriales, categorias);
+    }
+
+    public CatalogoSnapshot sinLibro(long id) {
+        int i = Arrays.binarySearch(libroIds, id);
+        if (i < 0) {
+            return this;
+        }
+        return new CatalogoSnapshot(quitar(libroIds, i), quitar(titulos, i), quitar(categoriaDeLibro, i),
+                quitar(editorialDeLibro, i), quitar(autoresDeLibro, i), autores, editoriales, categorias);
+    }
+
+    public CatalogoSnapshot conAutor(long id, String nombre) {
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, editorialDeLibro, autoresDeLibro,
+                autores.con(id, nombre), editoriales, categorias);
+    }
+
+    //Al eliminar un autor tambien se quita de la lista de autores de cada libro (tabla libro_autor)
+    public CatalogoSnapshot sinAutor(long id) {
+        long[][] nuevosAutores = autoresDeLibro;
+        for (int i = 0; i < autoresDeLibro.length; i++) {
+            long[] lista = autoresDeLibro[i];
+            for (int j = 0; j < lista.length; j++) {
+                if (lista[j] == id) {
+                    if (nuevosAutores == autoresDeLibro) {
+                        nuevosAutores = autoresDeLibro.clone();
+                    }
+                    nuevosAutores[i] = quitar(lista, j);
+                    break;
+                }
+            }
+        }
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, editorialDeLibro, nuevosAutores,
+                autores.sin(id), editoriales, categorias);
+    }
+
+    public CatalogoSnapshot conEditorial(long id, String nombre) {
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, editorialDeLibro, autoresDeLibro,
+                autores, editoriales.con(id, nombre), categorias);
+    }
+
+    //Editorial.libros tiene cascade=ALL: al borrar la editorial tambien se borran sus libros
+    public CatalogoSnapshot sinEditorial(long id) {
+        CatalogoSnapshot resultado = sinLibrosDonde(editorialDeLibro, id);
+        return new CatalogoSnapshot(resultado.libroIds, resultado.titulos, resultado.categoriaDeLibro,
+                resultado.editorialDeLibro, resultado.autoresDeLibro, autores, editoriales.sin(id), categorias);
+    }
+
+    public CatalogoSnapshot conCategoria(long id, String nombre) {
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, editorialDeLibro, autoresDeLibro,
+                autores, editoriales, categorias.con(id, nombre));
+    }
+
+    //Categoria.libros tiene cascade=ALL: al borrar la categoria tambien se borran sus libros
+    public CatalogoSnapshot sinCategoria(long id) {
+        CatalogoSnapshot resultado = sinLibrosDonde(categoriaDeLibro, id);
+        return new CatalogoSnapshot(resultado.libroIds, resultado.titulos, resultado.categoriaDeLibro,
+                resultado.editorialDeLibro, resultado.autoresDeLibro, autores, editoriales, categorias.sin(id));
+    }
+
+    //Fusiones: los libros del origen pasan al destino (el origen se quita despues con sinEditorial/sinCategoria)
+    public CatalogoSnapshot conEditorialMovida(long origen, long destino) {
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, reemplazar(editorialDeLibro, origen, destino),
+                autoresDeLibro, autores, editoriales, categorias);
+    }
+
+    //Si el libro ya tenia al destino, el origen solo se quita (libro_autor no queda con la fila repetida)
+    public CatalogoSnapshot conAutorMovido(long origen, long destino) {
+        long[][] nuevosAutores = autoresDeLibro;
+        for (int i = 0; i < autoresDeLibro.length; i++) {
+            long[] lista = autoresDeLibro[i];
+            int posicion = -1;
+            boolean tieneDestino = false;
+            for (int j = 0; j < lista.length; j++) {
+                if (lista[j] == origen) {
+                    posicion = j;
+                } else if (lista[j] == destino) {
+                    tieneDestino = true;
+                }
+            }
+            if (posicion < 0) {
+                continue;
+            }
+            if (nuevosAutores == autoresDeLibro) {
+                nuevosAutores = autoresDeLibro.clone();
+            }
+            if (tieneDestino) {
+                nuevosAutores[i] = quitar(lista, posicion);
+            } else {
+                nuevosAutores[i] = lista.clone();
+                nuevosAutores[i][posicion] = destino;
+            }
+        }
+        return new CatalogoSnapshot(libroIds, titulos, categoriaDeLibro, editorialDeLibro, nuevosAutores,
+                autores, editoriales, categorias);
+    }
+
+    public CatalogoSnapshot conCategoriaMovida(long origen, long destino) {
+        return new CatalogoSnapshot(libroIds, titulos, reemplazar(categoriaDeLibro, origen, destino), editorialDeLibro,
+                autoresDeLibro, autores, editoriales, categorias);
+    }
+
+    private static long[] reemplazar(long[] columna, long origen, long destino) {
+        long[] nueva = columna.clone();
+        for (int i = 0; i < nueva.length; i++) {
+            if (nueva[i] == origen) {
+                nueva[i] = destino;
+            }
+        }
+        return nueva;
+    }
+
+    private CatalogoSnapshot sinLibrosDonde(long[] columna, long valor) {
+        int quedan = 0;
+        for (long v : columna) {
+            if (v != valor) {
+                quedan++;
+            }
+        }
+        if (quedan == columna.length) {
+            return this;
+        }
+        long[] ids = new long[quedan];
+        String[] nuevosTitulos = new String[quedan];
+        long[] nuevasCategorias = new long[quedan];
+        long[] nuevasEditoriales = new long[quedan];
+        long[][] nuevosAutores = new long[quedan][];
+        int j = 0;
+        for (int i = 0; i < columna.length; i++) {
+            if (columna[i] != valor) {
+                ids[j] = libroIds[i];
+                nuevosTitulos[j] = titulos[i];
+                nuevasCategorias[j] = categoriaDeLibro[i];
+                nuevasEditoriales[j] = editorialDeLibro[i];
+                nuevosAutores[j] = autoresDeLibro[i];
+                j++;
+            }
+        }
+        return new CatalogoSnapshot(ids, nuevosTitulos, nuevasCategorias, nuevasEditoriales, nuevosAutores,
+                autores, editoriales, categorias);
+    }
+
+    //==================================================================================================================
+    // Lecturas para las vistas
+
+    public List<LibroVista> listarLibros() {
+        List<LibroVista> libros = new ArrayList<>(libroIds.length);
+        for (int i = 0; i < libroIds.length; i++) {
+            libros.add(libroEn(i));
+        }
+        return libros;
+    }
+
+    public Optional<LibroVista> buscarLibro(long id) {
+        int i = Arrays.binarySearch(libroIds, id);
+        return i >= 0 ? Optional.of(libroEn(i)) : Optional.empty();
+    }
+
+    public Page<LibroVista> librosDeEditorial(long editorialId, Pageable pageable) {
+        return paginaDeLibros(editorialDeLibro, editorialId, pageable);
+    }
+
+    public Page<LibroVista> librosDeCategoria(long categoriaId, Pageable pageable) {
+        return paginaDeLibros(categoriaDeLibro, categoriaId, pageable);
+    }
+
+    //Filtra por posicion, ordena por titulo o id y solo crea vistas para los libros de la pagina pedida
+    private Page<LibroVista> paginaDeLibros(long[] columna, long valor, Pageable pageable) {
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < columna.length; i++) {
+            if (columna[i] == valor) {
+                posiciones.add(i);
+            }
+        }
+        Sort.Order orden = pageable.getSort().getOrderFor("titulo");
+        if (orden != null) {
+            //Las posiciones siguen el orden de id: desempatan los titulos repetidos igual que la consulta
+            Comparator<Integer> porTitulo = Comparator.<Integer, String>comparing(i -> titulos[i],
+                    Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(Comparator.naturalOrder());
+            posiciones.sort(orden.isAscending() ? porTitulo : porTitulo.reversed());
+        } else if (pageable.getSort().stream().anyMatch(Sort.Order::isDescending)) {
+            Collections.reverse(posiciones);
+        }
+        int desde = (int) Math.min(pageable.getOffset(), posiciones.size());
+        int hasta = Math.min(desde + pageable.getPageSize(), posiciones.size());
+        List<LibroVista> libros = new ArrayList<>(hasta - desde);
+        for (int i : posiciones.subList(desde, hasta)) {
+            libros.add(libroEn(i));
+        }
+        return new PageImpl<>(libros, pageable, posiciones.size());
+    }
+
+    public List<ElementoVista> listarAutores() {
+        return autores.listar();
+    }
+
+    public List<ElementoVista> listarEditoriales() {
+        return editoriales.listar();
+    }
+
+    public List<ElementoVista> listarCategorias() {
+        return categorias.listar();
+    }
+
+    public Optional<ElementoVista> buscarEditorial(long id) {
+        return Optional.ofNullable(editoriales.vista(id));
+    }
+
+    public Optional<ElementoVista> buscarCategoria(long id) {
+        return Optional.ofNullable(categorias.vista(id));
+    }
+
+    public int totalLibros() {
+        return libroIds.length;
+    }
+
+    //Estimacion aproximada de la memoria que ocupan los arreglos y los Strings (cabeceras incluidas)
+    public long bytesEstimados() {
+        long bytes = 16L * 5 + 8L * libroIds.length * 3 + 4L * libroIds.length * 2;
+        for (long[] lista : autoresDeLibro) {
+            bytes += 16 + 8L * lista.length;
+        }
+        bytes += bytesDeStrings(titulos);
+        return bytes + autores.bytesEstimados() + editoriales.bytesEstimados() + categorias.bytesEstimados();
+    }
+
+    private LibroVista libroEn(int i) {
+        long[] ids = autoresDeLibro[i];
+        List<ElementoVista> autoresLibro = new ArrayList<>(ids.length);
+        for (long autorId : ids) {
+            ElementoVista autor = autores.vista(autorId);
+            if (autor != null) {
+                autoresLibro.add(autor);
+            }
+        }
+        return new LibroVista(libroIds[i], titulos[i], categorias.vista(categoriaDeLibro[i]),
+                editoriales.vista(editorialDeLibro[i]), autoresLibro);
+    }
+
+    //==================================================================================================================
+    // Utilidades
+
+    //Tabla simple id -> nombre, ordenada por id
+    private static final class Tabla {
+
+        static final Tabla VACIA = new Tabla(new long[0], new String[0]);
+
+        final long[] ids;
+        final String[] nombres;
+
+        Tabla(long[] ids, String[] nombres) {
+            this.ids = ids;
+            this.nombres = nombres;
+        }
+
+        static Tabla de(List<Object[]> filas) {
+            Object[][] ordenadas = filas.toArray(new Object[0][]);
+            Arrays.sort(ordenadas, (a, b) -> Long.compare(idDe(a[0]), idDe(b[0])));
+            long[] ids = new long[ordenadas.length];
+            String[] nombres = new String[ordenadas.length];
+            for (int i = 0; i < ordenadas.length; i++) {
+                ids[i] = idDe(ordenadas[i][0]);
+                nombres[i] = internar((String) ordenadas[i][1]);
+            }
+            return new Tabla(ids, nombres);
+        }
+
+        ElementoVista vista(long id) {
+            int i = Arrays.binarySearch(ids, id);
+            return i >= 0 ? new ElementoVista(id, nombres[i]) : null;
+        }
+
+        List<ElementoVista> listar() {
+            List<ElementoVista> lista = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                lista.add(new ElementoVista(ids[i], nombres[i]));
+            }
+            return lista;
+        }
+
+        Tabla con(long id, String nombre) {
+            int i = Arrays.binarySearch(ids, id);
+            if (i >= 0) {
+                String[] nuevos = nombres.clone();
+                nuevos[i] = internar(nombre);
+                return new Tabla(ids, nuevos);
+            }
+            int pos = -i - 1;
+            return new Tabla(insertar(ids, pos, id), insertar(nombres, pos, internar(nombre)));
+        }
+
+        Tabla sin(long id) {
+            int i = Arrays.binarySearch(ids, id);
+            return i < 0 ? this : new Tabla(quitar(ids, i), quitar(nombres, i));
+        }
+
+        long bytesEstimados() {
+            return 32 + 8L * ids.length + 4L * nombres.length + bytesDeStrings(nombres);
+        }
+    }
+
+    private static long idDe(Object valor) {
+        return valor == null ? SIN_ID : ((Number) valor).longValue();
+    }
+
+    private static String internar(String texto) {
+        return texto == null ? null : texto.intern();
+    }
+
+    private static long bytesDeStrings(String[] textos) {
+        long bytes = 0;
+        for (String texto : textos) {
+            if (texto != null) {
+                bytes += 40 + texto.length();
+            }
+        }
+        return bytes;
+    }
+
+    private static long[] insertar(long[] arreglo, int pos, long valor) {
+        long[] nuevo = new long[arreglo.length + 1];
+        System.arraycopy(arreglo, 0, nuevo, 0, pos);
+        nuevo[pos] = valor;
+        System.arraycopy(arreglo, pos, nuevo, pos + 1, arreglo.length - pos);
+        return nuevo;
+    }
+
+    private static <T> T[] insertar(T[] arreglo, int pos, T valor) {
+        T[] nuevo = Arrays.copyOf(arreglo, arreglo.length + 1);
+        System.arraycopy(arreglo, pos, nuevo, pos + 1, arreglo.length - pos);
+        nuevo[pos] = valor;
+        return nuevo;
+    }
+
+    private static long[] quitar(long[] arreglo, int pos) {
+        long[] nuevo = new long[arreglo.length - 1];
+        System.arraycopy(arreglo, 0, nuevo, 0, pos);
+        System.arraycopy(arreglo, pos + 1, nuevo, pos, arreglo.length - pos - 1);
+        return nuevo;
+    }
+
+    private static <T> T[] quitar(T[] arreglo, int pos) {
+        T[] nuevo = Arrays.copyOf(arreglo, arreglo.length - 1);
+        System.arraycopy(arreglo, pos + 1, nuevo, pos, arreglo.length - pos - 1);
+        return nuevo;
+    }
+}
@@ -0,0 +1,22 @@
+package mini_biblioteca.catalogo;
+
+//Un coautor de otro autor y cuantos libros escribieron juntos (resultado de IndiceCoautores)
+public class Colaborador {
+
+    private final Long autorId;
+
+    private final int librosEnComun;
+
+    public Colaborador(Long autorId, int librosEnComun) {
+        this.autorId = autorId;
+        this.librosEnComun = librosEnComun;
+    }
+
+    public Long getAutorId() {
+        return autorId;
+    }
+
+    public int getLibrosEnComun() {
+        return librosEnComun;
+    }
+}
@@ -0,0 +1,260 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.LibroRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/*
+Deteccion de libros casi duplicados (biblioteca.duplicados.habilitado=true):
+- Cada libro tiene una firma MinHash de su titulo normalizado y sus autores (ver FirmaMinHash).
+- Indice LSH: por cada banda de la firma, una cubeta con los libros que tienen esa misma banda.
+- Al guardar un libro se buscan sus candidatos en sus BANDAS cubetas (costo constante, no depende del tamaño
+  del catalogo) y se confirman comparando firmas contra biblioteca.duplicados.umbral.
+- escanear() revisa todo el catalogo en paralelo y devuelve cada par una sola vez.
+- reconstruir() corre de a una (el arranque y la invalidacion entre nodos no se mezclan). Los cambios que llegan
+  mientras lee la BD se guardan en pendientes y se vuelven a aplicar sobre lo leido, como en IndiceFacetas: un cambio
+  confirmado entre la lectura y la instalacion no se pierde.
+* */
+@Component
+public class DetectorDuplicados {
+
+    private static final Logger log = LoggerFactory.getLogger(DetectorDuplicados.class);
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    private final boolean habilitado;
+
+    private final double umbral;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, int[]> firmas = new HashMap<>();
+
+    //Llave de banda (ver FirmaMinHash.bandas) -> ids de los libros en esa cubeta
+    private final Map<Long, long[]> cubetas = new HashMap<>();
+
+    //firma null: libro borrado
+    private record Cambio(long libroId, int[] firma) {
+    }
+
+    //null fuera de una reconstruccion; se escribe con el lock de escritura
+    private List<Cambio> pendientes;
+
+    private volatile boolean listo;
+
+    public DetectorDuplicados(MeterRegistry meterRegistry,
+                              @Value("${biblioteca.duplicados.habilitado:true}") boolean habilitado,
+                              @Value("${biblioteca.duplicados.umbral:0.7}") double umbral) {
+        this.habilitado = habilitado;
+        this.umbral = umbral;
+        Gauge.builder("biblioteca.duplicados.libros", this, d -> d.firmas.size()).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public boolean estaListo() {
+        return listo;
+    }
+
+    public synchronized void reconstruir() {
+        long inicio = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pendientes = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Long, int[]> nuevas;
+        try {
+            nuevas = firmasDe(libroRepository.proyectarLibros(), libroRepository.proyectarLibrosAutores());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            instalar(nuevas);
+            //Volver a aplicar un cambio que la lectura ya incluia deja el mismo estado
+            pendientes.forEach(this::aplicarSinLock);
+            pendientes = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indice de duplicados construido: {} libros en {} ms",
+                firmas.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    //libros: [libroId, titulo, categoriaId, editorialId]; librosAutores: [libroId, autorId]
+    void cargar(List<Object[]> libros, List<Object[]> librosAutores) {
+        Map<Long, int[]> nuevas = firmasDe(libros, librosAutores);
+        lock.writeLock().lock();
+        try {
+            instalar(nuevas);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Map<Long, int[]> firmasDe(List<Object[]> libros, List<Object[]> librosAutores) {
+        Map<Long, long[]> autoresPorLibro = librosAutores.stream().collect(Collectors.groupingBy(
+                fila -> (Long) fila[0],
+                Collectors.collectingAndThen(Collectors.toList(),
+                        filas -> filas.stream().mapToLong(fila -> (Long) fila[1]).sorted().toArray())));
+        //Las firmas se calculan en paralelo, fuera del lock
+        return libros.parallelStream().collect(Collectors.toConcurrentMap(
+                fila -> (Long) fila[0],
+                fila -> FirmaMinHash.firma((String) fila[1], autoresPorLibro.getOrDefault((Long) fila[0], new long[0]))));
+    }
+
+    //Con el lock de escritura
+    private void instalar(Map<Long, int[]> nuevas) {
+        firmas.clear();
+        cubetas.clear();
+        nuevas.forEach(this::agregar);
+        listo = true;
+    }
+
+    //Libros ya registrados que se parecen a este titulo y autores, del mas al menos parecido
+    public List<ParDuplicado> candidatos(String titulo, List<Long> autorIds, Long excluirId) {
+        if (!listo) {
+            return List.of();
+        }
+        int[] firma = FirmaMinHash.firma(titulo, autorIds.stream().mapToLong(Long::longValue).sorted().toArray());
+        lock.readLock().lock();
+        try {
+            List<ParDuplicado> pares = buscar(excluirId == null ? -1 : excluirId, firma, false);
+            pares.sort(Comparator.comparingDouble(ParDuplicado::getSimilitud).reversed());
+            return pares;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Todos los pares de posibles duplicados del catalogo, del mas al menos parecido
+    public List<ParDuplicado> escanear() {
+        if (!listo) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return firmas.entrySet().parallelStream()
+                    .flatMap(e -> buscar(e.getKey(), e.getValue(), true).stream())
+                    .sorted(Comparator.comparingDouble(ParDuplicado::getSimilitud).reversed()
+                            .thenComparing(ParDuplicado::getLibroId))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //soloMayores: en el escaneo cada par se reporta solo desde el libro de menor id
+    private List<ParDuplicado> buscar(long libroId, int[] firma, boolean soloMayores) {
+        Set<Long> vistos = new HashSet<>();
+        List<ParDuplicado> pares = new ArrayList<>();
+        for (long banda : FirmaMinHash.bandas(firma)) {
+            for (long otro : cubetas.getOrDefault(banda, new long[0])) {
+                if (otro == libroId || (soloMayores && otro < libroId) || !vistos.add(otro)) {
+                    continue;
+                }
+                double similitud = FirmaMinHash.similitud(firma, firmas.get(otro));
+                if (similitud >= umbral) {
+                    pares.add(new ParDuplicado(libroId, otro, similitud));
+                }
+            }
+        }
+        return pares;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aplicar(CambioCatalogo cambio) {
+        if (!habilitado || cambio.tipo() != TipoEntidad.LIBRO) {
+            return;
+        }
+        int[] firma = null;
+        if (!cambio.eliminado()) {
+            Libro libro = (Libro) cambio.entidad();
+            firma = FirmaMinHash.firma(libro.getTitulo(),
+                    libro.getAutores().stream().mapToLong(Autor::getId).sorted().toArray());
+        }
+        Cambio nuevo = new Cambio(cambio.id(), firma);
+        lock.writeLock().lock();
+        try {
+            if (pendientes != null) {
+                pendientes.add(nuevo);
+            }
+            if (listo) {
+                aplicarSinLock(nuevo);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void aplicarSinLock(Cambio cambio) {
+        quitar(cambio.libroId());
+        if (cambio.firma() != null) {
+            agregar(cambio.libroId(), cambio.firma());
+        }
+    }
+
+    private void agregar(long libroId, int[] firma) {
+        firmas.put(libroId, firma);
+        for (long banda : FirmaMinHash.bandas(firma)) {
+            long[] libros = cubetas.getOrDefault(banda, new long[0]);
+            long[] conNuevo = Arrays.copyOf(libros, libros.length + 1);
+            conNuevo[libros.length] = libroId;
+            cubetas.put(banda, conNuevo);
+        }
+    }
+
+    private void quitar(long libroId) {
+        int[] firma = firmas.remove(libroId);
+        if (firma == null) {
+            return;
+        }
+        for (long banda : FirmaMinHash.bandas(firma)) {
+            long[] restantes = Arrays.stream(cubetas.getOrDefault(banda, new long[0]))
+                    .filter(id -> id != libroId).toArray();
+            if (restantes.length == 0) {
+                cubetas.remove(banda);
+            } else {
+                cubetas.put(banda, restantes);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package mini_biblioteca.catalogo;
+
+//Vista de solo lectura de un autor, editorial o categoria (id y nombre), construida desde el CatalogoSnapshot
+public class ElementoVista {
+
+    private final Long id;
+
+    private final String nombre;
+
+    public ElementoVista(Long id, String nombre) {
+        this.id = id;
+        this.nombre = nombre;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+}
@@ -0,0 +1,43 @@
+package mini_biblioteca.catalogo;
+
+import java.util.Map;
+
+/*
+Conteos de libros para el filtro de libros, calculados por IndiceFacetas.
+- total: libros que cumplen todos los criterios seleccionados.
+- el conteo de cada categoria se calcula con los demas criterios (editorial y autor) pero sin el de categoria,
+  asi el usuario ve cuantos libros tendria si cambia de categoria. Igual para editorial y autor.
+* */
+public class Facetas {
+
+    private final int total;
+
+    private final Map<Long, Integer> categorias;
+
+    private final Map<Long, Integer> editoriales;
+
+    private final Map<Long, Integer> autores;
+
+    public Facetas(int total, Map<Long, Integer> categorias, Map<Long, Integer> editoriales, Map<Long, Integer> autores) {
+        this.total = total;
+        this.categorias = categorias;
+        this.editoriales = editoriales;
+        this.autores = autores;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int categoria(Long id) {
+        return categorias.getOrDefault(id, 0);
+    }
+
+    public int editorial(Long id) {
+        return editoriales.getOrDefault(id, 0);
+    }
+
+    public int autor(Long id) {
+        return autores.getOrDefault(id, 0);
+    }
+}
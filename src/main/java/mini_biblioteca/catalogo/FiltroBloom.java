@@ -0,0 +1,101 @@
+package mini_biblioteca.catalogo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Filtro de Bloom de tamaño fijo para cadenas:
+- Se dimensiona para "capacidad" elementos con una tasa de falsos positivos "fpp":
+  m = -n ln(p) / ln(2)^2 bits y k = m/n ln(2) funciones hash.
+- Las k posiciones salen de dos hashes de 64 bits (h1 + i*h2), asi cada cadena se recorre una sola vez.
+- Se puede leer y agregar desde varios hilos a la vez (los bits son un AtomicLongArray).
+- Nunca da falsos negativos: si puedeContener devuelve false la cadena no se agrego.
+* */
+final class FiltroBloom {
+
+    private final AtomicLongArray bits;
+
+    private final long m;
+
+    private final int k;
+
+    private final long capacidad;
+
+    private final AtomicLong elementos = new AtomicLong();
+
+    FiltroBloom(long capacidad, double fpp) {
+        this.capacidad = Math.max(1, capacidad);
+        long tamano = (long) Math.ceil(-this.capacidad * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int palabras = (int) Math.max(1, (tamano + 63) / 64);
+        this.bits = new AtomicLongArray(palabras);
+        this.m = palabras * 64L;
+        this.k = Math.max(1, (int) Math.round((double) m / this.capacidad * Math.log(2)));
+    }
+
+    void agregar(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < k; i++) {
+            long posicion = Math.floorMod(h1 + i * h2, m);
+            int palabra = (int) (posicion >>> 6);
+            long mascara = 1L << posicion;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+        elementos.incrementAndGet();
+    }
+
+    boolean puedeContener(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < k; i++) {
+            long posicion = Math.floorMod(h1 + i * h2, m);
+            if ((bits.get((int) (posicion >>> 6)) & (1L << posicion)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long elementos() {
+        return elementos.get();
+    }
+
+    long capacidad() {
+        return capacidad;
+    }
+
+    //Tasa esperada con los elementos agregados hasta ahora: (1 - e^(-kn/m))^k
+    double tasaFalsosPositivos() {
+        return Math.pow(1 - Math.exp(-(double) k * elementos.get() / m), k);
+    }
+
+    boolean saturado() {
+        return elementos.get() > capacidad;
+    }
+
+    long bytes() {
+        return m / 8;
+    }
+
+    //FNV-1a de 64 bits sobre los caracteres y un mezclado final para repartir bien los bits altos
+    private static long hash(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mezclar(h);
+    }
+
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
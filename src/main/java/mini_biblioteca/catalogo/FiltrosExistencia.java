@@ -0,0 +1,337 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.repositories.EventoCatalogoRepository;
+import mini_biblioteca.repositories.LibroRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+Filtros de Bloom delante de las busquedas por nombre/titulo (biblioteca.bloom.habilitado=true):
+- Uno por tipo: nombres de autores, editoriales y categorias, y titulos de libros.
+- Al arrancar cada filtro se llena recorriendo la columna con un Stream (sin cargar toda la tabla en memoria) y con
+  capacidad para el doble de filas. Si el filtro dice "no esta", la busqueda devuelve vacio sin ir a la BD.
+- Los valores se normalizan sin acentos, en minusculas y sin espacios a los lados, igual que compara la collation
+  de MySQL, para que nunca haya falsos negativos.
+- Cada guardado agrega el valor dentro de la transaccion (antes del commit) y otra vez despues del commit, por si
+  el filtro se estaba reconstruyendo. Los valores borrados o renombrados quedan en el filtro (solo suben los falsos
+  positivos) hasta la siguiente reconstruccion.
+- Cada biblioteca.bloom.revision-ms se reconstruye el filtro que paso su capacidad.
+- Cambios de otros nodos (InvalidacionDistribuida): al ver una version remota marca el filtro como atrasado y pide
+  ponerseAlDia, que lee del outbox los eventos del tipo desde el ultimo offset visto y agrega los valores actuales
+  de esas filas, como IndiceNombresAutores. No se relee la columna completa. Mientras el filtro este atrasado las
+  busquedas van directo a la BD, asi un valor creado en otro nodo nunca se descarta despues de que se vio su
+  version. Antes de eso (a lo mas biblioteca.invalidacion.intervalo-ms) la busqueda puede no encontrarlo.
+- Metricas por tipo: tasa de falsos positivos esperada, elementos, y consultas descartadas/posibles/falsos positivos.
+* */
+@Component
+public class FiltrosExistencia {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltrosExistencia.class);
+
+    private static final int EVENTOS_POR_LOTE = 500;
+
+    @Autowired
+    private AutorRepository autorRepository;
+
+    @Autowired
+    private EditorialRepository editorialRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private EventoCatalogoRepository eventoCatalogoRepository;
+
+    private final TransactionTemplate lectura;
+
+    private final boolean habilitado;
+
+    private final double fpp;
+
+    private final long capacidadMinima;
+
+    private final Map<TipoEntidad, Filtro> filtros = new EnumMap<>(TipoEntidad.class);
+
+    private static final class Filtro {
+
+        //null hasta la primera construccion
+        volatile FiltroBloom actual;
+
+        //Filtro que se esta llenando en una reconstruccion; recibe tambien los valores guardados mientras tanto
+        volatile FiltroBloom enConstruccion;
+
+        //Secuencia del outbox hasta la que el filtro tiene los valores (solo con el lock de la instancia)
+        long cursorOutbox;
+
+        //Versiones remotas vistas y las que ya estan en el filtro; si difieren el filtro no se usa
+        final AtomicLong remotosVistos = new AtomicLong();
+
+        volatile long remotosAplicados;
+
+        Counter descartadas;
+
+        Counter posibles;
+
+        Counter falsosPositivos;
+    }
+
+    public FiltrosExistencia(MeterRegistry meterRegistry,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${biblioteca.bloom.habilitado:true}") boolean habilitado,
+                             @Value("${biblioteca.bloom.fpp:0.01}") double fpp,
+                             @Value("${biblioteca.bloom.capacidad-minima:10000}") long capacidadMinima) {
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.habilitado = habilitado;
+        this.fpp = fpp;
+        this.capacidadMinima = capacidadMinima;
+        for (TipoEntidad tipo : TipoEntidad.values()) {
+            Filtro filtro = new Filtro();
+            String nombre = tipo.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("biblioteca.bloom.falsos_positivos_esperados", filtro,
+                            f -> f.actual == null ? 0 : f.actual.tasaFalsosPositivos())
+                    .tag("tipo", nombre).register(meterRegistry);
+            Gauge.builder("biblioteca.bloom.elementos", filtro, f -> f.actual == null ? 0 : f.actual.elementos())
+                    .tag("tipo", nombre).register(meterRegistry);
+            Gauge.builder("biblioteca.bloom.bytes", filtro, f -> f.actual == null ? 0 : f.actual.bytes())
+                    .tag("tipo", nombre).register(meterRegistry);
+            filtro.descartadas = Counter.builder("biblioteca.bloom.consultas")
+                    .tag("tipo", nombre).tag("resultado", "descartada").register(meterRegistry);
+            filtro.posibles = Counter.builder("biblioteca.bloom.consultas")
+                    .tag("tipo", nombre).tag("resultado", "posible").register(meterRegistry);
+            filtro.falsosPositivos = Counter.builder("biblioteca.bloom.consultas")
+                    .tag("tipo", nombre).tag("resultado", "falso_positivo").register(meterRegistry);
+            filtros.put(tipo, filtro);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitado) {
+            for (TipoEntidad tipo : TipoEntidad.values()) {
+                reconstruir(tipo);
+            }
+        }
+    }
+
+    public boolean estaListo(TipoEntidad tipo) {
+        return filtros.get(tipo).actual != null;
+    }
+
+    //Tasa de falsos positivos esperada con los elementos actuales (1.0 si el filtro no existe)
+    public double tasaFalsosPositivos(TipoEntidad tipo) {
+        FiltroBloom filtro = filtros.get(tipo).actual;
+        return filtro == null ? 1.0 : filtro.tasaFalsosPositivos();
+    }
+
+    /*
+    Busqueda por nombre/titulo con el filtro delante:
+    - Si el filtro dice que el valor no existe, devuelve vacio sin ejecutar la consulta.
+    - Si no, ejecuta la consulta; cuando esta no encuentra nada se cuenta como falso positivo.
+    * */
+    public <T> Optional<T> buscar(TipoEntidad tipo, String valor, Supplier<Optional<T>> consulta) {
+        Filtro filtro = filtros.get(tipo);
+        FiltroBloom actual = filtro.actual;
+        if (actual == null || valor == null || filtro.remotosAplicados < filtro.remotosVistos.get()) {
+            return consulta.get();
+        }
+        if (!actual.puedeContener(normalizar(valor))) {
+            filtro.descartadas.increment();
+            return Optional.empty();
+        }
+        filtro.posibles.increment();
+        Optional<T> resultado = consulta.get();
+        if (resultado.isEmpty()) {
+            filtro.falsosPositivos.increment();
+        }
+        return resultado;
+    }
+
+    //Sincrono: agrega el valor antes del commit, asi ninguna busqueda posterior al commit puede dar un falso negativo
+    @EventListener
+    public void registrar(CambioCatalogo cambio) {
+        agregar(cambio);
+    }
+
+    //Despues del commit: cubre una reconstruccion que empezo entre el guardado y el commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aplicar(CambioCatalogo cambio) {
+        agregar(cambio);
+    }
+
+    private void agregar(CambioCatalogo cambio) {
+        if (cambio.eliminado()) {
+            return;
+        }
+        String valor = switch (cambio.tipo()) {
+            case AUTOR -> ((Autor) cambio.entidad()).getNombre();
+            case EDITORIAL -> ((Editorial) cambio.entidad()).getNombre();
+            case CATEGORIA -> ((Categoria) cambio.entidad()).getNombre();
+            case LIBRO -> ((Libro) cambio.entidad()).getTitulo();
+        };
+        if (valor == null) {
+            return;
+        }
+        agregar(filtros.get(cambio.tipo()), normalizar(valor));
+    }
+
+    private static void agregar(Filtro filtro, String clave) {
+        //Primero el que se esta construyendo: al terminar la reconstruccion se cambia actual y luego se limpia este
+        FiltroBloom nuevo = filtro.enConstruccion;
+        if (nuevo != null) {
+            nuevo.agregar(clave);
+        }
+        FiltroBloom actual = filtro.actual;
+        if (actual != null && !actual.puedeContener(clave)) {
+            actual.agregar(clave);
+        }
+    }
+
+    //Sincrono, en la revision de InvalidacionDistribuida: desde aqui las busquedas del tipo van a la BD
+    public void marcarAtrasado(TipoEntidad tipo) {
+        filtros.get(tipo).remotosVistos.incrementAndGet();
+    }
+
+    /*
+    Agrega los valores de las filas del tipo que cambiaron desde cursorOutbox (de cualquier nodo; las de este ya
+    estan y no cambian nada). Al terminar, el filtro vuelve a usarse si no se vio otra version remota mientras tanto.
+    * */
+    public synchronized void ponerseAlDia(TipoEntidad tipo) {
+        Filtro filtro = filtros.get(tipo);
+        if (filtro.actual == null) {
+            return;
+        }
+        long objetivo = filtro.remotosVistos.get();
+        int agregados = 0;
+        List<EventoCatalogo> eventos;
+        do {
+            eventos = eventoCatalogoRepository.buscarDesde(filtro.cursorOutbox, tipo, PageRequest.of(0, EVENTOS_POR_LOTE));
+            List<Long> ids = eventos.stream().filter(e -> !e.isEliminado())
+                    .map(EventoCatalogo::getEntidadId).distinct().toList();
+            if (!ids.isEmpty()) {
+                for (Object[] fila : proyectar(tipo, ids)) {
+                    if (fila[1] != null) {
+                        agregar(filtro, normalizar((String) fila[1]));
+                        agregados++;
+                    }
+                }
+            }
+            if (!eventos.isEmpty()) {
+                filtro.cursorOutbox = eventos.get(eventos.size() - 1).getSecuencia();
+            }
+        } while (eventos.size() == EVENTOS_POR_LOTE);
+        filtro.remotosAplicados = objetivo;
+        if (agregados > 0) {
+            log.debug("Filtro de Bloom de {} al dia: {} valores revisados", tipo, agregados);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.bloom.revision-ms:60000}")
+    public void reconstruirSaturados() {
+        for (TipoEntidad tipo : TipoEntidad.values()) {
+            Filtro filtro = filtros.get(tipo);
+            FiltroBloom actual = filtro.actual;
+            if (actual != null && actual.saturado()) {
+                log.info("Filtro de Bloom de {} saturado ({} elementos, capacidad {}), reconstruyendo",
+                        tipo, actual.elementos(), actual.capacidad());
+                reconstruir(tipo);
+            } else if (actual != null && filtro.remotosAplicados < filtro.remotosVistos.get()) {
+                //Un ponerseAlDia que fallo: sin esto el filtro quedaria sin usarse hasta el proximo cambio remoto
+                ponerseAlDia(tipo);
+            }
+        }
+    }
+
+    public synchronized void reconstruir(TipoEntidad tipo) {
+        long inicio = System.nanoTime();
+        Filtro filtro = filtros.get(tipo);
+        long objetivo = filtro.remotosVistos.get();
+        long[] cursor = new long[1];
+        FiltroBloom nuevo = lectura.execute(estado -> {
+            //El offset va primero: los eventos hasta ahi ya estan en los valores que se leen despues
+            cursor[0] = eventoCatalogoRepository.ultimaSecuencia();
+            FiltroBloom lleno = new FiltroBloom(Math.max(capacidadMinima, 2 * contar(tipo)), fpp);
+            filtro.enConstruccion = lleno;
+            try (Stream<String> valores = recorrer(tipo)) {
+                valores.filter(v -> v != null).forEach(v -> lleno.agregar(normalizar(v)));
+            }
+            return lleno;
+        });
+        filtro.actual = nuevo;
+        filtro.enConstruccion = null;
+        filtro.cursorOutbox = cursor[0];
+        filtro.remotosAplicados = objetivo;
+        log.info("Filtro de Bloom de {} construido: {} elementos, {} KB, en {} ms",
+                tipo, nuevo.elementos(), nuevo.bytes() / 1024, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private long contar(TipoEntidad tipo) {
+        return switch (tipo) {
+            case AUTOR -> autorRepository.count();
+            case EDITORIAL -> editorialRepository.count();
+            case CATEGORIA -> categoriaRepository.count();
+            case LIBRO -> libroRepository.count();
+        };
+    }
+
+    private Stream<String> recorrer(TipoEntidad tipo) {
+        return switch (tipo) {
+            case AUTOR -> autorRepository.recorrerNombres();
+            case EDITORIAL -> editorialRepository.recorrerNombres();
+            case CATEGORIA -> categoriaRepository.recorrerNombres();
+            case LIBRO -> libroRepository.recorrerTitulos();
+        };
+    }
+
+    private List<Object[]> proyectar(TipoEntidad tipo, List<Long> ids) {
+        return switch (tipo) {
+            case AUTOR -> autorRepository.proyectarNombres(ids);
+            case EDITORIAL -> editorialRepository.proyectarNombres(ids);
+            case CATEGORIA -> categoriaRepository.proyectarNombres(ids);
+            case LIBRO -> libroRepository.proyectarTitulos(ids);
+        };
+    }
+
+    static String normalizar(String valor) {
+        return Normalizer.normalize(valor, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .strip();
+    }
+}
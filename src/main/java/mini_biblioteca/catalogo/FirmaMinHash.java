@@ -0,0 +1,110 @@
+package mini_biblioteca.catalogo;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+Firmas MinHash para detectar libros casi duplicados:
+- El titulo se normaliza (minusculas, sin acentos, sin lo que va entre parentesis o corchetes como "(ed. 2)",
+  sin signos) y se parte en shingles de 3 caracteres.
+- Los autores pesan lo mismo que el titulo: cada autor se repite como varias caracteristicas hasta sumar tantas
+  como shingles. Asi dos libros con el mismo titulo pero autores distintos no pasan el umbral.
+- La firma tiene NUM_HASHES minimos, uno por funcion hash. La fraccion de posiciones iguales entre dos firmas
+  estima la similitud de Jaccard de sus caracteristicas.
+- Para LSH la firma se parte en BANDAS de FILAS_POR_BANDA valores; dos libros son candidatos si coinciden
+  en al menos una banda completa (con 10 bandas de 4 filas el umbral queda cerca de 0.56).
+* */
+final class FirmaMinHash {
+
+    static final int BANDAS = 10;
+
+    static final int FILAS_POR_BANDA = 4;
+
+    static final int NUM_HASHES = BANDAS * FILAS_POR_BANDA;
+
+    private static final int TAMANO_SHINGLE = 3;
+
+    private static final long[] SEMILLAS = new long[NUM_HASHES];
+
+    static {
+        long semilla = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            semilla = mezclar(semilla + i);
+            SEMILLAS[i] = semilla;
+        }
+    }
+
+    private FirmaMinHash() {
+    }
+
+    static String normalizar(String titulo) {
+        if (titulo == null) {
+            return "";
+        }
+        String sinAcentos = Normalizer.normalize(titulo, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinAcentos.toLowerCase(Locale.ROOT)
+                .replaceAll("\\([^)]*\\)|\\[[^]]*]", " ")
+                .replaceAll("[^a-z0-9]+", " ")
+                .trim();
+    }
+
+    static int[] firma(String titulo, long[] autorIds) {
+        String normalizado = normalizar(titulo);
+        int shingles = Math.max(1, normalizado.length() - TAMANO_SHINGLE + 1);
+        int repeticiones = autorIds.length == 0 ? 0 : Math.max(1, shingles / autorIds.length);
+        long[] caracteristicas = new long[shingles + autorIds.length * repeticiones];
+        for (int i = 0; i < shingles; i++) {
+            String shingle = normalizado.substring(i, Math.min(normalizado.length(), i + TAMANO_SHINGLE));
+            caracteristicas[i] = shingle.hashCode() & 0xFFFFFFFFL;
+        }
+        int c = shingles;
+        for (long autorId : autorIds) {
+            for (int r = 0; r < repeticiones; r++) {
+                //Bit 62 encendido: un autor no puede chocar con un shingle (que solo usa los 32 bits bajos)
+                caracteristicas[c++] = (mezclar(autorId * 31 + r) & 0x3FFFFFFFFFFFFFFFL) | 1L << 62;
+            }
+        }
+        int[] firma = new int[NUM_HASHES];
+        Arrays.fill(firma, Integer.MAX_VALUE);
+        for (long caracteristica : caracteristicas) {
+            for (int h = 0; h < NUM_HASHES; h++) {
+                int valor = (int) (mezclar(caracteristica ^ SEMILLAS[h]) >>> 33);
+                if (valor < firma[h]) {
+                    firma[h] = valor;
+                }
+            }
+        }
+        return firma;
+    }
+
+    //Llave de cada banda: numero de banda en los 32 bits altos y el hash de sus filas abajo
+    static long[] bandas(int[] firma) {
+        long[] bandas = new long[BANDAS];
+        for (int b = 0; b < BANDAS; b++) {
+            int hash = 1;
+            for (int f = 0; f < FILAS_POR_BANDA; f++) {
+                hash = 31 * hash + firma[b * FILAS_POR_BANDA + f];
+            }
+            bandas[b] = ((long) b << 32) | (hash & 0xFFFFFFFFL);
+        }
+        return bandas;
+    }
+
+    static double similitud(int[] a, int[] b) {
+        int iguales = 0;
+        for (int h = 0; h < NUM_HASHES; h++) {
+            if (a[h] == b[h]) {
+                iguales++;
+            }
+        }
+        return (double) iguales / NUM_HASHES;
+    }
+
+    //Finalizador de splitmix64
+    private static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,167 @@
+package mini_biblioteca.catalogo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*
+Grafo de coautoria inmutable en formato CSR (compressed sparse row), construido a partir de libro_autor:
+- autores: ids de autor ordenados; la posicion en este arreglo es el indice denso del autor.
+- Fila del autor i: vecinos[inicio[i] .. inicio[i+1]) con su peso (cuantos libros escribieron juntos),
+  ya ordenada por peso descendente, asi el top-k son los primeros k de la fila.
+- Tambien guarda los autores de cada libro (otro CSR) para saber que aristas cambian cuando se edita un libro.
+La construccion ordena los pares con Arrays.parallelSort y ordena las filas en paralelo.
+* */
+public final class GrafoCoautores {
+
+    private final long[] autores;
+
+    private final int[] inicio;
+
+    private final int[] vecinos;
+
+    private final int[] pesos;
+
+    private final long[] libros;
+
+    private final int[] inicioLibro;
+
+    private final int[] autoresDeLibro;
+
+    private GrafoCoautores(long[] autores, int[] inicio, int[] vecinos, int[] pesos,
+                           long[] libros, int[] inicioLibro, int[] autoresDeLibro) {
+        this.autores = autores;
+        this.inicio = inicio;
+        this.vecinos = vecinos;
+        this.pesos = pesos;
+        this.libros = libros;
+        this.inicioLibro = inicioLibro;
+        this.autoresDeLibro = autoresDeLibro;
+    }
+
+    //librosAutores: [libroId, autorId]
+    static GrafoCoautores construir(List<Object[]> librosAutores) {
+        int n = librosAutores.size();
+        long[] libroIds = new long[n];
+        long[] autorIds = new long[n];
+        for (int i = 0; i < n; i++) {
+            libroIds[i] = (Long) librosAutores.get(i)[0];
+            autorIds[i] = (Long) librosAutores.get(i)[1];
+        }
+        long[] autores = unicos(autorIds);
+        long[] libros = unicos(libroIds);
+
+        //Pares (libro, autor) como long para ordenarlos juntos: quedan agrupados por libro
+        long[] pares = new long[n];
+        for (int i = 0; i < n; i++) {
+            pares[i] = ((long) Arrays.binarySearch(libros, libroIds[i]) << 32) | Arrays.binarySearch(autores, autorIds[i]);
+        }
+        Arrays.parallelSort(pares);
+        //Un autor repetido en el mismo libro no cuenta como coautor de si mismo
+        pares = Arrays.stream(pares).distinct().toArray();
+        n = pares.length;
+        int[] inicioLibro = new int[libros.length + 1];
+        int[] autoresDeLibro = new int[n];
+        long totalAristas = 0;
+        for (int i = 0; i < n; i++) {
+            inicioLibro[(int) (pares[i] >>> 32) + 1]++;
+            autoresDeLibro[i] = (int) pares[i];
+        }
+        for (int l = 0; l < libros.length; l++) {
+            int k = inicioLibro[l + 1];
+            totalAristas += (long) k * (k - 1);
+            inicioLibro[l + 1] += inicioLibro[l];
+        }
+
+        //Una arista dirigida (a, b) por cada par de coautores de cada libro
+        long[] aristas = new long[Math.toIntExact(totalAristas)];
+        int a = 0;
+        for (int l = 0; l < libros.length; l++) {
+            for (int i = inicioLibro[l]; i < inicioLibro[l + 1]; i++) {
+                for (int j = inicioLibro[l]; j < inicioLibro[l + 1]; j++) {
+                    if (i != j) {
+                        aristas[a++] = ((long) autoresDeLibro[i] << 32) | autoresDeLibro[j];
+                    }
+                }
+            }
+        }
+        Arrays.parallelSort(aristas);
+
+        //Aristas repetidas = libros en comun: se juntan en una sola con su peso
+        int[] inicio = new int[autores.length + 1];
+        long[] fila = new long[aristas.length];
+        int m = 0;
+        for (int i = 0; i < aristas.length; ) {
+            int j = i;
+            while (j < aristas.length && aristas[j] == aristas[i]) {
+                j++;
+            }
+            int peso = j - i;
+            inicio[(int) (aristas[i] >>> 32) + 1]++;
+            //(MAX - peso, vecino): al ordenar ascendente queda el peso mayor primero
+            fila[m++] = ((long) (Integer.MAX_VALUE - peso) << 32) | (int) aristas[i];
+            i = j;
+        }
+        for (int i = 0; i < autores.length; i++) {
+            inicio[i + 1] += inicio[i];
+        }
+        long[] ordenadas = Arrays.copyOf(fila, m);
+        IntStream.range(0, autores.length).parallel()
+                .forEach(i -> Arrays.sort(ordenadas, inicio[i], inicio[i + 1]));
+        int[] vecinos = new int[m];
+        int[] pesos = new int[m];
+        for (int i = 0; i < m; i++) {
+            vecinos[i] = (int) ordenadas[i];
+            pesos[i] = Integer.MAX_VALUE - (int) (ordenadas[i] >>> 32);
+        }
+        return new GrafoCoautores(autores, inicio, vecinos, pesos, libros, inicioLibro, autoresDeLibro);
+    }
+
+    private static long[] unicos(long[] ids) {
+        return Arrays.stream(ids).parallel().distinct().sorted().toArray();
+    }
+
+    //Los k coautores con mas libros en comun, como pares {autorId, librosEnComun}
+    List<long[]> principales(long autorId, int k) {
+        int i = Arrays.binarySearch(autores, autorId);
+        List<long[]> resultado = new ArrayList<>();
+        if (i < 0) {
+            return resultado;
+        }
+        for (int e = inicio[i]; e < inicio[i + 1] && resultado.size() < k; e++) {
+            resultado.add(new long[]{autores[vecinos[e]], pesos[e]});
+        }
+        return resultado;
+    }
+
+    //Toda la fila del autor (para combinarla con los cambios pendientes)
+    List<long[]> coautores(long autorId) {
+        return principales(autorId, Integer.MAX_VALUE);
+    }
+
+    long[] autoresDeLibro(long libroId) {
+        int l = Arrays.binarySearch(libros, libroId);
+        if (l < 0) {
+            return new long[0];
+        }
+        long[] ids = new long[inicioLibro[l + 1] - inicioLibro[l]];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = autores[autoresDeLibro[inicioLibro[l] + i]];
+        }
+        return ids;
+    }
+
+    int totalAutores() {
+        return autores.length;
+    }
+
+    int totalAristas() {
+        return vecinos.length;
+    }
+
+    long bytesEstimados() {
+        return 8L * (autores.length + libros.length)
+                + 4L * (inicio.length + vecinos.length + pesos.length + inicioLibro.length + autoresDeLibro.length);
+    }
+}
@@ -0,0 +1,164 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.LibroRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Autores relacionados (biblioteca.coautores.habilitado=true):
+- Al arrancar se construye un GrafoCoautores (CSR) con todas las filas de libro_autor.
+- Cuando se guarda o elimina un libro no se reconstruye el grafo: se anotan las diferencias de peso de las
+  aristas afectadas. Al consultar un autor sin cambios pendientes se leen los primeros k de su fila;
+  si tiene cambios se combina su fila con las diferencias.
+- Cuando hay muchos libros cambiados (biblioteca.coautores.max-cambios) el grafo se reconstruye desde la BD
+  y se descartan las diferencias.
+* */
+@Component
+public class IndiceCoautores {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceCoautores.class);
+
+    private static final long[] SIN_AUTORES = new long[0];
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    private final boolean habilitado;
+
+    private final int maximoCambios;
+
+    //null mientras no se ha construido (o si esta deshabilitado)
+    private volatile GrafoCoautores grafo;
+
+    //Autores actuales de los libros que cambiaron despues de construir el grafo
+    private final Map<Long, long[]> librosCambiados = new HashMap<>();
+
+    //autorId -> (coautorId -> diferencia de libros en comun); los mapas internos no se modifican, se reemplazan
+    private final Map<Long, Map<Long, Integer>> diferencias = new ConcurrentHashMap<>();
+
+    public IndiceCoautores(MeterRegistry meterRegistry,
+                           @Value("${biblioteca.coautores.habilitado:true}") boolean habilitado,
+                           @Value("${biblioteca.coautores.max-cambios:10000}") int maximoCambios) {
+        this.habilitado = habilitado;
+        this.maximoCambios = maximoCambios;
+        Gauge.builder("biblioteca.coautores.bytes", this, i -> i.grafo == null ? 0 : i.grafo.bytesEstimados())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public boolean estaListo() {
+        return grafo != null;
+    }
+
+    public synchronized void reconstruir() {
+        long inicio = System.nanoTime();
+        cargar(GrafoCoautores.construir(libroRepository.proyectarLibrosAutores()));
+        log.info("Grafo de coautores construido: {} autores, {} aristas en {} ms",
+                grafo.totalAutores(), grafo.totalAristas(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    synchronized void cargar(GrafoCoautores nuevo) {
+        grafo = nuevo;
+        librosCambiados.clear();
+        diferencias.clear();
+    }
+
+    //Los k coautores con mas libros en comun, de mayor a menor; vacio si el indice no esta listo
+    public List<Colaborador> relacionados(long autorId, int k) {
+        GrafoCoautores actual = grafo;
+        if (actual == null) {
+            return List.of();
+        }
+        Map<Long, Integer> pendientes = diferencias.get(autorId);
+        List<Colaborador> resultado = new ArrayList<>();
+        if (pendientes == null) {
+            for (long[] par : actual.principales(autorId, k)) {
+                resultado.add(new Colaborador(par[0], (int) par[1]));
+            }
+            return resultado;
+        }
+        Map<Long, Integer> pesos = new HashMap<>(pendientes);
+        for (long[] par : actual.coautores(autorId)) {
+            pesos.merge(par[0], (int) par[1], Integer::sum);
+        }
+        pesos.forEach((coautor, peso) -> {
+            if (peso > 0) {
+                resultado.add(new Colaborador(coautor, peso));
+            }
+        });
+        resultado.sort(Comparator.comparingInt(Colaborador::getLibrosEnComun).reversed()
+                .thenComparing(Colaborador::getAutorId));
+        return resultado.size() > k ? resultado.subList(0, k) : resultado;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aplicar(CambioCatalogo cambio) {
+        if (grafo == null || cambio.tipo() != TipoEntidad.LIBRO) {
+            return;
+        }
+        long[] antes = librosCambiados.containsKey(cambio.id())
+                ? librosCambiados.get(cambio.id()) : grafo.autoresDeLibro(cambio.id());
+        long[] despues = cambio.eliminado() ? SIN_AUTORES : autoresDe((Libro) cambio.entidad());
+        if (Arrays.equals(antes, despues)) {
+            return;
+        }
+        sumarCoautorias(antes, -1);
+        sumarCoautorias(despues, 1);
+        librosCambiados.put(cambio.id(), despues);
+    }
+
+    //Se revisa aparte para no reconstruir dentro del hilo de la peticion que guardo el libro
+    @Scheduled(fixedDelayString = "${biblioteca.coautores.revision-ms:60000}")
+    public void reconstruirSiHayMuchosCambios() {
+        boolean muchos;
+        synchronized (this) {
+            muchos = librosCambiados.size() > maximoCambios;
+        }
+        if (muchos) {
+            reconstruir();
+        }
+    }
+
+    private static long[] autoresDe(Libro libro) {
+        return libro.getAutores().stream().mapToLong(Autor::getId).distinct().sorted().toArray();
+    }
+
+    private void sumarCoautorias(long[] autores, int signo) {
+        for (long a : autores) {
+            Map<Long, Integer> nuevas = new HashMap<>(diferencias.getOrDefault(a, Map.of()));
+            for (long b : autores) {
+                if (a != b) {
+                    nuevas.merge(b, signo, Integer::sum);
+                }
+            }
+            diferencias.put(a, Map.copyOf(nuevas));
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.repositories.LibroRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Conteos por faceta (categoria, editorial, autor) sin SQL (biblioteca.facetas.habilitado=true):
+- Un bitmap comprimido (RoaringBitmap) con los ids de libro de cada categoria, editorial y autor, mas uno con todos.
+- Una combinacion de criterios es la interseccion de sus bitmaps; el conteo de cada opcion es la cardinalidad
+  de la interseccion con su bitmap, sin materializar el resultado.
+- Se construye al arrancar con las mismas proyecciones del catalogo en memoria y se mantiene con los
+  CambioCatalogo y FusionCatalogo que publican los servicios.
+- Por cada libro se guardan sus opciones (categoria, editorial, autores): quitar o mover un libro toca solo esos
+  bitmaps y no todos los de cada faceta. Borrar una editorial o categoria quita sus libros (se borran en cascada).
+- Los cambios que llegan mientras se reconstruye se guardan y se vuelven a aplicar sobre lo construido: la lectura
+  de la BD pudo ser anterior a ellos.
+- Los autores se cuentan solo para las opciones que muestra el combo, no para todos los autores.
+- Los ids de libro se guardan como int (RoaringBitmap es de 32 bits).
+* */
+@Component
+public class IndiceFacetas {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceFacetas.class);
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    private final boolean habilitado;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final RoaringBitmap todos = new RoaringBitmap();
+
+    private final Map<Long, RoaringBitmap> porCategoria = new HashMap<>();
+
+    private final Map<Long, RoaringBitmap> porEditorial = new HashMap<>();
+
+    private final Map<Long, RoaringBitmap> porAutor = new HashMap<>();
+
+    //libroId -> [categoriaId, editorialId, autorIds...]; SIN_ID si no tiene categoria o editorial
+    private final Map<Integer, long[]> opcionesDeLibro = new HashMap<>();
+
+    //null fuera de una reconstruccion; se escribe con el lock de escritura
+    private List<Object> pendientes;
+
+    private volatile boolean listo;
+
+    public IndiceFacetas(MeterRegistry meterRegistry,
+                         @Value("${biblioteca.facetas.habilitado:true}") boolean habilitado) {
+        this.habilitado = habilitado;
+        Gauge.builder("biblioteca.facetas.bytes", this, IndiceFacetas::bytesEstimados).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public synchronized void reconstruir() {
+        long inicio = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pendientes = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Object[]> libros;
+        List<Object[]> librosAutores;
+        try {
+            libros = libroRepository.proyectarLibros();
+            librosAutores = libroRepository.proyectarLibrosAutores();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            construir(libros, librosAutores);
+            //Volver a aplicar un cambio que la lectura ya incluia deja el mismo estado
+            for (Object cambio : pendientes) {
+                aplicarSinLock(cambio);
+            }
+            pendientes = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indice de facetas construido: {} libros en {} ms, ~{} KB",
+                todos.getCardinality(), (System.nanoTime() - inicio) / 1_000_000, bytesEstimados() / 1024);
+    }
+
+    //libros: [libroId, titulo, categoriaId, editorialId]; librosAutores: [libroId, autorId]
+    void construir(List<Object[]> libros, List<Object[]> librosAutores) {
+        todos.clear();
+        porCategoria.clear();
+        porEditorial.clear();
+        porAutor.clear();
+        opcionesDeLibro.clear();
+        for (Object[] fila : libros) {
+            int libro = idLibro((Long) fila[0]);
+            todos.add(libro);
+            agregar(porCategoria, (Long) fila[2], libro);
+            agregar(porEditorial, (Long) fila[3], libro);
+            opcionesDeLibro.put(libro, new long[]{id((Long) fila[2]), id((Long) fila[3])});
+        }
+        for (Object[] fila : librosAutores) {
+            int libro = idLibro((Long) fila[0]);
+            agregar(porAutor, (Long) fila[1], libro);
+            long[] opciones = opcionesDeLibro.get(libro);
+            if (opciones != null) {
+                opciones = Arrays.copyOf(opciones, opciones.length + 1);
+                opciones[opciones.length - 1] = (Long) fila[1];
+                opcionesDeLibro.put(libro, opciones);
+            }
+        }
+        todos.runOptimize();
+        porCategoria.values().forEach(RoaringBitmap::runOptimize);
+        porEditorial.values().forEach(RoaringBitmap::runOptimize);
+        porAutor.values().forEach(RoaringBitmap::runOptimize);
+        listo = true;
+    }
+
+    public boolean estaListo() {
+        return listo;
+    }
+
+    //Vacio si el indice esta deshabilitado o todavia no se construye; los criterios null no filtran.
+    //autores: las opciones del combo de autores, las unicas que se cuentan
+    public Optional<Facetas> contar(Long categoriaId, Long editorialId, Long autorId, Collection<Long> autores) {
+        if (!listo) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categoria = seleccion(porCategoria, categoriaId);
+            RoaringBitmap editorial = seleccion(porEditorial, editorialId);
+            RoaringBitmap autor = seleccion(porAutor, autorId);
+            int total = RoaringBitmap.and(RoaringBitmap.and(categoria, editorial), autor).getCardinality();
+            return Optional.of(new Facetas(total,
+                    contarOpciones(porCategoria, RoaringBitmap.and(editorial, autor)),
+                    contarOpciones(porEditorial, RoaringBitmap.and(categoria, autor)),
+                    contarOpciones(porAutor, autores, RoaringBitmap.and(categoria, editorial))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aplicar(CambioCatalogo cambio) {
+        registrar(cambio);
+    }
+
+    //Se aplica antes que el CambioCatalogo.eliminado del origen (se publican en ese orden), que ya no tiene libros
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aplicar(FusionCatalogo fusion) {
+        registrar(fusion);
+    }
+
+    private void registrar(Object cambio) {
+        lock.writeLock().lock();
+        try {
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+            if (listo) {
+                aplicarSinLock(cambio);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void aplicarSinLock(Object evento) {
+        if (evento instanceof FusionCatalogo fusion) {
+            switch (fusion.tipo()) {
+                case CATEGORIA -> mover(porCategoria, 0, fusion.origen(), fusion.destino());
+                case EDITORIAL -> mover(porEditorial, 1, fusion.origen(), fusion.destino());
+                case AUTOR -> moverAutor(fusion.origen(), fusion.destino());
+                default -> {
+                }
+            }
+            return;
+        }
+        CambioCatalogo cambio = (CambioCatalogo) evento;
+        switch (cambio.tipo()) {
+            case LIBRO -> {
+                quitarLibro(idLibro(cambio.id()));
+                if (!cambio.eliminado()) {
+                    agregarLibro((Libro) cambio.entidad());
+                }
+            }
+            case CATEGORIA -> quitarLibrosDe(porCategoria, cambio);
+            case EDITORIAL -> quitarLibrosDe(porEditorial, cambio);
+            case AUTOR -> quitarAutor(cambio);
+        }
+    }
+
+    private void agregarLibro(Libro libro) {
+        int id = idLibro(libro.getId());
+        todos.add(id);
+        agregar(porCategoria, libro.getCategoria() == null ? null : libro.getCategoria().getId(), id);
+        agregar(porEditorial, libro.getEditorial() == null ? null : libro.getEditorial().getId(), id);
+        long[] opciones = new long[2 + libro.getAutores().size()];
+        opciones[0] = libro.getCategoria() == null ? CatalogoSnapshot.SIN_ID : libro.getCategoria().getId();
+        opciones[1] = libro.getEditorial() == null ? CatalogoSnapshot.SIN_ID : libro.getEditorial().getId();
+        int i = 2;
+        for (Autor autor : libro.getAutores()) {
+            agregar(porAutor, autor.getId(), id);
+            opciones[i++] = autor.getId();
+        }
+        opcionesDeLibro.put(id, opciones);
+    }
+
+    //Solo los bitmaps de las opciones del libro
+    private void quitarLibro(int id) {
+        todos.remove(id);
+        long[] opciones = opcionesDeLibro.remove(id);
+        if (opciones == null) {
+            return;
+        }
+        quitarDe(porCategoria, opciones[0], id);
+        quitarDe(porEditorial, opciones[1], id);
+        for (int i = 2; i < opciones.length; i++) {
+            quitarDe(porAutor, opciones[i], id);
+        }
+    }
+
+    //Los libros de una editorial o categoria borrada se borraron en cascada
+    private void quitarLibrosDe(Map<Long, RoaringBitmap> faceta, CambioCatalogo cambio) {
+        if (!cambio.eliminado()) {
+            return;
+        }
+        RoaringBitmap libros = faceta.remove(cambio.id());
+        if (libros != null) {
+            libros.forEach((int libro) -> quitarLibro(libro));
+        }
+    }
+
+    //Borrar un autor lo quita de sus libros, que siguen existiendo
+    private void quitarAutor(CambioCatalogo cambio) {
+        if (!cambio.eliminado()) {
+            return;
+        }
+        RoaringBitmap libros = porAutor.remove(cambio.id());
+        if (libros != null) {
+            libros.forEach((int libro) -> opcionesDeLibro.computeIfPresent(libro,
+                    (k, opciones) -> sinAutor(opciones, cambio.id())));
+        }
+    }
+
+    //posicion: 0 categoria, 1 editorial en opcionesDeLibro
+    private void mover(Map<Long, RoaringBitmap> faceta, int posicion, long origen, long destino) {
+        RoaringBitmap libros = faceta.remove(origen);
+        if (libros == null) {
+            return;
+        }
+        faceta.computeIfAbsent(destino, k -> new RoaringBitmap()).or(libros);
+        libros.forEach((int libro) -> {
+            long[] opciones = opcionesDeLibro.get(libro);
+            if (opciones != null) {
+                opciones[posicion] = destino;
+            }
+        });
+    }
+
+    //Un libro que ya tenia al destino no lo repite
+    private void moverAutor(long origen, long destino) {
+        RoaringBitmap libros = porAutor.remove(origen);
+        if (libros == null) {
+            return;
+        }
+        RoaringBitmap delDestino = porAutor.computeIfAbsent(destino, k -> new RoaringBitmap());
+        libros.forEach((int libro) -> {
+            long[] opciones = opcionesDeLibro.get(libro);
+            if (opciones != null) {
+                long[] sinOrigen = sinAutor(opciones, origen);
+                if (!delDestino.contains(libro)) {
+                    sinOrigen = Arrays.copyOf(sinOrigen, sinOrigen.length + 1);
+                    sinOrigen[sinOrigen.length - 1] = destino;
+                }
+                opcionesDeLibro.put(libro, sinOrigen);
+            }
+        });
+        delDestino.or(libros);
+    }
+
+    private static long[] sinAutor(long[] opciones, long autor) {
+        long[] resultado = new long[opciones.length];
+        int n = 0;
+        for (int i = 0; i < opciones.length; i++) {
+            if (i < 2 || opciones[i] != autor) {
+                resultado[n++] = opciones[i];
+            }
+        }
+        return n == opciones.length ? opciones : Arrays.copyOf(resultado, n);
+    }
+
+    private static void quitarDe(Map<Long, RoaringBitmap> faceta, long opcion, int libro) {
+        RoaringBitmap libros = faceta.get(opcion);
+        if (libros != null) {
+            libros.remove(libro);
+        }
+    }
+
+    private static long id(Long opcion) {
+        return opcion == null ? CatalogoSnapshot.SIN_ID : opcion;
+    }
+
+    private static void agregar(Map<Long, RoaringBitmap> faceta, Long opcion, int libro) {
+        if (opcion != null) {
+            faceta.computeIfAbsent(opcion, k -> new RoaringBitmap()).add(libro);
+        }
+    }
+
+    private RoaringBitmap seleccion(Map<Long, RoaringBitmap> faceta, Long opcion) {
+        if (opcion == null) {
+            return todos;
+        }
+        return faceta.getOrDefault(opcion, new RoaringBitmap());
+    }
+
+    private static Map<Long, Integer> contarOpciones(Map<Long, RoaringBitmap> faceta, RoaringBitmap base) {
+        Map<Long, Integer> conteos = new HashMap<>();
+        faceta.forEach((opcion, libros) -> {
+            int conteo = RoaringBitmap.andCardinality(base, libros);
+            if (conteo > 0) {
+                conteos.put(opcion, conteo);
+            }
+        });
+        return conteos;
+    }
+
+    private static Map<Long, Integer> contarOpciones(Map<Long, RoaringBitmap> faceta, Collection<Long> opciones,
+                                                    RoaringBitmap base) {
+        Map<Long, Integer> conteos = new HashMap<>();
+        for (Long opcion : opciones) {
+            RoaringBitmap libros = faceta.get(opcion);
+            int conteo = libros == null ? 0 : RoaringBitmap.andCardinality(base, libros);
+            if (conteo > 0) {
+                conteos.put(opcion, conteo);
+            }
+        }
+        return conteos;
+    }
+
+    private static int idLibro(long id) {
+        return Math.toIntExact(id);
+    }
+
+    long bytesEstimados() {
+        lock.readLock().lock();
+        try {
+            long bytes = todos.getLongSizeInBytes();
+            for (Map<Long, RoaringBitmap> faceta : List.of(porCategoria, porEditorial, porAutor)) {
+                for (RoaringBitmap libros : faceta.values()) {
+                    bytes += libros.getLongSizeInBytes();
+                }
+            }
+            //Aproximado: entrada del HashMap, Integer y arreglo
+            for (long[] opciones : opcionesDeLibro.values()) {
+                bytes += 64 + 8L * opciones.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
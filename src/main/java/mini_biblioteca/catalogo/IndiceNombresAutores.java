@@ -0,0 +1,635 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.EventoCatalogoRepository;
+import mini_biblioteca.repositories.VersionCambioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+Busqueda de autores con nombres parecidos (biblioteca.autores.sugerencias=true):
+- Clave de un nombre: sin acentos, en minusculas, sin signos y con las palabras ordenadas. Asi
+  "García Márquez, Gabriel" y "Gabriel Garcia Marquez" tienen la misma clave.
+- Indice invertido de trigramas de cada palabra de la clave -> ids de autor.
+- La distancia entre dos claves es la suma de las distancias de Levenshtein entre sus palabras emparejadas (asi un
+  error en la primera letra no cambia el orden de las palabras). Una edicion cambia a lo mas 3 trigramas, entonces
+  dos claves a distancia d comparten al menos (trigramas - 3d) y basta revisar los autores de los 3d+1 trigramas
+  menos frecuentes de la consulta (prefix filtering) y confirmar cada candidato con Levenshtein acotado.
+  El costo depende de los trigramas raros, no del total de autores.
+- La distancia permitida crece con el largo del nombre (0 hasta 4 letras, 1 hasta 8, luego la maxima).
+
+Persistencia (biblioteca.segmentos.directorio, vacio = solo en memoria):
+- La base del indice es un SegmentoNombres inmutable (autores-N.seg) abierto con mmap; no ocupa heap.
+- Los CambioCatalogo de autores van a un delta en memoria y al log autores-N.log (LogCambiosNombres).
+- Cada biblioteca.segmentos.fusion-ms, si hay delta, se rota el log y se escribe un segmento nuevo con la base y
+  el delta; al terminar se cambia la base y se borran los archivos viejos.
+- Al arrancar se abre el ultimo segmento y se reproducen los logs: el nodo responde en segundos y el sistema
+  operativo carga las paginas a medida que se consultan. Cada segmento guarda la version de AUTOR en version_cambio
+  que incluye, y cada registro del log suma uno; si no coincide con la BD (cambios de otro nodo, una caida entre
+  el commit y el log) se reconstruye desde la BD.
+
+Cambios de otro nodo (ponerseAlDia, lo llama InvalidacionDistribuida):
+- Se leen los eventos de AUTOR del outbox desde el ultimo offset visto y el nombre actual de esos autores; cada
+  evento que cambia algo entra al delta y al log como un cambio local. No se relee la tabla de autores.
+- Los eventos de este mismo nodo ya estan aplicados y no cambian nada: no se cuentan ni se escriben otra vez.
+- Solo si el hueco de versiones de AUTOR pasa del maximo (o se perdio el offset) se reconstruye todo.
+* */
+@Component
+public class IndiceNombresAutores {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceNombresAutores.class);
+
+    private static final int Q = 3;
+
+    private static final int EVENTOS_POR_LOTE = 500;
+
+    private static final Pattern ARCHIVO = Pattern.compile("autores-(\\d+)\\.(seg|log)");
+
+    @Autowired
+    private AutorRepository autorRepository;
+
+    @Autowired
+    private VersionCambioRepository versionCambioRepository;
+
+    @Autowired
+    private EventoCatalogoRepository eventoCatalogoRepository;
+
+    private final TransactionTemplate lectura;
+
+    private final boolean habilitado;
+
+    private final int distanciaMaxima;
+
+    //null = sin persistencia
+    private final Path directorio;
+
+    private final boolean sincronizar;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Solo una fusion o reconstruccion a la vez
+    private final Object fusion = new Object();
+
+    private SegmentoNombres base = SegmentoNombres.vacio();
+
+    //Cambios posteriores a la base: id de autor -> clave (null = borrado)
+    private final Map<Long, String> delta = new HashMap<>();
+
+    private final Map<Integer, Ids> trigramasDelta = new HashMap<>();
+
+    private LogCambiosNombres logActual;
+
+    private long generacionLog;
+
+    //Version de AUTOR que deberia tener la BD si todos sus cambios pasaron por este nodo
+    private long versionEsperada;
+
+    //Secuencia del outbox hasta la que el indice esta al dia; se usa dentro de synchronized (fusion)
+    private long cursorOutbox;
+
+    private volatile boolean listo;
+
+    public IndiceNombresAutores(MeterRegistry meterRegistry,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${biblioteca.autores.sugerencias:true}") boolean habilitado,
+                                @Value("${biblioteca.autores.distancia-maxima:2}") int distanciaMaxima,
+                                @Value("${biblioteca.segmentos.directorio:}") String directorio,
+                                @Value("${biblioteca.segmentos.sincronizar:true}") boolean sincronizar) {
+        this.habilitado = habilitado;
+        this.distanciaMaxima = distanciaMaxima;
+        this.directorio = directorio == null || directorio.isBlank() ? null : Paths.get(directorio);
+        this.sincronizar = sincronizar;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        Gauge.builder("biblioteca.autores.nombres.segmento", this, i -> i.base.tamano()).register(meterRegistry);
+        Gauge.builder("biblioteca.autores.nombres.segmento_bytes", this, i -> i.base.bytes()).register(meterRegistry);
+        Gauge.builder("biblioteca.autores.nombres.delta", this, i -> i.delta.size()).register(meterRegistry);
+    }
+
+    //Lista de ids que crece como un ArrayList pero sin boxing
+    private static final class Ids {
+
+        long[] ids = new long[4];
+
+        int tamano;
+
+        void agregar(long id) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            ids[tamano++] = id;
+        }
+    }
+
+    //Lo que se congela al rotar el log: la base, el delta hasta ese momento y su version
+    private record Rotacion(SegmentoNombres base, Map<Long, String> cambios, long version, long generacion) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (!habilitado) {
+            return;
+        }
+        //Antes de comparar versiones: un evento que se confirme en medio se vuelve a aplicar, sin efecto
+        long cursor = eventoCatalogoRepository.ultimaSecuencia();
+        if (directorio != null && abrirPersistido()) {
+            synchronized (fusion) {
+                cursorOutbox = cursor;
+            }
+            Long enBd = versionCambioRepository.versionDe(TipoEntidad.AUTOR.name());
+            if ((enBd == null ? 0L : enBd) == versionEsperada) {
+                log.info("Indice de nombres de autores abierto desde {}: {} autores en el segmento, {} en el delta",
+                        directorio, base.tamano(), delta.size());
+                return;
+            }
+            log.info("Indice de nombres de autores en disco desactualizado (version {} y en la BD {}), reconstruyendo",
+                    versionEsperada, enBd);
+        }
+        reconstruir();
+    }
+
+    public boolean estaListo() {
+        return listo;
+    }
+
+    public void reconstruir() {
+        synchronized (fusion) {
+            long inicio = System.nanoTime();
+            //Se rota antes de leer: lo que se guarde durante la lectura queda en el log nuevo y en el delta
+            Rotacion rotacion = rotar();
+            //El offset del outbox va primero: los eventos hasta ahi ya estan en los nombres que se leen despues
+            Object[] leido = lectura.execute(estado -> new Object[]{eventoCatalogoRepository.ultimaSecuencia(),
+                    versionCambioRepository.versionDe(TipoEntidad.AUTOR.name()), autorRepository.proyectarNombres()});
+            @SuppressWarnings("unchecked")
+            List<Object[]> autores = (List<Object[]>) leido[2];
+            if (instalar(rotacion, claves(autores), leido[1] == null ? 0 : (Long) leido[1])) {
+                cursorOutbox = (Long) leido[0];
+            }
+            log.info("Indice de nombres de autores construido: {} autores en {} ms",
+                    base.tamano(), (System.nanoTime() - inicio) / 1_000_000);
+        }
+    }
+
+    //autores: [autorId, nombre]
+    void cargar(List<Object[]> autores) {
+        synchronized (fusion) {
+            instalar(rotar(), claves(autores), 0);
+        }
+    }
+
+    //Escribe un segmento nuevo con la base y el delta actual
+    @Scheduled(fixedDelayString = "${biblioteca.segmentos.fusion-ms:60000}")
+    public void fusionar() {
+        if (!listo) {
+            return;
+        }
+        synchronized (fusion) {
+            lock.readLock().lock();
+            try {
+                if (delta.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            long inicio = System.nanoTime();
+            Rotacion rotacion = rotar();
+            TreeMap<Long, String> claves = new TreeMap<>();
+            for (int i = 0; i < rotacion.base().tamano(); i++) {
+                claves.put(rotacion.base().id(i), rotacion.base().clave(i));
+            }
+            rotacion.cambios().forEach((id, clave) -> {
+                if (clave == null) {
+                    claves.remove(id);
+                } else {
+                    claves.put(id, clave);
+                }
+            });
+            instalar(rotacion, claves, rotacion.version());
+            log.info("Segmento de nombres de autores fusionado: {} autores, {} cambios, en {} ms",
+                    claves.size(), rotacion.cambios().size(), (System.nanoTime() - inicio) / 1_000_000);
+        }
+    }
+
+    private TreeMap<Long, String> claves(List<Object[]> autores) {
+        TreeMap<Long, String> claves = new TreeMap<>();
+        for (Object[] fila : autores) {
+            claves.put((Long) fila[0], normalizar((String) fila[1]));
+        }
+        return claves;
+    }
+
+    private Rotacion rotar() {
+        lock.writeLock().lock();
+        try {
+            long generacion = generacionLog + 1;
+            if (directorio != null) {
+                if (logActual != null) {
+                    logActual.close();
+                }
+                Files.createDirectories(directorio);
+                logActual = LogCambiosNombres.abrir(archivo(generacion, "log"), sincronizar, (id, clave) -> {
+                });
+            }
+            generacionLog = generacion;
+            return new Rotacion(base, new HashMap<>(delta), versionEsperada, generacion);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //false si no se pudo escribir el segmento (queda la base anterior)
+    private boolean instalar(Rotacion rotacion, TreeMap<Long, String> claves, long version) {
+        SegmentoNombres nuevo;
+        try {
+            nuevo = directorio == null
+                    ? SegmentoNombres.construir(claves, version, IndiceNombresAutores::trigramasDe)
+                    : SegmentoNombres.escribir(archivo(rotacion.generacion(), "seg"), claves, version,
+                    IndiceNombresAutores::trigramasDe);
+        } catch (IOException e) {
+            //La base anterior y su delta siguen sirviendo; los logs no se borran
+            log.error("No se pudo escribir el segmento de nombres de autores", e);
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            base = nuevo;
+            //Lo que cambio despues de la rotacion sigue en el delta (y en el log nuevo)
+            delta.entrySet().removeIf(e -> rotacion.cambios().containsKey(e.getKey())
+                    && Objects.equals(rotacion.cambios().get(e.getKey()), e.getValue()));
+            trigramasDelta.clear();
+            delta.forEach(this::agregarTrigramas);
+            versionEsperada = version + (logActual == null ? 0 : logActual.registros());
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        borrarArchivosAnteriores(rotacion.generacion());
+        return true;
+    }
+
+    /*
+    Aplica los cambios de autores de otros nodos leyendo el outbox desde cursorOutbox. El nombre se lee con el lock
+    de escritura tomado: un cambio local que confirme mientras tanto se aplica despues y no queda tapado por el
+    nombre viejo. Con mas de maximoHueco versiones de AUTOR sin aplicar se reconstruye todo.
+    * */
+    public void ponerseAlDia(long maximoHueco) {
+        if (!listo) {
+            return;
+        }
+        synchronized (fusion) {
+            Long enBd = versionCambioRepository.versionDe(TipoEntidad.AUTOR.name());
+            long hueco;
+            lock.readLock().lock();
+            try {
+                hueco = (enBd == null ? 0 : enBd) - versionEsperada;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (hueco > maximoHueco) {
+                log.info("Indice de nombres de autores {} versiones atras, reconstruyendo", hueco);
+                reconstruir();
+                return;
+            }
+            int aplicados = 0;
+            List<EventoCatalogo> eventos;
+            do {
+                eventos = eventoCatalogoRepository.buscarDesde(cursorOutbox, TipoEntidad.AUTOR,
+                        PageRequest.of(0, EVENTOS_POR_LOTE));
+                if (!eventos.isEmpty()) {
+                    aplicados += aplicarEventos(eventos);
+                    cursorOutbox = eventos.get(eventos.size() - 1).getSecuencia();
+                }
+            } while (eventos.size() == EVENTOS_POR_LOTE);
+            if (aplicados > 0) {
+                log.info("Indice de nombres de autores al dia: {} cambios de otro nodo", aplicados);
+            }
+        }
+    }
+
+    private int aplicarEventos(List<EventoCatalogo> eventos) {
+        List<Long> ids = eventos.stream().map(EventoCatalogo::getEntidadId).distinct().toList();
+        int aplicados = 0;
+        lock.writeLock().lock();
+        try {
+            //Un autor borrado ya no esta: su clave queda null
+            Map<Long, String> claves = new HashMap<>();
+            for (Object[] fila : autorRepository.proyectarNombres(ids)) {
+                claves.put((Long) fila[0], normalizar((String) fila[1]));
+            }
+            for (EventoCatalogo evento : eventos) {
+                String clave = claves.get(evento.getEntidadId());
+                if (aplicarDelta(evento.getEntidadId(), clave)) {
+                    aplicados++;
+                    versionEsperada++;
+                    if (logActual != null) {
+                        logActual.agregar(evento.getEntidadId(), clave);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo escribir el log de nombres de autores: {}", e.toString());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return aplicados;
+    }
+
+    //Abre el ultimo segmento y reproduce los logs posteriores; false si no hay nada que abrir
+    boolean abrirPersistido() {
+        try {
+            if (!Files.isDirectory(directorio)) {
+                return false;
+            }
+            long ultimoSegmento = generaciones("seg").stream().mapToLong(Long::longValue).max().orElse(-1);
+            if (ultimoSegmento < 0) {
+                return false;
+            }
+            SegmentoNombres segmento = SegmentoNombres.abrir(archivo(ultimoSegmento, "seg"));
+            List<Long> logs = generaciones("log").stream().filter(g -> g >= ultimoSegmento).sorted().toList();
+            lock.writeLock().lock();
+            try {
+                base = segmento;
+                delta.clear();
+                trigramasDelta.clear();
+                versionEsperada = segmento.version();
+                for (long generacion : logs) {
+                    LogCambiosNombres logCambios = LogCambiosNombres.abrir(archivo(generacion, "log"), sincronizar,
+                            this::aplicarDelta);
+                    versionEsperada += logCambios.registros();
+                    if (generacion == logs.get(logs.size() - 1)) {
+                        logActual = logCambios;
+                    } else {
+                        logCambios.close();
+                    }
+                }
+                if (logs.isEmpty()) {
+                    logActual = LogCambiosNombres.abrir(archivo(ultimoSegmento, "log"), sincronizar, (id, clave) -> {
+                    });
+                }
+                generacionLog = logs.isEmpty() ? ultimoSegmento : logs.get(logs.size() - 1);
+                listo = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            borrarArchivosAnteriores(ultimoSegmento);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo abrir el indice de nombres de autores en {}: {}", directorio, e.toString());
+            return false;
+        }
+    }
+
+    private Path archivo(long generacion, String extension) {
+        return directorio.resolve(String.format("autores-%06d.%s", generacion, extension));
+    }
+
+    private List<Long> generaciones(String extension) throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(a -> ARCHIVO.matcher(a.getFileName().toString()))
+                    .filter(m -> m.matches() && m.group(2).equals(extension))
+                    .map(m -> Long.parseLong(m.group(1)))
+                    .toList();
+        }
+    }
+
+    //En Linux se pueden borrar archivos mapeados; el mapeo sigue valido hasta que se libera
+    private void borrarArchivosAnteriores(long generacion) {
+        if (directorio == null) {
+            return;
+        }
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.forEach(a -> {
+                Matcher m = ARCHIVO.matcher(a.getFileName().toString());
+                if ((m.matches() && Long.parseLong(m.group(1)) < generacion) || a.toString().endsWith(".tmp")) {
+                    LogCambiosNombres.borrar(a);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("No se pudieron borrar segmentos viejos en {}: {}", directorio, e.toString());
+        }
+    }
+
+    static String normalizar(String nombre) {
+        if (nombre == null) {
+            return "";
+        }
+        String sinAcentos = Normalizer.normalize(nombre, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        String[] palabras = sinAcentos.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim().split(" ");
+        Arrays.sort(palabras);
+        return String.join(" ", palabras).trim();
+    }
+
+    //Ids de autores con nombre parecido, del mas al menos parecido (la distancia 0 es la misma clave)
+    public List<Long> buscar(String nombre, int limite) {
+        String clave = normalizar(nombre);
+        if (!listo || clave.isEmpty()) {
+            return List.of();
+        }
+        int d = clave.length() <= 4 ? 0 : clave.length() <= 8 ? Math.min(1, distanciaMaxima) : distanciaMaxima;
+        lock.readLock().lock();
+        try {
+            //Los trigramas menos frecuentes primero; alguno de los primeros 3d+1 tiene que estar en cada resultado
+            Integer[] porFrecuencia = Arrays.stream(trigramasDe(clave)).boxed()
+                    .sorted(Comparator.comparingInt(this::frecuencia))
+                    .toArray(Integer[]::new);
+            Set<Long> revisados = new HashSet<>();
+            List<long[]> encontrados = new ArrayList<>();
+            for (int g = 0; g < Math.min(porFrecuencia.length, Q * d + 1); g++) {
+                for (int posicion : base.postings(porFrecuencia[g])) {
+                    long id = base.id(posicion);
+                    //Si el autor cambio despues del segmento manda el delta
+                    if (!delta.containsKey(id) && revisados.add(id)) {
+                        confirmar(clave, id, base.clave(posicion), d, encontrados);
+                    }
+                }
+                Ids ids = trigramasDelta.get(porFrecuencia[g]);
+                for (int i = 0; ids != null && i < ids.tamano; i++) {
+                    long id = ids.ids[i];
+                    String otra = delta.get(id);
+                    if (otra != null && revisados.add(id)) {
+                        confirmar(clave, id, otra, d, encontrados);
+                    }
+                }
+            }
+            return encontrados.stream()
+                    .sorted(Comparator.<long[]>comparingLong(e -> e[1]).thenComparingLong(e -> e[0]))
+                    .limit(limite)
+                    .map(e -> e[0])
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int frecuencia(int grama) {
+        Ids ids = trigramasDelta.get(grama);
+        return base.frecuencia(grama) + (ids == null ? 0 : ids.tamano);
+    }
+
+    private static void confirmar(String clave, long id, String otra, int d, List<long[]> encontrados) {
+        int distancia = distanciaPalabras(clave, otra, d);
+        if (distancia <= d) {
+            encontrados.add(new long[]{id, distancia});
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aplicar(CambioCatalogo cambio) {
+        if (!listo || cambio.tipo() != TipoEntidad.AUTOR) {
+            return;
+        }
+        String clave = cambio.eliminado() ? null : normalizar(((Autor) cambio.entidad()).getNombre());
+        lock.writeLock().lock();
+        try {
+            aplicarDelta(cambio.id(), clave);
+            versionEsperada++;
+            if (logActual != null) {
+                logActual.agregar(cambio.id(), clave);
+            }
+        } catch (IOException e) {
+            //Sin el registro la version en disco no coincidira con la BD y el proximo arranque reconstruira
+            log.warn("No se pudo escribir el log de nombres de autores: {}", e.toString());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //false si la clave no cambia
+    private boolean aplicarDelta(long id, String clave) {
+        String anterior;
+        if (delta.containsKey(id)) {
+            anterior = delta.get(id);
+        } else {
+            int posicion = base.posicionDe(id);
+            anterior = posicion < 0 ? null : base.clave(posicion);
+        }
+        if (Objects.equals(anterior, clave)) {
+            return false;
+        }
+        delta.put(id, clave);
+        agregarTrigramas(id, clave);
+        return true;
+    }
+
+    private void agregarTrigramas(long id, String clave) {
+        if (clave == null) {
+            return;
+        }
+        for (int grama : trigramasDe(clave)) {
+            trigramasDelta.computeIfAbsent(grama, g -> new Ids()).agregar(id);
+        }
+    }
+
+    //Trigramas distintos de las palabras con relleno al inicio y al final, para que las palabras cortas tambien tengan
+    static int[] trigramasDe(String clave) {
+        return Arrays.stream(clave.split(" "))
+                .map(palabra -> "$$" + palabra + "$")
+                .flatMapToInt(conRelleno -> IntStream.rangeClosed(0, conRelleno.length() - Q)
+                        .map(i -> conRelleno.substring(i, i + Q).hashCode()))
+                .distinct()
+                .toArray();
+    }
+
+    /*
+    Empareja cada palabra de la consulta con la palabra mas parecida que quede libre en la otra clave.
+    Las palabras que sobran cuestan su largo mas el espacio. Devuelve maxima + 1 si se pasa.
+    * */
+    static int distanciaPalabras(String clave, String otra, int maxima) {
+        String[] palabras = clave.split(" ");
+        List<String> libres = new ArrayList<>(Arrays.asList(otra.split(" ")));
+        int total = 0;
+        for (String palabra : palabras) {
+            int mejor = palabra.length() + 1;
+            int indiceMejor = -1;
+            for (int i = 0; i < libres.size(); i++) {
+                int distancia = distancia(palabra, libres.get(i), Math.min(mejor, maxima - total));
+                if (distancia < mejor) {
+                    mejor = distancia;
+                    indiceMejor = i;
+                }
+            }
+            if (indiceMejor >= 0) {
+                libres.remove(indiceMejor);
+            }
+            total += mejor;
+            if (total > maxima) {
+                return maxima + 1;
+            }
+        }
+        for (String sobrante : libres) {
+            total += sobrante.length() + 1;
+        }
+        return Math.min(total, maxima + 1);
+    }
+
+    //Levenshtein que deja de calcular en cuanto la distancia pasa de "maxima" (devuelve maxima + 1)
+    static int distancia(String a, String b, int maxima) {
+        if (Math.abs(a.length() - b.length()) > maxima) {
+            return maxima + 1;
+        }
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimoFila = actual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + costo);
+                minimoFila = Math.min(minimoFila, actual[j]);
+            }
+            if (minimoFila > maxima) {
+                return maxima + 1;
+            }
+            int[] temporal = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return Math.min(anterior[b.length()], maxima + 1);
+    }
+}
@@ -0,0 +1,144 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.LibroRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/*
+Libros similares (biblioteca.similares.habilitado=true), calculados en segundo plano:
+- La tarea programada hace el calculo completo la primera vez (TablaSimilares, en el pool comun de fork-join).
+- Despues, cada biblioteca.similares.intervalo-ms, si se guardaron o eliminaron libros lee de la BD solo esos libros
+  (el resto del catalogo y sus coautores salen de la tabla actual), recalcula los libros afectados y publica la
+  tabla nueva. Las lecturas usan la tabla anterior mientras tanto.
+- Si la lectura o el calculo fallan, los libros cambiados (y el pedido de calculo completo) vuelven a quedar
+  pendientes para la vuelta siguiente.
+- Si InvalidacionDistribuida detecta cambios de otro nodo se pide un calculo completo.
+* */
+@Component
+public class IndiceSimilares {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceSimilares.class);
+
+    //Ids por consulta al leer los libros cambiados
+    private static final int IDS_POR_CONSULTA = 500;
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    private final boolean habilitado;
+
+    private final int k;
+
+    //null mientras no se ha calculado (o si esta deshabilitado)
+    private volatile TablaSimilares tabla;
+
+    private volatile boolean completoPendiente = true;
+
+    private final Set<Long> cambiados = new HashSet<>();
+
+    private volatile long ultimoCalculoMs;
+
+    public IndiceSimilares(MeterRegistry meterRegistry,
+                           @Value("${biblioteca.similares.habilitado:true}") boolean habilitado,
+                           @Value("${biblioteca.similares.k:10}") int k) {
+        this.habilitado = habilitado;
+        this.k = k;
+        Gauge.builder("biblioteca.similares.calculo_ms", this, i -> i.ultimoCalculoMs).register(meterRegistry);
+        Gauge.builder("biblioteca.similares.bytes", this, i -> i.tabla == null ? 0 : i.tabla.bytesEstimados())
+                .register(meterRegistry);
+    }
+
+    //Ids de los libros mas parecidos, del mas al menos parecido; vacio si todavia no hay tabla
+    public long[] similaresDe(long libroId) {
+        TablaSimilares actual = tabla;
+        return actual == null ? new long[0] : actual.similaresDe(libroId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aplicar(CambioCatalogo cambio) {
+        if (cambio.tipo() == TipoEntidad.LIBRO) {
+            synchronized (cambiados) {
+                cambiados.add(cambio.id());
+            }
+        }
+    }
+
+    public void programarCalculoCompleto() {
+        completoPendiente = true;
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.similares.intervalo-ms:5000}")
+    public void recalcular() {
+        if (!habilitado) {
+            return;
+        }
+        Set<Long> pendientes;
+        synchronized (cambiados) {
+            pendientes = Set.copyOf(cambiados);
+            cambiados.clear();
+        }
+        TablaSimilares actual = tabla;
+        boolean completo = completoPendiente || actual == null;
+        if (!completo && pendientes.isEmpty()) {
+            return;
+        }
+        completoPendiente = false;
+        long inicio = System.nanoTime();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        try {
+            if (completo) {
+                tabla = TablaSimilares.calcular(libroRepository.proyectarLibros(),
+                        libroRepository.proyectarLibrosAutores(), k, pool);
+            } else {
+                List<Long> ids = List.copyOf(pendientes);
+                List<Object[]> libros = new ArrayList<>();
+                List<Object[]> librosAutores = new ArrayList<>();
+                for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+                    List<Long> tramo = ids.subList(desde, Math.min(ids.size(), desde + IDS_POR_CONSULTA));
+                    libros.addAll(libroRepository.proyectarLibros(tramo));
+                    librosAutores.addAll(libroRepository.proyectarLibrosAutores(tramo));
+                }
+                tabla = actual.actualizarCon(libros, librosAutores, pendientes, pool);
+            }
+        } catch (RuntimeException e) {
+            synchronized (cambiados) {
+                cambiados.addAll(pendientes);
+            }
+            if (completo) {
+                completoPendiente = true;
+            }
+            throw e;
+        }
+        ultimoCalculoMs = (System.nanoTime() - inicio) / 1_000_000;
+        log.info("Libros similares calculados ({}): {} libros, {} cambiados, {} ms con {} hilos",
+                completo ? "completo" : "incremental", tabla.totalLibros(), pendientes.size(),
+                ultimoCalculoMs, pool.getParallelism());
+    }
+
+    //Para pruebas: calcula con datos dados en lugar de consultar la BD
+    void calcular(List<Object[]> libros, List<Object[]> librosAutores) {
+        tabla = TablaSimilares.calcular(libros, librosAutores, k, ForkJoinPool.commonPool());
+    }
+
+    //libros y librosAutores: las filas de los libros cambiados (los que no vienen se eliminaron)
+    void actualizar(List<Object[]> libros, List<Object[]> librosAutores, long... cambiados) {
+        tabla = tabla.actualizarCon(libros, librosAutores,
+                Set.copyOf(LongStream.of(cambiados).boxed().toList()), ForkJoinPool.commonPool());
+    }
+}
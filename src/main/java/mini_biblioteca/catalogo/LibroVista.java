@@ -0,0 +1,45 @@
+package mini_biblioteca.catalogo;
+
+import java.util.List;
+
+//Vista de solo lectura de un libro; tiene las mismas propiedades que usan las plantillas con la entidad Libro
+public class LibroVista {
+
+    private final Long id;
+
+    private final String titulo;
+
+    private final ElementoVista categoria;
+
+    private final ElementoVista editorial;
+
+    private final List<ElementoVista> autores;
+
+    public LibroVista(Long id, String titulo, ElementoVista categoria, ElementoVista editorial, List<ElementoVista> autores) {
+        this.id = id;
+        this.titulo = titulo;
+        this.categoria = categoria;
+        this.editorial = editorial;
+        this.autores = autores;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public ElementoVista getCategoria() {
+        return categoria;
+    }
+
+    public ElementoVista getEditorial() {
+        return editorial;
+    }
+
+    public List<ElementoVista> getAutores() {
+        return autores;
+    }
+}
@@ -0,0 +1,106 @@
+package mini_biblioteca.catalogo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/*
+Log de cambios de solo agregar que acompaña a un SegmentoNombres:
+- Registro: largo (int), id (long), clave UTF-8 (largo -1 = borrado) y CRC32 del registro (int).
+- Al abrir se reproducen los registros completos; un registro cortado por una caida se descarta y el archivo se
+  recorta hasta el ultimo registro bueno.
+- Con sincronizar=true cada registro se baja a disco (force) antes de volver.
+* */
+final class LogCambiosNombres implements AutoCloseable {
+
+    private final FileChannel canal;
+
+    private final boolean sincronizar;
+
+    private int registros;
+
+    private LogCambiosNombres(FileChannel canal, boolean sincronizar, int registros) {
+        this.canal = canal;
+        this.sincronizar = sincronizar;
+        this.registros = registros;
+    }
+
+    //Abre (o crea) el log y pasa cada registro a "aplicar" (clave null = borrado)
+    static LogCambiosNombres abrir(Path archivo, boolean sincronizar, BiConsumer<Long, String> aplicar)
+            throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer contenido = ByteBuffer.allocate((int) canal.size());
+        while (contenido.hasRemaining()) {
+            if (canal.read(contenido) < 0) {
+                break;
+            }
+        }
+        contenido.flip();
+        int registros = 0;
+        int ultimoBueno = 0;
+        while (contenido.remaining() >= 4) {
+            int largo = contenido.getInt(ultimoBueno);
+            int bytesClave = Math.max(0, largo);
+            if (largo < -1 || contenido.remaining() < 4 + 8 + bytesClave + 4) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(contenido.slice(ultimoBueno, 4 + 8 + bytesClave));
+            long id = contenido.getLong(ultimoBueno + 4);
+            byte[] clave = new byte[bytesClave];
+            contenido.get(ultimoBueno + 12, clave);
+            if ((int) crc.getValue() != contenido.getInt(ultimoBueno + 12 + bytesClave)) {
+                break;
+            }
+            aplicar.accept(id, largo < 0 ? null : new String(clave, StandardCharsets.UTF_8));
+            registros++;
+            ultimoBueno += 4 + 8 + bytesClave + 4;
+            contenido.position(ultimoBueno);
+        }
+        if (ultimoBueno < canal.size()) {
+            canal.truncate(ultimoBueno);
+        }
+        canal.position(ultimoBueno);
+        return new LogCambiosNombres(canal, sincronizar, registros);
+    }
+
+    synchronized void agregar(long id, String clave) throws IOException {
+        byte[] bytes = clave == null ? new byte[0] : clave.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer registro = ByteBuffer.allocate(4 + 8 + bytes.length + 4);
+        registro.putInt(clave == null ? -1 : bytes.length).putLong(id).put(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(registro.array(), 0, registro.position());
+        registro.putInt((int) crc.getValue()).flip();
+        while (registro.hasRemaining()) {
+            canal.write(registro);
+        }
+        if (sincronizar) {
+            canal.force(false);
+        }
+        registros++;
+    }
+
+    synchronized int registros() {
+        return registros;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        canal.close();
+    }
+
+    static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            //Se vuelve a intentar en la siguiente fusion
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package mini_biblioteca.catalogo;
+
+//Dos libros que el DetectorDuplicados considera casi iguales, con su similitud estimada (0 a 1)
+public class ParDuplicado {
+
+    private final Long libroId;
+
+    private final Long duplicadoId;
+
+    private final double similitud;
+
+    public ParDuplicado(Long libroId, Long duplicadoId, double similitud) {
+        this.libroId = libroId;
+        this.duplicadoId = duplicadoId;
+        this.similitud = similitud;
+    }
+
+    public Long getLibroId() {
+        return libroId;
+    }
+
+    public Long getDuplicadoId() {
+        return duplicadoId;
+    }
+
+    public double getSimilitud() {
+        return similitud;
+    }
+}
@@ -0,0 +1,252 @@
+package mini_biblioteca.catalogo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/*
+Segmento inmutable de (id, clave) con su indice de trigramas, guardado en un archivo y abierto con mmap:
+- Formato (big endian):
+    cabecera: MAGICO, FORMATO, n, g (int) y la version de los datos (long)
+    ids: long[n] ordenados
+    inicioClaves: int[n + 1] (posiciones dentro de "claves")
+    gramas: int[g] ordenados
+    inicioPostings: int[g + 1]
+    postings: int[] (posicion del id dentro de "ids" para cada trigrama)
+    claves: bytes UTF-8
+- Las lecturas son absolutas sobre el buffer, asi que varios hilos pueden consultar el mismo segmento sin locks.
+- Abrir el archivo no lee nada: el sistema operativo trae las paginas a memoria (page cache) cuando se consultan.
+- Un segmento se escribe a un archivo temporal y se mueve de forma atomica; nunca se modifica despues.
+* */
+final class SegmentoNombres {
+
+    private static final int MAGICO = 0x53454731;
+
+    private static final int FORMATO = 1;
+
+    private static final int CABECERA = 24;
+
+    private final ByteBuffer datos;
+
+    private final int n;
+
+    private final int g;
+
+    private final long version;
+
+    private final int posIds;
+
+    private final int posInicioClaves;
+
+    private final int posGramas;
+
+    private final int posInicioPostings;
+
+    private final int posPostings;
+
+    private final int posClaves;
+
+    private SegmentoNombres(ByteBuffer datos) {
+        this.datos = datos;
+        if (datos.capacity() < CABECERA || datos.getInt(0) != MAGICO || datos.getInt(4) != FORMATO) {
+            throw new IllegalStateException("Segmento con formato desconocido");
+        }
+        this.n = datos.getInt(8);
+        this.g = datos.getInt(12);
+        this.version = datos.getLong(16);
+        this.posIds = CABECERA;
+        this.posInicioClaves = posIds + n * 8;
+        this.posGramas = posInicioClaves + (n + 1) * 4;
+        this.posInicioPostings = posGramas + g * 4;
+        this.posPostings = posInicioPostings + (g + 1) * 4;
+        this.posClaves = posPostings + datos.getInt(posInicioPostings + g * 4) * 4;
+    }
+
+    static SegmentoNombres vacio() {
+        return construir(new TreeMap<>(), 0, clave -> new int[0]);
+    }
+
+    //Segmento en memoria (sin archivo)
+    static SegmentoNombres construir(SortedMap<Long, String> claves, long version,
+                                     Function<String, int[]> trigramas) {
+        return new SegmentoNombres(serializar(claves, version, trigramas));
+    }
+
+    //Escribe el segmento en "archivo" (temporal + movimiento atomico) y lo abre con mmap
+    static SegmentoNombres escribir(Path archivo, SortedMap<Long, String> claves, long version,
+                                    Function<String, int[]> trigramas) throws IOException {
+        ByteBuffer contenido = serializar(claves, version, trigramas);
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contenido.hasRemaining()) {
+                canal.write(contenido);
+            }
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return abrir(archivo);
+    }
+
+    static SegmentoNombres abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            //El mapeo sigue valido despues de cerrar el canal
+            return new SegmentoNombres(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    private static ByteBuffer serializar(SortedMap<Long, String> claves, long version,
+                                         Function<String, int[]> trigramas) {
+        int n = claves.size();
+        long[] ids = new long[n];
+        byte[][] bytes = new byte[n][];
+        //(trigrama << 32 | posicion) para ordenar por trigrama sin boxing
+        long[] pares = new long[Math.max(16, n * 8)];
+        int totalPares = 0;
+        int totalBytes = 0;
+        int i = 0;
+        for (Map.Entry<Long, String> entrada : claves.entrySet()) {
+            ids[i] = entrada.getKey();
+            bytes[i] = entrada.getValue().getBytes(StandardCharsets.UTF_8);
+            totalBytes += bytes[i].length;
+            for (int grama : trigramas.apply(entrada.getValue())) {
+                if (totalPares == pares.length) {
+                    pares = Arrays.copyOf(pares, pares.length * 2);
+                }
+                pares[totalPares++] = ((long) grama << 32) | i;
+            }
+            i++;
+        }
+        Arrays.sort(pares, 0, totalPares);
+        int g = 0;
+        for (int p = 0; p < totalPares; p++) {
+            if (p == 0 || (int) (pares[p] >> 32) != (int) (pares[p - 1] >> 32)) {
+                g++;
+            }
+        }
+        long tamano = CABECERA + n * 8L + (n + 1) * 4L + g * 4L + (g + 1) * 4L + totalPares * 4L + totalBytes;
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segmento demasiado grande: " + tamano + " bytes");
+        }
+        ByteBuffer datos = ByteBuffer.allocate((int) tamano);
+        datos.putInt(MAGICO).putInt(FORMATO).putInt(n).putInt(g).putLong(version);
+        for (long id : ids) {
+            datos.putLong(id);
+        }
+        int inicio = 0;
+        for (byte[] clave : bytes) {
+            datos.putInt(inicio);
+            inicio += clave.length;
+        }
+        datos.putInt(inicio);
+        for (int p = 0; p < totalPares; p++) {
+            if (p == 0 || (int) (pares[p] >> 32) != (int) (pares[p - 1] >> 32)) {
+                datos.putInt((int) (pares[p] >> 32));
+            }
+        }
+        for (int p = 0; p < totalPares; p++) {
+            if (p == 0 || (int) (pares[p] >> 32) != (int) (pares[p - 1] >> 32)) {
+                datos.putInt(p);
+            }
+        }
+        datos.putInt(totalPares);
+        for (int p = 0; p < totalPares; p++) {
+            datos.putInt((int) pares[p]);
+        }
+        for (byte[] clave : bytes) {
+            datos.put(clave);
+        }
+        return datos.flip();
+    }
+
+    int tamano() {
+        return n;
+    }
+
+    long version() {
+        return version;
+    }
+
+    long bytes() {
+        return datos.capacity();
+    }
+
+    long id(int posicion) {
+        return datos.getLong(posIds + posicion * 8);
+    }
+
+    String clave(int posicion) {
+        int desde = datos.getInt(posInicioClaves + posicion * 4);
+        int hasta = datos.getInt(posInicioClaves + (posicion + 1) * 4);
+        byte[] bytes = new byte[hasta - desde];
+        datos.get(posClaves + desde, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //Posicion del id dentro del segmento o -1
+    int posicionDe(long id) {
+        int bajo = 0;
+        int alto = n - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            long actual = id(medio);
+            if (actual < id) {
+                bajo = medio + 1;
+            } else if (actual > id) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+
+    //Indice del trigrama dentro de "gramas" o -1
+    private int indiceGrama(int grama) {
+        int bajo = 0;
+        int alto = g - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int actual = datos.getInt(posGramas + medio * 4);
+            if (actual < grama) {
+                bajo = medio + 1;
+            } else if (actual > grama) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+
+    int frecuencia(int grama) {
+        int indice = indiceGrama(grama);
+        return indice < 0 ? 0
+                : datos.getInt(posInicioPostings + (indice + 1) * 4) - datos.getInt(posInicioPostings + indice * 4);
+    }
+
+    //Posiciones (dentro de "ids") de las claves que tienen el trigrama
+    int[] postings(int grama) {
+        int indice = indiceGrama(grama);
+        if (indice < 0) {
+            return new int[0];
+        }
+        int desde = datos.getInt(posInicioPostings + indice * 4);
+        int hasta = datos.getInt(posInicioPostings + (indice + 1) * 4);
+        int[] posiciones = new int[hasta - desde];
+        for (int p = 0; p < posiciones.length; p++) {
+            posiciones[p] = datos.getInt(posPostings + (desde + p) * 4);
+        }
+        return posiciones;
+    }
+}
@@ -0,0 +1,402 @@
+package mini_biblioteca.catalogo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/*
+Libros similares precalculados (top-k por libro), inmutable:
+- Puntaje entre dos libros: PESO_AUTOR por cada autor en comun, mas PESO_CATEGORIA si comparten categoria
+  y PESO_EDITORIAL si comparten editorial.
+- Candidatos de un libro: hasta MAXIMO_POR_AUTOR libros de cada uno de sus autores (lista invertida autor -> libros,
+  los mas cercanos por id) y hasta MAXIMO_GRUPO vecinos con la misma categoria y editorial. Sin el tope por autor un
+  autor con decenas de miles de libros haria crecer el costo con el cuadrado de sus libros. Las dos ventanas son
+  simetricas (si j es candidato de i, i es candidato de j): actualizar se apoya en eso. Los libros que solo
+  comparten categoria no se comparan, serian demasiados.
+- El calculo se reparte con fork-join (RecursiveAction sobre rangos de libros). Cada tarea hoja usa un
+  acumulador de arreglos int indexados por libro (sin mapas ni boxing) que se reutiliza entre tareas.
+- El resultado se guarda en un solo int[] de n*k indices de libro (-1 = vacio).
+* */
+final class TablaSimilares {
+
+    static final int PESO_AUTOR = 3;
+
+    static final int PESO_CATEGORIA = 1;
+
+    static final int PESO_EDITORIAL = 1;
+
+    private static final int MAXIMO_GRUPO = 200;
+
+    private static final int MAXIMO_POR_AUTOR = 200;
+
+    private static final int LIBROS_POR_TAREA = 256;
+
+    private static final long SIN_ID = -1;
+
+    private final int k;
+
+    private final long[] libros;
+
+    private final long[] categorias;
+
+    private final long[] editoriales;
+
+    //Id de cada autor (los arreglos de abajo usan su indice)
+    private final long[] autores;
+
+    private final int[] inicioAutores;
+
+    private final int[] autoresDeLibro;
+
+    private final int[] inicioLibros;
+
+    private final int[] librosDeAutor;
+
+    //Libros ordenados por (categoria, editorial, id) y la posicion de cada libro en ese orden
+    private final int[] orden;
+
+    private final int[] posicion;
+
+    private final int[] similares;
+
+    private TablaSimilares(int k, long[] libros, long[] categorias, long[] editoriales, long[] autores,
+                           int[] inicioAutores, int[] autoresDeLibro, int[] inicioLibros, int[] librosDeAutor,
+                           int[] orden, int[] posicion) {
+        this.k = k;
+        this.libros = libros;
+        this.categorias = categorias;
+        this.editoriales = editoriales;
+        this.autores = autores;
+        this.inicioAutores = inicioAutores;
+        this.autoresDeLibro = autoresDeLibro;
+        this.inicioLibros = inicioLibros;
+        this.librosDeAutor = librosDeAutor;
+        this.orden = orden;
+        this.posicion = posicion;
+        this.similares = new int[libros.length * k];
+        Arrays.fill(similares, -1);
+    }
+
+    //libros: [libroId, titulo, categoriaId, editorialId]; librosAutores: [libroId, autorId]
+    static TablaSimilares calcular(List<Object[]> libros, List<Object[]> librosAutores, int k, ForkJoinPool pool) {
+        TablaSimilares tabla = cargar(libros, librosAutores, k);
+        pool.invoke(new Calculo(tabla, IntStream.range(0, tabla.libros.length).toArray(), 0, tabla.libros.length,
+                new ConcurrentLinkedQueue<>()));
+        return tabla;
+    }
+
+    /*
+    Recalcula solo los libros afectados por los libros cambiados: ellos mismos y los que los tenian (o ahora los
+    tienen) como candidatos. El resto copia su lista de esta tabla. Si los afectados son muchos conviene
+    recalcular todo.
+    * */
+    /*
+    Como actualizar, pero recibe las filas de solo los libros cambiados (uno que no viene se elimino): el resto del
+    catalogo sale de esta misma tabla, sin volver a leerlo de la BD.
+    * */
+    TablaSimilares actualizarCon(List<Object[]> librosCambiados, List<Object[]> autoresCambiados, Set<Long> cambiados,
+                                 ForkJoinPool pool) {
+        long[] ids = cambiados.stream().mapToLong(Long::longValue).sorted().toArray();
+        List<Object[]> filasLibros = new ArrayList<>(libros.length + librosCambiados.size());
+        List<Object[]> filasAutores = new ArrayList<>(autoresDeLibro.length + autoresCambiados.size());
+        for (int i = 0; i < libros.length; i++) {
+            if (Arrays.binarySearch(ids, libros[i]) >= 0) {
+                continue;
+            }
+            filasLibros.add(new Object[]{libros[i], null, categorias[i] == SIN_ID ? null : categorias[i],
+                    editoriales[i] == SIN_ID ? null : editoriales[i]});
+            for (int a = inicioAutores[i]; a < inicioAutores[i + 1]; a++) {
+                filasAutores.add(new Object[]{libros[i], autores[autoresDeLibro[a]]});
+            }
+        }
+        filasLibros.addAll(librosCambiados);
+        filasAutores.addAll(autoresCambiados);
+        return actualizar(filasLibros, filasAutores, cambiados, pool);
+    }
+
+    TablaSimilares actualizar(List<Object[]> libros, List<Object[]> librosAutores, Set<Long> cambiados, ForkJoinPool pool) {
+        TablaSimilares nueva = cargar(libros, librosAutores, k);
+        boolean[] afectado = new boolean[nueva.libros.length];
+        for (long id : cambiados) {
+            marcarCandidatos(nueva, nueva.indice(id), nueva, afectado);
+            marcarCandidatos(this, indice(id), nueva, afectado);
+        }
+        int[] recalcular = IntStream.range(0, afectado.length).filter(i -> afectado[i]).toArray();
+        if (recalcular.length > nueva.libros.length / 4) {
+            recalcular = IntStream.range(0, nueva.libros.length).toArray();
+        } else {
+            nueva.copiarListas(this, afectado);
+        }
+        pool.invoke(new Calculo(nueva, recalcular, 0, recalcular.length, new ConcurrentLinkedQueue<>()));
+        return nueva;
+    }
+
+    private static void marcarCandidatos(TablaSimilares tabla, int i, TablaSimilares destino, boolean[] afectado) {
+        if (i < 0) {
+            return;
+        }
+        tabla.recorrerCandidatos(i, (j, peso) -> {
+            int d = destino.indice(tabla.libros[j]);
+            if (d >= 0) {
+                afectado[d] = true;
+            }
+        });
+        int d = destino.indice(tabla.libros[i]);
+        if (d >= 0) {
+            afectado[d] = true;
+        }
+    }
+
+    private void copiarListas(TablaSimilares anterior, boolean[] afectado) {
+        //Indice nuevo de cada libro de la tabla anterior (-1 si se elimino); los dos arreglos de ids estan ordenados
+        int[] nuevoIndice = new int[anterior.libros.length];
+        for (int a = 0, i = 0; a < anterior.libros.length; a++) {
+            while (i < libros.length && libros[i] < anterior.libros[a]) {
+                i++;
+            }
+            nuevoIndice[a] = i < libros.length && libros[i] == anterior.libros[a] ? i : -1;
+        }
+        IntStream.range(0, anterior.libros.length).parallel().forEach(a -> {
+            int i = nuevoIndice[a];
+            if (i < 0 || afectado[i]) {
+                return;
+            }
+            int escritos = 0;
+            for (int e = a * k; e < (a + 1) * k && anterior.similares[e] >= 0; e++) {
+                int j = nuevoIndice[anterior.similares[e]];
+                if (j >= 0) {
+                    similares[i * k + escritos++] = j;
+                }
+            }
+        });
+    }
+
+    private static TablaSimilares cargar(List<Object[]> filasLibros, List<Object[]> librosAutores, int k) {
+        Object[][] filas = filasLibros.toArray(new Object[0][]);
+        Arrays.parallelSort(filas, Comparator.comparingLong(f -> (Long) f[0]));
+        int n = filas.length;
+        long[] libros = new long[n];
+        long[] categorias = new long[n];
+        long[] editoriales = new long[n];
+        for (int i = 0; i < n; i++) {
+            libros[i] = (Long) filas[i][0];
+            categorias[i] = filas[i][2] == null ? SIN_ID : (Long) filas[i][2];
+            editoriales[i] = filas[i][3] == null ? SIN_ID : (Long) filas[i][3];
+        }
+
+        long[] autores = unicos(librosAutores.stream().mapToLong(f -> (Long) f[1]).toArray());
+        long[] pares = unicos(librosAutores.stream()
+                .mapToLong(f -> {
+                    int l = Arrays.binarySearch(libros, (Long) f[0]);
+                    return l < 0 ? -1 : ((long) l << 32) | Arrays.binarySearch(autores, (Long) f[1]);
+                })
+                .filter(p -> p >= 0).toArray());
+        int[] inicioAutores = new int[n + 1];
+        int[] autoresDeLibro = new int[pares.length];
+        int[] inicioLibros = new int[autores.length + 1];
+        for (int p = 0; p < pares.length; p++) {
+            inicioAutores[(int) (pares[p] >>> 32) + 1]++;
+            inicioLibros[(int) pares[p] + 1]++;
+            autoresDeLibro[p] = (int) pares[p];
+        }
+        Arrays.parallelPrefix(inicioAutores, Integer::sum);
+        Arrays.parallelPrefix(inicioLibros, Integer::sum);
+        int[] librosDeAutor = new int[pares.length];
+        int[] siguiente = Arrays.copyOf(inicioLibros, autores.length);
+        for (long par : pares) {
+            librosDeAutor[siguiente[(int) par]++] = (int) (par >>> 32);
+        }
+
+        //Orden por (categoria, editorial, id) sin boxing: rango denso del grupo en los 32 bits altos, indice abajo
+        long[] categoriasUnicas = unicos(categorias.clone());
+        long[] editorialesUnicas = unicos(editoriales.clone());
+        long[] grupoDe = new long[n];
+        for (int i = 0; i < n; i++) {
+            grupoDe[i] = (long) Arrays.binarySearch(categoriasUnicas, categorias[i]) * editorialesUnicas.length
+                    + Arrays.binarySearch(editorialesUnicas, editoriales[i]);
+        }
+        long[] grupos = unicos(grupoDe.clone());
+        long[] claves = new long[n];
+        for (int i = 0; i < n; i++) {
+            claves[i] = ((long) Arrays.binarySearch(grupos, grupoDe[i]) << 32) | i;
+        }
+        Arrays.parallelSort(claves);
+        int[] orden = new int[n];
+        for (int p = 0; p < n; p++) {
+            orden[p] = (int) claves[p];
+        }
+        int[] posicion = new int[n];
+        for (int p = 0; p < n; p++) {
+            posicion[orden[p]] = p;
+        }
+        return new TablaSimilares(k, libros, categorias, editoriales, autores,
+                inicioAutores, autoresDeLibro, inicioLibros, librosDeAutor, orden, posicion);
+    }
+
+    //Ordena el arreglo y devuelve sus valores sin repetir (LongStream.distinct() haria boxing de cada valor)
+    private static long[] unicos(long[] valores) {
+        Arrays.parallelSort(valores);
+        int m = 0;
+        for (int i = 0; i < valores.length; i++) {
+            if (i == 0 || valores[i] != valores[i - 1]) {
+                valores[m++] = valores[i];
+            }
+        }
+        return Arrays.copyOf(valores, m);
+    }
+
+    private interface Visitante {
+        void visitar(int libro, int peso);
+    }
+
+    private void recorrerCandidatos(int i, Visitante visitante) {
+        for (int a = inicioAutores[i]; a < inicioAutores[i + 1]; a++) {
+            int autor = autoresDeLibro[a];
+            //Los libros de cada autor estan ordenados por indice: ventana alrededor de este libro
+            int desde = inicioLibros[autor];
+            int hasta = inicioLibros[autor + 1];
+            int p = Arrays.binarySearch(librosDeAutor, desde, hasta, i);
+            for (int l = Math.max(desde, p - MAXIMO_POR_AUTOR / 2); l < hasta && l <= p + MAXIMO_POR_AUTOR / 2; l++) {
+                if (l != p) {
+                    visitante.visitar(librosDeAutor[l], PESO_AUTOR);
+                }
+            }
+        }
+        if (categorias[i] == SIN_ID || editoriales[i] == SIN_ID) {
+            return;
+        }
+        int p = posicion[i];
+        for (int q = p - 1; q >= 0 && q >= p - MAXIMO_GRUPO / 2 && mismoGrupo(orden[q], i); q--) {
+            visitante.visitar(orden[q], 0);
+        }
+        for (int q = p + 1; q < orden.length && q <= p + MAXIMO_GRUPO / 2 && mismoGrupo(orden[q], i); q++) {
+            visitante.visitar(orden[q], 0);
+        }
+    }
+
+    private boolean mismoGrupo(int a, int b) {
+        return categorias[a] == categorias[b] && editoriales[a] == editoriales[b];
+    }
+
+    //Acumulador disperso: puntaje[j] = 1 + puntos de autores (0 = no tocado) y la lista de libros tocados
+    private static final class Acumulador {
+
+        final int[] puntaje;
+
+        final int[] tocados;
+
+        int total;
+
+        Acumulador(int n) {
+            puntaje = new int[n];
+            tocados = new int[n];
+        }
+    }
+
+    private void calcular(int i, Acumulador acc, int[] mejores, int[] puntajes) {
+        acc.total = 0;
+        recorrerCandidatos(i, (j, peso) -> {
+            if (acc.puntaje[j] == 0) {
+                acc.tocados[acc.total++] = j;
+                acc.puntaje[j] = 1;
+            }
+            acc.puntaje[j] += peso;
+        });
+        Arrays.fill(mejores, -1);
+        Arrays.fill(puntajes, Integer.MIN_VALUE);
+        for (int t = 0; t < acc.total; t++) {
+            int j = acc.tocados[t];
+            int puntaje = acc.puntaje[j] - 1;
+            acc.puntaje[j] = 0;
+            if (categorias[j] != SIN_ID && categorias[j] == categorias[i]) {
+                puntaje += PESO_CATEGORIA;
+            }
+            if (editoriales[j] != SIN_ID && editoriales[j] == editoriales[i]) {
+                puntaje += PESO_EDITORIAL;
+            }
+            //Insercion en el top-k: mayor puntaje primero y, si empatan, el libro de menor id
+            int pos = k;
+            while (pos > 0 && (puntajes[pos - 1] < puntaje || (puntajes[pos - 1] == puntaje && mejores[pos - 1] > j))) {
+                pos--;
+            }
+            if (pos < k) {
+                System.arraycopy(mejores, pos, mejores, pos + 1, k - pos - 1);
+                System.arraycopy(puntajes, pos, puntajes, pos + 1, k - pos - 1);
+                mejores[pos] = j;
+                puntajes[pos] = puntaje;
+            }
+        }
+        System.arraycopy(mejores, 0, similares, i * k, k);
+    }
+
+    private static final class Calculo extends RecursiveAction {
+
+        private final TablaSimilares tabla;
+
+        private final int[] objetivos;
+
+        private final int desde;
+
+        private final int hasta;
+
+        private final ConcurrentLinkedQueue<Acumulador> acumuladores;
+
+        Calculo(TablaSimilares tabla, int[] objetivos, int desde, int hasta, ConcurrentLinkedQueue<Acumulador> acumuladores) {
+            this.tabla = tabla;
+            this.objetivos = objetivos;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.acumuladores = acumuladores;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > LIBROS_POR_TAREA) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new Calculo(tabla, objetivos, desde, medio, acumuladores),
+                        new Calculo(tabla, objetivos, medio, hasta, acumuladores));
+                return;
+            }
+            Acumulador acc = acumuladores.poll();
+            if (acc == null) {
+                acc = new Acumulador(tabla.libros.length);
+            }
+            int[] mejores = new int[tabla.k];
+            int[] puntajes = new int[tabla.k];
+            for (int o = desde; o < hasta; o++) {
+                tabla.calcular(objetivos[o], acc, mejores, puntajes);
+            }
+            acumuladores.add(acc);
+        }
+    }
+
+    private int indice(long libroId) {
+        int i = Arrays.binarySearch(libros, libroId);
+        return i < 0 ? -1 : i;
+    }
+
+    //Ids de los libros similares, del mas al menos parecido
+    long[] similaresDe(long libroId) {
+        int i = indice(libroId);
+        if (i < 0) {
+            return new long[0];
+        }
+        return Arrays.stream(similares, i * k, (i + 1) * k).filter(j -> j >= 0).mapToLong(j -> libros[j]).toArray();
+    }
+
+    int totalLibros() {
+        return libros.length;
+    }
+
+    long bytesEstimados() {
+        return 8L * (libros.length + categorias.length + editoriales.length + autores.length)
+                + 4L * (inicioAutores.length + autoresDeLibro.length + inicioLibros.length + librosDeAutor.length
+                + orden.length + posicion.length + similares.length);
+    }
+}
@@ -0,0 +1,13 @@
+package mini_biblioteca.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//Se lanza cuando el bulkhead de repositorios no pudo dar un permiso a tiempo
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BaseDeDatosSaturadaException extends RuntimeException {
+
+    public BaseDeDatosSaturadaException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,31 @@
+package mini_biblioteca.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+//Envuelve el DataSource en un DataSourceLimitado: un permiso por conexion tomada del pool (biblioteca.bulkhead.*)
+@Configuration
+@ConditionalOnProperty(name = "biblioteca.bulkhead.habilitado", havingValue = "true")
+public class BulkheadConexionesConfig {
+
+    //static: un BeanPostProcessor se crea antes que el resto de los beans
+    @Bean
+    static BeanPostProcessor dataSourceLimitado(
+            @Value("${biblioteca.bulkhead.permisos:${spring.datasource.hikari.maximum-pool-size:10}}") int permisos,
+            @Value("${biblioteca.bulkhead.espera-maxima-ms:5000}") long esperaMaximaMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof DataSourceLimitado)) {
+                    return new DataSourceLimitado(dataSource, permisos, esperaMaximaMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package mini_biblioteca.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//Caches en memoria (ConcurrentMapCacheManager) y tareas programadas para la invalidacion entre nodos
+@Configuration
+@EnableCaching
+@EnableScheduling
+public class CacheConfig {
+}
@@ -0,0 +1,346 @@
+package mini_biblioteca.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServletRequest;
+import mini_biblioteca.catalogo.DetectorDuplicados;
+import mini_biblioteca.catalogo.IndiceCoautores;
+import mini_biblioteca.catalogo.IndiceFacetas;
+import mini_biblioteca.catalogo.IndiceSimilares;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.CargaPorIds;
+import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.repositories.EventoCatalogoRepository;
+import mini_biblioteca.repositories.LibroEspecificaciones;
+import mini_biblioteca.repositories.LibroRepository;
+import mini_biblioteca.repositories.VersionCambioRepository;
+import mini_biblioteca.services.FiltroLibros;
+import mini_biblioteca.services.LibroService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import javax.sql.DataSource;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+Calentamiento al arrancar (biblioteca.calentamiento.habilitado=true):
+- Cuando Spring marca la aplicacion como lista (ReadinessState.ACCEPTING_TRAFFIC) se vuelve a REFUSING_TRAFFIC y en
+  un hilo aparte se:
+    1. parsean todas las plantillas de templates/ (solo con spring.thymeleaf.cache=true; sin cache no sirve de nada),
+    2. llena el pool de conexiones (se abren tantas conexiones como el maximo del pool),
+    3. ejecuta una vez cada forma de consulta de los repositorios (con ids que no existen: solo importa el plan),
+       incluidas las del filtro de libros por cada combinacion de criterios y los ordenes de la paginacion,
+    4. recorre una vez los indices en memoria (facetas, similares, coautores, duplicados),
+    5. piden por HTTP a este mismo servidor las rutas de biblioteca.calentamiento.rutas, iteraciones veces.
+- Esas peticiones llevan la cabecera X-Calentamiento con un valor aleatorio de este proceso: LimiteConcurrenciaFilter
+  solo las deja pasar sin control de admision si el valor coincide y el calentamiento no ha terminado. Desde fuera
+  no se puede adivinar el valor.
+- Al terminar se publica ACCEPTING_TRAFFIC: /actuator/health/readiness responde UP solo desde ese momento.
+- Un paso que falla se registra en el log y no detiene el resto; el estado se ve en el indicador "calentamiento".
+* */
+@Component("calentamiento")
+public class Calentamiento implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(Calentamiento.class);
+
+    static final String CABECERA = "X-Calentamiento";
+
+    private static final String LOGGER_THYMELEAF = "org.thymeleaf.TemplateEngine";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private AutorRepository autorRepository;
+
+    @Autowired
+    private CargaPorIds cargaPorIds;
+
+    @Autowired
+    private EditorialRepository editorialRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private EventoCatalogoRepository eventoCatalogoRepository;
+
+    @Autowired
+    private VersionCambioRepository versionCambioRepository;
+
+    @Autowired
+    private LibroService libroService;
+
+    @Autowired
+    private IndiceFacetas indiceFacetas;
+
+    @Autowired
+    private IndiceSimilares indiceSimilares;
+
+    @Autowired
+    private IndiceCoautores indiceCoautores;
+
+    @Autowired
+    private DetectorDuplicados detectorDuplicados;
+
+    private final boolean habilitado;
+
+    private final boolean cachePlantillas;
+
+    private final int iteraciones;
+
+    private final List<String> rutas;
+
+    private final AtomicBoolean iniciado = new AtomicBoolean();
+
+    //UUID aleatorio (SecureRandom)
+    private final String valorCabecera = UUID.randomUUID().toString();
+
+    private volatile boolean terminado;
+
+    private volatile long duracionMs;
+
+    private volatile int plantillas;
+
+    private volatile int errores;
+
+    public Calentamiento(@Value("${biblioteca.calentamiento.habilitado:true}") boolean habilitado,
+                         @Value("${biblioteca.calentamiento.iteraciones:20}") int iteraciones,
+                         @Value("${biblioteca.calentamiento.rutas:/,/libros/listar,/libros/nuevo}") List<String> rutas,
+                         @Value("${spring.thymeleaf.cache:true}") boolean cachePlantillas) {
+        this.habilitado = habilitado;
+        this.cachePlantillas = cachePlantillas;
+        this.iteraciones = iteraciones;
+        this.rutas = rutas;
+    }
+
+    @EventListener
+    public void alCambiarDisponibilidad(AvailabilityChangeEvent<ReadinessState> evento) {
+        if (!habilitado || evento.getState() != ReadinessState.ACCEPTING_TRAFFIC || !iniciado.compareAndSet(false, true)) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+        Thread hilo = new Thread(this::calentar, "calentamiento");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    void calentar() {
+        long inicio = System.nanoTime();
+        paso("plantillas", this::parsearPlantillas);
+        paso("pool de conexiones", this::llenarPool);
+        paso("consultas", this::ejecutarConsultas);
+        paso("indices en memoria", this::recorrerIndices);
+        paso("rutas", this::pedirRutas);
+        duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        terminado = true;
+        log.info("Calentamiento terminado en {} ms ({} plantillas, {} iteraciones de {} rutas, {} errores)",
+                duracionMs, plantillas, iteraciones, rutas.size(), errores);
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    private interface Paso {
+        void ejecutar() throws Exception;
+    }
+
+    private void paso(String nombre, Paso paso) {
+        long inicio = System.nanoTime();
+        try {
+            paso.ejecutar();
+            log.debug("Calentamiento: {} en {} ms", nombre, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (Exception e) {
+            errores++;
+            log.warn("Calentamiento: fallo el paso {}: {}", nombre, e.toString());
+        }
+    }
+
+    /*
+    Se procesa cada plantilla con un contexto vacio y sin escribir nada: el parseo (lo que se guarda en cache) ocurre
+    antes de evaluar las expresiones, asi que los errores por variables que faltan no importan (y no se registran).
+    * */
+    private void parsearPlantillas() throws Exception {
+        if (!cachePlantillas) {
+            return;
+        }
+        Resource[] recursos = new PathMatchingResourcePatternResolver().getResources("classpath*:templates/**/*.html");
+        LogLevel nivelAnterior = loggingSystem.getLoggerConfiguration(LOGGER_THYMELEAF).getConfiguredLevel();
+        loggingSystem.setLogLevel(LOGGER_THYMELEAF, LogLevel.OFF);
+        int parseadas = 0;
+        try {
+            for (Resource recurso : recursos) {
+                String ruta = recurso.getURL().toString();
+                String plantilla = ruta.substring(ruta.lastIndexOf("templates/") + "templates/".length(),
+                        ruta.length() - ".html".length());
+                try {
+                    templateEngine.process(plantilla, new Context(), Writer.nullWriter());
+                } catch (RuntimeException e) {
+                    //Faltan las variables del modelo; la plantilla ya quedo parseada
+                }
+                parseadas++;
+            }
+        } finally {
+            loggingSystem.setLogLevel(LOGGER_THYMELEAF, nivelAnterior);
+        }
+        plantillas = parseadas;
+    }
+
+    private void llenarPool() throws Exception {
+        //El DataSource puede venir envuelto (log de consultas lentas): se busca el pool de Hikari detras
+        int tamano = dataSource.isWrapperFor(HikariDataSource.class)
+                ? dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize() : 1;
+        List<Connection> conexiones = new ArrayList<>();
+        try {
+            for (int i = 0; i < tamano; i++) {
+                conexiones.add(dataSource.getConnection());
+            }
+        } finally {
+            for (Connection conexion : conexiones) {
+                conexion.close();
+            }
+        }
+    }
+
+    private void ejecutarConsultas() {
+        autorRepository.findByNombre("");
+        editorialRepository.findByNombre("");
+        categoriaRepository.findByNombre("");
+        libroRepository.findFirstByTituloOrderByIdAsc("");
+        for (int tramo : cargaPorIds.tramos()) {
+            autorRepository.buscarEntreIds(Collections.nCopies(tramo, -1L));
+        }
+        editorialRepository.findAll(PageRequest.of(0, 1));
+        categoriaRepository.findAll(PageRequest.of(0, 1));
+        libroRepository.findAll(PageRequest.of(0, 1));
+        //Los dos ordenes de la paginacion de libros por editorial y categoria (titulo desempatado por id, o id)
+        for (Sort orden : List.of(LibroEspecificaciones.ORDEN, Sort.by("Id"))) {
+            PageRequest pagina = PageRequest.of(0, 20, orden);
+            libroRepository.findAll(pagina);
+            libroRepository.buscarResumenPorEditorial(-1L, pagina);
+            libroRepository.buscarResumenPorCategoria(-1L, pagina);
+        }
+        libroRepository.contarPorEditorial(-1L);
+        libroRepository.contarPorCategoria(-1L);
+        libroRepository.buscarResumenes(List.of(-1L));
+        autorRepository.buscarPorPatron("%", PageRequest.of(0, 1));
+        autorRepository.idsDespuesDe(-1L, PageRequest.of(0, 1));
+        eventoCatalogoRepository.buscarDesde(Long.MAX_VALUE, PageRequest.of(0, 1));
+        eventoCatalogoRepository.buscarDesde(Long.MAX_VALUE, TipoEntidad.AUTOR, PageRequest.of(0, 1));
+        versionCambioRepository.versionDe(TipoEntidad.LIBRO.name());
+        //Cada combinacion de criterios del filtro es otra consulta (otros joins e indices); la ultima con keyset
+        for (int criterios = 0; criterios < 16; criterios++) {
+            FiltroLibros filtro = new FiltroLibros();
+            filtro.setCategoriaId((criterios & 1) != 0 ? -1L : null);
+            filtro.setEditorialId((criterios & 2) != 0 ? -1L : null);
+            filtro.setAutorId((criterios & 4) != 0 ? -1L : null);
+            filtro.setTitulo((criterios & 8) != 0 ? "a" : null);
+            libroService.filtrar(filtro, 1);
+            filtro.setDespuesDeTitulo("a");
+            filtro.setDespuesDeId(-1L);
+            libroService.filtrar(filtro, 1);
+        }
+    }
+
+    //Sin consultas: solo carga las clases y el codigo de lectura de cada indice
+    private void recorrerIndices() {
+        indiceFacetas.contar(-1L, -1L, -1L, List.of(-1L));
+        indiceSimilares.similaresDe(-1L);
+        indiceCoautores.relacionados(-1L, 10);
+        detectorDuplicados.candidatos("a", List.of(), null);
+    }
+
+    private void pedirRutas() throws Exception {
+        if (!(applicationContext instanceof WebServerApplicationContext web) || web.getWebServer() == null) {
+            return;
+        }
+        String base = "http://localhost:" + web.getWebServer().getPort();
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        for (int i = 0; i < iteraciones; i++) {
+            for (String ruta : rutas) {
+                HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + ruta))
+                        .header(CABECERA, valorCabecera)
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+                HttpResponse<Void> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.discarding());
+                if (respuesta.statusCode() >= 500 && i == 0) {
+                    errores++;
+                    log.warn("Calentamiento: {} respondio {}", ruta, respuesta.statusCode());
+                }
+            }
+        }
+    }
+
+    public boolean estaTerminado() {
+        return terminado;
+    }
+
+    //Una peticion del calentamiento en curso (ver LimiteConcurrenciaFilter)
+    public boolean esPeticionPropia(HttpServletRequest request) {
+        String valor = request.getHeader(CABECERA);
+        return !terminado && valor != null
+                && MessageDigest.isEqual(valor.getBytes(StandardCharsets.UTF_8), valorCabecera.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String valorCabecera() {
+        return valorCabecera;
+    }
+
+    @Override
+    public Health health() {
+        if (!habilitado) {
+            return Health.up().withDetail("habilitado", false).build();
+        }
+        if (!terminado) {
+            return Health.outOfService().withDetail("estado", "calentando").build();
+        }
+        return Health.up()
+                .withDetail("duracionMs", duracionMs)
+                .withDetail("plantillas", plantillas)
+                .withDetail("iteraciones", iteraciones)
+                .withDetail("errores", errores)
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+Single-flight: junta en una sola ejecucion las lecturas identicas que estan en curso al mismo tiempo.
+- La clave es el nombre del metodo mas sus argumentos.
+- El primer hilo (lider) ejecuta la lectura; los demas esperan el mismo CompletableFuture y reciben el mismo resultado.
+- Si la espera supera el timeout, el hilo que espera hace su propia lectura en lugar de fallar.
+- Cuando termina la lectura la clave se elimina: no es un cache, solo agrupa lecturas simultaneas.
+- Metricas por metodo: biblioteca.coalescencia.ejecuciones, .compartidas y .timeouts.
+* */
+@Component
+public class CoalescedorLecturas {
+
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final long timeoutMs;
+
+    public CoalescedorLecturas(MeterRegistry meterRegistry,
+                               @Value("${biblioteca.coalescencia.timeout-ms:2000}") long timeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(String metodo, List<Object> argumentos, Supplier<T> lectura) {
+        List<Object> clave = List.of(metodo, argumentos);
+        CompletableFuture<Object> nuevo = new CompletableFuture<>();
+        CompletableFuture<Object> existente = enCurso.putIfAbsent(clave, nuevo);
+
+        if (existente == null) {
+            //Este hilo es el lider: hace la lectura y la comparte
+            meterRegistry.counter("biblioteca.coalescencia.ejecuciones", "metodo", metodo).increment();
+            try {
+                T resultado = lectura.get();
+                nuevo.complete(resultado);
+                return resultado;
+            } catch (RuntimeException | Error e) {
+                nuevo.completeExceptionally(e);
+                throw e;
+            } finally {
+                enCurso.remove(clave, nuevo);
+            }
+        }
+
+        meterRegistry.counter("biblioteca.coalescencia.compartidas", "metodo", metodo).increment();
+        try {
+            return (T) existente.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            meterRegistry.counter("biblioteca.coalescencia.timeouts", "metodo", metodo).increment();
+            return lectura.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lectura interrumpida: " + metodo, e);
+        }
+    }
+}
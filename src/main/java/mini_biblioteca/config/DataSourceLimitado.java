@@ -0,0 +1,115 @@
+package mini_biblioteca.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+Bulkhead de base de datos (ver BulkheadConexionesConfig):
+- Cada conexion que se pide al pool toma un permiso y lo devuelve al cerrarla (devolverla al pool). Asi el semaforo
+  sigue lo mismo que el pool: una transaccion con N llamadas a repositorios ocupa un solo permiso.
+- Los permisos son tantos como conexiones tiene el pool (Hikari), asi ningun hilo se queda esperando dentro del pool.
+- Con hilos virtuales (spring.threads.virtual.enabled=true) miles de peticiones pueden esperar aqui su turno de forma
+  barata; si no hay permiso dentro de biblioteca.bulkhead.espera-maxima-ms se lanza BaseDeDatosSaturadaException
+  (503) en lugar de esperar al timeout de conexion de Hikari.
+- unwrap/isWrapperFor llegan al DataSource real (Hikari), asi las metricas del pool siguen funcionando.
+* */
+class DataSourceLimitado extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+
+    private final long esperaMaximaMs;
+
+    DataSourceLimitado(DataSource destino, int permisos, long esperaMaximaMs) {
+        super(destino);
+        this.permisos = new Semaphore(permisos, true);
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return envolver(super.getConnection());
+        } catch (SQLException | RuntimeException | Error e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirir();
+        try {
+            return envolver(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException | Error e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    int permisosDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new BaseDeDatosSaturadaException("No hay conexiones disponibles despues de " + esperaMaximaMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexion", e);
+        }
+    }
+
+    private Connection envolver(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new ConexionLimitada(conexion));
+    }
+
+    private final class ConexionLimitada implements InvocationHandler {
+
+        private final Connection conexion;
+
+        private boolean cerrada;
+
+        ConexionLimitada(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            if (metodo.getName().equals("close")) {
+                try {
+                    return metodo.invoke(conexion, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                } finally {
+                    devolver();
+                }
+            }
+            try {
+                return metodo.invoke(conexion, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        //close() puede llamarse mas de una vez: el permiso se devuelve solo la primera
+        private synchronized void devolver() {
+            if (!cerrada) {
+                cerrada = true;
+                permisos.release();
+            }
+        }
+    }
+}
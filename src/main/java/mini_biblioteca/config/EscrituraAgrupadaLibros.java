@@ -0,0 +1,219 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.services.LibroService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+Group commit para dar de alta libros (biblioteca.escritura-agrupada.habilitado=true):
+- guardar(libro) deja el libro en una cola y espera. Un hilo aparte junta los que llegan durante
+  biblioteca.escritura-agrupada.espera-ms desde el primero (o hasta biblioteca.escritura-agrupada.maximo libros)
+  y los escribe con LibroService.guardarNuevos: un INSERT por lotes en libro (con los ids generados), otro en
+  libro_autor y un CambioCatalogo.guardado por libro. Un solo commit (un solo fsync en MySQL) para todo el grupo.
+- Si el grupo falla (p. ej. un libro con una editorial que ya no existe) se revierte y cada libro se vuelve a guardar
+  por separado con LibroService.saveLibro: cada llamada recibe su id o su propio error. Un error inesperado del
+  escritor (cualquier Throwable) falla las llamadas de su grupo y el hilo sigue con el siguiente.
+- Una llamada espera a lo mas biblioteca.escritura-agrupada.espera-maxima-ms; si el escritor todavia no tomo su
+  libro lo saca de la cola y lo guarda ella con saveLibro. Si ya lo tomo, espera el resultado del grupo: cada libro
+  lo escribe uno solo de los dos (nunca dos veces).
+- Con la cola llena (biblioteca.escritura-agrupada.capacidad), deshabilitado o deteniendose, se guarda directo con
+  saveLibro. Al detener la aplicacion el escritor termina de escribir lo que queda en la cola.
+- Lo que el camino agrupado hace distinto de saveLibro:
+  - Bulkhead de conexiones (BulkheadConexionesConfig): el escritor toma un permiso por grupo, no uno por alta; las
+    llamadas que esperan en la cola no ocupan permisos. Si no hay permiso, el grupo falla y cada libro se reintenta
+    con saveLibro, que responde 503 por separado.
+  - Evento JFR de servicio (EventosJfrAspect): se registra un evento guardarNuevos por grupo, sin endpoint (corre en
+    el hilo del escritor), en lugar de un saveLibro por peticion.
+  - guardarNuevos esta al lado de saveLibro en LibroServiceImpl: lo que se agregue a las altas va en los dos.
+- Solo altas: las ediciones (libro con id) van siempre por el camino normal.
+- Metricas: biblioteca.escritura_agrupada.tamano (libros por commit), .pendientes y .individuales{motivo}.
+* */
+@Component
+public class EscrituraAgrupadaLibros {
+
+    private static final Logger log = LoggerFactory.getLogger(EscrituraAgrupadaLibros.class);
+
+    //tomado: lo escribe el grupo (el escritor lo tomo) o la llamada (se canso de esperar); el primero que lo marca
+    private record Pendiente(Libro libro, CompletableFuture<Libro> resultado, AtomicBoolean tomado) {
+    }
+
+    //Cada cuanto revisa el escritor si se pidio detenerlo mientras la cola esta vacia
+    private static final long REVISION_MS = 100;
+
+    @Autowired
+    private LibroService libroService;
+
+    private final boolean habilitado;
+
+    private final long esperaNanos;
+
+    private final int maximo;
+
+    private final long esperaMaximaMs;
+
+    private final BlockingQueue<Pendiente> cola;
+
+    private final DistributionSummary tamanoGrupo;
+
+    private final Counter porColaLlena;
+
+    private final Counter porFalloDelGrupo;
+
+    private final Counter porEspera;
+
+    private final Thread escritor;
+
+    private volatile boolean detenido;
+
+    public EscrituraAgrupadaLibros(MeterRegistry meterRegistry,
+                                   @Value("${biblioteca.escritura-agrupada.habilitado:false}") boolean habilitado,
+                                   @Value("${biblioteca.escritura-agrupada.espera-ms:5}") long esperaMs,
+                                   @Value("${biblioteca.escritura-agrupada.maximo:50}") int maximo,
+                                   @Value("${biblioteca.escritura-agrupada.capacidad:1000}") int capacidad,
+                                   @Value("${biblioteca.escritura-agrupada.espera-maxima-ms:2000}") long esperaMaximaMs) {
+        this.habilitado = habilitado;
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        this.maximo = maximo;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoGrupo = DistributionSummary.builder("biblioteca.escritura_agrupada.tamano").register(meterRegistry);
+        this.porColaLlena = Counter.builder("biblioteca.escritura_agrupada.individuales").tag("motivo", "cola_llena")
+                .register(meterRegistry);
+        this.porFalloDelGrupo = Counter.builder("biblioteca.escritura_agrupada.individuales")
+                .tag("motivo", "fallo_del_grupo").register(meterRegistry);
+        this.porEspera = Counter.builder("biblioteca.escritura_agrupada.individuales").tag("motivo", "espera")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.escritura_agrupada.pendientes", cola, BlockingQueue::size).register(meterRegistry);
+        this.escritor = new Thread(this::escribir, "escritura-libros");
+        this.escritor.setDaemon(true);
+        if (habilitado) {
+            this.escritor.start();
+        }
+    }
+
+    public Libro guardar(Libro libro) {
+        if (!habilitado || libro.getId() != null) {
+            return libroService.saveLibro(libro);
+        }
+        if (detenido) {
+            return libroService.saveLibro(libro);
+        }
+        Pendiente pendiente = new Pendiente(libro, new CompletableFuture<>(), new AtomicBoolean());
+        if (!cola.offer(pendiente)) {
+            porColaLlena.increment();
+            return libroService.saveLibro(libro);
+        }
+        try {
+            try {
+                return pendiente.resultado().get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pendiente.tomado().compareAndSet(false, true)) {
+                    cola.remove(pendiente);
+                    porEspera.increment();
+                    return libroService.saveLibro(libro);
+                }
+                //Ya esta en un grupo que se esta escribiendo
+                return pendiente.resultado().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pendiente.tomado().compareAndSet(false, true)) {
+                cola.remove(pendiente);
+            }
+            throw new IllegalStateException("Interrumpido esperando la escritura del libro", e);
+        }
+    }
+
+    private void escribir() {
+        List<Pendiente> grupo = new ArrayList<>(maximo);
+        while (!detenido || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(REVISION_MS, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                grupo.add(primero);
+                long limite = System.nanoTime() + esperaNanos;
+                while (grupo.size() < maximo) {
+                    Pendiente siguiente = cola.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    grupo.add(siguiente);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                escribirGrupo(grupo);
+            } catch (Throwable e) {
+                log.error("Fallo inesperado escribiendo un grupo de {} libros", grupo.size(), e);
+                grupo.forEach(p -> p.resultado().completeExceptionally(e));
+            }
+            grupo.clear();
+        }
+        //Solo si el hilo se interrumpio: nadie queda esperando un libro que no se va a escribir
+        cola.drainTo(grupo);
+        grupo.forEach(p -> p.resultado().completeExceptionally(new IllegalStateException("Aplicacion detenida")));
+    }
+
+    private void escribirGrupo(List<Pendiente> grupo) {
+        //Los que ya se guardaron por su cuenta (se cansaron de esperar) quedan fuera
+        grupo.removeIf(p -> !p.tomado().compareAndSet(false, true));
+        if (grupo.isEmpty()) {
+            return;
+        }
+        tamanoGrupo.record(grupo.size());
+        List<Libro> libros = grupo.stream().map(Pendiente::libro).toList();
+        try {
+            libroService.guardarNuevos(libros);
+            grupo.forEach(p -> p.resultado().complete(p.libro()));
+        } catch (RuntimeException e) {
+            log.warn("Fallo un grupo de {} libros, se guardan uno por uno: {}", grupo.size(), e.toString());
+            for (Pendiente pendiente : grupo) {
+                porFalloDelGrupo.increment();
+                pendiente.libro().setId(null);
+                try {
+                    pendiente.resultado().complete(libroService.saveLibro(pendiente.libro()));
+                } catch (RuntimeException individual) {
+                    pendiente.resultado().completeExceptionally(individual);
+                }
+            }
+        }
+    }
+
+    //Espera a que el escritor vacie la cola; la base de datos todavia esta disponible (este bean se destruye antes)
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        detenido = true;
+        escritor.join(TimeUnit.SECONDS.toMillis(30));
+        if (escritor.isAlive()) {
+            log.warn("El escritor de libros no termino a tiempo, se interrumpe con {} libros en la cola", cola.size());
+            escritor.interrupt();
+        }
+    }
+}
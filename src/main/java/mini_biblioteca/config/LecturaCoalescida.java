@@ -0,0 +1,12 @@
+package mini_biblioteca.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Marca un metodo de servicio de solo lectura cuyas llamadas identicas y simultaneas se ejecutan una sola vez
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LecturaCoalescida {
+}
@@ -0,0 +1,32 @@
+package mini_biblioteca.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+//Envuelve los metodos marcados con @LecturaCoalescida en el CoalescedorLecturas
+@Aspect
+@Component
+public class LecturaCoalescidaAspect {
+
+    @Autowired
+    private CoalescedorLecturas coalescedorLecturas;
+
+    @Around("@annotation(mini_biblioteca.config.LecturaCoalescida)")
+    public Object coalescer(ProceedingJoinPoint joinPoint) {
+        return coalescedorLecturas.ejecutar(joinPoint.getSignature().toShortString(),
+                Arrays.asList(joinPoint.getArgs()), () -> {
+                    try {
+                        return joinPoint.proceed();
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+    }
+}
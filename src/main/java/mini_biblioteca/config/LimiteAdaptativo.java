@@ -0,0 +1,74 @@
+package mini_biblioteca.config;
+
+import java.util.function.LongSupplier;
+
+/*
+Limite de concurrencia adaptativo estilo AIMD (aumento aditivo, disminucion multiplicativa):
+- Cada peticion que termina por debajo de la latencia objetivo sube el limite en 1/limite
+  (aprox. +1 por cada "ventana" completa de peticiones).
+- Una peticion que termina por encima de la latencia objetivo lo reduce al 90%, una sola vez por ventana: solo
+  cuentan las peticiones que empezaron despues de la ultima reduccion. Una rafaga de K peticiones lentas que ya
+  estaban en curso es una sola senal de congestion, no K (el limite no se desploma hasta el minimo de golpe).
+- El limite siempre queda entre minimo y maximo.
+* */
+public class LimiteAdaptativo {
+
+    private static final double FACTOR_REDUCCION = 0.9;
+
+    private final int minimo;
+
+    private final int maximo;
+
+    private final long latenciaObjetivoNanos;
+
+    private final LongSupplier reloj;
+
+    private double limite;
+
+    private int enCurso;
+
+    private long ultimaReduccion = Long.MIN_VALUE;
+
+    public LimiteAdaptativo(int inicial, int minimo, int maximo, long latenciaObjetivoNanos) {
+        this(inicial, minimo, maximo, latenciaObjetivoNanos, System::nanoTime);
+    }
+
+    LimiteAdaptativo(int inicial, int minimo, int maximo, long latenciaObjetivoNanos, LongSupplier reloj) {
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.latenciaObjetivoNanos = latenciaObjetivoNanos;
+        this.reloj = reloj;
+        this.limite = Math.max(minimo, Math.min(maximo, inicial));
+    }
+
+    public synchronized boolean intentarAdquirir() {
+        if (enCurso >= (int) limite) {
+            return false;
+        }
+        enCurso++;
+        return true;
+    }
+
+    public synchronized void liberar(long latenciaNanos) {
+        enCurso--;
+        if (latenciaNanos > latenciaObjetivoNanos) {
+            long ahora = reloj.getAsLong();
+            //Empezo antes de la ultima reduccion: su lentitud ya se conto
+            if (ahora - latenciaNanos >= ultimaReduccion) {
+                limite = Math.max(minimo, limite * FACTOR_REDUCCION);
+                ultimaReduccion = ahora;
+            }
+        } else if (enCurso * 2 >= (int) limite) {
+            //Solo se crece si el limite realmente se esta usando
+            limite = Math.min(maximo, limite + 1.0 / limite);
+        }
+    }
+
+    public synchronized int getLimite() {
+        return (int) limite;
+    }
+
+    public synchronized int getEnCurso() {
+        return enCurso;
+    }
+}
@@ -0,0 +1,122 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+Control de admision delante de los controladores:
+- Clasifica cada peticion en COSTOSA (listados completos, filtro de libros, duplicados y libros por editorial), ESCRITURA (POST) o BARATA (el resto).
+- Cada clase tiene su propio LimiteAdaptativo que se ajusta con la latencia medida.
+- Las clases BARATA y ESCRITURA tienen limites mucho mas altos, asi tienen prioridad cuando la BD se satura.
+- Si se supera el limite se responde 503 con la cabecera Retry-After.
+- Los limites actuales y los rechazos se publican como metricas (/actuator/metrics/biblioteca.concurrencia.*).
+* */
+@Component
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    enum ClaseEndpoint { COSTOSA, BARATA, ESCRITURA }
+
+    private static final List<String> RUTAS_COSTOSAS = List.of(
+            "/libros", "/libros/", "/libros/listar", "/libros/filtrar", "/libros/duplicados",
+            "/editoriales/{id:[0-9]+}", "/editoriales/{id:[0-9]+}/libros");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<ClaseEndpoint, LimiteAdaptativo> limites = new EnumMap<>(ClaseEndpoint.class);
+
+    private final Map<ClaseEndpoint, Counter> rechazos = new EnumMap<>(ClaseEndpoint.class);
+
+    private final boolean habilitado;
+
+    private final String reintentarSegundos;
+
+    //null en pruebas sin contexto
+    private final Calentamiento calentamiento;
+
+    public LimiteConcurrenciaFilter(MeterRegistry meterRegistry,
+                                    Calentamiento calentamiento,
+                                    @Value("${biblioteca.concurrencia.habilitado:true}") boolean habilitado,
+                                    @Value("${biblioteca.concurrencia.costosa.maximo:20}") int maximoCostosa,
+                                    @Value("${biblioteca.concurrencia.costosa.latencia-objetivo-ms:250}") long objetivoCostosaMs,
+                                    @Value("${biblioteca.concurrencia.general.maximo:200}") int maximoGeneral,
+                                    @Value("${biblioteca.concurrencia.general.latencia-objetivo-ms:100}") long objetivoGeneralMs,
+                                    @Value("${biblioteca.concurrencia.reintentar-segundos:1}") int reintentarSegundos) {
+        this.habilitado = habilitado;
+        this.calentamiento = calentamiento;
+        this.reintentarSegundos = String.valueOf(reintentarSegundos);
+        limites.put(ClaseEndpoint.COSTOSA, new LimiteAdaptativo(maximoCostosa / 2, 1, maximoCostosa,
+                TimeUnit.MILLISECONDS.toNanos(objetivoCostosaMs)));
+        //Las clases baratas y de escritura nunca bajan de la mitad de su maximo: tienen prioridad
+        limites.put(ClaseEndpoint.BARATA, new LimiteAdaptativo(maximoGeneral, maximoGeneral / 2, maximoGeneral,
+                TimeUnit.MILLISECONDS.toNanos(objetivoGeneralMs)));
+        limites.put(ClaseEndpoint.ESCRITURA, new LimiteAdaptativo(maximoGeneral, maximoGeneral / 2, maximoGeneral,
+                TimeUnit.MILLISECONDS.toNanos(objetivoGeneralMs)));
+
+        for (Map.Entry<ClaseEndpoint, LimiteAdaptativo> entry : limites.entrySet()) {
+            String clase = entry.getKey().name().toLowerCase();
+            Gauge.builder("biblioteca.concurrencia.limite", entry.getValue(), LimiteAdaptativo::getLimite)
+                    .tag("clase", clase).register(meterRegistry);
+            Gauge.builder("biblioteca.concurrencia.en_curso", entry.getValue(), LimiteAdaptativo::getEnCurso)
+                    .tag("clase", clase).register(meterRegistry);
+            rechazos.put(entry.getKey(), Counter.builder("biblioteca.concurrencia.rechazos")
+                    .tag("clase", clase).register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        //El stream SSE de cambios es una conexion larga: su "latencia" no dice nada de la carga de la BD
+        //Las peticiones del calentamiento miden latencias en frio: no deben bajar el limite
+        String ruta = request.getRequestURI();
+        return !habilitado || ruta.startsWith("/actuator") || ruta.startsWith("/cambios/stream")
+                || (calentamiento != null && calentamiento.esPeticionPropia(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ClaseEndpoint clase = clasificar(request);
+        LimiteAdaptativo limite = limites.get(clase);
+        if (!limite.intentarAdquirir()) {
+            rechazos.get(clase).increment();
+            response.setHeader("Retry-After", reintentarSegundos);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Servidor ocupado, intente de nuevo");
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limite.liberar(System.nanoTime() - inicio);
+        }
+    }
+
+    ClaseEndpoint clasificar(HttpServletRequest request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) {
+            return ClaseEndpoint.ESCRITURA;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        for (String patron : RUTAS_COSTOSAS) {
+            if (pathMatcher.match(patron, ruta)) {
+                return ClaseEndpoint.COSTOSA;
+            }
+        }
+        return ClaseEndpoint.BARATA;
+    }
+}
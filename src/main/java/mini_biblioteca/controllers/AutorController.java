@@ -1,6 +1,10 @@
 package mini_biblioteca.controllers;
 
 
+import mini_biblioteca.catalogo.CatalogoEnMemoria;
+import mini_biblioteca.catalogo.CatalogoSnapshot;
+import mini_biblioteca.catalogo.Colaborador;
+import mini_biblioteca.catalogo.IndiceCoautores;
 import mini_biblioteca.entities.Autor;
 import mini_biblioteca.repositories.AutorRepository;
 import mini_biblioteca.services.AutorService;
@@ -9,8 +13,12 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/autores")
@@ -18,6 +26,12 @@ public class AutorController {
 
     @Autowired
     private AutorService autorService;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private IndiceCoautores indiceCoautores;
     //==================================================================================================================
     /* - Este método  sirve para mostrar la lista de autores en pantalla.
          - En resumen:
@@ -43,6 +57,11 @@ public class AutorController {
     - Aquí se llama al servicio (autorService) para obtener la lista de todos los autores guardados en la base de datos.
     - El servicio probablemente está usando un AutorRepository (Spring Data JPA) que hace algo como findAll().
     */
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            model.addAttribute("autores", catalogo.get().listarAutores());
+            return "autor/lista_autores";
+        }
         List<Autor> autores = autorService.listarTodosLosAutores();
         /*
     4. model.addAttribute("autores", autores);
@@ -132,7 +151,24 @@ public class AutorController {
 	    autor.setNombre(valorDelInputNombre);
 	    autor.setApellido(valorDelInputApellido);
     */
-    public String guardarAutor(@ModelAttribute Autor autor){
+    public String guardarAutor(@ModelAttribute Autor autor,
+                               @RequestParam(defaultValue = "false") boolean confirmado,
+                               Model model){
+    /*
+    - Antes de crear un autor nuevo se buscan autores con un nombre parecido ("Garcia Marquez, Gabriel" ya existe como
+      "Gabriel García Márquez", o tiene un error de tipeo).
+    - Si hay alguno, se vuelve a mostrar el formulario con la lista para que el usuario elija el existente o confirme
+      con "Guardar de todas formas" (que envia confirmado=true).
+    - Al editar (autor con id) no se pregunta.
+    * */
+        if(autor.getId() == null && !confirmado){
+            List<Autor> parecidos = autorService.buscarParecidos(autor.getNombre());
+            if(!parecidos.isEmpty()){
+                model.addAttribute("autor", autor);
+                model.addAttribute("parecidos", parecidos);
+                return "autor/formulario_autor";
+            }
+        }
     /*
     3. autorService.guardarAutor(autor);
     Aquí se llama al servicio (autorService) que se encarga de la lógica de negocio, por ejemplo guardar el autor en la
@@ -223,6 +259,41 @@ public class AutorController {
     }
 
 
+    /*
+    - Este método muestra los autores que más libros han escrito junto con el autor seleccionado.
+    1. @GetMapping("/{id}/relacionados")
+    Se ejecuta con una URL como /autores/5/relacionados (opcionalmente ?k=20 para ver más coautores).
+
+    2. indiceCoautores.relacionados(id, k)
+     - No consulta la base de datos: lee el grafo de coautoría que se arma en memoria al iniciar la aplicación
+       (ver IndiceCoautores). Devuelve los k coautores con más libros en común, de mayor a menor.
+
+    3. autorService.buscarPorIds(...)
+     - Con una sola consulta trae el autor y sus coautores para mostrar sus nombres.
+     - Se agrega al modelo un mapa id -> autor con el nombre "autores".
+
+    4. return "autor/autores_relacionados";
+     - Devuelve la vista autores_relacionados.html de la carpeta templates/autor/.
+    */
+
+    @GetMapping("/{id}/relacionados")
+    public String mostrarAutoresRelacionados(@PathVariable Long id,
+                                             @RequestParam(value = "k", defaultValue = "10") int k,
+                                             Model model){
+        List<Colaborador> relacionados = indiceCoautores.relacionados(id, Math.max(1, Math.min(k, 50)));
+        List<Long> ids = new ArrayList<>(relacionados.stream().map(Colaborador::getAutorId).toList());
+        ids.add(id);
+        Map<Long, Autor> autores = autorService.buscarPorIds(ids).stream()
+                .collect(Collectors.toMap(Autor::getId, Function.identity()));
+        if(!autores.containsKey(id)){
+            return "redirect:/autores/listar";
+        }
+        model.addAttribute("autor", autores.get(id));
+        model.addAttribute("relacionados", relacionados.stream().filter(c -> autores.containsKey(c.getAutorId())).toList());
+        model.addAttribute("autores", autores);
+        return "autor/autores_relacionados";
+    }
+
     @PostMapping("/actualizar")
     public String actualizarAutor(@ModelAttribute Autor autor){
         autorService.actualizarAutor(autor);
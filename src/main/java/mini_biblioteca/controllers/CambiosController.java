@@ -0,0 +1,55 @@
+package mini_biblioteca.controllers;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mini_biblioteca.cambios.OutboxCambios;
+import mini_biblioteca.cambios.RelayCambios;
+import mini_biblioteca.entities.EventoCatalogo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/*
+Feed de cambios del catalogo para consumidores externos (cluster de busqueda, espejo del OPAC, etc.):
+- GET /cambios?desde=N&limite=M
+	Devuelve en NDJSON (un evento JSON por linea) los eventos con offset ("secuencia", en orden de commit) mayor a N.
+	El consumidor guarda el ultimo offset que proceso y lo manda como "desde" en la siguiente llamada.
+- GET /cambios/stream?desde=N
+	Mismo contenido como Server-Sent Events; si el cliente se reconecta con la cabecera Last-Event-ID
+	se reanuda desde ese offset.
+Asi la sincronizacion cuesta lo mismo que el numero de cambios, no lo que el tamaño del catalogo.
+* */
+@RestController
+@RequestMapping("/cambios")
+public class CambiosController {
+
+    @Autowired
+    private OutboxCambios outboxCambios;
+
+    @Autowired
+    private RelayCambios relayCambios;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @GetMapping(produces = "application/x-ndjson")
+    public String leerCambios(@RequestParam(defaultValue = "0") long desde,
+                              @RequestParam(defaultValue = "500") int limite) throws JsonProcessingException {
+        List<EventoCatalogo> eventos = outboxCambios.leerDesde(desde, Math.min(limite, 5000));
+        StringBuilder lineas = new StringBuilder();
+        for (EventoCatalogo evento : eventos) {
+            lineas.append(objectMapper.writeValueAsString(evento)).append('\n');
+        }
+        return lineas.toString();
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter seguirCambios(@RequestParam(defaultValue = "0") long desde,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long ultimoEventoId) {
+        return relayCambios.suscribir(ultimoEventoId != null ? ultimoEventoId : desde);
+    }
+}
@@ -1,11 +1,18 @@
 package mini_biblioteca.controllers;
 
 
+import mini_biblioteca.catalogo.CatalogoEnMemoria;
+import mini_biblioteca.catalogo.CatalogoSnapshot;
+import mini_biblioteca.catalogo.LibroVista;
 import mini_biblioteca.entities.Categoria;
 import mini_biblioteca.entities.Libro;
+import mini_biblioteca.repositories.LibroResumen;
 import mini_biblioteca.services.CategoriaService;
 import mini_biblioteca.services.LibroService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +31,9 @@ public class CategoriaController {
     @Autowired
     LibroService libroService;
 
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
     /*
 
 Flujo completo
@@ -63,6 +73,11 @@ Flujo completo
 
     @GetMapping({"/listar", "/"})
     public String listarCategorias(Model model){
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            model.addAttribute("categorias", catalogo.get().listarCategorias());
+            return "categoria/listar_categorias";
+        }
         List<Categoria> categorias = categoriaService.listarTodasLasCategorias();
         model.addAttribute("categorias", categorias);
         //categoria es el nombre de la carpeta y listar_categorias es el nombre del archivo html
@@ -278,5 +293,43 @@ Explicación paso por paso
     }
 
 
+    /*
+Resumen práctico
+	- Muestra los libros de una categoría, por páginas de 50, con el total de libros de la categoría.
+	- URL: /categorias/{id}/libros?pagina=0&orden=titulo&direccion=asc
+	- Solo se consultan el id y el título de cada libro (libroService.buscarResumenPorCategoria()),
+	  no se carga la lista completa categoria.getLibros() ni los autores de cada libro.
+	- El total (libroService.contarPorCategoria()) se guarda en cache y se invalida cuando cambia algún libro.
+	- Se muestra la vista categoria/mostrar_libros_categoria.html.
+    * */
+    @GetMapping("/{id}/libros")
+    public String mostrarLibrosDeCategoria(@PathVariable Long id,
+                                           @RequestParam(defaultValue = "0") int pagina,
+                                           @RequestParam(defaultValue = "titulo") String orden,
+                                           @RequestParam(defaultValue = "asc") String direccion,
+                                           Model model){
+        Pageable pageable = PaginacionLibros.crear(pagina, orden, direccion);
+        model.addAttribute("orden", "id".equals(orden) ? "id" : "titulo");
+        model.addAttribute("direccion", "desc".equalsIgnoreCase(direccion) ? "desc" : "asc");
+
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            catalogo.get().buscarCategoria(id).ifPresent(categoria -> {
+                Page<LibroVista> paginaLibros = catalogo.get().librosDeCategoria(id, pageable);
+                model.addAttribute("categoria", categoria);
+                model.addAttribute("libros", paginaLibros.getContent());
+                model.addAttribute("paginaLibros", paginaLibros);
+            });
+            return "categoria/mostrar_libros_categoria";
+        }
+        Optional<Categoria> categoria = categoriaService.buscarPorId(id);
+        if(categoria.isPresent()){
+            List<LibroResumen> libros = libroService.buscarResumenPorCategoria(id, pageable);
+            model.addAttribute("categoria", categoria.get());
+            model.addAttribute("libros", libros);
+            model.addAttribute("paginaLibros", new PageImpl<>(libros, pageable, libroService.contarPorCategoria(id)));
+        }
+        return "categoria/mostrar_libros_categoria";
+    }
 
 }
@@ -1,10 +1,18 @@
 package mini_biblioteca.controllers;
 
 
+import mini_biblioteca.catalogo.CatalogoEnMemoria;
+import mini_biblioteca.catalogo.CatalogoSnapshot;
+import mini_biblioteca.catalogo.LibroVista;
 import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.repositories.LibroResumen;
 import mini_biblioteca.services.EditorialService;
 import mini_biblioteca.services.LibroService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +30,9 @@ public class EditorialController {
     @Autowired
     private LibroService libroService;
 
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
     /*
     Resumen:
 Este método muestra el formulario de registro de una nueva editorial. Crea un objeto vacío de tipo Editorial, lo envía al modelo y retorna la vista formulario_editorial.html.
@@ -149,6 +160,11 @@ Explicación paso a paso:
 
     @GetMapping({"/listar","/"})
     public String listarEditoriales(Model model){
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            model.addAttribute("editoriales", catalogo.get().listarEditoriales());
+            return "editorial/listar_editoriales";
+        }
         List<Editorial> editoriales = editorialService.listarTodasLasEditoriales();
         model.addAttribute("editoriales", editoriales);
         return "editorial/listar_editoriales";
@@ -188,6 +204,7 @@ Explicación línea por línea:
 3.- Optional<Editorial> editorialOptional = editorialService.buscarPorId(id);
 	- Llama al servicio editorialService para buscar una editorial en la base de datos por su id.
 	- Como podría no existir, se usa un Optional<Editorial> para evitar NullPointerException.
+	- Todo esto se hace en el metodo cargarEditorialConLibros(), que comparten este metodo y mostrarLibrosDeEditorial().
 
 4.- if(editorialOptional.isPresent())
 	- Verifica si realmente existe la editorial con el id dado.
@@ -200,9 +217,10 @@ Explicación línea por línea:
 	- Agrega el objeto editorial al modelo con el nombre "editorial".
 	- Esto permite acceder a la editorial en la vista (por ejemplo en Thymeleaf con ${editorial.nombre}).
 
-7.- model.addAttribute("libros", editorial.getLibros());
-	- Obtiene la lista de libros asociados a esa editorial y la agrega al modelo con el nombre "libros".
-	- En la vista se puede iterar esa lista para mostrar los libros de la editorial.
+7.- model.addAttribute("libros", libros);
+	- Obtiene solo UNA PAGINA de libros de esa editorial (50 por pagina, solo id y titulo) con libroService.buscarResumenPorEditorial().
+	- Los parametros pagina, orden (titulo o id) y direccion (asc o desc) llegan en la URL, por ejemplo: /editoriales/3?pagina=2&orden=titulo
+	- Tambien se agrega "paginaLibros" con el total de libros (el conteo se guarda en cache) para los botones de pagina.
 
 8.- return "editorial/mostrar_editorial";
 	- Indica que debe renderizarse la vista ubicada en la plantilla editorial/mostrar_editorial.html (o .jsp dependiendo del motor de plantillas).
@@ -211,13 +229,12 @@ Explicación línea por línea:
     * */
 
     @GetMapping("/{id}")
-    public String mostrarEditorial(@PathVariable Long id, Model model){
-        Optional<Editorial> editorialOptional = editorialService.buscarPorId(id);
-        if(editorialOptional.isPresent()){
-            Editorial editorial = editorialOptional.get();
-            model.addAttribute("editorial", editorial);
-            model.addAttribute("libros", editorial.getLibros());
-        }
+    public String mostrarEditorial(@PathVariable Long id,
+                                   @RequestParam(defaultValue = "0") int pagina,
+                                   @RequestParam(defaultValue = "titulo") String orden,
+                                   @RequestParam(defaultValue = "asc") String direccion,
+                                   Model model){
+        cargarEditorialConLibros(id, PaginacionLibros.crear(pagina, orden, direccion), model);
         return "editorial/mostrar_editorial";
     }
 
@@ -395,7 +412,7 @@ Resumen práctico
 Ejemplo de flujo:
 	- El usuario visita /editorial/3/libros.
 	- Se busca la editorial con id=3.
-	- Se obtienen sus libros (editorial.getLibros()).
+	- Se obtiene una pagina de sus libros (libroService.buscarResumenPorEditorial()).
 	- En la página mostrar_libros_editorial.html se muestra el nombre de la editorial y una lista de sus libros.
 
 
@@ -412,7 +429,7 @@ Explicación línea por línea
 	- Model model: se usa para pasar datos desde el backend hacia la vista (HTML con Thymeleaf, JSP, etc.).
 
 3.- Optional<Editorial> editorialOptional = editorialService.buscarPorId(id);
-	- Llama al servicio para buscar la editorial en la base de datos.
+	- Llama al servicio para buscar la editorial en la base de datos (dentro de cargarEditorialConLibros()).
 	- Retorna un Optional<Editorial> porque puede que exista o no exista la editorial.
 
 4.- if(editorialOptional.isPresent()){ ... }
@@ -426,9 +443,9 @@ Explicación línea por línea
 	- Pasa la editorial al modelo con el nombre "editorial".
 	- Esto permite acceder a los datos de la editorial en la vista, por ejemplo con ${editorial.nombre}.
 
-7.- model.addAttribute("libros", editorial.getLibros());
-	- Obtiene la lista de libros asociados a esa editorial (editorial.getLibros()).
-	- Se agrega al modelo con el nombre "libros".
+7.- model.addAttribute("libros", libros);
+	- Obtiene una pagina de libros de esa editorial, ordenada por titulo o id (libroService.buscarResumenPorEditorial()).
+	- Se agrega al modelo con el nombre "libros", junto con "paginaLibros" (numero de pagina y total de libros).
 	- En la vista se puede recorrer la lista para mostrar los libros.
 
 8.- return "editorial/mostrar_libros_editorial";
@@ -439,14 +456,37 @@ Explicación línea por línea
     * */
 
     @GetMapping("/{id}/libros")
-    public String mostrarLibrosDeEditorial(@PathVariable Long id, Model model){
+    public String mostrarLibrosDeEditorial(@PathVariable Long id,
+                                   @RequestParam(defaultValue = "0") int pagina,
+                                   @RequestParam(defaultValue = "titulo") String orden,
+                                   @RequestParam(defaultValue = "asc") String direccion,
+                                   Model model){
+        cargarEditorialConLibros(id, PaginacionLibros.crear(pagina, orden, direccion), model);
+        return "editorial/mostrar_libros_editorial";
+    }
+
+    //Agrega al modelo la editorial y una pagina de sus libros (solo id y titulo), con el total de libros en cache
+    private void cargarEditorialConLibros(Long id, Pageable pageable, Model model){
+        Sort.Order orden = pageable.getSort().iterator().next();
+        model.addAttribute("orden", "Id".equals(orden.getProperty()) ? "id" : orden.getProperty());
+        model.addAttribute("direccion", orden.isAscending() ? "asc" : "desc");
+
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            catalogo.get().buscarEditorial(id).ifPresent(editorial -> {
+                Page<LibroVista> paginaLibros = catalogo.get().librosDeEditorial(id, pageable);
+                model.addAttribute("editorial", editorial);
+                model.addAttribute("libros", paginaLibros.getContent());
+                model.addAttribute("paginaLibros", paginaLibros);
+            });
+            return;
+        }
         Optional<Editorial> editorialOptional = editorialService.buscarPorId(id);
         if(editorialOptional.isPresent()){
-            Editorial editorial = editorialOptional.get();
-            model.addAttribute("editorial", editorial);
-            model.addAttribute("libros", editorial.getLibros());
+            List<LibroResumen> libros = libroService.buscarResumenPorEditorial(id, pageable);
+            model.addAttribute("editorial", editorialOptional.get());
+            model.addAttribute("libros", libros);
+            model.addAttribute("paginaLibros", new PageImpl<>(libros, pageable, libroService.contarPorEditorial(id)));
         }
-        return "editorial/mostrar_libros_editorial";
     }
 }
-
@@ -0,0 +1,75 @@
+package mini_biblioteca.controllers;
+
+
+import mini_biblioteca.services.AutorService;
+import mini_biblioteca.services.CategoriaService;
+import mini_biblioteca.services.EditorialService;
+import mini_biblioteca.services.ResultadoFusionAutores;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+Fusion de entidades duplicadas del catalogo (administracion):
+- POST /fusiones/editoriales?origen=A&destino=B
+- POST /fusiones/categorias?origen=A&destino=B
+	Pasa todos los libros de A a B con un UPDATE masivo, borra A y responde cuantos libros se movieron.
+	Responde 404 si A o B no existen y 400 si son la misma.
+- POST /fusiones/autores?origen=A&origen=C&destino=B
+	Reescribe libro_autor de A y C a B sin dejar a B repetido en un libro, borra A y C y responde las filas
+	reescritas y las repetidas que se quitaron.
+Antes habia que editar libro por libro desde el formulario de LibroController.
+* */
+@RestController
+@RequestMapping("/fusiones")
+public class FusionController {
+
+    @Autowired
+    private EditorialService editorialService;
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private AutorService autorService;
+
+    @PostMapping("/editoriales")
+    public ResponseEntity<Map<String, Object>> fusionarEditoriales(@RequestParam Long origen, @RequestParam Long destino) {
+        if (editorialService.buscarPorId(origen).isEmpty() || editorialService.buscarPorId(destino).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (origen.equals(destino)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int libros = editorialService.fusionarEditoriales(origen, destino);
+        return ResponseEntity.ok(Map.of("origen", origen, "destino", destino, "librosMovidos", libros));
+    }
+
+    @PostMapping("/categorias")
+    public ResponseEntity<Map<String, Object>> fusionarCategorias(@RequestParam Long origen, @RequestParam Long destino) {
+        if (categoriaService.buscarPorId(origen).isEmpty() || categoriaService.buscarPorId(destino).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (origen.equals(destino)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int libros = categoriaService.fusionarCategorias(origen, destino);
+        return ResponseEntity.ok(Map.of("origen", origen, "destino", destino, "librosMovidos", libros));
+    }
+
+    @PostMapping("/autores")
+    public ResponseEntity<ResultadoFusionAutores> fusionarAutores(@RequestParam List<Long> origen,
+                                                                  @RequestParam Long destino) {
+        if (autorService.buscarPorIds(origen).size() != origen.stream().distinct().count()
+                || autorService.buscarPorId(destino).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (origen.contains(destino)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(autorService.fusionarAutores(origen, destino));
+    }
+}
@@ -1,6 +1,15 @@
 package mini_biblioteca.controllers;
 
 
+import mini_biblioteca.services.FiltroLibros;
+import mini_biblioteca.catalogo.CatalogoEnMemoria;
+import mini_biblioteca.config.EscrituraAgrupadaLibros;
+import mini_biblioteca.catalogo.CatalogoSnapshot;
+import mini_biblioteca.catalogo.DetectorDuplicados;
+import mini_biblioteca.catalogo.IndiceFacetas;
+import mini_biblioteca.catalogo.IndiceSimilares;
+import mini_biblioteca.catalogo.ParDuplicado;
+import mini_biblioteca.repositories.LibroResumen;
 import mini_biblioteca.entities.Autor;
 import mini_biblioteca.entities.Categoria;
 import mini_biblioteca.entities.Editorial;
@@ -13,19 +22,30 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Controller
 @RequestMapping("/libros")
 public class LibroController {
 
+    //Opciones del combo de autores en /libros/filtrar
+    private static final int MAXIMO_AUTORES = 100;
+
     @Autowired
     private LibroService libroService;
 
+    @Autowired
+    private EscrituraAgrupadaLibros escrituraAgrupadaLibros;
+
     @Autowired
     private EditorialService editorialService;
 
@@ -35,6 +55,18 @@ public class LibroController {
     @Autowired
     private AutorService autorService;
 
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private IndiceFacetas indiceFacetas;
+
+    @Autowired
+    private IndiceSimilares indiceSimilares;
+
+    @Autowired
+    private DetectorDuplicados detectorDuplicados;
+
     /*
     Flujo completo
 - El usuario entra a /libros/listar o /libros/.
@@ -75,11 +107,76 @@ Explicación paso por paso
 
     @GetMapping({"/listar", "/"})
     public String listarLibros(Model model){
+        //Si el catalogo en memoria esta activo se lee de ahi, sin ir a la base de datos
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            model.addAttribute("libros", catalogo.get().listarLibros());
+            return "libro/listar_libros";
+        }
         List<Libro> libros = libroService.listarTodosLosLibros();
         model.addAttribute("libros", libros);
         return "libro/listar_libros";
     }
 
+    /*
+    Flujo completo
+- El usuario entra a /libros/filtrar y llena uno o varios criterios: categoría, editorial, autor y el inicio del título.
+- El controlador pide al servicio una página de libros que cumplan todos los criterios llenos.
+- Thymeleaf genera la vista filtrar_libros.html con el formulario y la tabla de resultados.
+- El botón "Siguiente" manda los mismos criterios más el título y el id del último libro mostrado.
+
+Explicación paso por paso
+1. @ModelAttribute("filtro") FiltroLibros filtro
+	- Spring llena el objeto FiltroLibros con los parámetros de la URL (categoriaId, editorialId, autorId, titulo...).
+	- Los campos que vienen vacíos quedan en null y no se usan para filtrar.
+
+2. libroService.filtrar(filtro, LIBROS_POR_PAGINA + 1)
+	- Arma UNA sola consulta con los criterios llenos (ver LibroEspecificaciones) ordenada por título e id.
+	- Se pide un libro de más solo para saber si existe una página siguiente.
+
+3. Paginación por keyset
+	- En lugar de OFFSET (que obliga a la BD a leer y descartar todas las filas anteriores) la página siguiente
+	  empieza después del último libro mostrado: (titulo, id) > (despuesDeTitulo, despuesDeId).
+	- Así cualquier página cuesta lo mismo que la primera.
+
+4. model.addAttribute(...)
+	- "libros": los libros de esta página.
+	- "siguiente": el último libro de la página si hay más resultados (null si ya no hay).
+	- "editoriales", "categorias": las opciones de los combos del formulario.
+	- "autores": a lo más MAXIMO_AUTORES autores por nombre, los que empiezan con filtro.nombreAutor si viene, más el
+	  autor elegido. Con miles de autores cargarlos todos en cada petición costaba más que el filtro mismo.
+	- "facetas": cuántos libros hay con cada opción de los combos (ver IndiceFacetas). Se calcula en memoria con
+	  bitmaps, sin consultas GROUP BY; es null si el índice está deshabilitado.
+    * */
+    @GetMapping("/filtrar")
+    public String filtrarLibros(@ModelAttribute("filtro") FiltroLibros filtro, Model model){
+        List<Libro> libros = new ArrayList<>(libroService.filtrar(filtro, PaginacionLibros.LIBROS_POR_PAGINA + 1));
+        Libro siguiente = null;
+        if(libros.size() > PaginacionLibros.LIBROS_POR_PAGINA){
+            libros.remove(libros.size() - 1);
+            siguiente = libros.get(libros.size() - 1);
+        }
+        model.addAttribute("libros", libros);
+        model.addAttribute("siguiente", siguiente);
+        model.addAttribute("editoriales", editorialService.listarTodasLasEditoriales());
+        model.addAttribute("categorias", categoriaService.listarTodasLasCategorias());
+        List<Autor> autores = opcionesDeAutor(filtro);
+        model.addAttribute("autores", autores);
+        model.addAttribute("facetas", indiceFacetas.contar(filtro.getCategoriaId(), filtro.getEditorialId(),
+                filtro.getAutorId(), autores.stream().map(Autor::getId).toList()).orElse(null));
+        return "libro/filtrar_libros";
+    }
+
+    //Con muchos autores no se puede mandar la tabla completa en cada filtro: una pagina por nombre y el elegido
+    private List<Autor> opcionesDeAutor(FiltroLibros filtro) {
+        List<Autor> autores = new ArrayList<>(autorService.buscarPorPrefijo(filtro.getNombreAutor(), MAXIMO_AUTORES));
+        Long elegido = filtro.getAutorId();
+        if (elegido != null && autores.stream().noneMatch(a -> a.getId().equals(elegido))) {
+            autorService.buscarPorId(elegido).ifPresent(a -> autores.add(0, a));
+        }
+        return autores;
+    }
+
     /*
     Flujo completo
 - El usuario hace clic en "Nuevo libro".
@@ -208,7 +305,13 @@ Explicación paso a paso
 		libroService.saveLibro(libro);
 	-Una vez que el libro ya tiene editorial, categoría y autores asignados, se guarda en la base de datos.
 
-7. Redirección
+7. Posibles duplicados
+		detectorDuplicados.candidatos(libro.getTitulo(), autoresIds, libroGuardado.getId());
+	- Busca libros ya registrados con un título casi igual y los mismos autores (por ejemplo
+	  "Cien años de soledad" y "Cien Años De Soledad (ed. 2)"). El libro se guarda de todas formas.
+	- Si hay alguno, sus títulos se mandan como "flash attribute" para mostrar un aviso en el listado.
+
+8. Redirección
 		return "redirect:/libros/listar";
 	Después de guardar, redirige al usuario a la página donde se listan todos los libros.
 
@@ -218,7 +321,8 @@ Explicación paso a paso
     public String guardarLibro(@ModelAttribute Libro libro,
                                @RequestParam("editorialId") Long editorialId,
                                @RequestParam("categoriaId") Long categoriaId,
-                               @RequestParam("autoresIds") List<Long> autoresIds){
+                               @RequestParam("autoresIds") List<Long> autoresIds,
+                               RedirectAttributes redirectAttributes){
         //Obtener y asignar la editorial y la categoría al libro
         Optional<Editorial> editorial = editorialService.buscarPorId(editorialId);
         editorial.ifPresent(libro::setEditorial);
@@ -229,10 +333,43 @@ Explicación paso a paso
         List<Autor> autores = autorService.buscarPorIds(autoresIds);
         libro.setAutores(new ArrayList<>(autores));
 
-        libroService.saveLibro(libro);
+        //Con biblioteca.escritura-agrupada.habilitado=true las altas simultaneas comparten un commit
+        Libro libroGuardado = escrituraAgrupadaLibros.guardar(libro);
+
+        List<Long> duplicados = detectorDuplicados.candidatos(libro.getTitulo(), autoresIds, libroGuardado.getId())
+                .stream().map(ParDuplicado::getDuplicadoId).toList();
+        if(!duplicados.isEmpty()){
+            redirectAttributes.addFlashAttribute("posiblesDuplicados",
+                    libroService.buscarResumenes(duplicados).stream().map(LibroResumen::getTitulo).toList());
+        }
         return "redirect:/libros/listar";
     }
 
+    /*
+    - Este método revisa todo el catálogo buscando libros casi duplicados.
+    1. @GetMapping("/duplicados")
+	- Responde a /libros/duplicados.
+    2. detectorDuplicados.escanear()
+	- Compara las firmas de todos los libros en paralelo (usando todos los núcleos) y devuelve cada par una sola vez,
+	  del más al menos parecido. No consulta la base de datos.
+    3. Se muestran como máximo 500 pares; los títulos se buscan con una sola consulta.
+    * */
+    @GetMapping("/duplicados")
+    public String mostrarDuplicados(Model model){
+        List<ParDuplicado> pares = detectorDuplicados.escanear();
+        if(pares.size() > 500){
+            pares = pares.subList(0, 500);
+        }
+        List<Long> ids = pares.stream()
+                .flatMap(par -> Stream.of(par.getLibroId(), par.getDuplicadoId()))
+                .distinct().toList();
+        Map<Long, String> titulos = libroService.buscarResumenes(ids).stream()
+                .collect(Collectors.toMap(LibroResumen::getId, LibroResumen::getTitulo));
+        model.addAttribute("pares", pares);
+        model.addAttribute("titulos", titulos);
+        return "libro/duplicados";
+    }
+
 
     @GetMapping("/{id}/editar")
     public String mostrarFormularioEditarLibro(@PathVariable Long id, Model model){
@@ -377,7 +514,11 @@ Explicación línea por línea:
 	- Obtiene la lista de autores relacionados con ese libro (libro.getAutores()).
 	- La agrega al modelo para poder mostrarla en la vista.
 
-8.- return "libro/mostrar_autores_libro";
+8.- model.addAttribute("similares", ...);
+    - Agrega los libros parecidos (autores en común, misma categoría, misma editorial).
+    - La lista ya viene calculada por IndiceSimilares en segundo plano; aquí solo se buscan los títulos.
+
+9.- return "libro/mostrar_autores_libro";
 	- Devuelve el nombre de la vista (plantilla HTML Thymeleaf, por ejemplo src/main/resources/templates/libro/mostrar_autores_libro.html).
 	- En esa página se mostrarán los autores del libro seleccionado.
 
@@ -385,12 +526,26 @@ Explicación línea por línea:
 
     @GetMapping("/{id}/autores")
     public String mostrarAutoresDelLibro(@PathVariable Long id, Model model){
+        Optional<CatalogoSnapshot> catalogo = catalogoEnMemoria.snapshot();
+        if(catalogo.isPresent()){
+            catalogo.get().buscarLibro(id).ifPresent(libro -> {
+                model.addAttribute("libro", libro);
+                model.addAttribute("autores", libro.getAutores());
+            });
+            model.addAttribute("similares", Arrays.stream(indiceSimilares.similaresDe(id))
+                    .mapToObj(similar -> catalogo.get().buscarLibro(similar))
+                    .flatMap(Optional::stream)
+                    .toList());
+            return "libro/mostrar_autores_libro";
+        }
         Optional<Libro> libroOptional = libroService.buscarPorId(id);
         if(libroOptional.isPresent()){
             Libro libro = libroOptional.get();
             model.addAttribute("libro", libro);
             model.addAttribute("autores", libro.getAutores());
         }
+        model.addAttribute("similares", libroService.buscarResumenes(
+                Arrays.stream(indiceSimilares.similaresDe(id)).boxed().toList()));
         return "libro/mostrar_autores_libro";
     }
 
@@ -0,0 +1,62 @@
+package mini_biblioteca.controllers;
+
+
+import mini_biblioteca.entities.PuntoControlLote;
+import mini_biblioteca.lotes.EjecutorLotes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+
+/*
+Trabajos por lotes de mantenimiento del catalogo (ver EjecutorLotes):
+- GET /lotes
+	Estado de cada trabajo: EN_CURSO, DETENIDO, TERMINADO o FALLIDO, con el ultimo id confirmado y las filas procesadas.
+- POST /lotes/{nombre}?desdeCero=false
+	Inicia el trabajo en segundo plano y responde 202; si quedo DETENIDO o FALLIDO sigue desde el ultimo punto de
+	control. Con desdeCero=true vuelve a empezar. Si ya esta corriendo responde 409.
+- DELETE /lotes/{nombre}
+	Detiene el trabajo al terminar el bloque en curso.
+Trabajos: normalizar-nombres-autores, normalizar-nombres-editoriales, reasignar-categorias-huerfanas.
+* */
+@RestController
+@RequestMapping("/lotes")
+public class LoteController {
+
+    @Autowired
+    private EjecutorLotes ejecutorLotes;
+
+    @GetMapping
+    public List<PuntoControlLote> verLotes() {
+        return ejecutorLotes.estados();
+    }
+
+    @GetMapping("/{nombre}")
+    public ResponseEntity<PuntoControlLote> verLote(@PathVariable String nombre) {
+        return ResponseEntity.of(ejecutorLotes.estado(nombre));
+    }
+
+    @PostMapping("/{nombre}")
+    public ResponseEntity<Void> iniciarLote(@PathVariable String nombre,
+                                            @RequestParam(defaultValue = "false") boolean desdeCero) {
+        if (!ejecutorLotes.existe(nombre)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!ejecutorLotes.iniciar(nombre, desdeCero)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/lotes/" + nombre)).build();
+    }
+
+    @DeleteMapping("/{nombre}")
+    public ResponseEntity<Void> detenerLote(@PathVariable String nombre) {
+        if (!ejecutorLotes.existe(nombre)) {
+            return ResponseEntity.notFound().build();
+        }
+        ejecutorLotes.detener(nombre);
+        return ResponseEntity.accepted().build();
+    }
+}
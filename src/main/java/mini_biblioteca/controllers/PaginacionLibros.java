@@ -0,0 +1,24 @@
+package mini_biblioteca.controllers;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+//Construye el Pageable de las paginas de libros (por editorial y por categoria) a partir de los parametros de la URL
+final class PaginacionLibros {
+
+    static final int LIBROS_POR_PAGINA = 50;
+
+    private PaginacionLibros() {
+    }
+
+    static Pageable crear(int pagina, String orden, String direccion) {
+        //Solo se permite ordenar por columnas conocidas (el campo del id en las entidades se llama "Id")
+        String propiedad = "id".equals(orden) ? "Id" : "titulo";
+        Sort.Direction sentido = "desc".equalsIgnoreCase(direccion) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        //El id desempata los titulos repetidos: sin un orden total un libro podria repetirse o faltar entre paginas
+        Sort porPropiedad = Sort.by(sentido, propiedad);
+        return PageRequest.of(Math.max(pagina, 0), LIBROS_POR_PAGINA,
+                "Id".equals(propiedad) ? porPropiedad : porPropiedad.and(Sort.by(sentido, "Id")));
+    }
+}
@@ -0,0 +1,79 @@
+package mini_biblioteca.controllers;
+
+
+import mini_biblioteca.reportes.GeneradorReportes;
+import mini_biblioteca.reportes.TipoReporte;
+import mini_biblioteca.reportes.TrabajoReporte;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+Reportes del catalogo generados en segundo plano (ver GeneradorReportes):
+- POST /reportes/{tipo}   (tipo = editoriales, categorias o autores)
+	Responde enseguida 202 con el trabajo (id, estado, progreso) y la cabecera Location para consultarlo.
+	Si ya hay un reporte igual en curso devuelve ese mismo trabajo; si el catalogo no cambio desde el ultimo,
+	el trabajo ya viene TERMINADO. Con la cola llena responde 503 y Retry-After.
+- GET /reportes/trabajos/{id}
+	Estado del trabajo: EN_COLA, EN_CURSO (procesadas de total), TERMINADO (con la ruta del archivo) o FALLIDO.
+- GET /reportes/trabajos/{id}/archivo
+	Descarga el CSV del reporte terminado.
+Asi ningun hilo de peticiones queda ocupado mientras se recorre el catalogo.
+* */
+@RestController
+@RequestMapping("/reportes")
+public class ReporteController {
+
+    @Autowired
+    private GeneradorReportes generadorReportes;
+
+    @PostMapping("/{tipo}")
+    public ResponseEntity<TrabajoReporte> pedirReporte(@PathVariable String tipo) {
+        TipoReporte tipoReporte = Arrays.stream(TipoReporte.values())
+                .filter(t -> t.name().equalsIgnoreCase(tipo))
+                .findFirst()
+                .orElse(null);
+        if (tipoReporte == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            TrabajoReporte trabajo = generadorReportes.pedir(tipoReporte);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/reportes/trabajos/" + trabajo.getId()))
+                    .body(trabajo);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+    }
+
+    @GetMapping("/trabajos/{id}")
+    public ResponseEntity<TrabajoReporte> verTrabajo(@PathVariable String id) {
+        return ResponseEntity.of(generadorReportes.buscar(id));
+    }
+
+    @GetMapping("/trabajos/{id}/archivo")
+    public ResponseEntity<Resource> descargarReporte(@PathVariable String id) {
+        TrabajoReporte trabajo = generadorReportes.buscar(id).orElse(null);
+        if (trabajo == null || trabajo.getEstado() != TrabajoReporte.Estado.TERMINADO
+                || !Files.exists(generadorReportes.archivoDe(trabajo))) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("reporte-" + trabajo.getTipo().name().toLowerCase() + ".csv").build().toString())
+                .body(new FileSystemResource(generadorReportes.archivoDe(trabajo)));
+    }
+}
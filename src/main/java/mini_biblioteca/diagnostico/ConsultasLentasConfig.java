@@ -0,0 +1,29 @@
+package mini_biblioteca.diagnostico;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+//Envuelve el DataSource en un DataSourceMedido para el log de consultas lentas (ver RegistroConsultasLentas)
+@Configuration
+@ConditionalOnProperty(name = "biblioteca.sql.habilitado", havingValue = "true", matchIfMissing = true)
+public class ConsultasLentasConfig {
+
+    //static: un BeanPostProcessor se crea antes que el resto de los beans; el registro se busca recien al conectar
+    @Bean
+    static BeanPostProcessor dataSourceMedido(ObjectProvider<RegistroConsultasLentas> registro) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof DataSourceMedido)) {
+                    return new DataSourceMedido(dataSource, registro);
+                }
+                return bean;
+            }
+        };
+    }
+}
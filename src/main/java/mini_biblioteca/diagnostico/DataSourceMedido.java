@@ -0,0 +1,186 @@
+package mini_biblioteca.diagnostico;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/*
+DataSource que envuelve las conexiones para medir cada sentencia (ver RegistroConsultasLentas):
+- Connection: al preparar una sentencia decide si se mide; si no, devuelve la sentencia original sin envolver.
+- Statement: mide executeUpdate/executeBatch al volver y envuelve el ResultSet de executeQuery.
+- ResultSet: cuenta las filas de next() y registra la sentencia al agotarse o cerrarse. El tiempo es el de execute
+  mas el de cada next() (lo que tarda el driver en traer filas), sin lo que hace el llamador entre una fila y otra:
+  una consulta que se recorre de a poco (streaming, lotes) no aparece lenta por el trabajo de quien la lee.
+- unwrap/isWrapperFor llegan al DataSource real (Hikari), asi las metricas del pool siguen funcionando.
+* */
+class DataSourceMedido extends DelegatingDataSource {
+
+    private final ObjectProvider<RegistroConsultasLentas> registro;
+
+    DataSourceMedido(DataSource destino, ObjectProvider<RegistroConsultasLentas> registro) {
+        super(destino);
+        this.registro = registro;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return envolver(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return envolver(super.getConnection(username, password));
+    }
+
+    private Connection envolver(Connection conexion) {
+        RegistroConsultasLentas actual = registro.getIfAvailable();
+        if (actual == null) {
+            return conexion;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new ConexionMedida(conexion, actual));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record ConexionMedida(Connection conexion, RegistroConsultasLentas registro) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(conexion, metodo, args);
+            if (!(resultado instanceof Statement sentencia)) {
+                return resultado;
+            }
+            //El umbral se revisa al terminar la sentencia; la muestra se sortea aqui
+            boolean muestreada = registro.muestreada();
+            if (!muestreada && !registro.midiendoLentas()) {
+                return resultado;
+            }
+            String nombre = metodo.getName();
+            String sql = nombre.equals("prepareStatement") || nombre.equals("prepareCall") ? (String) args[0] : null;
+            Class<?> interfaz = sentencia instanceof CallableStatement ? CallableStatement.class
+                    : sentencia instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{interfaz},
+                    new SentenciaMedida(sentencia, sql, muestreada, registro));
+        }
+    }
+
+    private static final class SentenciaMedida implements InvocationHandler {
+
+        private final Statement sentencia;
+
+        private final String sql;
+
+        private final boolean muestreada;
+
+        private final RegistroConsultasLentas registro;
+
+        SentenciaMedida(Statement sentencia, String sql, boolean muestreada, RegistroConsultasLentas registro) {
+            this.sentencia = sentencia;
+            this.sql = sql;
+            this.muestreada = muestreada;
+            this.registro = registro;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (!nombre.startsWith("execute")) {
+                return invocar(sentencia, metodo, args);
+            }
+            //Statement.execute*(sql) trae el SQL en la llamada y no al crear la sentencia
+            String texto = sql != null ? sql : args != null && args.length > 0 ? (String) args[0] : null;
+            long inicio = System.nanoTime();
+            Object resultado = invocar(sentencia, metodo, args);
+            if (resultado instanceof ResultSet filas) {
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultadoMedido(filas, System.nanoTime() - inicio, texto, registro.origenActual(), muestreada,
+                                registro));
+            }
+            int afectadas = switch (resultado) {
+                case Integer n -> n;
+                case Long n -> (int) Math.min(n, Integer.MAX_VALUE);
+                case int[] lote -> Arrays.stream(lote).sum();
+                case long[] lote -> (int) Arrays.stream(lote).sum();
+                case null, default -> -1;
+            };
+            registro.registrar(System.nanoTime() - inicio, afectadas, registro.origenActual(), texto, muestreada);
+            return resultado;
+        }
+    }
+
+    private static final class ResultadoMedido implements InvocationHandler {
+
+        private final ResultSet resultado;
+
+        private final String sql;
+
+        private final String origen;
+
+        private final boolean muestreada;
+
+        private final RegistroConsultasLentas registro;
+
+        private int filas;
+
+        //execute + cada next()
+        private long nanos;
+
+        private boolean registrado;
+
+        ResultadoMedido(ResultSet resultado, long ejecucion, String sql, String origen, boolean muestreada,
+                        RegistroConsultasLentas registro) {
+            this.resultado = resultado;
+            this.nanos = ejecucion;
+            this.sql = sql;
+            this.origen = origen;
+            this.muestreada = muestreada;
+            this.registro = registro;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.equals("next")) {
+                long inicio = System.nanoTime();
+                boolean hay = (Boolean) invocar(resultado, metodo, args);
+                nanos += System.nanoTime() - inicio;
+                if (hay) {
+                    filas++;
+                } else {
+                    terminar();
+                }
+                return hay;
+            }
+            if (nombre.equals("close")) {
+                terminar();
+            }
+            return invocar(resultado, metodo, args);
+        }
+
+        private void terminar() {
+            if (!registrado) {
+                registrado = true;
+                registro.registrar(nanos, filas, origen, sql, muestreada);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package mini_biblioteca.diagnostico;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//Llamada a un metodo de mini_biblioteca.services.impl (ver EventosJfrAspect)
+@Name("mini_biblioteca.Servicio")
+@Label("Llamada a servicio")
+@Category({"Mini Biblioteca", "Servicios"})
+@StackTrace(false)
+class EventoServicio extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    @Description("Patron de la ruta que atendia la peticion (vacio fuera de una peticion)")
+    String endpoint;
+
+    @Label("Entidad")
+    String entidad;
+
+    @Label("Metodo")
+    String metodo;
+
+    @Label("Filas")
+    @Description("Filas devueltas (-1 si no se conocen, por ejemplo un Stream)")
+    int filas;
+}
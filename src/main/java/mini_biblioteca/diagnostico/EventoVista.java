@@ -0,0 +1,25 @@
+package mini_biblioteca.diagnostico;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//Render de una vista Thymeleaf, desde que el controlador termina hasta que la respuesta queda escrita
+@Name("mini_biblioteca.Vista")
+@Label("Render de vista")
+@Category({"Mini Biblioteca", "Vistas"})
+@StackTrace(false)
+class EventoVista extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Vista")
+    String vista;
+
+    @Label("Filas")
+    @Description("Suma de los elementos de las listas y paginas del modelo")
+    int filas;
+}
@@ -0,0 +1,127 @@
+package mini_biblioteca.diagnostico;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+
+/*
+Eventos JFR alrededor de cada llamada a un repositorio y a un metodo de services.impl (biblioteca.jfr.habilitado=true):
+- Cada evento lleva el endpoint (patron de la ruta, p. ej. /editoriales/{id}/libros), la entidad, el metodo y las
+  filas devueltas. Se ven en JDK Mission Control bajo "Mini Biblioteca".
+- Sin una grabacion activa isEnabled() es falso y la llamada pasa directo (el JIT elimina el objeto del evento).
+- Con biblioteca.jfr.habilitado=false este aspecto no se registra.
+* */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "biblioteca.jfr.habilitado", havingValue = "true", matchIfMissing = true)
+public class EventosJfrAspect {
+
+    private final Map<Class<?>, String> entidades = new ConcurrentHashMap<>();
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object repositorio(ProceedingJoinPoint joinPoint) throws Throwable {
+        EventoRepositorio evento = new EventoRepositorio();
+        if (!evento.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        evento.begin();
+        Object resultado = null;
+        try {
+            resultado = joinPoint.proceed();
+            return resultado;
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.endpoint = endpointActual();
+                evento.entidad = entidades.computeIfAbsent(joinPoint.getTarget().getClass(),
+                        clase -> interfazDeRepositorio(clase, joinPoint.getSignature().getDeclaringType())
+                                .getSimpleName().replace("Repository", ""));
+                evento.metodo = joinPoint.getSignature().getName();
+                evento.filas = filas(resultado);
+                evento.commit();
+            }
+        }
+    }
+
+    @Around("execution(public * mini_biblioteca.services.impl..*(..))")
+    public Object servicio(ProceedingJoinPoint joinPoint) throws Throwable {
+        EventoServicio evento = new EventoServicio();
+        if (!evento.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        evento.begin();
+        Object resultado = null;
+        try {
+            resultado = joinPoint.proceed();
+            return resultado;
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.endpoint = endpointActual();
+                evento.entidad = entidades.computeIfAbsent(ClassUtils.getUserClass(joinPoint.getTarget()),
+                        clase -> clase.getSimpleName().replace("ServiceImpl", ""));
+                evento.metodo = joinPoint.getSignature().getName();
+                evento.filas = filas(resultado);
+                evento.commit();
+            }
+        }
+    }
+
+    //La interfaz propia del repositorio (p. ej. AutorRepository); el proxy implementa tambien varias de Spring
+    static Class<?> interfazDeRepositorio(Class<?> clase, Class<?> declarante) {
+        for (Class<?> interfaz : ClassUtils.getAllInterfacesForClassAsSet(clase)) {
+            if (interfaz.getPackageName().equals("mini_biblioteca.repositories")) {
+                return interfaz;
+            }
+        }
+        return declarante;
+    }
+
+    //Patron de la ruta de la peticion en curso, o null fuera de una peticion (tareas programadas, calentamiento, etc.)
+    static String endpointActual() {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (!(atributos instanceof ServletRequestAttributes servlet)) {
+            return null;
+        }
+        HttpServletRequest request = servlet.getRequest();
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return patron != null ? patron.toString() : request.getRequestURI();
+    }
+
+    static int filas(Object resultado) {
+        if (resultado == null) {
+            return 0;
+        }
+        if (resultado instanceof Collection<?> coleccion) {
+            return coleccion.size();
+        }
+        if (resultado instanceof Slice<?> pagina) {
+            return pagina.getNumberOfElements();
+        }
+        if (resultado instanceof Map<?, ?> mapa) {
+            return mapa.size();
+        }
+        if (resultado instanceof Optional<?> opcional) {
+            return opcional.isPresent() ? 1 : 0;
+        }
+        if (resultado instanceof Object[] arreglo) {
+            return arreglo.length;
+        }
+        return resultado instanceof BaseStream<?, ?> ? -1 : 1;
+    }
+}
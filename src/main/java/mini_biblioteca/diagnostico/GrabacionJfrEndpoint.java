@@ -0,0 +1,134 @@
+package mini_biblioteca.diagnostico;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Grabaciones JFR acotadas desde /actuator/jfr (no expuesto por defecto; ver management.* en application.properties):
+- GET    /actuator/jfr                    estado de la ultima grabacion
+- POST   /actuator/jfr {"segundos": 60}   empieza una grabacion (una a la vez) con la configuracion
+                                          biblioteca.jfr.configuracion y los eventos de Mini Biblioteca
+- DELETE /actuator/jfr                    la detiene antes de tiempo y escribe el archivo
+- GET    /actuator/jfr/{archivo}          descarga el .jfr (se abre con JDK Mission Control o "jfr print")
+- La duracion no pasa de biblioteca.jfr.maximo-segundos y el archivo de biblioteca.jfr.maximo-mb; solo se guarda el
+  archivo de la ultima grabacion (al empezar otra se borra el anterior).
+* */
+@Component
+@Endpoint(id = "jfr")
+public class GrabacionJfrEndpoint {
+
+    private static final DateTimeFormatter FORMATO_ARCHIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directorio;
+
+    private final String configuracion;
+
+    private final long maximoSegundos;
+
+    private final long maximoBytes;
+
+    private Recording grabacion;
+
+    private Path archivo;
+
+    public GrabacionJfrEndpoint(@Value("${biblioteca.jfr.directorio:}") String directorio,
+                                @Value("${biblioteca.jfr.configuracion:profile}") String configuracion,
+                                @Value("${biblioteca.jfr.maximo-segundos:300}") long maximoSegundos,
+                                @Value("${biblioteca.jfr.maximo-mb:100}") long maximoMb) {
+        this.directorio = Path.of(StringUtils.hasText(directorio) ? directorio : System.getProperty("java.io.tmpdir"));
+        this.configuracion = configuracion;
+        this.maximoSegundos = maximoSegundos;
+        this.maximoBytes = maximoMb * 1024 * 1024;
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        if (grabacion == null) {
+            estado.put("estado", "SIN_GRABACION");
+            return estado;
+        }
+        estado.put("estado", grabacion.getState().name());
+        estado.put("inicio", grabacion.getStartTime());
+        estado.put("duracionMaxima", grabacion.getDuration());
+        if (grabacion.getState() == RecordingState.STOPPED || grabacion.getState() == RecordingState.CLOSED) {
+            estado.put("archivo", archivo.getFileName().toString());
+            estado.put("bytes", archivo.toFile().length());
+        }
+        return estado;
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> iniciar(@Nullable Long segundos)
+            throws IOException, ParseException {
+        if (grabacion != null && grabacion.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(estado(), HttpStatus.CONFLICT.value());
+        }
+        descartar();
+        Files.createDirectories(directorio);
+        Recording nueva = new Recording(Configuration.getConfiguration(configuracion));
+        nueva.setName("mini-biblioteca");
+        nueva.enable(EventoRepositorio.class);
+        nueva.enable(EventoServicio.class);
+        nueva.enable(EventoVista.class);
+        long duracion = Math.min(segundos == null || segundos <= 0 ? maximoSegundos : segundos, maximoSegundos);
+        nueva.setDuration(Duration.ofSeconds(duracion));
+        nueva.setMaxSize(maximoBytes);
+        nueva.setToDisk(true);
+        //Con destino, JFR escribe el archivo al terminar la duracion o al detenerla
+        archivo = directorio.resolve("mini-biblioteca-" + LocalDateTime.now().format(FORMATO_ARCHIVO) + ".jfr");
+        nueva.setDestination(archivo);
+        nueva.start();
+        grabacion = nueva;
+        return new WebEndpointResponse<>(estado());
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> detener() {
+        if (grabacion != null && grabacion.getState() == RecordingState.RUNNING) {
+            grabacion.stop();
+        }
+        return estado();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> descargar(@Selector String nombre) {
+        if (grabacion == null || grabacion.getState() == RecordingState.RUNNING
+                || !archivo.getFileName().toString().equals(nombre) || !Files.exists(archivo)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(archivo));
+    }
+
+    private void descartar() throws IOException {
+        if (grabacion != null) {
+            grabacion.close();
+            Files.deleteIfExists(archivo);
+            grabacion = null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package mini_biblioteca.diagnostico;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Log de consultas lentas (reemplaza org.hibernate.SQL=DEBUG y BasicBinder=TRACE, biblioteca.sql.habilitado=true):
+- Cada sentencia JDBC se mide desde que se ejecuta hasta que se cierra (o se agota) su ResultSet, contando las filas.
+- Se registran solo:
+    las que pasan biblioteca.sql.umbral-ms, en el logger mini_biblioteca.sql.lentas,
+    una muestra de biblioteca.sql.muestreo (0..1) del resto, en el logger mini_biblioteca.sql.muestreo.
+- Cada linea lleva la duracion, las filas, el metodo de repositorio que ejecuto la sentencia (o "-" si fue una carga
+  LAZY fuera de un repositorio) y el SQL en una linea. Los parametros no se registran.
+- Las lineas pasan por una cola acotada (biblioteca.sql.capacidad) y las escribe un hilo aparte; si la cola esta
+  llena la linea se descarta y se cuenta en biblioteca.sql.registro{resultado=descartada}.
+- Los dos loggers se prenden y apagan en caliente con /actuator/loggers (nivel INFO = prendido). Con los dos
+  apagados las sentencias no se envuelven.
+* */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "biblioteca.sql.habilitado", havingValue = "true", matchIfMissing = true)
+public class RegistroConsultasLentas {
+
+    static final Logger LENTAS = LoggerFactory.getLogger("mini_biblioteca.sql.lentas");
+
+    static final Logger MUESTREO = LoggerFactory.getLogger("mini_biblioteca.sql.muestreo");
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroConsultasLentas.class);
+
+    record Consulta(long nanos, int filas, String origen, String sql, boolean lenta) {
+    }
+
+    private final ThreadLocal<String> origen = new ThreadLocal<>();
+
+    private record ClaveOrigen(Class<?> clase, String metodo) {
+    }
+
+    private final Map<ClaveOrigen, String> nombresOrigen = new ConcurrentHashMap<>();
+
+    private final long umbralNanos;
+
+    private final double muestreo;
+
+    private final BlockingQueue<Consulta> cola;
+
+    private final Counter escritas;
+
+    private final Counter descartadas;
+
+    private final Thread escritor;
+
+    public RegistroConsultasLentas(MeterRegistry meterRegistry,
+                                   @Value("${biblioteca.sql.umbral-ms:200}") long umbralMs,
+                                   @Value("${biblioteca.sql.muestreo:0.01}") double muestreo,
+                                   @Value("${biblioteca.sql.capacidad:1024}") int capacidad) {
+        this.umbralNanos = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+        this.muestreo = muestreo;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.escritas = Counter.builder("biblioteca.sql.registro").tag("resultado", "escrita").register(meterRegistry);
+        this.descartadas = Counter.builder("biblioteca.sql.registro").tag("resultado", "descartada")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.sql.registro.pendientes", cola, BlockingQueue::size).register(meterRegistry);
+        this.escritor = new Thread(this::escribir, "consultas-lentas");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    //Metodo de repositorio en curso; en llamadas anidadas (un repositorio que llama a otro) queda el de afuera
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object marcarOrigen(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (origen.get() != null || !activo()) {
+            return joinPoint.proceed();
+        }
+        Class<?> clase = joinPoint.getTarget().getClass();
+        String metodo = joinPoint.getSignature().getName();
+        origen.set(nombresOrigen.computeIfAbsent(new ClaveOrigen(clase, metodo),
+                clave -> EventosJfrAspect.interfazDeRepositorio(clase, joinPoint.getSignature().getDeclaringType())
+                        .getSimpleName() + "." + metodo));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            origen.remove();
+        }
+    }
+
+    boolean activo() {
+        return LENTAS.isInfoEnabled() || MUESTREO.isInfoEnabled();
+    }
+
+    boolean midiendoLentas() {
+        return LENTAS.isInfoEnabled();
+    }
+
+    //Se sortea una vez por sentencia, al prepararla
+    boolean muestreada() {
+        return MUESTREO.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < muestreo;
+    }
+
+    String origenActual() {
+        return origen.get();
+    }
+
+    void registrar(long nanos, int filas, String origen, String sql, boolean muestreada) {
+        boolean lenta = nanos >= umbralNanos && LENTAS.isInfoEnabled();
+        if (!lenta && !muestreada) {
+            return;
+        }
+        if (!cola.offer(new Consulta(nanos, filas, origen, sql, lenta))) {
+            descartadas.increment();
+        }
+    }
+
+    private void escribir() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Consulta consulta;
+            try {
+                consulta = cola.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                (consulta.lenta() ? LENTAS : MUESTREO).info("{} ms, {} filas, {}: {}",
+                        String.format("%.1f", consulta.nanos() / 1_000_000.0),
+                        consulta.filas() < 0 ? "?" : consulta.filas(),
+                        consulta.origen() == null ? "-" : consulta.origen(),
+                        consulta.sql() == null ? "" : consulta.sql().replaceAll("\\s+", " ").strip());
+                escritas.increment();
+            } catch (RuntimeException e) {
+                log.warn("No se pudo escribir una consulta lenta: {}", e.toString());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        escritor.interrupt();
+    }
+}
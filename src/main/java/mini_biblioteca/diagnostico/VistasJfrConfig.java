@@ -0,0 +1,61 @@
+package mini_biblioteca.diagnostico;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Collection;
+
+/*
+Evento JFR por cada render de vista:
+- postHandle (el controlador ya termino, la vista aun no se escribio) empieza el evento y afterCompletion lo cierra,
+  asi la duracion es solo el render de Thymeleaf (incluye las cargas LAZY que dispare la vista).
+- Las filas son la suma de los elementos de las listas y paginas que el controlador dejo en el modelo.
+* */
+@Configuration
+@ConditionalOnProperty(name = "biblioteca.jfr.habilitado", havingValue = "true", matchIfMissing = true)
+public class VistasJfrConfig implements WebMvcConfigurer {
+
+    private static final String ATRIBUTO_EVENTO = VistasJfrConfig.class.getName() + ".evento";
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+
+            @Override
+            public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                   ModelAndView modelAndView) {
+                if (modelAndView == null || !modelAndView.hasView()) {
+                    return;
+                }
+                EventoVista evento = new EventoVista();
+                if (!evento.isEnabled()) {
+                    return;
+                }
+                evento.endpoint = EventosJfrAspect.endpointActual();
+                evento.vista = modelAndView.getViewName();
+                for (Object valor : modelAndView.getModel().values()) {
+                    if (valor instanceof Collection<?> || valor instanceof Slice<?>) {
+                        evento.filas += EventosJfrAspect.filas(valor);
+                    }
+                }
+                evento.begin();
+                request.setAttribute(ATRIBUTO_EVENTO, evento);
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                if (request.getAttribute(ATRIBUTO_EVENTO) instanceof EventoVista evento) {
+                    evento.commit();
+                }
+            }
+        });
+    }
+}
@@ -8,6 +8,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+//Para el combo de autores del filtro de libros (prefijo del nombre, ordenado)
+@Table(indexes = @Index(name = "idx_autor_nombre", columnList = "nombre"))
 public class Autor {
 
     @Id
@@ -0,0 +1,105 @@
+package mini_biblioteca.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import mini_biblioteca.eventos.TipoEntidad;
+
+import java.time.Instant;
+
+//Fila de la tabla outbox: un cambio del catalogo guardado en la misma transaccion que la escritura
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_evento_catalogo_fecha", columnList = "fecha"),
+        @Index(name = "idx_evento_catalogo_secuencia", columnList = "secuencia"),
+        @Index(name = "idx_evento_catalogo_tipo_secuencia", columnList = "tipo, secuencia"),
+        @Index(name = "idx_evento_catalogo_transaccion", columnList = "transaccion")})
+public class EventoCatalogo {
+
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY )
+    private Long Id;
+
+    @Enumerated(EnumType.STRING)
+    private TipoEntidad tipo;
+
+    private Long entidadId;
+
+    private boolean eliminado;
+
+    private Instant fecha;
+
+    //Offset del feed de cambios: numero de secuencia en orden de commit; null hasta que la transaccion confirma
+    private Long secuencia;
+
+    //Transaccion que escribio el evento, para numerar sus eventos al confirmar (ver OutboxCambios)
+    @JsonIgnore
+    @Column(length = 36)
+    private String transaccion;
+
+    public EventoCatalogo() {
+    }
+
+    public EventoCatalogo(TipoEntidad tipo, Long entidadId, boolean eliminado, Instant fecha, String transaccion) {
+        this.tipo = tipo;
+        this.entidadId = entidadId;
+        this.eliminado = eliminado;
+        this.fecha = fecha;
+        this.transaccion = transaccion;
+    }
+
+    public Long getId() {
+        return Id;
+    }
+
+    public void setId(Long id) {
+        Id = id;
+    }
+
+    public TipoEntidad getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(TipoEntidad tipo) {
+        this.tipo = tipo;
+    }
+
+    public Long getEntidadId() {
+        return entidadId;
+    }
+
+    public void setEntidadId(Long entidadId) {
+        this.entidadId = entidadId;
+    }
+
+    public boolean isEliminado() {
+        return eliminado;
+    }
+
+    public void setEliminado(boolean eliminado) {
+        this.eliminado = eliminado;
+    }
+
+    public Instant getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(Instant fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(Long secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    public String getTransaccion() {
+        return transaccion;
+    }
+
+    public void setTransaccion(String transaccion) {
+        this.transaccion = transaccion;
+    }
+}
@@ -4,6 +4,13 @@ import java.util.*;
 import jakarta.persistence.*;
 
 @Entity
+//Indices para las paginas de libros por editorial/categoria y para el filtro de libros, todos ordenados por titulo
+@Table(indexes = {
+        @Index(name = "idx_libro_editorial_titulo", columnList = "editorial_id, titulo"),
+        @Index(name = "idx_libro_categoria_titulo", columnList = "categoria_id, titulo"),
+        @Index(name = "idx_libro_categoria_editorial_titulo", columnList = "categoria_id, editorial_id, titulo"),
+        @Index(name = "idx_libro_titulo", columnList = "titulo")
+})
 public class Libro {
 
     @Id
@@ -26,7 +33,9 @@ public class Libro {
     @JoinTable(
             name="libro_autor",
             joinColumns = @JoinColumn(name = "libro_id"),
-            inverseJoinColumns = @JoinColumn(name="autor_id")
+            inverseJoinColumns = @JoinColumn(name="autor_id"),
+            //Para buscar los libros de un autor (filtro por autor) sin recorrer toda la tabla
+            indexes = @Index(name = "idx_libro_autor_autor_libro", columnList = "autor_id, libro_id")
     )
     private List<Autor> autores = new ArrayList<>();
 
@@ -0,0 +1,99 @@
+package mini_biblioteca.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+
+import java.time.Instant;
+
+//Avance de un trabajo por lotes: ultimo id confirmado, para reanudar desde ahi despues de una caida.
+//propietario es el nodo que lo corre; actualizado le sirve de latido (ver EjecutorLotes)
+@Entity
+public class PuntoControlLote {
+
+    public enum Estado { EN_CURSO, DETENIDO, TERMINADO, FALLIDO }
+
+    @Id
+    private String nombre;
+
+    private Long ultimoId;
+
+    private Long procesados;
+
+    @Enumerated(EnumType.STRING)
+    private Estado estado;
+
+    private Instant actualizado;
+
+    private String error;
+
+    private String propietario;
+
+    public PuntoControlLote() {
+    }
+
+    public PuntoControlLote(String nombre) {
+        this.nombre = nombre;
+        this.ultimoId = 0L;
+        this.procesados = 0L;
+        this.estado = Estado.EN_CURSO;
+        this.actualizado = Instant.now();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public Long getUltimoId() {
+        return ultimoId;
+    }
+
+    public void setUltimoId(Long ultimoId) {
+        this.ultimoId = ultimoId;
+    }
+
+    public Long getProcesados() {
+        return procesados;
+    }
+
+    public void setProcesados(Long procesados) {
+        this.procesados = procesados;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public Instant getActualizado() {
+        return actualizado;
+    }
+
+    public void setActualizado(Instant actualizado) {
+        this.actualizado = actualizado;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getPropietario() {
+        return propietario;
+    }
+
+    public void setPropietario(String propietario) {
+        this.propietario = propietario;
+    }
+}
@@ -0,0 +1,38 @@
+package mini_biblioteca.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+//Una sola fila (id 1): ultimo numero de secuencia de commit repartido a los eventos del outbox (ver OutboxCambios)
+@Entity
+public class SecuenciaOutbox {
+
+    @Id
+    private Integer id;
+
+    private Long valor;
+
+    public SecuenciaOutbox() {
+    }
+
+    public SecuenciaOutbox(Integer id, Long valor) {
+        this.id = id;
+        this.valor = valor;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Long getValor() {
+        return valor;
+    }
+
+    public void setValor(Long valor) {
+        this.valor = valor;
+    }
+}
@@ -0,0 +1,38 @@
+package mini_biblioteca.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+//Una fila por region de cache (LIBRO, AUTOR, EDITORIAL, CATEGORIA); version sube con cada escritura confirmada
+@Entity
+public class VersionCambio {
+
+    @Id
+    private String region;
+
+    private Long version;
+
+    public VersionCambio() {
+    }
+
+    public VersionCambio(String region, Long version) {
+        this.region = region;
+        this.version = version;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,21 @@
+package mini_biblioteca.eventos;
+
+/*
+Evento que publican los servicios cada vez que guardan o eliminan una entidad del catalogo.
+- tipo: que entidad cambio (libro, autor, editorial o categoria).
+- id: id de la entidad.
+- eliminado: true si la entidad se borro.
+- entidad: la entidad guardada (null cuando se elimina).
+Los componentes que mantienen datos en memoria lo escuchan con @TransactionalEventListener(fallbackExecution = true),
+asi solo aplican el cambio cuando la transaccion se confirma.
+* */
+public record CambioCatalogo(TipoEntidad tipo, Long id, boolean eliminado, Object entidad) {
+
+    public static CambioCatalogo guardado(TipoEntidad tipo, Long id, Object entidad) {
+        return new CambioCatalogo(tipo, id, false, entidad);
+    }
+
+    public static CambioCatalogo eliminado(TipoEntidad tipo, Long id) {
+        return new CambioCatalogo(tipo, id, true, null);
+    }
+}
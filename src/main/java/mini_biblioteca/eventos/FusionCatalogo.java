@@ -0,0 +1,15 @@
+package mini_biblioteca.eventos;
+
+/*
+Evento que publican los servicios al fusionar dos entidades del catalogo (editoriales, categorias o autores):
+- tipo: que entidad se fusiono.
+- origen: id de la entidad que desaparece; sus libros pasan a destino. Una fusion de varios autores publica un
+  evento por cada origen.
+- destino: id de la entidad que queda.
+Se publica dentro de la transaccion, antes del UPDATE masivo (el outbox lee los libros que todavia son del origen).
+Los libros movidos no tienen un CambioCatalogo propio: CatalogoEnMemoria e IndiceFacetas aplican la fusion directo y
+los demas indices en memoria se reconstruyen en la siguiente revision de InvalidacionDistribuida.
+El origen se borra despues y si publica su CambioCatalogo.eliminado.
+* */
+public record FusionCatalogo(TipoEntidad tipo, Long origen, Long destino) {
+}
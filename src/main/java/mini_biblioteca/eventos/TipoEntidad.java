@@ -0,0 +1,8 @@
+package mini_biblioteca.eventos;
+
+public enum TipoEntidad {
+    LIBRO,
+    AUTOR,
+    EDITORIAL,
+    CATEGORIA
+}
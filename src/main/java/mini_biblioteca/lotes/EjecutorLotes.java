@@ -0,0 +1,322 @@
+package mini_biblioteca.lotes;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import mini_biblioteca.entities.PuntoControlLote;
+import mini_biblioteca.repositories.PuntoControlLoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Ejecutor de trabajos por lotes (TrabajoLote) para mantenimiento del catalogo:
+- Lee los ids por bloques de biblioteca.lotes.tamano-bloque con keyset (id > ultimo confirmado), nunca todo junto.
+- Cada bloque se parte en biblioteca.lotes.hilos partes que se procesan en paralelo, cada una en su transaccion.
+- Cuando todas las partes confirmaron se guarda el punto de control (tabla punto_control_lote): ultimo id y total.
+- Un trabajo corre en un solo nodo: el punto de control guarda su propietario y se toma con la fila bloqueada
+  (SELECT ... FOR UPDATE). Otro nodo solo lo toma si no esta EN_CURSO o si su propietario lleva mas de
+  biblioteca.lotes.abandonado-ms sin actualizarlo (se cayo). El propietario lo actualiza en cada bloque y mientras
+  espera en el freno; si al guardar ve que otro nodo lo tomo, se detiene sin tocar el punto de control.
+- Al arrancar, y cada biblioteca.lotes.revision-ms, se reanudan los trabajos EN_CURSO abandonados; siguen desde el
+  ultimo bloque confirmado, asi que un bloque a medias se repite (los trabajos son idempotentes).
+- Freno: entre bloques se espera biblioteca.lotes.pausa-ms, y mientras haya peticiones esperando una conexion del
+  pool de Hikari (o el pool este usado por encima de biblioteca.lotes.uso-maximo-pool) el trabajo no sigue.
+- detener() lo para al terminar el bloque en curso, o mientras espera en el freno (estado DETENIDO).
+* */
+@Component
+public class EjecutorLotes {
+
+    private static final Logger log = LoggerFactory.getLogger(EjecutorLotes.class);
+
+    @Autowired
+    private PuntoControlLoteRepository puntoControlLoteRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final Map<String, TrabajoLote> trabajos;
+
+    private final TransactionTemplate transaccion;
+
+    private final int tamanoBloque;
+
+    private final int hilos;
+
+    private final long pausaMs;
+
+    private final double usoMaximoPool;
+
+    private final long abandonadoMs;
+
+    //pid@host de este proceso
+    private final String propietario = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final ExecutorService pool;
+
+    //Trabajos corriendo en este nodo y si se pidio detenerlos
+    private final Map<String, Boolean> enCurso = new ConcurrentHashMap<>();
+
+    public EjecutorLotes(List<TrabajoLote> trabajos,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${biblioteca.lotes.tamano-bloque:500}") int tamanoBloque,
+                         @Value("${biblioteca.lotes.hilos:2}") int hilos,
+                         @Value("${biblioteca.lotes.pausa-ms:50}") long pausaMs,
+                         @Value("${biblioteca.lotes.uso-maximo-pool:0.5}") double usoMaximoPool,
+                         @Value("${biblioteca.lotes.abandonado-ms:120000}") long abandonadoMs) {
+        this.trabajos = trabajos.stream().collect(Collectors.toMap(TrabajoLote::nombre, Function.identity()));
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.tamanoBloque = tamanoBloque;
+        this.hilos = hilos;
+        this.pausaMs = pausaMs;
+        this.usoMaximoPool = usoMaximoPool;
+        this.abandonadoMs = abandonadoMs;
+        AtomicInteger numero = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "lotes-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        reanudar();
+    }
+
+    @Scheduled(initialDelayString = "${biblioteca.lotes.revision-ms:60000}",
+            fixedDelayString = "${biblioteca.lotes.revision-ms:60000}")
+    public void reanudar() {
+        Instant limite = Instant.now().minusMillis(abandonadoMs);
+        for (PuntoControlLote punto : puntoControlLoteRepository.findByEstado(PuntoControlLote.Estado.EN_CURSO)) {
+            if (trabajos.containsKey(punto.getNombre()) && !enCurso.containsKey(punto.getNombre())
+                    && punto.getActualizado().isBefore(limite) && iniciar(punto.getNombre(), false)) {
+                log.info("Reanudado el trabajo por lotes {} despues del id {} (era de {})", punto.getNombre(),
+                        punto.getUltimoId(), punto.getPropietario());
+            }
+        }
+    }
+
+    public boolean existe(String nombre) {
+        return trabajos.containsKey(nombre);
+    }
+
+    public List<PuntoControlLote> estados() {
+        Map<String, PuntoControlLote> puntos = puntoControlLoteRepository.findAll().stream()
+                .collect(Collectors.toMap(PuntoControlLote::getNombre, Function.identity()));
+        List<PuntoControlLote> estados = new ArrayList<>();
+        for (String nombre : trabajos.keySet().stream().sorted().toList()) {
+            PuntoControlLote punto = puntos.get(nombre);
+            if (punto == null) {
+                //Nunca se corrio: sin estado
+                punto = new PuntoControlLote(nombre);
+                punto.setEstado(null);
+            }
+            estados.add(punto);
+        }
+        return estados;
+    }
+
+    public Optional<PuntoControlLote> estado(String nombre) {
+        return puntoControlLoteRepository.findById(nombre);
+    }
+
+    /*
+    Empieza (o continua) un trabajo en un hilo propio y devuelve enseguida:
+    - Si termino antes o desdeCero=true, empieza desde el primer id; si no, desde el ultimo punto de control.
+    - Devuelve false si el trabajo ya esta corriendo en este nodo o en otro.
+    * */
+    public boolean iniciar(String nombre, boolean desdeCero) {
+        TrabajoLote trabajo = trabajos.get(nombre);
+        if (trabajo == null) {
+            throw new IllegalArgumentException("No existe el trabajo " + nombre);
+        }
+        if (enCurso.putIfAbsent(nombre, false) != null) {
+            return false;
+        }
+        PuntoControlLote punto;
+        try {
+            punto = transaccion.execute(estado -> tomar(nombre, desdeCero));
+        } catch (DataIntegrityViolationException e) {
+            //Otro nodo creo el punto de control al mismo tiempo: el trabajo es suyo
+            punto = null;
+        } catch (RuntimeException e) {
+            enCurso.remove(nombre);
+            throw e;
+        }
+        if (punto == null) {
+            enCurso.remove(nombre);
+            return false;
+        }
+        PuntoControlLote tomado = punto;
+        Thread hilo = new Thread(() -> ejecutar(trabajo, tomado), "lote-" + nombre);
+        hilo.setDaemon(true);
+        hilo.start();
+        return true;
+    }
+
+    //null si otro nodo lo esta corriendo
+    private PuntoControlLote tomar(String nombre, boolean desdeCero) {
+        Instant ahora = Instant.now();
+        PuntoControlLote actual = puntoControlLoteRepository.bloquear(nombre).orElse(null);
+        if (actual == null) {
+            actual = new PuntoControlLote(nombre);
+        } else if (actual.getEstado() == PuntoControlLote.Estado.EN_CURSO && !propietario.equals(actual.getPropietario())
+                && actual.getActualizado().isAfter(ahora.minusMillis(abandonadoMs))) {
+            return null;
+        }
+        if (desdeCero || actual.getEstado() == PuntoControlLote.Estado.TERMINADO) {
+            actual.setUltimoId(0L);
+            actual.setProcesados(0L);
+        }
+        actual.setEstado(PuntoControlLote.Estado.EN_CURSO);
+        actual.setError(null);
+        actual.setActualizado(ahora);
+        actual.setPropietario(propietario);
+        return puntoControlLoteRepository.saveAndFlush(actual);
+    }
+
+    public boolean detener(String nombre) {
+        return enCurso.replace(nombre, false, true);
+    }
+
+    private void ejecutar(TrabajoLote trabajo, PuntoControlLote punto) {
+        long inicio = System.nanoTime();
+        String nombre = trabajo.nombre();
+        try {
+            trabajo.preparar();
+            while (true) {
+                if (enCurso.get(nombre)) {
+                    if (guardarEstado(punto, PuntoControlLote.Estado.DETENIDO, null)) {
+                        log.info("Trabajo por lotes {} detenido despues del id {}", nombre, punto.getUltimoId());
+                    }
+                    return;
+                }
+                if (!frenar(punto)) {
+                    return;
+                }
+                if (enCurso.get(nombre)) {
+                    continue;
+                }
+                List<Long> ids = trabajo.siguientes(punto.getUltimoId(), tamanoBloque);
+                if (ids.isEmpty()) {
+                    if (guardarEstado(punto, PuntoControlLote.Estado.TERMINADO, null)) {
+                        log.info("Trabajo por lotes {} terminado: {} filas en {} ms", nombre, punto.getProcesados(),
+                                (System.nanoTime() - inicio) / 1_000_000);
+                    }
+                    return;
+                }
+                procesarBloque(trabajo, ids);
+                punto.setUltimoId(ids.get(ids.size() - 1));
+                punto.setProcesados(punto.getProcesados() + ids.size());
+                if (!guardarEstado(punto, PuntoControlLote.Estado.EN_CURSO, null)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            Throwable causa = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("Fallo el trabajo por lotes {} despues del id {}", nombre, punto.getUltimoId(), causa);
+            guardarEstado(punto, PuntoControlLote.Estado.FALLIDO, String.valueOf(causa.getMessage()));
+        } finally {
+            enCurso.remove(nombre);
+        }
+    }
+
+    private void procesarBloque(TrabajoLote trabajo, List<Long> ids) throws InterruptedException, ExecutionException {
+        int partes = Math.min(hilos, ids.size());
+        int porParte = (ids.size() + partes - 1) / partes;
+        List<Future<?>> pendientes = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += porParte) {
+            List<Long> parte = ids.subList(desde, Math.min(ids.size(), desde + porParte));
+            pendientes.add(pool.submit(() -> transaccion.executeWithoutResult(estado -> trabajo.procesar(parte))));
+        }
+        //Se espera a todas las partes antes de avanzar el punto de control, aunque alguna falle
+        ExecutionException error = null;
+        for (Future<?> pendiente : pendientes) {
+            try {
+                pendiente.get();
+            } catch (ExecutionException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    //false si otro nodo tomo el trabajo (este paso mas de abandonado-ms sin actualizarlo): no se guarda nada
+    private boolean guardarEstado(PuntoControlLote punto, PuntoControlLote.Estado estado, String error) {
+        punto.setEstado(estado);
+        punto.setError(error != null && error.length() > 255 ? error.substring(0, 255) : error);
+        punto.setActualizado(Instant.now());
+        boolean propio = Boolean.TRUE.equals(transaccion.execute(s -> {
+            boolean sigue = puntoControlLoteRepository.bloquear(punto.getNombre())
+                    .map(actual -> propietario.equals(actual.getPropietario())).orElse(false);
+            if (sigue) {
+                puntoControlLoteRepository.save(punto);
+            }
+            return sigue;
+        }));
+        if (!propio) {
+            log.warn("El trabajo por lotes {} lo tomo otro nodo, se deja de correr aqui", punto.getNombre());
+        }
+        return propio;
+    }
+
+    /*
+    Cede el paso al trafico en linea: pausa fija y espera mientras el pool de conexiones este ocupado. Sale antes si se
+    pide detener el trabajo; mientras espera renueva el punto de control para que otro nodo no lo crea abandonado.
+    Devuelve false si otro nodo lo tomo.
+    * */
+    private boolean frenar(PuntoControlLote punto) throws InterruptedException, SQLException {
+        Thread.sleep(pausaMs);
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return true;
+        }
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        HikariPoolMXBean estadoPool = hikari.getHikariPoolMXBean();
+        if (estadoPool == null) {
+            return true;
+        }
+        int maximo = hikari.getMaximumPoolSize();
+        while ((estadoPool.getThreadsAwaitingConnection() > 0 || estadoPool.getActiveConnections() > maximo * usoMaximoPool)
+                && !enCurso.get(punto.getNombre())) {
+            Thread.sleep(Math.max(pausaMs, 10) * 4);
+            if (punto.getActualizado().isBefore(Instant.now().minusMillis(abandonadoMs / 4))
+                    && !guardarEstado(punto, PuntoControlLote.Estado.EN_CURSO, null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package mini_biblioteca.lotes;
+
+import java.text.Normalizer;
+
+//Forma canonica de un nombre: Unicode NFC, sin espacios a los lados y con un solo espacio entre palabras
+final class NormalizacionNombres {
+
+    private NormalizacionNombres() {
+    }
+
+    static String normalizar(String nombre) {
+        if (nombre == null) {
+            return null;
+        }
+        return Normalizer.normalize(nombre, Normalizer.Form.NFC).strip().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,44 @@
+package mini_biblioteca.lotes;
+
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.services.AutorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+//Normaliza Autor.nombre (ver NormalizacionNombres); solo se guardan los que cambian, a traves del servicio.
+//Cada parte es una transaccion: la version de AUTOR sube con un solo UPDATE por parte (ver InvalidacionDistribuida)
+@Component
+public class NormalizarNombresAutores implements TrabajoLote {
+
+    @Autowired
+    private AutorRepository autorRepository;
+
+    @Autowired
+    private AutorService autorService;
+
+    @Override
+    public String nombre() {
+        return "normalizar-nombres-autores";
+    }
+
+    @Override
+    public List<Long> siguientes(long despuesDe, int tamano) {
+        return autorRepository.idsDespuesDe(despuesDe, PageRequest.of(0, tamano));
+    }
+
+    @Override
+    public void procesar(List<Long> ids) {
+        for (Autor autor : autorRepository.findAllById(ids)) {
+            String normalizado = NormalizacionNombres.normalizar(autor.getNombre());
+            if (!Objects.equals(normalizado, autor.getNombre())) {
+                autor.setNombre(normalizado);
+                autorService.actualizarAutor(autor);
+            }
+        }
+    }
+}
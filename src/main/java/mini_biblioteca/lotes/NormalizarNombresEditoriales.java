@@ -0,0 +1,43 @@
+package mini_biblioteca.lotes;
+
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.services.EditorialService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+//Normaliza Editorial.nombre (ver NormalizacionNombres); solo se guardan los que cambian, a traves del servicio
+@Component
+public class NormalizarNombresEditoriales implements TrabajoLote {
+
+    @Autowired
+    private EditorialRepository editorialRepository;
+
+    @Autowired
+    private EditorialService editorialService;
+
+    @Override
+    public String nombre() {
+        return "normalizar-nombres-editoriales";
+    }
+
+    @Override
+    public List<Long> siguientes(long despuesDe, int tamano) {
+        return editorialRepository.idsDespuesDe(despuesDe, PageRequest.of(0, tamano));
+    }
+
+    @Override
+    public void procesar(List<Long> ids) {
+        for (Editorial editorial : editorialRepository.findAllById(ids)) {
+            String normalizado = NormalizacionNombres.normalizar(editorial.getNombre());
+            if (!Objects.equals(normalizado, editorial.getNombre())) {
+                editorial.setNombre(normalizado);
+                editorialService.actualizarEditorial(editorial);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package mini_biblioteca.lotes;
+
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.LibroRepository;
+import mini_biblioteca.services.CategoriaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+Libros sin categoria o con categoria_id apuntando a una categoria que ya no existe (datos importados o borrados con
+las claves foraneas apagadas) pasan a la categoria biblioteca.lotes.categoria-por-defecto, que se crea si falta.
+- Se actualiza con un UPDATE masivo: un libro con la referencia rota no se puede cargar como entidad.
+- Despues se cargan los libros ya arreglados para publicar el CambioCatalogo de cada uno (indices y caches).
+* */
+@Component
+public class ReasignarCategoriasHuerfanas implements TrabajoLote {
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final String categoriaPorDefecto;
+
+    private volatile Categoria destino;
+
+    public ReasignarCategoriasHuerfanas(
+            @Value("${biblioteca.lotes.categoria-por-defecto:Sin categoria}") String categoriaPorDefecto) {
+        this.categoriaPorDefecto = categoriaPorDefecto;
+    }
+
+    @Override
+    public String nombre() {
+        return "reasignar-categorias-huerfanas";
+    }
+
+    @Override
+    public void preparar() {
+        destino = categoriaService.buscarPorNombre(categoriaPorDefecto).orElseGet(() -> {
+            Categoria categoria = new Categoria();
+            categoria.setNombre(categoriaPorDefecto);
+            return categoriaService.guardarCategoria(categoria);
+        });
+    }
+
+    @Override
+    public List<Long> siguientes(long despuesDe, int tamano) {
+        return libroRepository.idsSinCategoriaDespuesDe(despuesDe, PageRequest.of(0, tamano));
+    }
+
+    @Override
+    public void procesar(List<Long> ids) {
+        libroRepository.asignarCategoria(ids, destino);
+        for (Libro libro : libroRepository.findAllById(ids)) {
+            eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.LIBRO, libro.getId(), libro));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package mini_biblioteca.lotes;
+
+import java.util.List;
+
+/*
+Trabajo de mantenimiento que EjecutorLotes recorre por bloques:
+- siguientes(despuesDe, tamano): ids a procesar mayores que despuesDe, en orden ascendente (keyset, nunca OFFSET).
+- preparar(): se llama una vez antes de cada corrida, desde un solo hilo (p. ej. para crear datos que comparten todos
+  los bloques).
+- procesar(ids): procesa una parte del bloque dentro de su propia transaccion. Tiene que ser idempotente: si el
+  proceso se cae a mitad de un bloque, al reanudar se repite el bloque completo.
+* */
+public interface TrabajoLote {
+
+    String nombre();
+
+    default void preparar() {
+    }
+
+    List<Long> siguientes(long despuesDe, int tamano);
+
+    void procesar(List<Long> ids);
+}
@@ -0,0 +1,242 @@
+package mini_biblioteca.reportes;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.repositories.LibroRepository;
+import mini_biblioteca.repositories.VersionCambioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/*
+Generacion de reportes en segundo plano:
+- pedir(tipo) devuelve enseguida un TrabajoReporte; el reporte lo genera un pool acotado (biblioteca.reportes.hilos)
+  con una cola acotada (biblioteca.reportes.cola). Si la cola esta llena se lanza RejectedExecutionException.
+- El reporte es una consulta agregada de LibroRepository leida como Stream (fetch size, sin cargar todo en memoria)
+  que se escribe como CSV en un archivo temporal y se mueve de forma atomica a biblioteca.reportes.directorio.
+- El nombre del archivo lleva las versiones de LIBRO y de la entidad agrupada (tabla version_cambio): si el
+  catalogo no cambio, un pedido nuevo devuelve el archivo ya generado sin consultar la BD. Al generar uno nuevo se
+  borran los de versiones anteriores del mismo tipo. Si se recrea la BD (las versiones vuelven a 0) hay que vaciar
+  el directorio.
+- Pedidos iguales mientras uno esta en cola o en curso reciben el mismo trabajo (misma clave = tipo + versiones).
+- Los trabajos se recuerdan en memoria (los ultimos biblioteca.reportes.maximo-trabajos); los archivos sobreviven
+  a un reinicio.
+* */
+@Component
+public class GeneradorReportes {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorReportes.class);
+
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private EditorialRepository editorialRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private AutorRepository autorRepository;
+
+    @Autowired
+    private VersionCambioRepository versionCambioRepository;
+
+    private final TransactionTemplate lectura;
+
+    private final Path directorio;
+
+    private final ThreadPoolExecutor pool;
+
+    //Trabajo en cola o en curso por clave (tipo + versiones): deduplica pedidos iguales
+    private final Map<String, TrabajoReporte> activos = new ConcurrentHashMap<>();
+
+    private final Map<String, TrabajoReporte> trabajos;
+
+    public GeneradorReportes(MeterRegistry meterRegistry,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${biblioteca.reportes.directorio:}") String directorio,
+                             @Value("${biblioteca.reportes.hilos:2}") int hilos,
+                             @Value("${biblioteca.reportes.cola:20}") int cola,
+                             @Value("${biblioteca.reportes.maximo-trabajos:200}") int maximoTrabajos) {
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.directorio = StringUtils.hasText(directorio) ? Path.of(directorio)
+                : Path.of(System.getProperty("java.io.tmpdir"), "mini-biblioteca-reportes");
+        AtomicInteger numero = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(cola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "reportes-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        this.trabajos = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TrabajoReporte> mayor) {
+                return size() > maximoTrabajos && !mayor.getValue().activo();
+            }
+        };
+        Gauge.builder("biblioteca.reportes.en_cola", pool, p -> p.getQueue().size()).register(meterRegistry);
+        Gauge.builder("biblioteca.reportes.en_curso", pool, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public TrabajoReporte pedir(TipoReporte tipo) {
+        String clave = tipo.name().toLowerCase() + "-" + version(TipoEntidad.LIBRO)
+                + "-" + version(tipo.getAgrupadaPor());
+        Path archivo = directorio.resolve("reporte-" + clave + ".csv");
+        TrabajoReporte[] nuevo = new TrabajoReporte[1];
+        TrabajoReporte trabajo = activos.computeIfAbsent(clave, c -> {
+            nuevo[0] = new TrabajoReporte(UUID.randomUUID().toString(), tipo, archivo);
+            return nuevo[0];
+        });
+        if (nuevo[0] == null) {
+            return trabajo;
+        }
+        recordar(trabajo);
+        if (Files.exists(archivo)) {
+            trabajo.terminar();
+            activos.remove(clave);
+            return trabajo;
+        }
+        try {
+            pool.execute(() -> generar(trabajo, clave));
+        } catch (RejectedExecutionException e) {
+            activos.remove(clave);
+            trabajo.fallar("Hay demasiados reportes pendientes");
+            throw e;
+        }
+        return trabajo;
+    }
+
+    public Optional<TrabajoReporte> buscar(String id) {
+        synchronized (trabajos) {
+            return Optional.ofNullable(trabajos.get(id));
+        }
+    }
+
+    public Path archivoDe(TrabajoReporte trabajo) {
+        return trabajo.getRuta();
+    }
+
+    private void recordar(TrabajoReporte trabajo) {
+        synchronized (trabajos) {
+            trabajos.put(trabajo.getId(), trabajo);
+        }
+    }
+
+    private long version(TipoEntidad tipo) {
+        Long version = versionCambioRepository.versionDe(tipo.name());
+        return version == null ? 0 : version;
+    }
+
+    private void generar(TrabajoReporte trabajo, String clave) {
+        long inicio = System.nanoTime();
+        Path archivo = trabajo.getRuta();
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directorio);
+            lectura.executeWithoutResult(estado -> {
+                trabajo.iniciar(contar(trabajo.getTipo()));
+                try (Stream<Object[]> filas = recorrer(trabajo.getTipo());
+                     BufferedWriter salida = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+                    salida.write(trabajo.getTipo().getCabecera());
+                    salida.newLine();
+                    for (Object[] fila : (Iterable<Object[]>) filas::iterator) {
+                        salida.write(fila[0] + "," + csv((String) fila[1]) + "," + fila[2]);
+                        salida.newLine();
+                        trabajo.avanzar();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            trabajo.terminar();
+            borrarAnteriores(trabajo.getTipo(), archivo);
+            log.info("Reporte {} generado: {} filas en {} ms", clave, trabajo.getProcesadas(),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("No se pudo generar el reporte {}", clave, e);
+            trabajo.fallar(e.getMessage());
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException ignorada) {
+                //Se sobrescribe en el siguiente intento
+            }
+        } finally {
+            activos.remove(clave);
+        }
+    }
+
+    private long contar(TipoReporte tipo) {
+        return switch (tipo) {
+            case EDITORIALES -> editorialRepository.count();
+            case CATEGORIAS -> categoriaRepository.count();
+            case AUTORES -> autorRepository.count();
+        };
+    }
+
+    private Stream<Object[]> recorrer(TipoReporte tipo) {
+        return switch (tipo) {
+            case EDITORIALES -> libroRepository.contarLibrosPorEditorial();
+            case CATEGORIAS -> libroRepository.contarLibrosPorCategoria();
+            case AUTORES -> libroRepository.contarLibrosPorAutor();
+        };
+    }
+
+    private void borrarAnteriores(TipoReporte tipo, Path actual) throws IOException {
+        try (DirectoryStream<Path> anteriores = Files.newDirectoryStream(directorio,
+                "reporte-" + tipo.name().toLowerCase() + "-*.csv")) {
+            for (Path anterior : anteriores) {
+                if (!anterior.equals(actual)) {
+                    Files.deleteIfExists(anterior);
+                }
+            }
+        }
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.contains(",") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
+    @PreDestroy
+    public void detener() {
+        pool.shutdownNow();
+    }
+}
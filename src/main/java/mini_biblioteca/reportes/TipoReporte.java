@@ -0,0 +1,29 @@
+package mini_biblioteca.reportes;
+
+import mini_biblioteca.eventos.TipoEntidad;
+
+//Reportes del catalogo: cantidad de libros por editorial, por categoria y por autor
+public enum TipoReporte {
+
+    EDITORIALES(TipoEntidad.EDITORIAL, "editorial_id,editorial,libros"),
+    CATEGORIAS(TipoEntidad.CATEGORIA, "categoria_id,categoria,libros"),
+    AUTORES(TipoEntidad.AUTOR, "autor_id,autor,libros");
+
+    //Ademas de LIBRO, el reporte cambia cuando cambia esta entidad
+    private final TipoEntidad agrupadaPor;
+
+    private final String cabecera;
+
+    TipoReporte(TipoEntidad agrupadaPor, String cabecera) {
+        this.agrupadaPor = agrupadaPor;
+        this.cabecera = cabecera;
+    }
+
+    public TipoEntidad getAgrupadaPor() {
+        return agrupadaPor;
+    }
+
+    public String getCabecera() {
+        return cabecera;
+    }
+}
@@ -0,0 +1,104 @@
+package mini_biblioteca.reportes;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+//Estado de un reporte pedido; lo actualiza el hilo que lo genera y lo leen los que consultan el estado
+public class TrabajoReporte {
+
+    public enum Estado { EN_COLA, EN_CURSO, TERMINADO, FALLIDO }
+
+    private final String id;
+
+    private final TipoReporte tipo;
+
+    private final Instant pedido;
+
+    //Archivo final del reporte (existe solo cuando el estado es TERMINADO)
+    private final Path archivo;
+
+    private volatile Estado estado = Estado.EN_COLA;
+
+    private volatile long procesadas;
+
+    private volatile long total = -1;
+
+    private volatile Instant terminado;
+
+    private volatile String error;
+
+    TrabajoReporte(String id, TipoReporte tipo, Path archivo) {
+        this.id = id;
+        this.tipo = tipo;
+        this.archivo = archivo;
+        this.pedido = Instant.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public TipoReporte getTipo() {
+        return tipo;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public Instant getPedido() {
+        return pedido;
+    }
+
+    public Instant getTerminado() {
+        return terminado;
+    }
+
+    //Filas escritas y total esperado (-1 mientras no se conoce)
+    public long getProcesadas() {
+        return procesadas;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getArchivo() {
+        return estado == Estado.TERMINADO ? "/reportes/trabajos/" + id + "/archivo" : null;
+    }
+
+    @JsonIgnore
+    Path getRuta() {
+        return archivo;
+    }
+
+    void iniciar(long total) {
+        this.total = total;
+        this.estado = Estado.EN_CURSO;
+    }
+
+    void avanzar() {
+        procesadas++;
+    }
+
+    void terminar() {
+        terminado = Instant.now();
+        estado = Estado.TERMINADO;
+    }
+
+    void fallar(String error) {
+        this.error = error;
+        terminado = Instant.now();
+        estado = Estado.FALLIDO;
+    }
+
+    boolean activo() {
+        return estado == Estado.EN_COLA || estado == Estado.EN_CURSO;
+    }
+}
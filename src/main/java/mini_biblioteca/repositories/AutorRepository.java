@@ -1,14 +1,70 @@
 package mini_biblioteca.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import mini_biblioteca.entities.Autor;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface AutorRepository extends JpaRepository<Autor,Long> {
+public interface AutorRepository extends RepositorioCatalogo<Autor> {
 
     Optional<Autor> findByNombre(String nombre);
 
+    @Query("select a.Id, a.nombre from Autor a")
+    List<Object[]> proyectarNombres();
+
+    @Query("select a.Id, a.nombre from Autor a where a.Id in :ids")
+    List<Object[]> proyectarNombres(@Param("ids") Collection<Long> ids);
+
+    //Recorrido para llenar el filtro de Bloom; el fetch size evita traer todas las filas de una vez
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a.nombre from Autor a")
+    Stream<String> recorrerNombres();
+
+    //Opciones del combo de autores del filtro de libros: solo una pagina, ordenada por nombre
+    @Query("select a from Autor a where a.nombre like :patron escape '\\' order by a.nombre, a.Id")
+    List<Autor> buscarPorPatron(@Param("patron") String patron, Pageable pageable);
+
+    //Recorrido por bloques (keyset) para los trabajos por lotes
+    @Query("select a.Id from Autor a where a.Id > :despues order by a.Id")
+    List<Long> idsDespuesDe(@Param("despues") Long despues, Pageable pageable);
+
+    //Fusion: bloquea los autores (siempre en orden de id) hasta el commit; guardar un libro con alguno de ellos
+    //espera a que termine la fusion (la clave foranea de libro_autor lee la fila del autor)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Autor a where a.Id in :ids order by a.Id")
+    List<Autor> bloquear(@Param("ids") Collection<Long> ids);
+
+    /*
+    libro_autor no es una entidad: se modifica con SQL nativo. MySQL no deja leer libro_autor en una subconsulta de
+    un UPDATE/DELETE sobre la misma tabla, asi que la reescritura es un INSERT ... SELECT de los pares
+    (libro, destino) que faltan seguido de un DELETE de las filas de los origenes; el resultado es el mismo que
+    cambiar autor_id y quitar las filas repetidas.
+    * */
+    @Modifying
+    @Query(value = "insert into libro_autor (libro_id, autor_id) "
+            + "select distinct o.libro_id, :destino from libro_autor o where o.autor_id in (:origenes) "
+            + "and not exists (select 1 from libro_autor d where d.libro_id = o.libro_id and d.autor_id = :destino)",
+            nativeQuery = true)
+    int agregarDestinoALibrosDe(@Param("origenes") Collection<Long> origenes, @Param("destino") Long destino);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from libro_autor where autor_id in (:autores)", nativeQuery = true)
+    int quitarDeLibros(@Param("autores") Collection<Long> autores);
+
+    @Modifying
+    @Query("delete from Autor a where a.Id in :ids")
+    int eliminarFilas(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,163 @@
+package mini_biblioteca.repositories;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/*
+Carga masiva por ids para los repositorios del catalogo (RepositorioCatalogo):
+- Quita nulls y repetidos y devuelve las entidades en el orden pedido (las que no existen se omiten).
+- Cada IN se rellena (repitiendo el ultimo id) hasta el tramo siguiente de biblioteca.carga-por-ids.tramos
+  (1, 4, 16, 64, 256): solo hay tantas formas de SQL como tramos, asi el plan de Hibernate y la cache de sentencias
+  preparadas de MySQL se reusan en lugar de llenarse con un IN de cada largo.
+- Mas ids que el tramo mayor se parten en bloques de ese tamano. Se consultan en orden si hay una transaccion o un
+  EntityManager de la peticion (open-in-view): las entidades tienen que quedar en ese contexto de persistencia, y la
+  peticion ya ocupa una conexion. Si no, en paralelo (biblioteca.carga-por-ids.hilos), pero sin pasar de las
+  conexiones libres del pool: con el pool lleno se consulta en orden y no se le quitan conexiones al trafico.
+* */
+@Component
+public class CargaPorIds {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final int[] tramos;
+
+    private final ExecutorService pool;
+
+    private final Map<Integer, Counter> consultasPorTramo = new HashMap<>();
+
+    public CargaPorIds(MeterRegistry meterRegistry,
+                       @Value("${biblioteca.carga-por-ids.tramos:1,4,16,64,256}") int[] tramos,
+                       @Value("${biblioteca.carga-por-ids.hilos:4}") int hilos) {
+        this.tramos = Arrays.stream(tramos).sorted().distinct().toArray();
+        for (int tramo : this.tramos) {
+            consultasPorTramo.put(tramo, Counter.builder("biblioteca.carga_por_ids.consultas")
+                    .tag("tramo", String.valueOf(tramo)).register(meterRegistry));
+        }
+        AtomicInteger numero = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "carga-por-ids-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    public <T> List<T> buscar(RepositorioCatalogo<T> repositorio, Collection<Long> ids, Function<T, Long> idDe) {
+        List<Long> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        unicos.removeIf(Objects::isNull);
+        if (unicos.isEmpty()) {
+            return List.of();
+        }
+        int maximo = tramos[tramos.length - 1];
+        List<List<Long>> bloques = new ArrayList<>();
+        for (int desde = 0; desde < unicos.size(); desde += maximo) {
+            bloques.add(rellenar(unicos.subList(desde, Math.min(unicos.size(), desde + maximo))));
+        }
+        Map<Long, T> porId = new HashMap<>();
+        int paralelos = bloques.size() == 1 || TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.hasResource(entityManagerFactory)
+                ? 1 : Math.min(bloques.size(), conexionesLibres());
+        if (paralelos <= 1) {
+            for (List<Long> bloque : bloques) {
+                repositorio.buscarEntreIds(bloque).forEach(entidad -> porId.put(idDe.apply(entidad), entidad));
+            }
+        } else {
+            //Los bloques se reparten en tantas tareas como conexiones libres
+            List<CompletableFuture<List<T>>> pendientes = new ArrayList<>();
+            for (int tarea = 0; tarea < paralelos; tarea++) {
+                List<List<Long>> propios = new ArrayList<>();
+                for (int i = tarea; i < bloques.size(); i += paralelos) {
+                    propios.add(bloques.get(i));
+                }
+                pendientes.add(CompletableFuture.supplyAsync(() -> propios.stream()
+                        .flatMap(bloque -> repositorio.buscarEntreIds(bloque).stream()).toList(), pool));
+            }
+            for (CompletableFuture<List<T>> pendiente : pendientes) {
+                pendiente.join().forEach(entidad -> porId.put(idDe.apply(entidad), entidad));
+            }
+        }
+        List<T> resultado = new ArrayList<>(unicos.size());
+        for (Long id : unicos) {
+            T entidad = porId.get(id);
+            if (entidad != null) {
+                resultado.add(entidad);
+            }
+        }
+        return resultado;
+    }
+
+    //Sin Hikari no se sabe: se usan los hilos del pool propio
+    private int conexionesLibres() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return Integer.MAX_VALUE;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean estadoPool = hikari.getHikariPoolMXBean();
+            if (estadoPool == null) {
+                return Integer.MAX_VALUE;
+            }
+            //Las conexiones que el pool todavia puede abrir tambien cuentan
+            return estadoPool.getThreadsAwaitingConnection() > 0 ? 0
+                    : hikari.getMaximumPoolSize() - estadoPool.getActiveConnections();
+        } catch (SQLException e) {
+            return 1;
+        }
+    }
+
+    //Tamanos de IN que se usan; el calentamiento prepara una consulta de cada uno
+    public int[] tramos() {
+        return tramos.clone();
+    }
+
+    private List<Long> rellenar(List<Long> bloque) {
+        int tramo = tramos[tramos.length - 1];
+        for (int candidato : tramos) {
+            if (candidato >= bloque.size()) {
+                tramo = candidato;
+                break;
+            }
+        }
+        consultasPorTramo.get(tramo).increment();
+        if (bloque.size() == tramo) {
+            return bloque;
+        }
+        List<Long> relleno = new ArrayList<>(tramo);
+        relleno.addAll(bloque);
+        relleno.addAll(Collections.nCopies(tramo - bloque.size(), bloque.get(bloque.size() - 1)));
+        return relleno;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+}
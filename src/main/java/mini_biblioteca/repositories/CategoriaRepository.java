@@ -1,15 +1,47 @@
 package mini_biblioteca.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import mini_biblioteca.entities.Categoria;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CategoriaRepository extends JpaRepository<Categoria,Long>{
+public interface CategoriaRepository extends RepositorioCatalogo<Categoria>{
 
     Optional<Categoria> findByNombre(String nombre);
+
+    @Query("select c.Id, c.nombre from Categoria c")
+    List<Object[]> proyectarNombres();
+
+    @Query("select c.Id, c.nombre from Categoria c where c.Id in :ids")
+    List<Object[]> proyectarNombres(@Param("ids") Collection<Long> ids);
+
+    //Recorrido para llenar el filtro de Bloom; el fetch size evita traer todas las filas de una vez
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.nombre from Categoria c")
+    Stream<String> recorrerNombres();
+
+    //Fusion: bloquea origen y destino (siempre en orden de id) hasta el commit; un libro que se guarde apuntando
+    //a alguna de las dos espera a que termine la fusion
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Categoria c where c.Id in :ids order by c.Id")
+    List<Categoria> bloquear(@Param("ids") Collection<Long> ids);
+
+    //Sin pasar por la entidad: el cascade de Categoria.libros cargaria y borraria los libros
+    @Modifying
+    @Query("delete from Categoria c where c.Id = :id")
+    int eliminarFila(@Param("id") Long id);
 }
 
 
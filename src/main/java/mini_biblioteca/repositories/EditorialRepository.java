@@ -1,12 +1,49 @@
 package mini_biblioteca.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import mini_biblioteca.entities.Editorial;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface EditorialRepository extends JpaRepository<Editorial,Long> {
+public interface EditorialRepository extends RepositorioCatalogo<Editorial> {
 
     Optional<Editorial> findByNombre(String nombre);
+
+    @Query("select e.Id, e.nombre from Editorial e")
+    List<Object[]> proyectarNombres();
+
+    @Query("select e.Id, e.nombre from Editorial e where e.Id in :ids")
+    List<Object[]> proyectarNombres(@Param("ids") Collection<Long> ids);
+
+    //Recorrido para llenar el filtro de Bloom; el fetch size evita traer todas las filas de una vez
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select e.nombre from Editorial e")
+    Stream<String> recorrerNombres();
+
+    //Recorrido por bloques (keyset) para los trabajos por lotes
+    @Query("select e.Id from Editorial e where e.Id > :despues order by e.Id")
+    List<Long> idsDespuesDe(@Param("despues") Long despues, Pageable pageable);
+
+    //Fusion: bloquea origen y destino (siempre en orden de id) hasta el commit; un libro que se guarde apuntando
+    //a alguna de las dos espera a que termine la fusion
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Editorial e where e.Id in :ids order by e.Id")
+    List<Editorial> bloquear(@Param("ids") Collection<Long> ids);
+
+    //Sin pasar por la entidad: el cascade de Editorial.libros cargaria y borraria los libros
+    @Modifying
+    @Query("delete from Editorial e where e.Id = :id")
+    int eliminarFila(@Param("id") Long id);
 }
@@ -0,0 +1,67 @@
+package mini_biblioteca.repositories;
+
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EventoCatalogoRepository extends JpaRepository<EventoCatalogo,Long> {
+
+    //Eventos confirmados posteriores a un offset (secuencia de commit, ver OutboxCambios)
+    @Query("select e from EventoCatalogo e where e.secuencia > :desde order by e.secuencia")
+    List<EventoCatalogo> buscarDesde(@Param("desde") Long desde, Pageable pageable);
+
+    //Lo mismo para un solo tipo de entidad (indices en memoria que se ponen al dia con el outbox)
+    @Query("select e from EventoCatalogo e where e.tipo = :tipo and e.secuencia > :desde order by e.secuencia")
+    List<EventoCatalogo> buscarDesde(@Param("desde") Long desde, @Param("tipo") TipoEntidad tipo, Pageable pageable);
+
+    @Query("select coalesce(max(e.secuencia), 0) from EventoCatalogo e")
+    Long ultimaSecuencia();
+
+    /*
+    Un evento por libro de la editorial, categoria o autor con un INSERT ... SELECT, antes de tocar los libros:
+    fusiones (los libros se mueven) y borrados (la editorial o categoria borra sus libros en cascada; el autor
+    se quita de sus libros).
+    * */
+    @Modifying
+    @Query("insert into EventoCatalogo (tipo, entidadId, eliminado, fecha, transaccion) "
+            + "select :tipo, l.Id, :eliminado, :fecha, :transaccion from Libro l where l.editorial.Id = :editorialId")
+    int registrarLibrosDeEditorial(@Param("editorialId") Long editorialId, @Param("tipo") TipoEntidad tipo,
+                                   @Param("eliminado") boolean eliminado, @Param("fecha") Instant fecha,
+                                   @Param("transaccion") String transaccion);
+
+    @Modifying
+    @Query("insert into EventoCatalogo (tipo, entidadId, eliminado, fecha, transaccion) "
+            + "select :tipo, l.Id, :eliminado, :fecha, :transaccion from Libro l where l.categoria.Id = :categoriaId")
+    int registrarLibrosDeCategoria(@Param("categoriaId") Long categoriaId, @Param("tipo") TipoEntidad tipo,
+                                   @Param("eliminado") boolean eliminado, @Param("fecha") Instant fecha,
+                                   @Param("transaccion") String transaccion);
+
+    @Modifying
+    @Query("insert into EventoCatalogo (tipo, entidadId, eliminado, fecha, transaccion) "
+            + "select distinct :tipo, l.Id, false, :fecha, :transaccion from Libro l join l.autores a where a.Id = :autorId")
+    int registrarLibrosDeAutor(@Param("autorId") Long autorId, @Param("tipo") TipoEntidad tipo,
+                               @Param("fecha") Instant fecha, @Param("transaccion") String transaccion);
+
+    //Ids de los eventos de una transaccion: [min, max]
+    @Query("select min(e.Id), max(e.Id) from EventoCatalogo e where e.transaccion = :transaccion")
+    List<Object[]> rangoDeTransaccion(@Param("transaccion") String transaccion);
+
+    @Modifying
+    @Query("update EventoCatalogo e set e.secuencia = e.Id + :desplazamiento where e.transaccion = :transaccion")
+    int numerar(@Param("transaccion") String transaccion, @Param("desplazamiento") long desplazamiento);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EventoCatalogo e where e.fecha < :fecha")
+    int eliminarAnterioresA(@Param("fecha") Instant fecha);
+}
@@ -0,0 +1,51 @@
+package mini_biblioteca.repositories;
+
+import jakarta.persistence.criteria.Predicate;
+import mini_biblioteca.entities.Libro;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/*
+Piezas del filtro de libros. Se combinan con and() y solo se agregan las de los criterios que el usuario lleno,
+asi cada combinacion termina en una sola consulta que puede usar su indice:
+- categoria + editorial (+ titulo)  -> idx_libro_categoria_editorial_titulo
+- categoria o editorial (+ titulo)  -> idx_libro_categoria_titulo / idx_libro_editorial_titulo
+- solo titulo o sin criterios       -> idx_libro_titulo
+- autor                             -> idx_libro_autor_autor_libro
+El orden es siempre (titulo, Id); en MySQL los indices secundarios ya incluyen la llave primaria al final.
+* */
+public final class LibroEspecificaciones {
+
+    public static final Sort ORDEN = Sort.by("titulo", "Id");
+
+    private LibroEspecificaciones() {
+    }
+
+    public static Specification<Libro> deCategoria(Long categoriaId) {
+        return (libro, query, cb) -> cb.equal(libro.get("categoria").get("Id"), categoriaId);
+    }
+
+    public static Specification<Libro> deEditorial(Long editorialId) {
+        return (libro, query, cb) -> cb.equal(libro.get("editorial").get("Id"), editorialId);
+    }
+
+    //Un libro tiene a lo mas una fila por autor en libro_autor, asi que el join no repite libros
+    public static Specification<Libro> deAutor(Long autorId) {
+        return (libro, query, cb) -> cb.equal(libro.join("autores").get("Id"), autorId);
+    }
+
+    //Prefijo (LIKE 'abc%') para que la BD pueda recorrer el indice por rango
+    public static Specification<Libro> tituloEmpiezaCon(String prefijo) {
+        String patron = prefijo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (libro, query, cb) -> cb.like(libro.get("titulo"), patron, '\\');
+    }
+
+    //Paginacion por keyset: los libros que van despues de (titulo, id) en el ORDEN, sin OFFSET
+    public static Specification<Libro> despuesDe(String titulo, Long id) {
+        return (libro, query, cb) -> {
+            Predicate mayorTitulo = cb.greaterThan(libro.get("titulo"), titulo);
+            Predicate mismoTitulo = cb.and(cb.equal(libro.get("titulo"), titulo), cb.greaterThan(libro.get("Id"), id));
+            return cb.or(mayorTitulo, mismoTitulo);
+        };
+    }
+}
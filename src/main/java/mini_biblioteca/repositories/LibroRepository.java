@@ -1,18 +1,101 @@
 package mini_biblioteca.repositories;
 
+import jakarta.persistence.QueryHint;
 import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Editorial;
 import mini_biblioteca.entities.Libro;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface LibroRepository extends JpaRepository<Libro,Long> {
+public interface LibroRepository extends RepositorioCatalogo<Libro>, JpaSpecificationExecutor<Libro> {
 
-    Optional<Libro> findByTitulo(String titulo);
+    //Puede haber varios libros con el mismo titulo (duplicados); se devuelve el mas antiguo
+    Optional<Libro> findFirstByTituloOrderByIdAsc(String titulo);
 
 
     List<Libro> findByCategoria(Categoria categoria);
+
+    //Proyecciones para construir el catalogo en memoria sin hidratar entidades
+    @Query("select l.Id, l.titulo, c.Id, e.Id from Libro l left join l.categoria c left join l.editorial e")
+    List<Object[]> proyectarLibros();
+
+    @Query("select l.Id, a.Id from Libro l join l.autores a")
+    List<Object[]> proyectarLibrosAutores();
+
+    //Las mismas proyecciones para algunos libros (actualizacion incremental de los similares)
+    @Query("select l.Id, l.titulo, c.Id, e.Id from Libro l left join l.categoria c left join l.editorial e where l.Id in :ids")
+    List<Object[]> proyectarLibros(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.Id, a.Id from Libro l join l.autores a where l.Id in :ids")
+    List<Object[]> proyectarLibrosAutores(@Param("ids") Collection<Long> ids);
+
+    //Paginas de libros por editorial/categoria: solo id y titulo, ordenados y paginados por la BD
+    @Query("select l.Id as id, l.titulo as titulo from Libro l where l.editorial.Id = :editorialId")
+    List<LibroResumen> buscarResumenPorEditorial(@Param("editorialId") Long editorialId, Pageable pageable);
+
+    @Query("select count(l) from Libro l where l.editorial.Id = :editorialId")
+    long contarPorEditorial(@Param("editorialId") Long editorialId);
+
+    @Query("select l.Id as id, l.titulo as titulo from Libro l where l.categoria.Id = :categoriaId")
+    List<LibroResumen> buscarResumenPorCategoria(@Param("categoriaId") Long categoriaId, Pageable pageable);
+
+    @Query("select count(l) from Libro l where l.categoria.Id = :categoriaId")
+    long contarPorCategoria(@Param("categoriaId") Long categoriaId);
+
+    @Query("select l.Id as id, l.titulo as titulo from Libro l where l.Id in :ids")
+    List<LibroResumen> buscarResumenes(@Param("ids") Collection<Long> ids);
+
+    //Recorrido para llenar el filtro de Bloom; el fetch size evita traer todas las filas de una vez
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select l.titulo from Libro l")
+    Stream<String> recorrerTitulos();
+
+    //Titulos de algunos libros (el filtro de Bloom se pone al dia con los cambios de otros nodos)
+    @Query("select l.Id, l.titulo from Libro l where l.Id in :ids")
+    List<Object[]> proyectarTitulos(@Param("ids") Collection<Long> ids);
+
+    //Libros sin categoria o con una categoria que ya no existe, por bloques (keyset) para el trabajo por lotes
+    @Query("select l.Id from Libro l where l.Id > :despues and (l.categoria.Id is null "
+            + "or not exists (select c.Id from Categoria c where c.Id = l.categoria.Id)) order by l.Id")
+    List<Long> idsSinCategoriaDespuesDe(@Param("despues") Long despues, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Libro l set l.categoria = :categoria where l.Id in :ids")
+    int asignarCategoria(@Param("ids") Collection<Long> ids, @Param("categoria") Categoria categoria);
+
+    //Fusiones: todos los libros del origen pasan al destino en un solo UPDATE
+    @Modifying(clearAutomatically = true)
+    @Query("update Libro l set l.editorial = :destino where l.editorial = :origen")
+    int moverEditorial(@Param("origen") Editorial origen, @Param("destino") Editorial destino);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Libro l set l.categoria = :destino where l.categoria = :origen")
+    int moverCategoria(@Param("origen") Categoria origen, @Param("destino") Categoria destino);
+
+    //Reportes (id, nombre, cantidad de libros), agregados por la BD y leidos en streaming; incluye los que no tienen libros
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select e.Id, e.nombre, count(l.Id) from Editorial e left join Libro l on l.editorial = e "
+            + "group by e.Id, e.nombre order by e.Id")
+    Stream<Object[]> contarLibrosPorEditorial();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.Id, c.nombre, count(l.Id) from Categoria c left join Libro l on l.categoria = c "
+            + "group by c.Id, c.nombre order by c.Id")
+    Stream<Object[]> contarLibrosPorCategoria();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a.Id, a.nombre, count(l.Id) from Autor a left join a.libros l group by a.Id, a.nombre order by a.Id")
+    Stream<Object[]> contarLibrosPorAutor();
 }
@@ -0,0 +1,9 @@
+package mini_biblioteca.repositories;
+
+//Proyeccion con solo las columnas que muestran las paginas de detalle (sin cargar editorial, categoria ni autores)
+public interface LibroResumen {
+
+    Long getId();
+
+    String getTitulo();
+}
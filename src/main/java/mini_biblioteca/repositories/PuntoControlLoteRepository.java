@@ -0,0 +1,23 @@
+package mini_biblioteca.repositories;
+
+import jakarta.persistence.LockModeType;
+import mini_biblioteca.entities.PuntoControlLote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PuntoControlLoteRepository extends JpaRepository<PuntoControlLote,String> {
+
+    List<PuntoControlLote> findByEstado(PuntoControlLote.Estado estado);
+
+    //Toma o renueva un trabajo: la fila queda bloqueada hasta el commit, asi dos nodos no lo toman a la vez
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from PuntoControlLote p where p.nombre = :nombre")
+    Optional<PuntoControlLote> bloquear(@Param("nombre") String nombre);
+}
@@ -0,0 +1,18 @@
+package mini_biblioteca.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+//Base de los repositorios de Libro, Autor, Editorial y Categoria (todas con id Long en el campo Id)
+@NoRepositoryBean
+public interface RepositorioCatalogo<T> extends JpaRepository<T, Long> {
+
+    //Una sola consulta JPQL (findAllById arma un Criteria distinto cada vez); usar a traves de CargaPorIds
+    @Query("select e from #{#entityName} e where e.Id in :ids")
+    List<T> buscarEntreIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,20 @@
+package mini_biblioteca.repositories;
+
+import mini_biblioteca.entities.SecuenciaOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SecuenciaOutboxRepository extends JpaRepository<SecuenciaOutbox,Integer> {
+
+    //Reserva "cantidad" numeros; la fila queda bloqueada hasta el commit de la transaccion que la llama
+    @Modifying
+    @Query("update SecuenciaOutbox s set s.valor = s.valor + :cantidad where s.id = 1")
+    int reservar(@Param("cantidad") long cantidad);
+
+    @Query("select s.valor from SecuenciaOutbox s where s.id = 1")
+    Long valor();
+}
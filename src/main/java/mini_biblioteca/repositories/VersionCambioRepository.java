@@ -0,0 +1,28 @@
+package mini_biblioteca.repositories;
+
+import mini_biblioteca.entities.VersionCambio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface VersionCambioRepository extends JpaRepository<VersionCambio,String> {
+
+    //Se ejecuta dentro de la transaccion del servicio que hizo la escritura
+    @Transactional
+    @Modifying
+    @Query("update VersionCambio v set v.version = v.version + 1 where v.region = :region")
+    int incrementar(@Param("region") String region);
+
+    //Varios cambios de una misma transaccion en un solo UPDATE
+    @Transactional
+    @Modifying
+    @Query("update VersionCambio v set v.version = v.version + :cantidad where v.region = :region")
+    int sumar(@Param("region") String region, @Param("cantidad") long cantidad);
+
+    @Query("select v.version from VersionCambio v where v.region = :region")
+    Long versionDe(@Param("region") String region);
+}
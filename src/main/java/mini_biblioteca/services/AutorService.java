@@ -17,9 +17,19 @@ public interface  AutorService {
 
     List<Autor> listarTodosLosAutores();
 
+    //Los primeros autores (por nombre) cuyo nombre empieza con el prefijo; null o vacio = sin prefijo
+    List<Autor> buscarPorPrefijo(String prefijo, int limite);
+
     Autor actualizarAutor(Autor autor);
 
     void eliminarAutor(Long id) throws ClassNotFoundException;
 
+    //En el orden de ids, sin repetidos; ver CargaPorIds
     List<Autor> buscarPorIds(List<Long>ids);
+
+    //Autores ya registrados con un nombre parecido (acentos, orden de palabras o pequenos errores de tipeo)
+    List<Autor> buscarParecidos(String nombre);
+
+    //Pasa los libros de los autores origen al destino (sin repetirlo en un mismo libro) y borra los origenes
+    ResultadoFusionAutores fusionarAutores(List<Long> origenIds, Long destinoId);
 }
@@ -19,5 +19,8 @@ public interface CategoriaService {
 
     void eliminarCategoria(Long id);
 
+    //Pasa todos los libros de origen a destino y borra origen; devuelve cuantos libros se movieron
+    int fusionarCategorias(Long origenId, Long destinoId);
+
 
 }
@@ -19,4 +19,7 @@ public interface EditorialService {
 
     void eliminarEditorial(Long id);
 
+    //Pasa todos los libros de origen a destino y borra origen; devuelve cuantos libros se movieron
+    int fusionarEditoriales(Long origenId, Long destinoId);
+
 }
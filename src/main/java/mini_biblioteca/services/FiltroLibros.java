@@ -0,0 +1,80 @@
+package mini_biblioteca.services;
+
+//Criterios del filtro de libros (/libros/filtrar). Los que vienen vacios no se aplican.
+//nombreAutor no filtra libros: acota las opciones del combo de autores a los que empiezan con ese texto.
+//despuesDeTitulo y despuesDeId son la posicion (keyset) del ultimo libro de la pagina anterior.
+public class FiltroLibros {
+
+    private Long categoriaId;
+
+    private Long editorialId;
+
+    private Long autorId;
+
+    private String titulo;
+
+    private String nombreAutor;
+
+    private String despuesDeTitulo;
+
+    private Long despuesDeId;
+
+    public FiltroLibros() {
+    }
+
+    public Long getCategoriaId() {
+        return categoriaId;
+    }
+
+    public void setCategoriaId(Long categoriaId) {
+        this.categoriaId = categoriaId;
+    }
+
+    public Long getEditorialId() {
+        return editorialId;
+    }
+
+    public void setEditorialId(Long editorialId) {
+        this.editorialId = editorialId;
+    }
+
+    public Long getAutorId() {
+        return autorId;
+    }
+
+    public void setAutorId(Long autorId) {
+        this.autorId = autorId;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public void setTitulo(String titulo) {
+        this.titulo = titulo;
+    }
+
+    public String getNombreAutor() {
+        return nombreAutor;
+    }
+
+    public void setNombreAutor(String nombreAutor) {
+        this.nombreAutor = nombreAutor;
+    }
+
+    public String getDespuesDeTitulo() {
+        return despuesDeTitulo;
+    }
+
+    public void setDespuesDeTitulo(String despuesDeTitulo) {
+        this.despuesDeTitulo = despuesDeTitulo;
+    }
+
+    public Long getDespuesDeId() {
+        return despuesDeId;
+    }
+
+    public void setDespuesDeId(Long despuesDeId) {
+        this.despuesDeId = despuesDeId;
+    }
+}
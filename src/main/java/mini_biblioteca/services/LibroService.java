@@ -3,6 +3,8 @@ package mini_biblioteca.services;
 
 import mini_biblioteca.entities.Categoria;
 import mini_biblioteca.entities.Libro;
+import mini_biblioteca.repositories.LibroResumen;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,6 +13,9 @@ public interface LibroService {
 
     Libro saveLibro(Libro libro);
 
+    //Altas de varios libros en una sola transaccion (ver EscrituraAgrupadaLibros); asigna los ids a los mismos objetos
+    List<Libro> guardarNuevos(List<Libro> libros);
+
     Optional<Libro> buscarPorId(Long id);
 
     Optional<Libro> buscarPorTitulo(String titulo);
@@ -23,4 +28,16 @@ public interface LibroService {
 
     List<Libro> buscarPorCategoria(Categoria categoria);
 
+    List<LibroResumen> buscarResumenPorEditorial(Long editorialId, Pageable pageable);
+
+    long contarPorEditorial(Long editorialId);
+
+    List<LibroResumen> buscarResumenPorCategoria(Long categoriaId, Pageable pageable);
+
+    long contarPorCategoria(Long categoriaId);
+
+    List<Libro> filtrar(FiltroLibros filtro, int limite);
+
+    List<LibroResumen> buscarResumenes(List<Long> ids);
+
 }
@@ -0,0 +1,11 @@
+package mini_biblioteca.services;
+
+/*
+Resultado de AutorService.fusionarAutores:
+- autoresEliminados: autores origen borrados.
+- filasReescritas: filas de libro_autor que pasaron de un origen al destino.
+- filasDuplicadasEliminadas: filas de un origen que se quitaron porque el libro ya tenia al destino (o a otro origen).
+* */
+public record ResultadoFusionAutores(Long destino, int autoresEliminados, int filasReescritas,
+                                     int filasDuplicadasEliminadas) {
+}
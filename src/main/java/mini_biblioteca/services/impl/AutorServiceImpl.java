@@ -1,15 +1,27 @@
 package mini_biblioteca.services.impl;
 
 
+import mini_biblioteca.catalogo.FiltrosExistencia;
+import mini_biblioteca.catalogo.IndiceNombresAutores;
 import mini_biblioteca.entities.Autor;
-import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
 import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.CargaPorIds;
 import mini_biblioteca.services.AutorService;
+import mini_biblioteca.services.ResultadoFusionAutores;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class AutorServiceImpl implements AutorService {
@@ -17,9 +29,26 @@ public class AutorServiceImpl implements AutorService {
     @Autowired
     private AutorRepository autorRepository;
 
+    @Autowired
+    private CargaPorIds cargaPorIds;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FiltrosExistencia filtrosExistencia;
+
+    @Autowired
+    private IndiceNombresAutores indiceNombresAutores;
+
+    private static final int MAXIMO_PARECIDOS = 5;
+
+    @Transactional
     @Override
     public Autor guardarAutor(Autor autor) {
-        return autorRepository.save(autor);
+        Autor autorGuardado = autorRepository.save(autor);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.AUTOR, autorGuardado.getId(), autorGuardado));
+        return autorGuardado;
     }
 
     @Override
@@ -29,7 +58,7 @@ public class AutorServiceImpl implements AutorService {
 
     @Override
     public Optional<Autor> buscarPorNombre(String nombre) {
-        return autorRepository.findByNombre(nombre);
+        return filtrosExistencia.buscar(TipoEntidad.AUTOR, nombre, () -> autorRepository.findByNombre(nombre));
     }
 
     @Override
@@ -37,17 +66,30 @@ public class AutorServiceImpl implements AutorService {
         return autorRepository.findAll();
     }
 
+    @Override
+    public List<Autor> buscarPorPrefijo(String prefijo, int limite) {
+        String patron = prefijo == null ? "" : prefijo.trim()
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return autorRepository.buscarPorPatron(patron + "%", PageRequest.of(0, limite));
+    }
+
+    @Transactional
     @Override
     public Autor actualizarAutor(Autor autor) {
-        return autorRepository.save(autor);
+        Autor autorGuardado = autorRepository.save(autor);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.AUTOR, autorGuardado.getId(), autorGuardado));
+        return autorGuardado;
     }
 
+    @Transactional
     @Override
     public void eliminarAutor(Long id) throws ClassNotFoundException{
        Optional<Autor> optionalAutor =  autorRepository.findById(id);
        if (optionalAutor.isPresent()){
-           Autor autor = optionalAutor.get();
-           eliminarRelacionesDeAutor(autor);
+           //Antes de quitarlo: el outbox registra un evento por cada libro del autor
+           eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.AUTOR, id));
+           //Un DELETE sobre libro_autor en vez de recorrer autor.getLibros() y reescribir la lista de cada libro
+           autorRepository.quitarDeLibros(List.of(id));
            autorRepository.deleteById(id);
        }
        else {
@@ -57,14 +99,48 @@ public class AutorServiceImpl implements AutorService {
 
     @Override
     public List<Autor> buscarPorIds(List<Long> ids) {
-        return autorRepository.findAllById(ids);
+        return cargaPorIds.buscar(autorRepository, ids, Autor::getId);
+    }
+
+    @Override
+    public List<Autor> buscarParecidos(String nombre) {
+        List<Long> ids = indiceNombresAutores.buscar(nombre, MAXIMO_PARECIDOS);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        //Del mas al menos parecido: CargaPorIds respeta el orden de los ids
+        return cargaPorIds.buscar(autorRepository, ids, Autor::getId);
     }
 
-    private void eliminarRelacionesDeAutor(Autor autor){
-        for(Libro i: autor.getLibros()){
-            i.getAutores().remove(autor);
+    /*
+    Fusion basada en conjuntos, sin cargar libros:
+    1. Bloquea los autores (un libro que se guarde con alguno de ellos espera al commit y, si referencia a un
+       origen, falla por la clave foranea en vez de dejar una fila huerfana).
+    2. Publica FusionCatalogo por cada origen: el outbox registra un evento por libro afectado.
+    3. Reescribe libro_autor (ver AutorRepository.agregarDestinoALibrosDe) y borra los origenes.
+    * */
+    @Transactional
+    @Override
+    public ResultadoFusionAutores fusionarAutores(List<Long> origenIds, Long destinoId) {
+        Set<Long> origenes = new TreeSet<>(origenIds);
+        if (origenes.isEmpty() || origenes.contains(destinoId)) {
+            throw new IllegalArgumentException("Los autores origen no pueden estar vacios ni incluir al destino");
+        }
+        List<Long> todos = new ArrayList<>(origenes);
+        todos.add(destinoId);
+        if (autorRepository.bloquear(todos).size() != todos.size()) {
+            throw new IllegalArgumentException("No existe alguno de los autores " + todos);
+        }
+        for (Long origen : origenes) {
+            eventPublisher.publishEvent(new FusionCatalogo(TipoEntidad.AUTOR, origen, destinoId));
+        }
+        int reescritas = autorRepository.agregarDestinoALibrosDe(origenes, destinoId);
+        int quitadas = autorRepository.quitarDeLibros(origenes);
+        int eliminados = autorRepository.eliminarFilas(origenes);
+        for (Long origen : origenes) {
+            eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.AUTOR, origen));
         }
-        autor.getLibros().clear();
+        return new ResultadoFusionAutores(destinoId, eliminados, reescritas, quitadas - reescritas);
     }
 
 
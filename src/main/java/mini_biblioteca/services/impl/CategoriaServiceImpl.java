@@ -1,13 +1,24 @@
 package mini_biblioteca.services.impl;
 
+import mini_biblioteca.catalogo.FiltrosExistencia;
 import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
 import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.LibroRepository;
 import mini_biblioteca.services.CategoriaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CategoriaServiceImpl implements CategoriaService {
@@ -15,9 +26,21 @@ public class CategoriaServiceImpl implements CategoriaService {
     @Autowired
     CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FiltrosExistencia filtrosExistencia;
+
+    @Transactional
     @Override
     public Categoria guardarCategoria(Categoria categoria) {
-        return categoriaRepository.save(categoria);
+        Categoria categoriaGuardada = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.CATEGORIA, categoriaGuardada.getId(), categoriaGuardada));
+        return categoriaGuardada;
     }
 
     @Override
@@ -27,21 +50,55 @@ public class CategoriaServiceImpl implements CategoriaService {
 
     @Override
     public Optional<Categoria> buscarPorNombre(String nombre) {
-        return categoriaRepository.findByNombre(nombre);
+        return filtrosExistencia.buscar(TipoEntidad.CATEGORIA, nombre, () -> categoriaRepository.findByNombre(nombre));
     }
 
+    //Cache local; se invalida en este nodo al escribir y en los demas nodos via InvalidacionDistribuida
+    @Cacheable("categorias")
     @Override
     public List<Categoria> listarTodasLasCategorias() {
         return categoriaRepository.findAll();
     }
 
+    @Transactional
     @Override
     public Categoria actualizarCategoria(Categoria categoria) {
-        return categoriaRepository.save(categoria);
+        Categoria categoriaGuardada = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.CATEGORIA, categoriaGuardada.getId(), categoriaGuardada));
+        return categoriaGuardada;
     }
 
+    @Transactional
     @Override
     public void eliminarCategoria(Long id) {
+        //Antes del borrado: el outbox registra los libros que se borran en cascada mientras todavia existen
+        eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.CATEGORIA, id));
         categoriaRepository.deleteById(id);
     }
+
+    /*
+    Fusion basada en conjuntos, sin cargar los libros:
+    1. Bloquea las dos filas (un libro que se guarde apuntando a alguna espera al commit).
+    2. Publica FusionCatalogo: el outbox registra un evento por libro del origen con un INSERT ... SELECT.
+    3. Un UPDATE mueve los libros y un DELETE borra el origen; se publica su CambioCatalogo.eliminado.
+    * */
+    @Transactional
+    @Override
+    public int fusionarCategorias(Long origenId, Long destinoId) {
+        if (origenId.equals(destinoId)) {
+            throw new IllegalArgumentException("El origen y el destino de la fusion son la misma categoria");
+        }
+        Map<Long, Categoria> bloqueadas = categoriaRepository.bloquear(List.of(origenId, destinoId)).stream()
+                .collect(Collectors.toMap(Categoria::getId, Function.identity()));
+        Categoria origen = bloqueadas.get(origenId);
+        Categoria destino = bloqueadas.get(destinoId);
+        if (origen == null || destino == null) {
+            throw new IllegalArgumentException("No existe la categoria " + (origen == null ? origenId : destinoId));
+        }
+        eventPublisher.publishEvent(new FusionCatalogo(TipoEntidad.CATEGORIA, origenId, destinoId));
+        int movidos = libroRepository.moverCategoria(origen, destino);
+        categoriaRepository.eliminarFila(origenId);
+        eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.CATEGORIA, origenId));
+        return movidos;
+    }
 }
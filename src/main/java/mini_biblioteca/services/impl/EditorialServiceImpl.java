@@ -1,14 +1,25 @@
 package mini_biblioteca.services.impl;
 
 
+import mini_biblioteca.catalogo.FiltrosExistencia;
 import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
 import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.repositories.LibroRepository;
 import mini_biblioteca.services.EditorialService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class EditorialServiceImpl implements EditorialService {
@@ -16,9 +27,21 @@ public class EditorialServiceImpl implements EditorialService {
     @Autowired
     EditorialRepository editorialRepository;
 
+    @Autowired
+    private LibroRepository libroRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FiltrosExistencia filtrosExistencia;
+
+    @Transactional
     @Override
     public Editorial guardarEditorial(Editorial editorial) {
-        return editorialRepository.save(editorial);
+        Editorial editorialGuardada = editorialRepository.save(editorial);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.EDITORIAL, editorialGuardada.getId(), editorialGuardada));
+        return editorialGuardada;
     }
 
     @Override
@@ -28,21 +51,55 @@ public class EditorialServiceImpl implements EditorialService {
 
     @Override
     public Optional<Editorial> buscarPorId(String nombre) {
-        return editorialRepository.findByNombre(nombre);
+        return filtrosExistencia.buscar(TipoEntidad.EDITORIAL, nombre, () -> editorialRepository.findByNombre(nombre));
     }
 
+    //Cache local; se invalida en este nodo al escribir y en los demas nodos via InvalidacionDistribuida
+    @Cacheable("editoriales")
     @Override
     public List<Editorial> listarTodasLasEditoriales() {
         return editorialRepository.findAll();
     }
 
+    @Transactional
     @Override
     public Editorial actualizarEditorial(Editorial editorial) {
-        return editorialRepository.save(editorial);
+        Editorial editorialGuardada = editorialRepository.save(editorial);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.EDITORIAL, editorialGuardada.getId(), editorialGuardada));
+        return editorialGuardada;
     }
 
+    @Transactional
     @Override
     public void eliminarEditorial(Long id) {
+        //Antes del borrado: el outbox registra los libros que se borran en cascada mientras todavia existen
+        eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.EDITORIAL, id));
         editorialRepository.deleteById(id);
     }
+
+    /*
+    Fusion basada en conjuntos, sin cargar los libros:
+    1. Bloquea las dos filas (un libro que se guarde apuntando a alguna espera al commit).
+    2. Publica FusionCatalogo: el outbox registra un evento por libro del origen con un INSERT ... SELECT.
+    3. Un UPDATE mueve los libros y un DELETE borra el origen; se publica su CambioCatalogo.eliminado.
+    * */
+    @Transactional
+    @Override
+    public int fusionarEditoriales(Long origenId, Long destinoId) {
+        if (origenId.equals(destinoId)) {
+            throw new IllegalArgumentException("El origen y el destino de la fusion son la misma editorial");
+        }
+        Map<Long, Editorial> bloqueadas = editorialRepository.bloquear(List.of(origenId, destinoId)).stream()
+                .collect(Collectors.toMap(Editorial::getId, Function.identity()));
+        Editorial origen = bloqueadas.get(origenId);
+        Editorial destino = bloqueadas.get(destinoId);
+        if (origen == null || destino == null) {
+            throw new IllegalArgumentException("No existe la editorial " + (origen == null ? origenId : destinoId));
+        }
+        eventPublisher.publishEvent(new FusionCatalogo(TipoEntidad.EDITORIAL, origenId, destinoId));
+        int movidos = libroRepository.moverEditorial(origen, destino);
+        editorialRepository.eliminarFila(origenId);
+        eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.EDITORIAL, origenId));
+        return movidos;
+    }
 }
@@ -1,14 +1,39 @@
 package mini_biblioteca.services.impl;
 
+import mini_biblioteca.catalogo.FiltrosExistencia;
+import mini_biblioteca.repositories.LibroEspecificaciones;
+import mini_biblioteca.services.FiltroLibros;
+import mini_biblioteca.entities.Autor;
 import mini_biblioteca.entities.Categoria;
 import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.config.LecturaCoalescida;
 import mini_biblioteca.repositories.LibroRepository;
+import mini_biblioteca.repositories.LibroResumen;
 import mini_biblioteca.services.LibroService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class LibroServiceImpl implements LibroService {
@@ -16,9 +41,76 @@ public class LibroServiceImpl implements LibroService {
     @Autowired
     private LibroRepository libroRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FiltrosExistencia filtrosExistencia;
+
+    @Transactional
     @Override
     public Libro saveLibro(Libro libro) {
-        return libroRepository.save(libro);
+        Libro libroGuardado = libroRepository.save(libro);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.LIBRO, libroGuardado.getId(), libroGuardado));
+        return libroGuardado;
+    }
+
+    /*
+    Mismo efecto que saveLibro por cada libro (filas y CambioCatalogo) con dos INSERT por lotes y un solo commit.
+    Lo que se agregue a saveLibro para las altas tiene que agregarse aca tambien.
+    * */
+    @Transactional
+    @Override
+    public List<Libro> guardarNuevos(List<Libro> libros) {
+        insertarLibros(libros);
+        insertarAutores(libros);
+        for (Libro libro : libros) {
+            eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.LIBRO, libro.getId(), libro));
+        }
+        return libros;
+    }
+
+    private void insertarLibros(List<Libro> libros) {
+        GeneratedKeyHolder ids = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(conexion -> conexion.prepareStatement(
+                        "insert into libro (titulo, categoria_id, editorial_id) values (?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement sentencia, int i) throws SQLException {
+                        Libro libro = libros.get(i);
+                        sentencia.setString(1, libro.getTitulo());
+                        sentencia.setObject(2, libro.getCategoria() == null ? null : libro.getCategoria().getId(), Types.BIGINT);
+                        sentencia.setObject(3, libro.getEditorial() == null ? null : libro.getEditorial().getId(), Types.BIGINT);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return libros.size();
+                    }
+                }, ids);
+        List<Map<String, Object>> claves = ids.getKeyList();
+        if (claves.size() != libros.size()) {
+            throw new IllegalStateException("Se esperaban " + libros.size() + " ids generados y llegaron " + claves.size());
+        }
+        for (int i = 0; i < libros.size(); i++) {
+            libros.get(i).setId(((Number) claves.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    private void insertarAutores(List<Libro> libros) {
+        List<Object[]> filas = new ArrayList<>();
+        for (Libro libro : libros) {
+            for (Autor autor : libro.getAutores()) {
+                filas.add(new Object[]{libro.getId(), autor.getId()});
+            }
+        }
+        if (!filas.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into libro_autor (libro_id, autor_id) values (?, ?)", filas);
+        }
     }
 
     @Override
@@ -32,20 +124,25 @@ public class LibroServiceImpl implements LibroService {
         return libroRepository.findAll();
     }
 
+    @Transactional
     @Override
     public Libro actualizarLibro(Libro libro) {
-        return libroRepository.save(libro);
+        Libro libroGuardado = libroRepository.save(libro);
+        eventPublisher.publishEvent(CambioCatalogo.guardado(TipoEntidad.LIBRO, libroGuardado.getId(), libroGuardado));
+        return libroGuardado;
     }
 
+    @Transactional
     @Override
     public void eliminarLibro(Long id) {
         libroRepository.deleteById(id);
+        eventPublisher.publishEvent(CambioCatalogo.eliminado(TipoEntidad.LIBRO, id));
     }
 
     //Este metodo que se retorna esta declarado en la  interface LibroRepository
     @Override
     public Optional<Libro> buscarPorTitulo(String titulo) {
-        return libroRepository.findByTitulo(titulo);
+        return filtrosExistencia.buscar(TipoEntidad.LIBRO, titulo, () -> libroRepository.findFirstByTituloOrderByIdAsc(titulo));
     }
 
     //Este metodo que se retorna esta declarado en la  interface LibroRepository
@@ -53,6 +150,67 @@ public class LibroServiceImpl implements LibroService {
     public List<Libro> buscarPorCategoria(Categoria categoria) {
         return libroRepository.findByCategoria(categoria);
     }
+
+    //Las peticiones simultaneas a la misma pagina comparten una sola consulta
+    @LecturaCoalescida
+    @Override
+    public List<LibroResumen> buscarResumenPorEditorial(Long editorialId, Pageable pageable) {
+        return libroRepository.buscarResumenPorEditorial(editorialId, pageable);
+    }
+
+    //El conteo se guarda en cache; se invalida cuando cambia cualquier libro (ver InvalidacionDistribuida)
+    @Cacheable("conteoLibrosEditorial")
+    @Override
+    public long contarPorEditorial(Long editorialId) {
+        return libroRepository.contarPorEditorial(editorialId);
+    }
+
+    @LecturaCoalescida
+    @Override
+    public List<LibroResumen> buscarResumenPorCategoria(Long categoriaId, Pageable pageable) {
+        return libroRepository.buscarResumenPorCategoria(categoriaId, pageable);
+    }
+
+    @Cacheable("conteoLibrosCategoria")
+    @Override
+    public long contarPorCategoria(Long categoriaId) {
+        return libroRepository.contarPorCategoria(categoriaId);
+    }
+
+    //Arma una sola consulta con los criterios que vienen llenos y trae a lo mas "limite" libros desde la posicion dada
+    @Override
+    public List<Libro> filtrar(FiltroLibros filtro, int limite) {
+        Specification<Libro> especificacion = Specification.unrestricted();
+        if (filtro.getCategoriaId() != null) {
+            especificacion = especificacion.and(LibroEspecificaciones.deCategoria(filtro.getCategoriaId()));
+        }
+        if (filtro.getEditorialId() != null) {
+            especificacion = especificacion.and(LibroEspecificaciones.deEditorial(filtro.getEditorialId()));
+        }
+        if (filtro.getAutorId() != null) {
+            especificacion = especificacion.and(LibroEspecificaciones.deAutor(filtro.getAutorId()));
+        }
+        if (filtro.getTitulo() != null && !filtro.getTitulo().isBlank()) {
+            especificacion = especificacion.and(LibroEspecificaciones.tituloEmpiezaCon(filtro.getTitulo().trim()));
+        }
+        if (filtro.getDespuesDeTitulo() != null && filtro.getDespuesDeId() != null) {
+            especificacion = especificacion.and(
+                    LibroEspecificaciones.despuesDe(filtro.getDespuesDeTitulo(), filtro.getDespuesDeId()));
+        }
+        return libroRepository.findBy(especificacion,
+                consulta -> consulta.sortBy(LibroEspecificaciones.ORDEN).limit(limite).all());
+    }
+
+    //Id y titulo de los libros pedidos, en el mismo orden que la lista de ids
+    @Override
+    public List<LibroResumen> buscarResumenes(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, LibroResumen> porId = libroRepository.buscarResumenes(ids).stream()
+                .collect(Collectors.toMap(LibroResumen::getId, Function.identity()));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
 }
 
-// interface LibroRepository findByCategoria(), findByTitulo
\ No newline at end of file
+// interface LibroRepository findByCategoria(), findFirstByTituloOrderByIdAsc
\ No newline at end of file
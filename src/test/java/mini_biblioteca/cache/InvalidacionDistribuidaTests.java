@@ -0,0 +1,109 @@
+package mini_biblioteca.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.MiniBibliotecaSpringbootApplication;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.services.AutorService;
+import mini_biblioteca.services.EditorialService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Dos contextos de la aplicacion (dos "nodos") contra la misma base de datos embebida
+class InvalidacionDistribuidaTests {
+
+	private static final String[] PROPIEDADES = {
+			"--spring.datasource.url=jdbc:h2:mem:dos_nodos;MODE=MySQL;DB_CLOSE_DELAY=-1",
+			"--spring.jpa.hibernate.ddl-auto=update",
+			"--biblioteca.invalidacion.intervalo-ms=100"
+	};
+
+	private ConfigurableApplicationContext nodoA;
+
+	private ConfigurableApplicationContext nodoB;
+
+	@BeforeEach
+	void iniciarNodos() {
+		nodoA = iniciarNodo();
+		nodoB = iniciarNodo();
+	}
+
+	@AfterEach
+	void detenerNodos() {
+		nodoA.close();
+		nodoB.close();
+	}
+
+	@Test
+	void laEscrituraEnUnNodoInvalidaLaCacheDelOtro() throws InterruptedException {
+		EditorialService servicioA = nodoA.getBean(EditorialService.class);
+		EditorialService servicioB = nodoB.getBean(EditorialService.class);
+		int antes = servicioA.listarTodasLasEditoriales().size();
+
+		Editorial editorial = new Editorial();
+		editorial.setNombre("Planeta");
+		servicioB.guardarEditorial(editorial);
+
+		//El nodo que escribe ve el cambio de inmediato
+		assertEquals(antes + 1, servicioB.listarTodasLasEditoriales().size());
+
+		//El otro nodo lo ve despues de, como maximo, un par de intervalos de revision
+		long limite = System.currentTimeMillis() + 2000;
+		while (servicioA.listarTodasLasEditoriales().size() == antes && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals(antes + 1, servicioA.listarTodasLasEditoriales().size());
+	}
+
+	@Test
+	void unCambioDeAutorSoloReconstruyeLoQueDependeDeAutores() throws InterruptedException {
+		Autor autor = new Autor();
+		autor.setNombre("Ursula K. Le Guin");
+		nodoB.getBean(AutorService.class).guardarAutor(autor);
+
+		MeterRegistry metricasA = nodoA.getBean(MeterRegistry.class);
+		long limite = System.currentTimeMillis() + 2000;
+		while (reconstrucciones(metricasA, "bloom-AUTOR") == 0 && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals(1.0, reconstrucciones(metricasA, "bloom-AUTOR"));
+		//Los indices de libros no dependen del nombre de un autor
+		for (String estructura : List.of("facetas", "coautores", "duplicados", "bloom-LIBRO")) {
+			assertEquals(0.0, reconstrucciones(metricasA, estructura), estructura);
+		}
+	}
+
+	@Test
+	void elIndiceDeNombresAplicaLosAutoresDeOtroNodoSinReconstruir() throws InterruptedException {
+		AutorService servicioA = nodoA.getBean(AutorService.class);
+		Autor autor = new Autor();
+		autor.setNombre("Ursula K. Le Guin");
+		Long id = nodoB.getBean(AutorService.class).guardarAutor(autor).getId();
+
+		long limite = System.currentTimeMillis() + 2000;
+		while (servicioA.buscarParecidos("Le Guin, Ursula K.").isEmpty() && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals(List.of(id), servicioA.buscarParecidos("Le Guin, Ursula K.").stream().map(Autor::getId).toList());
+		//Entro como cambio al delta: una reconstruccion lo habria dejado en la base con el delta vacio
+		assertEquals(1.0, nodoA.getBean(MeterRegistry.class).get("biblioteca.autores.nombres.delta").gauge().value());
+	}
+
+	private static double reconstrucciones(MeterRegistry metricas, String estructura) {
+		return metricas.counter("biblioteca.invalidacion.reconstrucciones", "estructura", estructura).count();
+	}
+
+	private ConfigurableApplicationContext iniciarNodo() {
+		return new SpringApplicationBuilder(MiniBibliotecaSpringbootApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(PROPIEDADES);
+	}
+}
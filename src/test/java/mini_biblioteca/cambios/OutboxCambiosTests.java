@@ -0,0 +1,109 @@
+package mini_biblioteca.cambios;
+
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.services.CategoriaService;
+import mini_biblioteca.services.EditorialService;
+import mini_biblioteca.services.LibroService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class OutboxCambiosTests {
+
+	@Autowired
+	private OutboxCambios outboxCambios;
+
+	@Autowired
+	private EditorialService editorialService;
+
+	@Autowired
+	private CategoriaService categoriaService;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void unaTransaccionQueConfirmaTardeNoQuedaDetrasDelCursor() throws Exception {
+		long cursor = ultimoOffset();
+		CountDownLatch escrito = new CountDownLatch(1);
+		CountDownLatch confirmar = new CountDownLatch(1);
+		//La transaccion lenta inserta su evento primero (id menor) y confirma despues que la rapida
+		CompletableFuture<Void> lenta = CompletableFuture.runAsync(() ->
+				new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+					Categoria categoria = new Categoria();
+					categoria.setNombre("Ensayo");
+					categoriaService.guardarCategoria(categoria);
+					escrito.countDown();
+					try {
+						confirmar.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}));
+		assertTrue(escrito.await(5, TimeUnit.SECONDS));
+		Editorial editorial = new Editorial();
+		editorial.setNombre("Siruela");
+		editorialService.guardarEditorial(editorial);
+
+		List<EventoCatalogo> primeros = outboxCambios.leerDesde(cursor, 100);
+		assertEquals(List.of(TipoEntidad.EDITORIAL), primeros.stream().map(EventoCatalogo::getTipo).toList());
+		cursor = primeros.get(0).getSecuencia();
+		long idRapida = primeros.get(0).getId();
+
+		confirmar.countDown();
+		lenta.get(5, TimeUnit.SECONDS);
+		List<EventoCatalogo> siguientes = outboxCambios.leerDesde(cursor, 100);
+		assertEquals(List.of(TipoEntidad.CATEGORIA), siguientes.stream().map(EventoCatalogo::getTipo).toList());
+		//Con el id como cursor este evento se habria perdido
+		assertTrue(siguientes.get(0).getId() < idRapida);
+	}
+
+	@Test
+	void borrarUnaCategoriaRegistraLosLibrosBorradosEnCascada() {
+		Categoria categoria = new Categoria();
+		categoria.setNombre("Poesia");
+		Categoria poesia = categoriaService.guardarCategoria(categoria);
+		Set<Long> libros = new HashSet<>();
+		for (String titulo : List.of("Veinte poemas de amor", "Residencia en la tierra")) {
+			Libro libro = new Libro();
+			libro.setTitulo(titulo);
+			libro.setCategoria(poesia);
+			libros.add(libroService.saveLibro(libro).getId());
+		}
+		long cursor = ultimoOffset();
+
+		categoriaService.eliminarCategoria(poesia.getId());
+
+		List<EventoCatalogo> eventos = outboxCambios.leerDesde(cursor, 100);
+		assertEquals(libros, eventos.stream().filter(e -> e.getTipo() == TipoEntidad.LIBRO && e.isEliminado())
+				.map(EventoCatalogo::getEntidadId).collect(Collectors.toSet()));
+		assertTrue(eventos.stream().anyMatch(e -> e.getTipo() == TipoEntidad.CATEGORIA
+				&& e.getEntidadId().equals(poesia.getId()) && e.isEliminado()));
+	}
+
+	private long ultimoOffset() {
+		List<EventoCatalogo> eventos = outboxCambios.leerDesde(0, 5000);
+		return eventos.isEmpty() ? 0 : eventos.get(eventos.size() - 1).getSecuencia();
+	}
+}
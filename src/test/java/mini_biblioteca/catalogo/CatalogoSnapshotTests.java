@@ -0,0 +1,53 @@
+package mini_biblioteca.catalogo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogoSnapshotTests {
+
+	private CatalogoSnapshot catalogoDePrueba() {
+		return CatalogoSnapshot.construir(
+				List.<Object[]>of(new Object[]{2L, "Rayuela", 1L, 10L}, new Object[]{1L, "Cien años de soledad", 1L, 11L}),
+				List.<Object[]>of(new Object[]{1L, 100L}, new Object[]{2L, 101L}, new Object[]{2L, 100L}),
+				List.<Object[]>of(new Object[]{100L, "Gabriel García Márquez"}, new Object[]{101L, "Julio Cortázar"}),
+				List.<Object[]>of(new Object[]{10L, "Alfaguara"}, new Object[]{11L, "Sudamericana"}),
+				List.<Object[]>of(new Object[]{1L, "Novela"}));
+	}
+
+	@Test
+	void construyeLibrosOrdenadosConSusRelaciones() {
+		CatalogoSnapshot catalogo = catalogoDePrueba();
+
+		List<LibroVista> libros = catalogo.listarLibros();
+		assertEquals(1L, libros.get(0).getId());
+		assertEquals("Sudamericana", libros.get(0).getEditorial().getNombre());
+		assertEquals(2, catalogo.buscarLibro(2L).get().getAutores().size());
+		assertEquals(1, catalogo.librosDeEditorial(10L, PageRequest.of(0, 50)).getTotalElements());
+	}
+
+	@Test
+	void losCambiosNoModificanElSnapshotAnterior() {
+		CatalogoSnapshot anterior = catalogoDePrueba();
+
+		CatalogoSnapshot nuevo = anterior.conLibro(3L, "Ficciones", 1L, 10L, new long[]{101L}).sinAutor(100L);
+
+		assertEquals(2, anterior.totalLibros());
+		assertEquals(3, nuevo.totalLibros());
+		assertEquals(2, anterior.buscarLibro(2L).get().getAutores().size());
+		assertEquals(1, nuevo.buscarLibro(2L).get().getAutores().size());
+		assertTrue(nuevo.buscarLibro(1L).get().getAutores().isEmpty());
+	}
+
+	@Test
+	void eliminarEditorialQuitaSusLibros() {
+		CatalogoSnapshot catalogo = catalogoDePrueba().sinEditorial(10L);
+
+		assertEquals(1, catalogo.totalLibros());
+		assertTrue(catalogo.buscarEditorial(10L).isEmpty());
+	}
+}
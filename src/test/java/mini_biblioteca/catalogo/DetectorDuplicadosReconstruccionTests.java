@@ -0,0 +1,58 @@
+package mini_biblioteca.catalogo;
+
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.services.LibroService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Un alta que se confirma mientras la reconstruccion lee la BD no se pierde al instalar lo leido
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:duplicados_reconstruccion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=mini_biblioteca.catalogo.DetectorDuplicadosReconstruccionTests$ProyeccionAutores"})
+class DetectorDuplicadosReconstruccionTests {
+
+	//Corre el gancho justo antes de leer libro_autor, cuando los libros ya se leyeron
+	public static class ProyeccionAutores implements StatementInspector {
+
+		static volatile Runnable alProyectar = () -> {
+		};
+
+		@Override
+		public String inspect(String sql) {
+			if (sql.contains("join libro_autor") && !sql.contains("where")) {
+				Runnable gancho = alProyectar;
+				alProyectar = () -> {
+				};
+				gancho.run();
+			}
+			return sql;
+		}
+	}
+
+	@Autowired
+	private DetectorDuplicados detectorDuplicados;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Test
+	void unAltaDuranteLaLecturaSeAplicaSobreLoConstruido() {
+		Libro libro = new Libro();
+		libro.setTitulo("Cien anios de soledad");
+		//Otro hilo guarda el libro y confirma despues de que la reconstruccion leyo la tabla libro
+		ProyeccionAutores.alProyectar = () -> CompletableFuture.runAsync(() -> libroService.saveLibro(libro))
+				.orTimeout(5, TimeUnit.SECONDS).join();
+		detectorDuplicados.reconstruir();
+
+		assertEquals(List.of(libro.getId()), detectorDuplicados.candidatos("Cien anios de soledad", List.of(), null)
+				.stream().map(ParDuplicado::getDuplicadoId).toList());
+	}
+}
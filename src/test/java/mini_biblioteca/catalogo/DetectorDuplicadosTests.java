@@ -0,0 +1,34 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DetectorDuplicadosTests {
+
+	@Test
+	void encuentraTitulosCasiIgualesConLosMismosAutores() {
+		DetectorDuplicados detector = new DetectorDuplicados(new SimpleMeterRegistry(), true, 0.7);
+		//[libroId, titulo, categoriaId, editorialId] y [libroId, autorId]
+		detector.cargar(List.of(
+						new Object[]{1L, "Cien años de soledad", 1L, 1L},
+						new Object[]{2L, "Cien Años De Soledad (ed. 2)", 1L, 1L},
+						new Object[]{3L, "El amor en los tiempos del cólera", 1L, 1L},
+						new Object[]{4L, "Cien años de soledad", 1L, 1L}),
+				List.of(new Object[]{1L, 10L}, new Object[]{2L, 10L}, new Object[]{3L, 10L}, new Object[]{4L, 99L}));
+
+		assertEquals("cien anos de soledad", FirmaMinHash.normalizar("Cien Años De Soledad (ed. 2)"));
+
+		List<ParDuplicado> candidatos = detector.candidatos("CIEN AÑOS DE SOLEDAD", List.of(10L), null);
+		assertEquals(List.of(1L, 2L), candidatos.stream().map(ParDuplicado::getDuplicadoId).sorted().toList());
+
+		List<ParDuplicado> pares = detector.escanear();
+		assertEquals(1, pares.size());
+		assertEquals(1L, pares.get(0).getLibroId());
+		assertEquals(2L, pares.get(0).getDuplicadoId());
+	}
+
+}
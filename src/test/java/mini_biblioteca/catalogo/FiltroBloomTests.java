@@ -0,0 +1,39 @@
+package mini_biblioteca.catalogo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FiltroBloomTests {
+
+	@Test
+	void sinFalsosNegativosYConLaTasaEsperada() {
+		FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filtro.agregar("autor " + i);
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filtro.puedeContener("autor " + i));
+		}
+		int falsosPositivos = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filtro.puedeContener("otro " + i)) {
+				falsosPositivos++;
+			}
+		}
+		//1% esperado, con margen
+		assertTrue(falsosPositivos < 2_000, "falsos positivos: " + falsosPositivos);
+		assertTrue(filtro.tasaFalsosPositivos() > 0.005 && filtro.tasaFalsosPositivos() < 0.02);
+		assertFalse(filtro.saturado());
+
+		filtro.agregar("uno mas");
+		assertTrue(filtro.saturado());
+	}
+
+	@Test
+	void normalizaComoLaCollationDeMySql() {
+		assertTrue(FiltrosExistencia.normalizar(" García Márquez ").equals(FiltrosExistencia.normalizar("garcia marquez")));
+	}
+
+}
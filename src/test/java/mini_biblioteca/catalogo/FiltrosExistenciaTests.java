@@ -0,0 +1,63 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.EventoCatalogoRepository;
+import mini_biblioteca.services.CategoriaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Una categoria creada "en otro nodo": la fila y su evento del outbox se escriben sin pasar por los servicios
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filtros_existencia;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class FiltrosExistenciaTests {
+
+	@Autowired
+	private FiltrosExistencia filtrosExistencia;
+
+	@Autowired
+	private CategoriaService categoriaService;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Autowired
+	private EventoCatalogoRepository eventoCatalogoRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void usaLaBdMientrasEstaAtrasadoYLuegoAgregaSoloLoQueCambio() {
+		Categoria categoria = new Categoria();
+		categoria.setNombre("Sin categoria");
+		Long id = categoriaRepository.save(categoria).getId();
+		EventoCatalogo evento = new EventoCatalogo(TipoEntidad.CATEGORIA, id, false, Instant.now(), "otro-nodo");
+		evento.setSecuencia(eventoCatalogoRepository.ultimaSecuencia() + 1);
+		eventoCatalogoRepository.save(evento);
+
+		//Antes de que la revision vea la version remota el filtro todavia no la tiene
+		assertEquals(Optional.empty(), categoriaService.buscarPorNombre("Sin categoria"));
+
+		filtrosExistencia.marcarAtrasado(TipoEntidad.CATEGORIA);
+		assertEquals(Optional.of(id), categoriaService.buscarPorNombre("Sin categoria").map(Categoria::getId));
+
+		filtrosExistencia.ponerseAlDia(TipoEntidad.CATEGORIA);
+		double posibles = posibles();
+		assertEquals(Optional.of(id), categoriaService.buscarPorNombre("Sin categoria").map(Categoria::getId));
+		//Paso por el filtro (no fue directo a la BD)
+		assertEquals(posibles + 1, posibles());
+	}
+
+	private double posibles() {
+		return meterRegistry.counter("biblioteca.bloom.consultas", "tipo", "categoria", "resultado", "posible").count();
+	}
+}
@@ -0,0 +1,54 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndiceCoautoresTests {
+
+	@Test
+	void ordenaPorLibrosEnComunYAplicaCambios() {
+		IndiceCoautores indice = new IndiceCoautores(new SimpleMeterRegistry(), true, 100);
+		//[libroId, autorId]: 1 y 2 tienen dos libros juntos, 1 y 3 uno
+		indice.cargar(GrafoCoautores.construir(List.of(
+				new Object[]{100L, 1L}, new Object[]{100L, 2L},
+				new Object[]{101L, 1L}, new Object[]{101L, 2L}, new Object[]{101L, 3L},
+				new Object[]{102L, 4L})));
+
+		List<Colaborador> relacionados = indice.relacionados(1L, 10);
+		assertEquals(2, relacionados.size());
+		assertEquals(2L, relacionados.get(0).getAutorId());
+		assertEquals(2, relacionados.get(0).getLibrosEnComun());
+		assertEquals(3L, relacionados.get(1).getAutorId());
+		assertEquals(1, indice.relacionados(1L, 1).size());
+		assertEquals(0, indice.relacionados(4L, 10).size());
+
+		//El libro 102 ahora lo escriben 4, 3 y 1; el libro 100 se elimina
+		Libro libro = new Libro();
+		libro.setId(102L);
+		libro.setAutores(new ArrayList<>(List.of(autor(4L), autor(3L), autor(1L))));
+		indice.aplicar(CambioCatalogo.guardado(TipoEntidad.LIBRO, 102L, libro));
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.LIBRO, 100L));
+
+		relacionados = indice.relacionados(1L, 10);
+		assertEquals(3L, relacionados.get(0).getAutorId());
+		assertEquals(2, relacionados.get(0).getLibrosEnComun());
+		assertEquals(1, relacionados.stream().filter(c -> c.getAutorId() == 2L).findFirst().orElseThrow().getLibrosEnComun());
+		assertEquals(2, indice.relacionados(4L, 10).size());
+	}
+
+	private static Autor autor(long id) {
+		Autor autor = new Autor();
+		autor.setId(id);
+		return autor;
+	}
+
+}
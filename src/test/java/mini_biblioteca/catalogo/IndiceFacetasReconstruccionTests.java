@@ -0,0 +1,73 @@
+package mini_biblioteca.catalogo;
+
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.services.CategoriaService;
+import mini_biblioteca.services.LibroService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Un cambio que se confirma mientras la reconstruccion lee la BD no se pierde al instalar lo leido
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:facetas_reconstruccion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=mini_biblioteca.catalogo.IndiceFacetasReconstruccionTests$ProyeccionAutores"})
+class IndiceFacetasReconstruccionTests {
+
+	//Corre el gancho justo antes de leer libro_autor, cuando los libros ya se leyeron
+	public static class ProyeccionAutores implements StatementInspector {
+
+		static volatile Runnable alProyectar = () -> {
+		};
+
+		@Override
+		public String inspect(String sql) {
+			if (sql.contains("join libro_autor") && !sql.contains("where")) {
+				Runnable gancho = alProyectar;
+				alProyectar = () -> {
+				};
+				gancho.run();
+			}
+			return sql;
+		}
+	}
+
+	@Autowired
+	private IndiceFacetas indiceFacetas;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private CategoriaService categoriaService;
+
+	@Test
+	void unBorradoDuranteLaLecturaSeAplicaSobreLoConstruido() {
+		Categoria categoria = new Categoria();
+		categoria.setNombre("Teatro");
+		Categoria teatro = categoriaService.guardarCategoria(categoria);
+		Libro libro = new Libro();
+		libro.setTitulo("Bodas de sangre");
+		libro.setCategoria(teatro);
+		Long id = libroService.saveLibro(libro).getId();
+		assertEquals(1, total(teatro.getId()));
+
+		//Otro hilo borra el libro y confirma despues de que la reconstruccion leyo la tabla libro
+		ProyeccionAutores.alProyectar = () -> CompletableFuture.runAsync(() -> libroService.eliminarLibro(id))
+				.orTimeout(5, TimeUnit.SECONDS).join();
+		indiceFacetas.reconstruir();
+
+		assertEquals(0, total(teatro.getId()));
+	}
+
+	private int total(Long categoriaId) {
+		return indiceFacetas.contar(categoriaId, null, null, List.of()).orElseThrow().getTotal();
+	}
+}
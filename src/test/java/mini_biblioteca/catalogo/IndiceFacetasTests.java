@@ -0,0 +1,139 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.FusionCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndiceFacetasTests {
+
+	//Opciones del combo de autores
+	private static final List<Long> AUTORES = List.of(30L, 31L);
+
+	@Test
+	void cuentaCadaFacetaConLosDemasCriterios() {
+		IndiceFacetas indice = new IndiceFacetas(new SimpleMeterRegistry(), true);
+		//[libroId, titulo, categoriaId, editorialId]
+		indice.construir(List.of(
+				new Object[]{1L, "A", 10L, 20L},
+				new Object[]{2L, "B", 10L, 21L},
+				new Object[]{3L, "C", 11L, 20L},
+				new Object[]{4L, "D", 11L, null}),
+				List.of(new Object[]{1L, 30L}, new Object[]{2L, 30L}, new Object[]{3L, 31L}));
+
+		Facetas sinFiltro = indice.contar(null, null, null, AUTORES).orElseThrow();
+		assertEquals(4, sinFiltro.getTotal());
+		assertEquals(2, sinFiltro.categoria(10L));
+		assertEquals(2, sinFiltro.autor(30L));
+
+		Facetas categoria10 = indice.contar(10L, null, null, AUTORES).orElseThrow();
+		assertEquals(2, categoria10.getTotal());
+		//El conteo de categorias ignora el propio filtro de categoria
+		assertEquals(2, categoria10.categoria(11L));
+		assertEquals(1, categoria10.editorial(20L));
+		assertEquals(0, categoria10.autor(31L));
+
+		assertEquals(1, indice.contar(10L, 20L, 30L, AUTORES).orElseThrow().getTotal());
+	}
+
+	@Test
+	void aplicaLosCambiosDeLibros() {
+		IndiceFacetas indice = new IndiceFacetas(new SimpleMeterRegistry(), true);
+		indice.construir(List.of(new Object[]{1L, "A", 10L, null}, new Object[]{2L, "B", 10L, null}), List.of());
+
+		Categoria categoria = new Categoria();
+		categoria.setId(11L);
+		Autor autor = new Autor();
+		autor.setId(30L);
+		Libro libro = new Libro();
+		libro.setId(1L);
+		libro.setCategoria(categoria);
+		libro.setAutores(new ArrayList<>(List.of(autor)));
+		indice.aplicar(CambioCatalogo.guardado(TipoEntidad.LIBRO, 1L, libro));
+
+		Facetas facetas = indice.contar(null, null, null, AUTORES).orElseThrow();
+		assertEquals(1, facetas.categoria(10L));
+		assertEquals(1, facetas.categoria(11L));
+		assertEquals(1, facetas.autor(30L));
+
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.LIBRO, 2L));
+		assertEquals(1, indice.contar(null, null, null, AUTORES).orElseThrow().getTotal());
+		assertEquals(0, indice.contar(10L, null, null, AUTORES).orElseThrow().getTotal());
+	}
+
+	@Test
+	void soloCuentaLosAutoresDelCombo() {
+		IndiceFacetas indice = new IndiceFacetas(new SimpleMeterRegistry(), true);
+		indice.construir(List.<Object[]>of(new Object[]{1L, "A", null, null}),
+				List.of(new Object[]{1L, 30L}, new Object[]{1L, 31L}));
+
+		Facetas facetas = indice.contar(null, null, null, List.of(31L)).orElseThrow();
+		assertEquals(0, facetas.autor(30L));
+		assertEquals(1, facetas.autor(31L));
+	}
+
+	@Test
+	void borrarUnaCategoriaQuitaSusLibrosYBorrarUnAutorNo() {
+		IndiceFacetas indice = new IndiceFacetas(new SimpleMeterRegistry(), true);
+		indice.construir(List.of(
+				new Object[]{1L, "A", 10L, 20L},
+				new Object[]{2L, "B", 10L, 21L},
+				new Object[]{3L, "C", 11L, 20L}),
+				List.of(new Object[]{1L, 30L}, new Object[]{3L, 30L}, new Object[]{3L, 31L}));
+
+		//Los libros de la categoria se borran en cascada
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.CATEGORIA, 10L));
+		Facetas facetas = indice.contar(null, null, null, AUTORES).orElseThrow();
+		assertEquals(1, facetas.getTotal());
+		assertEquals(1, facetas.editorial(20L));
+		assertEquals(0, facetas.editorial(21L));
+		assertEquals(1, facetas.autor(30L));
+
+		//El libro del autor borrado sigue existiendo
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.AUTOR, 30L));
+		facetas = indice.contar(null, null, null, AUTORES).orElseThrow();
+		assertEquals(1, facetas.getTotal());
+		assertEquals(0, facetas.autor(30L));
+		assertEquals(1, facetas.autor(31L));
+
+		//Y al borrarlo ya no aparece en el autor que le queda
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.LIBRO, 3L));
+		assertEquals(0, indice.contar(null, null, null, AUTORES).orElseThrow().autor(31L));
+	}
+
+	@Test
+	void aplicaLasFusiones() {
+		IndiceFacetas indice = new IndiceFacetas(new SimpleMeterRegistry(), true);
+		indice.construir(List.of(
+				new Object[]{1L, "A", 10L, 20L},
+				new Object[]{2L, "B", 11L, 21L}),
+				List.of(new Object[]{1L, 30L}, new Object[]{1L, 31L}, new Object[]{2L, 30L}));
+
+		//Se publican en este orden: la fusion y despues el borrado del origen, que ya no tiene libros
+		indice.aplicar(new FusionCatalogo(TipoEntidad.EDITORIAL, 21L, 20L));
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.EDITORIAL, 21L));
+		indice.aplicar(new FusionCatalogo(TipoEntidad.AUTOR, 30L, 31L));
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.AUTOR, 30L));
+
+		Facetas facetas = indice.contar(null, null, null, AUTORES).orElseThrow();
+		assertEquals(2, facetas.getTotal());
+		assertEquals(2, facetas.editorial(20L));
+		assertEquals(2, facetas.autor(31L));
+
+		//El libro 1 ya tenia al autor destino: quitarlo lo deja sin libros de ese autor una sola vez
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.LIBRO, 1L));
+		facetas = indice.contar(null, null, null, AUTORES).orElseThrow();
+		assertEquals(1, facetas.editorial(20L));
+		assertEquals(1, facetas.autor(31L));
+	}
+
+}
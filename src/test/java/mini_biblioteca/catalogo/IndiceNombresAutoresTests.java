@@ -0,0 +1,71 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.eventos.CambioCatalogo;
+import mini_biblioteca.eventos.TipoEntidad;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceNombresAutoresTests {
+
+	@Test
+	void encuentraNombresConOtroOrdenAcentosYErroresDeTipeo() {
+		IndiceNombresAutores indice = new IndiceNombresAutores(new SimpleMeterRegistry(), null, true, 2, "", false);
+		indice.cargar(List.of(
+				new Object[]{1L, "Gabriel García Márquez"},
+				new Object[]{2L, "Mario Vargas Llosa"},
+				new Object[]{3L, "Isabel Allende"},
+				new Object[]{4L, "Eco"}));
+
+		assertEquals(List.of(1L), indice.buscar("Garcia Marquez, Gabriel", 5));
+		assertEquals(List.of(1L), indice.buscar("Gabriel Garcia Marqez", 5));
+		assertEquals(List.of(2L), indice.buscar("mario bargas llosa", 5));
+		assertEquals(List.of(4L), indice.buscar("ECO", 5));
+		assertEquals(List.of(), indice.buscar("Umberto Eco", 5));
+		assertEquals(List.of(), indice.buscar("Julio Cortázar", 5));
+
+		Autor nuevo = new Autor();
+		nuevo.setId(5L);
+		nuevo.setNombre("Isabel Allende Llona");
+		indice.aplicar(CambioCatalogo.guardado(TipoEntidad.AUTOR, 5L, nuevo));
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.AUTOR, 3L));
+		assertEquals(List.of(), indice.buscar("Isabel Allende", 5));
+		assertEquals(List.of(5L), indice.buscar("Isabel Allende Lona", 5));
+	}
+
+	@Test
+	void reabreElSegmentoYReproduceElLog(@TempDir Path directorio) {
+		IndiceNombresAutores indice = new IndiceNombresAutores(new SimpleMeterRegistry(), null, true, 2,
+				directorio.toString(), false);
+		indice.cargar(List.of(new Object[]{1L, "Gabriel García Márquez"}, new Object[]{2L, "Mario Vargas Llosa"}));
+		Autor nuevo = new Autor();
+		nuevo.setId(3L);
+		nuevo.setNombre("Julio Cortázar");
+		indice.aplicar(CambioCatalogo.guardado(TipoEntidad.AUTOR, 3L, nuevo));
+		indice.aplicar(CambioCatalogo.eliminado(TipoEntidad.AUTOR, 2L));
+
+		//Otro "arranque": segmento por mmap + log
+		IndiceNombresAutores reabierto = new IndiceNombresAutores(new SimpleMeterRegistry(), null, true, 2,
+				directorio.toString(), false);
+		assertTrue(reabierto.abrirPersistido());
+		assertEquals(List.of(1L), reabierto.buscar("Garcia Marquez Gabriel", 5));
+		assertEquals(List.of(3L), reabierto.buscar("julio cortazar", 5));
+		assertEquals(List.of(), reabierto.buscar("Mario Vargas Llosa", 5));
+
+		//Despues de fusionar queda un solo segmento con todo y sin cambios pendientes
+		reabierto.fusionar();
+		IndiceNombresAutores fusionado = new IndiceNombresAutores(new SimpleMeterRegistry(), null, true, 2,
+				directorio.toString(), false);
+		assertTrue(fusionado.abrirPersistido());
+		assertEquals(List.of(3L), fusionado.buscar("Julio Cortazar", 5));
+		assertEquals(List.of(), fusionado.buscar("Mario Vargas Llosa", 5));
+	}
+
+}
@@ -0,0 +1,98 @@
+package mini_biblioteca.catalogo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class IndiceSimilaresTests {
+
+	private static final int LIBROS = 20_000;
+
+	@Test
+	void ordenaPorAutoresCategoriaYEditorial() {
+		IndiceSimilares indice = new IndiceSimilares(new SimpleMeterRegistry(), true, 3);
+		//[libroId, titulo, categoriaId, editorialId]
+		List<Object[]> libros = new ArrayList<>(List.of(
+				new Object[]{1L, "A", 10L, 20L},
+				new Object[]{2L, "B", 10L, 20L},
+				new Object[]{3L, "C", 11L, 21L},
+				new Object[]{4L, "D", 10L, 21L},
+				new Object[]{5L, "E", 12L, 22L}));
+		//[libroId, autorId]
+		List<Object[]> librosAutores = new ArrayList<>(List.of(
+				new Object[]{1L, 100L}, new Object[]{3L, 100L}, new Object[]{4L, 100L}, new Object[]{4L, 101L},
+				new Object[]{1L, 101L}));
+		indice.calcular(libros, librosAutores);
+
+		//4: dos autores + categoria = 7; 3: un autor = 3; 2: misma categoria y editorial = 2
+		assertArrayEquals(new long[]{4L, 3L, 2L}, indice.similaresDe(1L));
+		assertArrayEquals(new long[0], indice.similaresDe(5L));
+
+		//El libro 5 pasa a ser del autor 100 y misma categoria/editorial que 1; el 4 se elimina (no viene)
+		indice.actualizar(List.<Object[]>of(new Object[]{5L, "E", 10L, 20L}), List.<Object[]>of(new Object[]{5L, 100L}),
+				4L, 5L);
+
+		assertArrayEquals(new long[]{5L, 3L, 2L}, indice.similaresDe(1L));
+		assertArrayEquals(new long[]{1L, 3L, 2L}, indice.similaresDe(5L));
+		assertArrayEquals(new long[]{1L, 5L}, indice.similaresDe(2L));
+	}
+
+	//Con un autor de mas libros que el tope por autor, actualizar solo los cambiados da lo mismo que recalcular todo
+	@Test
+	void laActualizacionConAutorProlificoCoincideConElCalculoCompleto() {
+		Random random = new Random(7);
+		List<Object[]> libros = new ArrayList<>();
+		List<Object[]> librosAutores = new ArrayList<>();
+		//El autor 1 tiene unos 2000 libros; los demas, unos 10
+		for (long id = 1; id <= LIBROS; id++) {
+			libros.add(new Object[]{id, "L" + id, 1L + random.nextInt(30), 1L + random.nextInt(30)});
+			librosAutores.add(new Object[]{id, autor(random)});
+		}
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		TablaSimilares tabla = TablaSimilares.calcular(libros, librosAutores, 5, pool);
+
+		//Cambian 30 libros (autor y categoria), se eliminan 10 y se agregan 5
+		Set<Long> cambiados = new HashSet<>();
+		List<Object[]> filasCambiadas = new ArrayList<>();
+		List<Object[]> autoresCambiados = new ArrayList<>();
+		while (cambiados.size() < 40) {
+			cambiados.add(1L + random.nextInt(LIBROS));
+		}
+		for (long id = LIBROS + 1; id <= LIBROS + 5; id++) {
+			cambiados.add(id);
+		}
+		int eliminados = 0;
+		for (long id : cambiados) {
+			libros.removeIf(f -> (Long) f[0] == id);
+			librosAutores.removeIf(f -> (Long) f[0] == id);
+			if (id <= LIBROS && eliminados++ < 10) {
+				continue;
+			}
+			Object[] fila = {id, "L" + id, 1L + random.nextInt(30), 1L + random.nextInt(30)};
+			Object[] autor = {id, autor(random)};
+			libros.add(fila);
+			librosAutores.add(autor);
+			filasCambiadas.add(fila);
+			autoresCambiados.add(autor);
+		}
+
+		TablaSimilares actualizada = tabla.actualizarCon(filasCambiadas, autoresCambiados, cambiados, pool);
+		TablaSimilares completa = TablaSimilares.calcular(libros, librosAutores, 5, pool);
+		for (long id = 1; id <= LIBROS + 5; id++) {
+			assertArrayEquals(completa.similaresDe(id), actualizada.similaresDe(id), "libro " + id);
+		}
+	}
+
+	private static long autor(Random random) {
+		return random.nextInt(10) == 0 ? 1L : 2L + random.nextInt(LIBROS / 10);
+	}
+
+}
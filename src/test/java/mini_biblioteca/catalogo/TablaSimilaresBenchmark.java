@@ -0,0 +1,89 @@
+package mini_biblioteca.catalogo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/*
+Benchmark del precalculo de libros similares. No es parte de la suite (surefire solo corre *Tests):
+  mvn test -Dtest=TablaSimilaresBenchmark -Dbiblioteca.benchmark.libros=1000000
+Catalogo sintetico: 2 autores por libro entre n/5 autores (unos 10 libros cada uno; 100 autores prolificos se
+llevan el 1% de los libros, unos 200 cada uno), 50 categorias y 500 editoriales, las de id bajo con mas libros.
+Mide el calculo completo y la actualizacion de 100 libros cambiados, y comprueba que la actualizacion da las
+mismas listas que recalcular todo. Usa el pool comun: los hilos quedan en el registro.
+* */
+@EnabledIfSystemProperty(named = "biblioteca.benchmark.libros", matches = "\\d+")
+class TablaSimilaresBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(TablaSimilaresBenchmark.class);
+
+	private static final int K = 10;
+
+	private static final int CAMBIADOS = 100;
+
+	private static final int PROLIFICOS = 50;
+
+	@Test
+	void calculoCompletoEIncremental() {
+		int n = Integer.getInteger("biblioteca.benchmark.libros");
+		int autores = Math.max(n / 5, 2 * PROLIFICOS);
+		Random random = new Random(42);
+		List<Object[]> libros = new ArrayList<>(n);
+		List<Object[]> librosAutores = new ArrayList<>(2 * n);
+		for (long id = 1; id <= n; id++) {
+			libros.add(new Object[]{id, "Libro " + id, 1L + random.nextInt(50), sesgado(random, 500)});
+			librosAutores.add(new Object[]{id, autor(random, autores)});
+			librosAutores.add(new Object[]{id, autores / 2 + autor(random, autores)});
+		}
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		long inicio = System.nanoTime();
+		TablaSimilares tabla = TablaSimilares.calcular(libros, librosAutores, K, pool);
+		log.info("Calculo completo: {} libros, {} autores, {} hilos, {} ms, ~{} MB", n, autores,
+				pool.getParallelism(), (System.nanoTime() - inicio) / 1_000_000, tabla.bytesEstimados() >> 20);
+
+		//Cambian categoria y primer autor de CAMBIADOS libros al azar
+		Set<Long> cambiados = new HashSet<>();
+		while (cambiados.size() < CAMBIADOS) {
+			cambiados.add(1L + random.nextInt(n));
+		}
+		for (long id : cambiados) {
+			int i = (int) id - 1;
+			libros.set(i, new Object[]{id, "Libro " + id, 1L + random.nextInt(50), libros.get(i)[3]});
+			librosAutores.set(2 * i, new Object[]{id, autor(random, autores)});
+		}
+
+		inicio = System.nanoTime();
+		TablaSimilares actualizada = tabla.actualizar(libros, librosAutores, cambiados, pool);
+		log.info("Actualizacion de {} libros: {} ms", CAMBIADOS, (System.nanoTime() - inicio) / 1_000_000);
+
+		TablaSimilares completa = TablaSimilares.calcular(libros, librosAutores, K, pool);
+		for (long id = 1; id <= n; id++) {
+			assertArrayEquals(completa.similaresDe(id), actualizada.similaresDe(id), "libro " + id);
+		}
+	}
+
+	//1..autores/2: los primeros PROLIFICOS reciben el 1% de los libros
+	private static long autor(Random random, int autores) {
+		if (random.nextInt(100) == 0) {
+			return 1 + random.nextInt(PROLIFICOS);
+		}
+		return 1 + PROLIFICOS + random.nextInt(autores / 2 - PROLIFICOS);
+	}
+
+	//1..n con mas peso en los primeros
+	private static long sesgado(Random random, int n) {
+		double u = random.nextDouble();
+		return 1 + (long) (n * u * u * u);
+	}
+}
@@ -0,0 +1,140 @@
+package mini_biblioteca.config;
+
+import mini_biblioteca.MiniBibliotecaSpringbootApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+Benchmark de la misma rafaga con hilos de plataforma y con hilos virtuales (y el bulkhead que los acompana, ver
+BulkheadConexionesConfig). No es parte de la suite (surefire solo corre *Tests):
+  mvn test -Dtest=BulkheadBenchmark -Dbiblioteca.benchmark.libros=100000
+Por cada modo levanta la aplicacion con Tomcat en un puerto libre y una H2 propia con el mismo catalogo sintetico,
+calienta con una rafaga corta y luego lanza biblioteca.benchmark.peticiones (2000 por defecto) peticiones a la vez
+a /libros/filtrar con una categoria al azar. Registra peticiones por segundo, p50 y p99 de la latencia vista por
+el cliente y cuantas respuestas hubo de cada estado (503 = el bulkhead corto la espera).
+* */
+@EnabledIfSystemProperty(named = "biblioteca.benchmark.libros", matches = "\\d+")
+class BulkheadBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(BulkheadBenchmark.class);
+
+	private static final int CATEGORIAS = 50;
+
+	private static final int EDITORIALES = 500;
+
+	private static final int AUTORES = 2_000;
+
+	private static final int LOTE = 5_000;
+
+	@Test
+	void comparaHilosDePlataformaYVirtuales() throws Exception {
+		int libros = Integer.getInteger("biblioteca.benchmark.libros");
+		int peticiones = Integer.getInteger("biblioteca.benchmark.peticiones", 2_000);
+		for (boolean virtuales : new boolean[]{false, true}) {
+			try (ConfigurableApplicationContext contexto = iniciar(virtuales)) {
+				llenar(contexto.getBean(JdbcTemplate.class), libros);
+				int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+				rafaga(puerto, Math.max(peticiones / 10, 1));
+				Resultado resultado = rafaga(puerto, peticiones);
+				log.info("Hilos {}: {} peticiones, {} req/s, p50 {} ms, p99 {} ms, estados {}",
+						virtuales ? "virtuales" : "de plataforma", peticiones,
+						String.format("%.0f", resultado.porSegundo()), String.format("%.1f", resultado.p50()),
+						String.format("%.1f", resultado.p99()), resultado.estados());
+				assertTrue(resultado.estados().containsKey(200), "estados: " + resultado.estados());
+			}
+		}
+	}
+
+	private record Resultado(double porSegundo, double p50, double p99, Map<Integer, Integer> estados) {
+	}
+
+	private static Resultado rafaga(int puerto, int peticiones) throws Exception {
+		HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+		Random random = new Random(42);
+		List<HttpRequest> pedidos = new ArrayList<>(peticiones);
+		for (int i = 0; i < peticiones; i++) {
+			pedidos.add(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto
+					+ "/libros/filtrar?categoriaId=" + (1 + random.nextInt(CATEGORIAS)))).build());
+		}
+		double[] latencias = new double[peticiones];
+		List<Future<Integer>> respuestas = new ArrayList<>(peticiones);
+		long inicio = System.nanoTime();
+		try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < peticiones; i++) {
+				int indice = i;
+				respuestas.add(hilos.submit(() -> {
+					long desde = System.nanoTime();
+					int estado = cliente.send(pedidos.get(indice), HttpResponse.BodyHandlers.discarding()).statusCode();
+					latencias[indice] = (System.nanoTime() - desde) / 1_000_000.0;
+					return estado;
+				}));
+			}
+		}
+		double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+		Map<Integer, Integer> estados = new TreeMap<>();
+		for (Future<Integer> respuesta : respuestas) {
+			estados.merge(respuesta.get(), 1, Integer::sum);
+		}
+		Arrays.sort(latencias);
+		return new Resultado(peticiones / segundos, latencias[peticiones / 2],
+				latencias[Math.min(peticiones - 1, (int) Math.ceil(peticiones * 0.99) - 1)], estados);
+	}
+
+	private static ConfigurableApplicationContext iniciar(boolean virtuales) {
+		return new SpringApplicationBuilder(MiniBibliotecaSpringbootApplication.class).run(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:bulkhead_" + virtuales + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"--spring.jpa.hibernate.ddl-auto=update",
+				"--spring.threads.virtual.enabled=" + virtuales,
+				"--biblioteca.calentamiento.habilitado=false",
+				"--biblioteca.concurrencia.habilitado=false");
+	}
+
+	private static void llenar(JdbcTemplate jdbcTemplate, int libros) {
+		insertar(jdbcTemplate, "insert into categoria (id, nombre) values (?, ?)", CATEGORIAS,
+				i -> new Object[]{i, "Categoria " + i});
+		insertar(jdbcTemplate, "insert into editorial (id, nombre) values (?, ?)", EDITORIALES,
+				i -> new Object[]{i, "Editorial " + i});
+		insertar(jdbcTemplate, "insert into autor (id, nombre) values (?, ?)", AUTORES, i -> new Object[]{i, "Autor " + i});
+		Random random = new Random(42);
+		insertar(jdbcTemplate, "insert into libro (id, titulo, categoria_id, editorial_id) values (?, ?, ?, ?)", libros,
+				i -> new Object[]{i, "Libro " + i, 1 + random.nextInt(CATEGORIAS), 1 + random.nextInt(EDITORIALES)});
+		insertar(jdbcTemplate, "insert into libro_autor (libro_id, autor_id) values (?, ?)", libros,
+				i -> new Object[]{i, 1 + random.nextInt(AUTORES)});
+	}
+
+	private static void insertar(JdbcTemplate jdbcTemplate, String sql, int filas, IntFunction<Object[]> fila) {
+		List<Object[]> lote = new ArrayList<>(LOTE);
+		for (int i = 1; i <= filas; i++) {
+			lote.add(fila.apply(i));
+			if (lote.size() == LOTE || i == filas) {
+				jdbcTemplate.batchUpdate(sql, lote);
+				lote.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package mini_biblioteca.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+//Pool de 2 conexiones con timeout de Hikari (250 ms) menor que la espera del bulkhead: sin el bulkhead las peticiones
+//que no consiguen conexion terminarian en 500 por el timeout del pool; con el bulkhead terminan en 503
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:bulkhead;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.hikari.maximum-pool-size=2",
+		"spring.datasource.hikari.connection-timeout=250",
+		"spring.threads.virtual.enabled=true",
+		"biblioteca.bulkhead.habilitado=true",
+		"biblioteca.bulkhead.espera-maxima-ms=1000",
+		"biblioteca.concurrencia.habilitado=false"})
+@AutoConfigureMockMvc
+class BulkheadConexionesTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void conElPoolOcupadoSeResponde503YNoTimeoutDelPool() throws Exception {
+		DataSourceLimitado limitado = dataSource.unwrap(DataSourceLimitado.class);
+		List<Connection> ocupadas = new ArrayList<>();
+		try {
+			//Una transaccion (dos conexiones abiertas) ocupa los permisos del pool entero
+			ocupadas.add(dataSource.getConnection());
+			ocupadas.add(dataSource.getConnection());
+			assertEquals(0, limitado.permisosDisponibles());
+
+			Map<Integer, Long> estados = pedir(50);
+			assertEquals(Map.of(503, 50L), estados);
+		} finally {
+			for (Connection conexion : ocupadas) {
+				conexion.close();
+			}
+		}
+
+		//Carga con hilos virtuales: 200 peticiones a la vez para 2 conexiones; las que esperan demasiado reciben 503
+		Map<Integer, Long> estados = pedir(200);
+		assertNull(estados.get(500), "estados: " + estados);
+		assertTrue(estados.getOrDefault(200, 0L) > 0, "estados: " + estados);
+		assertEquals(200L, estados.values().stream().mapToLong(Long::longValue).sum());
+	}
+
+	private Map<Integer, Long> pedir(int cantidad) throws Exception {
+		List<Future<Integer>> respuestas = new ArrayList<>();
+		try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < cantidad; i++) {
+				respuestas.add(hilos.submit(() -> mockMvc.perform(get("/autores/listar")).andReturn().getResponse().getStatus()));
+			}
+		}
+		List<Integer> estados = new ArrayList<>();
+		for (Future<Integer> respuesta : respuestas) {
+			estados.add(respuesta.get());
+		}
+		return estados.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+	}
+}
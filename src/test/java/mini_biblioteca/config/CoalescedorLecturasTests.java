@@ -0,0 +1,59 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CoalescedorLecturasTests {
+
+	private static final int PETICIONES = 50;
+
+	@Test
+	void unaSolaLecturaPorRafaga() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		CoalescedorLecturas coalescedor = new CoalescedorLecturas(registry, 5000);
+		AtomicInteger consultas = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(PETICIONES);
+		List<Future<String>> resultados = new ArrayList<>();
+		for (int i = 0; i < PETICIONES; i++) {
+			resultados.add(executor.submit(() -> coalescedor.ejecutar("buscarConLibros", List.of(7L), () -> {
+				consultas.incrementAndGet();
+				//La "consulta" no termina hasta que todos los demas hilos estan esperando su resultado
+				long limite = System.currentTimeMillis() + 5000;
+				while (registry.counter("biblioteca.coalescencia.compartidas", "metodo", "buscarConLibros").count()
+						< PETICIONES - 1 && System.currentTimeMillis() < limite) {
+					Thread.onSpinWait();
+				}
+				return "editorial-7";
+			})));
+		}
+		for (Future<String> resultado : resultados) {
+			assertEquals("editorial-7", resultado.get());
+		}
+		executor.shutdown();
+
+		assertEquals(1, consultas.get());
+		assertEquals(1.0, registry.counter("biblioteca.coalescencia.ejecuciones", "metodo", "buscarConLibros").count());
+	}
+
+	@Test
+	void clavesDistintasNoSeJuntan() {
+		CoalescedorLecturas coalescedor = new CoalescedorLecturas(new SimpleMeterRegistry(), 5000);
+		AtomicInteger consultas = new AtomicInteger();
+
+		coalescedor.ejecutar("buscarConLibros", List.of(1L), consultas::incrementAndGet);
+		coalescedor.ejecutar("buscarConLibros", List.of(2L), consultas::incrementAndGet);
+		coalescedor.ejecutar("buscarConLibros", List.of(1L), consultas::incrementAndGet);
+
+		assertEquals(3, consultas.get());
+	}
+}
@@ -0,0 +1,43 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.repositories.LibroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+//El escritor junta durante 500 ms, mas de lo que la llamada acepta esperar: la llamada guarda su libro por su cuenta
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:escritura_agrupada_espera;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"biblioteca.escritura-agrupada.habilitado=true",
+		"biblioteca.escritura-agrupada.espera-ms=500",
+		"biblioteca.escritura-agrupada.espera-maxima-ms=50"})
+class EscrituraAgrupadaLibrosEsperaTests {
+
+	@Autowired
+	private EscrituraAgrupadaLibros escrituraAgrupadaLibros;
+
+	@Autowired
+	private LibroRepository libroRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void alVencerLaEsperaGuardaDirectoYElGrupoNoLoRepite() throws Exception {
+		Libro libro = new Libro();
+		libro.setTitulo("Rayuela");
+
+		assertNotNull(escrituraAgrupadaLibros.guardar(libro).getId());
+		assertEquals(1.0, meterRegistry.get("biblioteca.escritura_agrupada.individuales")
+				.tag("motivo", "espera").counter().count());
+
+		//Despues de que el escritor cierra el grupo sigue habiendo un solo libro
+		Thread.sleep(700);
+		assertEquals(1, libroRepository.findAll().stream().filter(l -> l.getTitulo().equals("Rayuela")).count());
+	}
+}
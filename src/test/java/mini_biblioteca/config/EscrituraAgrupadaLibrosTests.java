@@ -0,0 +1,99 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.repositories.LibroRepository;
+import mini_biblioteca.services.AutorService;
+import mini_biblioteca.services.EditorialService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:escritura_agrupada;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"biblioteca.escritura-agrupada.habilitado=true",
+		"biblioteca.escritura-agrupada.espera-ms=200"})
+class EscrituraAgrupadaLibrosTests {
+
+	@Autowired
+	private EscrituraAgrupadaLibros escrituraAgrupadaLibros;
+
+	@Autowired
+	private AutorService autorService;
+
+	@Autowired
+	private EditorialService editorialService;
+
+	@Autowired
+	private LibroRepository libroRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void altasSimultaneasCompartenCommitYCadaUnaRecibeSuIdOSuError() throws Exception {
+		Autor autor = new Autor();
+		autor.setNombre("Julio Cortazar");
+		Autor guardado = autorService.guardarAutor(autor);
+		Editorial editorial = new Editorial();
+		editorial.setNombre("Sudamericana");
+		Editorial sudamericana = editorialService.guardarEditorial(editorial);
+
+		ExecutorService hilos = Executors.newFixedThreadPool(20);
+		try {
+			List<CompletableFuture<Libro>> altas = altas(hilos, 20, sudamericana, guardado);
+			Set<Long> ids = new HashSet<>();
+			for (CompletableFuture<Libro> alta : altas) {
+				Libro libro = alta.get();
+				ids.add(libro.getId());
+				Libro leido = libroRepository.findById(libro.getId()).orElseThrow();
+				assertEquals(libro.getTitulo(), leido.getTitulo());
+				assertEquals(List.of(guardado.getId()), leido.getAutores().stream().map(Autor::getId).toList());
+			}
+			assertEquals(20, ids.size());
+			//Menos commits que altas
+			long grupos = meterRegistry.get("biblioteca.escritura_agrupada.tamano").summary().count();
+			assertTrue(grupos < 20, "grupos: " + grupos);
+
+			//Una editorial que no existe hace fallar su grupo; los demas libros del grupo se guardan igual
+			Editorial inexistente = new Editorial();
+			inexistente.setId(-1L);
+			Libro roto = new Libro();
+			roto.setTitulo("Roto");
+			roto.setEditorial(inexistente);
+			CompletableFuture<Libro> fallida = CompletableFuture.supplyAsync(() -> escrituraAgrupadaLibros.guardar(roto), hilos);
+			for (CompletableFuture<Libro> alta : altas(hilos, 5, sudamericana, guardado)) {
+				assertTrue(libroRepository.existsById(alta.get().getId()));
+			}
+			assertThrows(Exception.class, fallida::get);
+		} finally {
+			hilos.shutdown();
+		}
+	}
+
+	private List<CompletableFuture<Libro>> altas(ExecutorService hilos, int cantidad, Editorial editorial, Autor autor) {
+		List<CompletableFuture<Libro>> altas = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			Libro libro = new Libro();
+			libro.setTitulo("Libro " + i);
+			libro.setEditorial(editorial);
+			libro.setAutores(new ArrayList<>(List.of(autor)));
+			altas.add(CompletableFuture.supplyAsync(() -> escrituraAgrupadaLibros.guardar(libro), hilos));
+		}
+		return altas;
+	}
+}
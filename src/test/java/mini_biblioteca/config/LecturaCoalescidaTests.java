@@ -0,0 +1,111 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.repositories.LibroResumen;
+import mini_biblioteca.services.EditorialService;
+import mini_biblioteca.services.LibroService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Llama al servicio real a traves del proxy de Spring: el aspecto de @LecturaCoalescida debe juntar las llamadas
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:lectura_coalescida;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=mini_biblioteca.config.LecturaCoalescidaTests$ConsultaPorEditorial"})
+class LecturaCoalescidaTests {
+
+	private static final int PETICIONES = 20;
+
+	private static final String METODO = "LibroServiceImpl.buscarResumenPorEditorial(..)";
+
+	//Cuenta las consultas de la pagina por editorial y las demora hasta que las demas llamadas esperan su resultado
+	public static class ConsultaPorEditorial implements StatementInspector {
+
+		static final AtomicInteger consultas = new AtomicInteger();
+
+		static volatile Runnable alConsultar = () -> {
+		};
+
+		@Override
+		public String inspect(String sql) {
+			if (sql.contains(" from libro ") && sql.contains("editorial_id=?") && !sql.contains("count(")) {
+				consultas.incrementAndGet();
+				alConsultar.run();
+			}
+			return sql;
+		}
+	}
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private EditorialService editorialService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void llamadasSimultaneasAlServicioHacenUnaSolaConsulta() throws Exception {
+		Editorial editorial = new Editorial();
+		editorial.setNombre("Anagrama");
+		Editorial anagrama = editorialService.guardarEditorial(editorial);
+		for (int i = 0; i < 3; i++) {
+			Libro libro = new Libro();
+			libro.setTitulo("Libro " + i);
+			libro.setEditorial(anagrama);
+			libroService.saveLibro(libro);
+		}
+		Pageable pagina = PageRequest.of(0, 10, Sort.by("titulo"));
+
+		ConsultaPorEditorial.consultas.set(0);
+		ConsultaPorEditorial.alConsultar = () -> {
+			long limite = System.currentTimeMillis() + 5000;
+			while (compartidas() < PETICIONES - 1 && System.currentTimeMillis() < limite) {
+				Thread.onSpinWait();
+			}
+		};
+		ExecutorService hilos = Executors.newFixedThreadPool(PETICIONES);
+		try {
+			List<Future<List<LibroResumen>>> resultados = new ArrayList<>();
+			for (int i = 0; i < PETICIONES; i++) {
+				resultados.add(hilos.submit(() -> libroService.buscarResumenPorEditorial(anagrama.getId(), pagina)));
+			}
+			for (Future<List<LibroResumen>> resultado : resultados) {
+				assertEquals(List.of("Libro 0", "Libro 1", "Libro 2"),
+						resultado.get().stream().map(LibroResumen::getTitulo).toList());
+			}
+		} finally {
+			ConsultaPorEditorial.alConsultar = () -> {
+			};
+			hilos.shutdown();
+		}
+
+		assertEquals(1, ConsultaPorEditorial.consultas.get());
+		assertEquals(1.0, meterRegistry.counter("biblioteca.coalescencia.ejecuciones", "metodo", METODO).count());
+		assertEquals(PETICIONES - 1.0, compartidas());
+
+		//Ya sin llamadas en curso la siguiente vuelve a consultar: no es un cache
+		libroService.buscarResumenPorEditorial(anagrama.getId(), pagina);
+		assertEquals(2, ConsultaPorEditorial.consultas.get());
+	}
+
+	private double compartidas() {
+		return meterRegistry.counter("biblioteca.coalescencia.compartidas", "metodo", METODO).count();
+	}
+}
@@ -0,0 +1,79 @@
+package mini_biblioteca.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteAdaptativoTests {
+
+	private static final long OBJETIVO = 100;
+
+	private final AtomicLong reloj = new AtomicLong(1_000);
+
+	@Test
+	void noAdmiteMasQueElLimite() {
+		LimiteAdaptativo limite = new LimiteAdaptativo(2, 1, 10, OBJETIVO, reloj::get);
+
+		assertTrue(limite.intentarAdquirir());
+		assertTrue(limite.intentarAdquirir());
+		assertFalse(limite.intentarAdquirir());
+		limite.liberar(10);
+		assertTrue(limite.intentarAdquirir());
+		assertEquals(2, limite.getEnCurso());
+	}
+
+	@Test
+	void unaRafagaLentaReduceUnaSolaVez() {
+		LimiteAdaptativo limite = new LimiteAdaptativo(100, 1, 100, OBJETIVO, reloj::get);
+		for (int i = 0; i < 50; i++) {
+			limite.intentarAdquirir();
+		}
+		//Las 50 empezaron en t=1000 y terminan lentas a la vez: una sola reduccion (100 -> 90), no 0.9^50
+		reloj.set(1_500);
+		for (int i = 0; i < 50; i++) {
+			limite.liberar(500);
+		}
+		assertEquals(90, limite.getLimite());
+
+		//Una peticion que empezo despues de la reduccion y tambien es lenta vuelve a reducir
+		limite.intentarAdquirir();
+		reloj.set(2_000);
+		limite.liberar(400);
+		assertEquals(81, limite.getLimite());
+	}
+
+	@Test
+	void creceSoloSiElLimiteSeUsaYNuncaSaleDelRango() {
+		LimiteAdaptativo limite = new LimiteAdaptativo(4, 2, 5, OBJETIVO, reloj::get);
+
+		//Con una sola peticion en curso el limite no se esta usando: no crece
+		for (int i = 0; i < 100; i++) {
+			limite.intentarAdquirir();
+			limite.liberar(10);
+		}
+		assertEquals(4, limite.getLimite());
+
+		//Con el limite ocupado crece de a 1/limite por peticion rapida, hasta el maximo
+		for (int i = 0; i < 100; i++) {
+			limite.intentarAdquirir();
+			limite.intentarAdquirir();
+			limite.intentarAdquirir();
+			limite.liberar(10);
+			limite.liberar(10);
+			limite.liberar(10);
+		}
+		assertEquals(5, limite.getLimite());
+
+		//Ventanas lentas sucesivas lo bajan hasta el minimo y no mas
+		for (int i = 0; i < 20; i++) {
+			limite.intentarAdquirir();
+			reloj.addAndGet(1_000);
+			limite.liberar(500);
+		}
+		assertEquals(2, limite.getLimite());
+	}
+}
@@ -0,0 +1,95 @@
+package mini_biblioteca.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteConcurrenciaFilterTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final Calentamiento calentamiento = new Calentamiento(true, 1, List.of(), true);
+
+	//Costosa: maximo 2 (empieza en 1); general: maximo 200
+	private final LimiteConcurrenciaFilter filtro =
+			new LimiteConcurrenciaFilter(registry, calentamiento, true, 2, 250, 200, 100, 3);
+
+	@Test
+	void clasificaLasPeticiones() {
+		assertEquals(LimiteConcurrenciaFilter.ClaseEndpoint.COSTOSA, filtro.clasificar(peticion("GET", "/libros/filtrar")));
+		assertEquals(LimiteConcurrenciaFilter.ClaseEndpoint.COSTOSA, filtro.clasificar(peticion("GET", "/editoriales/7/libros")));
+		assertEquals(LimiteConcurrenciaFilter.ClaseEndpoint.BARATA, filtro.clasificar(peticion("GET", "/editoriales/nuevo")));
+		assertEquals(LimiteConcurrenciaFilter.ClaseEndpoint.ESCRITURA, filtro.clasificar(peticion("POST", "/libros/filtrar")));
+	}
+
+	@Test
+	void rechazaCon503CuandoLaClaseEstaLlena() throws Exception {
+		CountDownLatch dentro = new CountDownLatch(1);
+		CountDownLatch soltar = new CountDownLatch(1);
+		ExecutorService hilo = Executors.newSingleThreadExecutor();
+		try {
+			//Una peticion costosa ocupa el unico lugar de su clase
+			hilo.submit(() -> {
+				filtro.doFilter(peticion("GET", "/libros/listar"), new MockHttpServletResponse(),
+						new MockFilterChain() {
+							@Override
+							public void doFilter(ServletRequest request, ServletResponse response) {
+								dentro.countDown();
+								try {
+									soltar.await();
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+							}
+						});
+				return null;
+			});
+			assertTrue(dentro.await(5, TimeUnit.SECONDS));
+
+			MockHttpServletResponse rechazada = filtrar(peticion("GET", "/libros/filtrar"));
+			assertEquals(503, rechazada.getStatus());
+			assertEquals("3", rechazada.getHeader("Retry-After"));
+			assertEquals(1.0, registry.counter("biblioteca.concurrencia.rechazos", "clase", "costosa").count());
+
+			//Las otras clases tienen su propio limite
+			assertEquals(200, filtrar(peticion("GET", "/autores/listar")).getStatus());
+			//El actuator no pasa por el control de admision
+			assertEquals(200, filtrar(peticion("GET", "/actuator/health")).getStatus());
+			//El calentamiento tampoco, pero solo con el valor de cabecera de este proceso
+			MockHttpServletRequest falsa = peticion("GET", "/libros/filtrar");
+			falsa.addHeader(Calentamiento.CABECERA, "1");
+			assertEquals(503, filtrar(falsa).getStatus());
+			MockHttpServletRequest propia = peticion("GET", "/libros/filtrar");
+			propia.addHeader(Calentamiento.CABECERA, calentamiento.valorCabecera());
+			assertEquals(200, filtrar(propia).getStatus());
+		} finally {
+			soltar.countDown();
+			hilo.shutdown();
+		}
+		assertTrue(hilo.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(200, filtrar(peticion("GET", "/libros/filtrar")).getStatus());
+	}
+
+	private MockHttpServletResponse filtrar(MockHttpServletRequest peticion) throws Exception {
+		MockHttpServletResponse respuesta = new MockHttpServletResponse();
+		filtro.doFilter(peticion, respuesta, new MockFilterChain());
+		return respuesta;
+	}
+
+	private static MockHttpServletRequest peticion(String metodo, String ruta) {
+		return new MockHttpServletRequest(metodo, ruta);
+	}
+}
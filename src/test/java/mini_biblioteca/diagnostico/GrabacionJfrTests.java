@@ -0,0 +1,47 @@
+package mini_biblioteca.diagnostico;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.services.AutorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:grabacion_jfr;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class GrabacionJfrTests {
+
+	@Autowired
+	private GrabacionJfrEndpoint endpoint;
+
+	@Autowired
+	private AutorService autorService;
+
+	@Test
+	void registraLlamadasARepositoriosYServicios() throws Exception {
+		assertEquals(200, endpoint.iniciar(30L).getStatus());
+		assertEquals(409, endpoint.iniciar(30L).getStatus());
+		Autor autor = new Autor();
+		autor.setNombre("Cortazar");
+		autorService.guardarAutor(autor);
+		autorService.listarTodosLosAutores();
+		String archivo = (String) endpoint.detener().get("archivo");
+
+		WebEndpointResponse<Resource> descarga = endpoint.descargar(archivo);
+		assertEquals(200, descarga.getStatus());
+		List<RecordedEvent> eventos = RecordingFile.readAllEvents(descarga.getBody().getFile().toPath());
+		assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().equals("mini_biblioteca.Servicio")
+				&& e.getString("entidad").equals("Autor") && e.getString("metodo").equals("listarTodosLosAutores")
+				&& e.getInt("filas") >= 1));
+		assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().equals("mini_biblioteca.Repositorio")
+				&& e.getString("entidad").equals("Autor")));
+		assertEquals(404, endpoint.descargar("otro.jfr").getStatus());
+	}
+}
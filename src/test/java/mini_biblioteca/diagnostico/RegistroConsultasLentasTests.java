@@ -0,0 +1,91 @@
+package mini_biblioteca.diagnostico;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.repositories.AutorRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:consultas_lentas;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"biblioteca.sql.umbral-ms=0"})
+class RegistroConsultasLentasTests {
+
+	@Autowired
+	private AutorRepository autorRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void registraLasSentenciasConSuRepositorioYFilas() throws Exception {
+		ListAppender<ILoggingEvent> lineas = new ListAppender<>();
+		lineas.start();
+		Logger logger = (Logger) LoggerFactory.getLogger("mini_biblioteca.sql.lentas");
+		logger.addAppender(lineas);
+		try {
+			for (String nombre : List.of("Onetti", "Benedetti", "Idea Vilarino")) {
+				Autor autor = new Autor();
+				autor.setNombre(nombre);
+				autorRepository.save(autor);
+			}
+			autorRepository.findAll();
+
+			//Las lineas las escribe otro hilo
+			long limite = System.currentTimeMillis() + 5000;
+			while (System.currentTimeMillis() < limite && lineas.list.stream()
+					.noneMatch(e -> e.getFormattedMessage().contains("AutorRepository.findAll"))) {
+				Thread.sleep(20);
+			}
+			assertTrue(lineas.list.stream().map(ILoggingEvent::getFormattedMessage)
+					.anyMatch(m -> m.contains("3 filas, AutorRepository.findAll: select")));
+			assertTrue(lineas.list.stream().map(ILoggingEvent::getFormattedMessage)
+					.anyMatch(m -> m.contains("1 filas, AutorRepository.save: insert")));
+		} finally {
+			logger.detachAppender(lineas);
+		}
+	}
+
+	//Lo que tarda el llamador entre una fila y otra no es tiempo de la consulta
+	@Test
+	void noCuentaElTrabajoDelLlamadorEntreFilas() throws Exception {
+		ListAppender<ILoggingEvent> lineas = new ListAppender<>();
+		lineas.start();
+		Logger logger = (Logger) LoggerFactory.getLogger("mini_biblioteca.sql.lentas");
+		logger.addAppender(lineas);
+		try {
+			jdbcTemplate.query("select x from system_range(1, 3)", (RowCallbackHandler) fila -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+
+			long limite = System.currentTimeMillis() + 5000;
+			Optional<String> linea = Optional.empty();
+			while (System.currentTimeMillis() < limite && linea.isEmpty()) {
+				Thread.sleep(20);
+				linea = lineas.list.stream().map(ILoggingEvent::getFormattedMessage)
+						.filter(m -> m.contains("system_range")).findFirst();
+			}
+			String mensaje = linea.orElseThrow();
+			assertTrue(mensaje.contains("3 filas"), mensaje);
+			double ms = Double.parseDouble(mensaje.substring(0, mensaje.indexOf(" ms")).replace(',', '.'));
+			assertTrue(ms < 600, mensaje);
+		} finally {
+			logger.detachAppender(lineas);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package mini_biblioteca.lotes;
+
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.entities.PuntoControlLote;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.LibroRepository;
+import mini_biblioteca.repositories.PuntoControlLoteRepository;
+import mini_biblioteca.services.AutorService;
+import mini_biblioteca.services.LibroService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:lotes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"biblioteca.lotes.tamano-bloque=3",
+		"biblioteca.lotes.pausa-ms=0"})
+class EjecutorLotesTests {
+
+	@Autowired
+	private EjecutorLotes ejecutorLotes;
+
+	@Autowired
+	private AutorService autorService;
+
+	@Autowired
+	private AutorRepository autorRepository;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private LibroRepository libroRepository;
+
+	@Autowired
+	private PuntoControlLoteRepository puntoControlLoteRepository;
+
+	@Test
+	void normalizaPorBloquesYGuardaElPuntoDeControl() throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (String nombre : List.of("  Julio   Cortazar ", "Jorge Luis\tBorges", "Silvina Ocampo",
+				"Adolfo  Bioy Casares", " Alejandra Pizarnik", "Ricardo  Piglia", "Cesar Aira ")) {
+			Autor autor = new Autor();
+			autor.setNombre(nombre);
+			ids.add(autorService.guardarAutor(autor).getId());
+		}
+
+		PuntoControlLote punto = esperar("normalizar-nombres-autores", true);
+		assertEquals(PuntoControlLote.Estado.TERMINADO, punto.getEstado());
+		assertEquals(7, punto.getProcesados());
+		assertEquals(ids.get(ids.size() - 1), punto.getUltimoId());
+		assertEquals("Julio Cortazar", autorRepository.findById(ids.get(0)).orElseThrow().getNombre());
+		assertEquals("Jorge Luis Borges", autorRepository.findById(ids.get(1)).orElseThrow().getNombre());
+		assertEquals("Cesar Aira", autorRepository.findById(ids.get(6)).orElseThrow().getNombre());
+
+		//Terminado: sin desdeCero vuelve a empezar desde el primer id
+		assertEquals(7, esperar("normalizar-nombres-autores", false).getProcesados());
+	}
+
+	@Test
+	void reasignaLosLibrosSinCategoria() throws Exception {
+		Libro libro = new Libro();
+		libro.setTitulo("Ficciones");
+		Long id = libroService.saveLibro(libro).getId();
+
+		assertEquals(PuntoControlLote.Estado.TERMINADO, esperar("reasignar-categorias-huerfanas", true).getEstado());
+		assertEquals("Sin categoria", libroRepository.findById(id).orElseThrow().getCategoria().getNombre());
+	}
+
+	@Test
+	void noTomaUnTrabajoQueOtroNodoEstaCorriendo() throws Exception {
+		PuntoControlLote ajeno = new PuntoControlLote("normalizar-nombres-editoriales");
+		ajeno.setPropietario("1@otro-nodo");
+		puntoControlLoteRepository.save(ajeno);
+
+		assertFalse(ejecutorLotes.iniciar("normalizar-nombres-editoriales", false));
+
+		//El otro nodo dejo de actualizarlo: se da por caido y el trabajo se reanuda aqui
+		ajeno.setActualizado(Instant.now().minus(Duration.ofMinutes(10)));
+		puntoControlLoteRepository.save(ajeno);
+		ejecutorLotes.reanudar();
+		long limite = System.currentTimeMillis() + 10000;
+		PuntoControlLote punto = ejecutorLotes.estado("normalizar-nombres-editoriales").orElseThrow();
+		while (punto.getEstado() == PuntoControlLote.Estado.EN_CURSO && System.currentTimeMillis() < limite) {
+			Thread.sleep(20);
+			punto = ejecutorLotes.estado("normalizar-nombres-editoriales").orElseThrow();
+		}
+		assertEquals(PuntoControlLote.Estado.TERMINADO, punto.getEstado());
+		assertNotEquals("1@otro-nodo", punto.getPropietario());
+	}
+
+	private PuntoControlLote esperar(String nombre, boolean desdeCero) throws InterruptedException {
+		ejecutorLotes.iniciar(nombre, desdeCero);
+		long limite = System.currentTimeMillis() + 10000;
+		PuntoControlLote punto = ejecutorLotes.estado(nombre).orElseThrow();
+		while (punto.getEstado() == PuntoControlLote.Estado.EN_CURSO && System.currentTimeMillis() < limite) {
+			Thread.sleep(20);
+			punto = ejecutorLotes.estado(nombre).orElseThrow();
+		}
+		return punto;
+	}
+}
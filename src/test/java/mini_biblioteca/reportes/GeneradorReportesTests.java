@@ -0,0 +1,90 @@
+package mini_biblioteca.reportes;
+
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.services.EditorialService;
+import mini_biblioteca.services.LibroService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:reportes;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class GeneradorReportesTests {
+
+	//Directorio propio: un CSV de una corrida anterior tendria la misma clave (la BD empieza otra vez en la version 0)
+	@TempDir
+	static Path directorio;
+
+	@DynamicPropertySource
+	static void propiedades(DynamicPropertyRegistry registry) {
+		registry.add("biblioteca.reportes.directorio", directorio::toString);
+	}
+
+	@Autowired
+	private GeneradorReportes generadorReportes;
+
+	@Autowired
+	private EditorialService editorialService;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Test
+	void generaElCsvYLoReusaMientrasNoCambieElCatalogo() throws Exception {
+		Editorial planeta = new Editorial();
+		planeta.setNombre("Planeta, S.A.");
+		planeta = editorialService.guardarEditorial(planeta);
+		Editorial vacia = new Editorial();
+		vacia.setNombre("Sin libros");
+		vacia = editorialService.guardarEditorial(vacia);
+		for (String titulo : List.of("Rayuela", "Bestiario")) {
+			Libro libro = new Libro();
+			libro.setTitulo(titulo);
+			libro.setEditorial(planeta);
+			libroService.saveLibro(libro);
+		}
+
+		TrabajoReporte trabajo = esperar(generadorReportes.pedir(TipoReporte.EDITORIALES));
+		assertEquals(TrabajoReporte.Estado.TERMINADO, trabajo.getEstado());
+		assertEquals(2, trabajo.getProcesadas());
+		List<String> lineas = Files.readAllLines(generadorReportes.archivoDe(trabajo));
+		assertEquals(List.of("editorial_id,editorial,libros",
+				planeta.getId() + ",\"Planeta, S.A.\",2",
+				vacia.getId() + ",Sin libros,0"), lineas);
+
+		//Sin cambios en el catalogo: el archivo ya generado, sin pasar por el pool
+		TrabajoReporte repetido = generadorReportes.pedir(TipoReporte.EDITORIALES);
+		assertNotEquals(trabajo.getId(), repetido.getId());
+		assertEquals(TrabajoReporte.Estado.TERMINADO, repetido.getEstado());
+		assertEquals(generadorReportes.archivoDe(trabajo), generadorReportes.archivoDe(repetido));
+
+		//Un libro nuevo cambia la version: se genera otro y se borra el anterior
+		Libro otro = new Libro();
+		otro.setTitulo("Final del juego");
+		otro.setEditorial(vacia);
+		libroService.saveLibro(otro);
+		TrabajoReporte nuevo = esperar(generadorReportes.pedir(TipoReporte.EDITORIALES));
+		assertTrue(Files.readAllLines(generadorReportes.archivoDe(nuevo)).contains(vacia.getId() + ",Sin libros,1"));
+		assertTrue(Files.notExists(generadorReportes.archivoDe(trabajo)));
+	}
+
+	private static TrabajoReporte esperar(TrabajoReporte trabajo) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 10000;
+		while (trabajo.getEstado() != TrabajoReporte.Estado.TERMINADO
+				&& trabajo.getEstado() != TrabajoReporte.Estado.FALLIDO && System.currentTimeMillis() < limite) {
+			Thread.sleep(20);
+		}
+		return trabajo;
+	}
+}
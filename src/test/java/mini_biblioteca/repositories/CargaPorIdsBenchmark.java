@@ -0,0 +1,108 @@
+package mini_biblioteca.repositories;
+
+import mini_biblioteca.entities.Autor;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+Benchmark de la cache de planes de Hibernate con cargas por ids. No es parte de la suite (surefire solo corre *Tests):
+  mvn test -Dtest=CargaPorIdsBenchmark -Dbiblioteca.benchmark.libros=300
+Crea tantos autores como indica la propiedad y hace 300 cargas de un largo al azar entre 1 y ese numero (a lo mas
+1000) con findAllById (un IN de cada largo) y con CargaPorIds (IN rellenado a los tramos). Registra las formas
+distintas de SQL, los aciertos de la cache de planes y el tiempo de cada una.
+* */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:carga_por_ids_benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=mini_biblioteca.repositories.CargaPorIdsBenchmark$SentenciasAutor"})
+@EnabledIfSystemProperty(named = "biblioteca.benchmark.libros", matches = "\\d+")
+class CargaPorIdsBenchmark {
+
+	//Formas distintas de SQL de las cargas por ids de autores (lo que veria la cache de sentencias preparadas de MySQL)
+	public static class SentenciasAutor implements StatementInspector {
+
+		static final Set<String> distintas = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public String inspect(String sql) {
+			if (sql.contains(" from autor ") && sql.contains(" in (")) {
+				distintas.add(sql);
+			}
+			return sql;
+		}
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(CargaPorIdsBenchmark.class);
+
+	private static final int CARGAS = 300;
+
+	private static final int MAXIMO_LARGO = 1000;
+
+	@Autowired
+	private CargaPorIds cargaPorIds;
+
+	@Autowired
+	private AutorRepository autorRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void cacheDePlanes() {
+		List<Long> ids = crearAutores(Math.max(1, Integer.getInteger("biblioteca.benchmark.libros")));
+		Random azar = new Random(42);
+		List<List<Long>> cargas = new ArrayList<>();
+		for (int i = 0; i < CARGAS; i++) {
+			List<Long> mezclados = new ArrayList<>(ids);
+			Collections.shuffle(mezclados, azar);
+			cargas.add(mezclados.subList(0, 1 + azar.nextInt(Math.min(ids.size(), MAXIMO_LARGO))));
+		}
+		medir("findAllById", cargas, autorRepository::findAllById);
+		medir("CargaPorIds", cargas, carga -> cargaPorIds.buscar(autorRepository, carga, Autor::getId));
+	}
+
+	private void medir(String nombre, List<List<Long>> cargas, Function<List<Long>, List<Autor>> cargar) {
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+		SentenciasAutor.distintas.clear();
+		long inicio = System.nanoTime();
+		for (List<Long> carga : cargas) {
+			assertEquals(carga.size(), cargar.apply(carga).size());
+		}
+		long ms = (System.nanoTime() - inicio) / 1_000_000;
+		int formas = SentenciasAutor.distintas.size();
+		long aciertos = estadisticas.getQueryPlanCacheHitCount();
+		long planes = aciertos + estadisticas.getQueryPlanCacheMissCount();
+		log.info("{}: {} cargas, {} formas de SQL (reuso de sentencias {}%), plan cache {}/{} aciertos, {} ms",
+				nombre, cargas.size(), formas, String.format("%.1f", 100.0 * (cargas.size() - formas) / cargas.size()),
+				aciertos, planes, ms);
+	}
+
+	private List<Long> crearAutores(int cantidad) {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			Autor autor = new Autor();
+			autor.setNombre("Autor " + i);
+			autores.add(autor);
+		}
+		return autorRepository.saveAll(autores).stream().map(Autor::getId).toList();
+	}
+}
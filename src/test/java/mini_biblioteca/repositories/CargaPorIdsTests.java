@@ -0,0 +1,105 @@
+package mini_biblioteca.repositories;
+
+import mini_biblioteca.entities.Autor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:carga_por_ids;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=mini_biblioteca.repositories.CargaPorIdsTests$SentenciasAutor"})
+class CargaPorIdsTests {
+
+	//Formas distintas de SQL sobre la tabla autor (lo que veria la cache de sentencias preparadas de MySQL)
+	public static class SentenciasAutor implements StatementInspector {
+
+		static final Set<String> distintas = ConcurrentHashMap.newKeySet();
+
+		static final Set<String> hilos = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public String inspect(String sql) {
+			if (sql.contains(" from autor ")) {
+				distintas.add(sql);
+				hilos.add(Thread.currentThread().getName());
+			}
+			return sql;
+		}
+	}
+
+	@Autowired
+	private CargaPorIds cargaPorIds;
+
+	@Autowired
+	private AutorRepository autorRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void devuelveEnElOrdenPedidoSinRepetidosPorBloques() {
+		List<Long> ids = crearAutores(600);
+		List<Long> pedidos = new ArrayList<>(ids.reversed());
+		pedidos.add(1, pedidos.get(0));
+		pedidos.add(null);
+		pedidos.add(-5L);
+
+		//600 ids: tres bloques (256, 256, 88 rellenado a 256) consultados en paralelo
+		List<Long> devueltos = cargaPorIds.buscar(autorRepository, pedidos, Autor::getId).stream()
+				.map(Autor::getId).toList();
+		assertEquals(ids.reversed(), devueltos);
+		assertEquals(List.of(ids.get(3), ids.get(1)), cargaPorIds.buscar(autorRepository,
+				List.of(ids.get(3), -1L, ids.get(1)), Autor::getId).stream().map(Autor::getId).toList());
+	}
+
+	//Con el EntityManager de la peticion (open-in-view) los bloques se consultan en orden, en el mismo hilo
+	@Test
+	void conElEntityManagerDeLaPeticionNoConsultaEnParalelo() {
+		List<Long> ids = crearAutores(600);
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+		try {
+			SentenciasAutor.hilos.clear();
+			assertEquals(600, cargaPorIds.buscar(autorRepository, ids, Autor::getId).size());
+			assertEquals(Set.of(Thread.currentThread().getName()), SentenciasAutor.hilos);
+		} finally {
+			TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+			entityManager.close();
+		}
+	}
+
+	//Cargas de todos los largos: solo tantas formas de SQL como tramos (las de 257 o mas ids se parten en bloques)
+	@Test
+	void cualquierLargoUsaUnaFormaDeSqlPorTramo() {
+		List<Long> ids = crearAutores(300);
+		SentenciasAutor.distintas.clear();
+		for (int largo = 1; largo <= ids.size(); largo++) {
+			assertEquals(largo, cargaPorIds.buscar(autorRepository, ids.subList(0, largo), Autor::getId).size());
+		}
+		List<String> formas = SentenciasAutor.distintas.stream().filter(sql -> sql.contains(" in (")).toList();
+		assertTrue(formas.size() <= cargaPorIds.tramos().length, "formas de SQL: " + formas);
+	}
+
+	private List<Long> crearAutores(int cantidad) {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			Autor autor = new Autor();
+			autor.setNombre("Autor " + i);
+			autores.add(autor);
+		}
+		return autorRepository.saveAll(autores).stream().map(Autor::getId).toList();
+	}
+}
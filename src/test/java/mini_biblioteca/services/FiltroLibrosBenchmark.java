@@ -0,0 +1,154 @@
+package mini_biblioteca.services;
+
+import mini_biblioteca.entities.Libro;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/*
+Benchmark del filtro de libros por combinacion de criterios. No es parte de la suite (surefire solo corre *Tests):
+  mvn test -Dtest=FiltroLibrosBenchmark -Dbiblioteca.benchmark.libros=1000000
+Por defecto usa la H2 de las pruebas; para medir con los indices reales de MySQL se agrega
+-Dspring.datasource.url=jdbc:mysql://... -Dspring.jpa.database-platform=org.hibernate.dialect.MySQLDialect
+(y usuario, clave y driver). Llena las tablas con JDBC por lotes: 2 autores por libro, 50 categorias,
+500 editoriales y 20000 autores con una distribucion sesgada, como un catalogo real.
+Por cada combinacion se mide la primera pagina y la pagina 20 (keyset) y se registra la mediana.
+* */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "biblioteca.benchmark.libros", matches = "\\d+")
+class FiltroLibrosBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(FiltroLibrosBenchmark.class);
+
+	private static final int CATEGORIAS = 50;
+
+	private static final int EDITORIALES = 500;
+
+	private static final int AUTORES = 20_000;
+
+	private static final int LOTE = 5_000;
+
+	private static final int REPETICIONES = 15;
+
+	private static final int PAGINA = 50;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void midePorCombinacion() {
+		int libros = Integer.getInteger("biblioteca.benchmark.libros");
+		long inicio = System.nanoTime();
+		llenar(libros);
+		log.info("{} libros cargados en {} s", libros, (System.nanoTime() - inicio) / 1_000_000_000);
+
+		Map<String, Consumer<FiltroLibros>> combinaciones = new LinkedHashMap<>();
+		combinaciones.put("sin criterios", f -> {
+		});
+		combinaciones.put("categoria", f -> f.setCategoriaId(7L));
+		combinaciones.put("editorial", f -> f.setEditorialId(42L));
+		combinaciones.put("autor", f -> f.setAutorId(3L));
+		combinaciones.put("titulo", f -> f.setTitulo("Libro 12"));
+		combinaciones.put("categoria + editorial", f -> {
+			f.setCategoriaId(7L);
+			f.setEditorialId(42L);
+		});
+		combinaciones.put("categoria + titulo", f -> {
+			f.setCategoriaId(7L);
+			f.setTitulo("Libro 1");
+		});
+		combinaciones.put("autor + categoria", f -> {
+			f.setAutorId(3L);
+			f.setCategoriaId(7L);
+		});
+		combinaciones.put("todos", f -> {
+			f.setCategoriaId(7L);
+			f.setEditorialId(42L);
+			f.setAutorId(3L);
+			f.setTitulo("Libro");
+		});
+
+		combinaciones.forEach((nombre, criterios) -> {
+			FiltroLibros filtro = new FiltroLibros();
+			criterios.accept(filtro);
+			double primera = mediana(() -> libroService.filtrar(filtro, PAGINA + 1));
+			//Avanza 19 paginas por keyset y mide la siguiente
+			for (int i = 0; i < 19; i++) {
+				List<Libro> pagina = libroService.filtrar(filtro, PAGINA + 1);
+				if (pagina.size() <= PAGINA) {
+					break;
+				}
+				Libro ultimo = pagina.get(PAGINA - 1);
+				filtro.setDespuesDeTitulo(ultimo.getTitulo());
+				filtro.setDespuesDeId(ultimo.getId());
+			}
+			double vigesima = mediana(() -> libroService.filtrar(filtro, PAGINA + 1));
+			log.info("{}: primera pagina {} ms, pagina 20 {} ms", nombre,
+					String.format("%.2f", primera), String.format("%.2f", vigesima));
+		});
+		assertFalse(libroService.filtrar(new FiltroLibros(), PAGINA + 1).isEmpty());
+	}
+
+	private static double mediana(Runnable consulta) {
+		consulta.run();
+		double[] tiempos = new double[REPETICIONES];
+		for (int i = 0; i < REPETICIONES; i++) {
+			long inicio = System.nanoTime();
+			consulta.run();
+			tiempos[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+		}
+		Arrays.sort(tiempos);
+		return tiempos[REPETICIONES / 2];
+	}
+
+	private void llenar(int libros) {
+		insertar("insert into categoria (id, nombre) values (?, ?)", CATEGORIAS, i -> new Object[]{i, "Categoria " + i});
+		insertar("insert into editorial (id, nombre) values (?, ?)", EDITORIALES, i -> new Object[]{i, "Editorial " + i});
+		insertar("insert into autor (id, nombre) values (?, ?)", AUTORES, i -> new Object[]{i, "Autor " + i});
+		Random random = new Random(42);
+		insertar("insert into libro (id, titulo, categoria_id, editorial_id) values (?, ?, ?, ?)", libros,
+				i -> new Object[]{i, "Libro " + random.nextInt(libros), 1 + random.nextInt(CATEGORIAS),
+						sesgado(random, EDITORIALES)});
+		//Dos autores distintos por libro; los de id bajo tienen muchos mas libros
+		insertar("insert into libro_autor (libro_id, autor_id) values (?, ?)", libros * 2, i -> {
+			long libro = (i + 1) / 2;
+			long autor = i % 2 == 1 ? sesgado(random, AUTORES / 2) : AUTORES / 2 + sesgado(random, AUTORES / 2);
+			return new Object[]{libro, autor};
+		});
+	}
+
+	//1..n con mas peso en los primeros
+	private static long sesgado(Random random, int n) {
+		double u = random.nextDouble();
+		return 1 + (long) (n * u * u * u);
+	}
+
+	private void insertar(String sql, int filas, IntFunction<Object[]> fila) {
+		List<Object[]> lote = new ArrayList<>(LOTE);
+		for (int i = 1; i <= filas; i++) {
+			lote.add(fila.apply(i));
+			if (lote.size() == LOTE || i == filas) {
+				jdbcTemplate.batchUpdate(sql, lote);
+				lote.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package mini_biblioteca.services;
+
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.repositories.AutorRepository;
+import mini_biblioteca.repositories.CategoriaRepository;
+import mini_biblioteca.repositories.EditorialRepository;
+import mini_biblioteca.repositories.LibroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filtro_libros;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class FiltroLibrosTests {
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private LibroRepository libroRepository;
+
+	@Autowired
+	private AutorRepository autorRepository;
+
+	@Autowired
+	private EditorialRepository editorialRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	@Test
+	void combinaCriteriosYPaginaPorKeyset() {
+		Categoria categoria = new Categoria();
+		categoria.setNombre("Novela");
+		categoria = categoriaRepository.save(categoria);
+		Editorial editorial = new Editorial();
+		editorial.setNombre("Planeta");
+		editorial = editorialRepository.save(editorial);
+		Autor autor = new Autor();
+		autor.setNombre("Borges");
+		autor = autorRepository.save(autor);
+
+		//Mismo titulo repetido para probar el desempate por id en el keyset
+		for (int i = 0; i < 10; i++) {
+			Libro libro = new Libro();
+			libro.setTitulo(i < 4 ? "Ficciones" : "El Aleph " + i);
+			libro.setCategoria(categoria);
+			libro.setEditorial(i % 2 == 0 ? editorial : null);
+			libro.setAutores(new ArrayList<>(i < 6 ? List.of(autor) : List.of()));
+			libroRepository.save(libro);
+		}
+
+		FiltroLibros filtro = new FiltroLibros();
+		filtro.setCategoriaId(categoria.getId());
+		filtro.setAutorId(autor.getId());
+		assertEquals(6, libroService.filtrar(filtro, 100).size());
+
+		filtro.setEditorialId(editorial.getId());
+		filtro.setTitulo("Fic");
+		assertEquals(2, libroService.filtrar(filtro, 100).size());
+
+		FiltroLibros todos = new FiltroLibros();
+		todos.setCategoriaId(categoria.getId());
+		List<Long> vistos = new ArrayList<>();
+		List<Libro> pagina = libroService.filtrar(todos, 3);
+		while (!pagina.isEmpty()) {
+			pagina.forEach(l -> vistos.add(l.getId()));
+			Libro ultimo = pagina.get(pagina.size() - 1);
+			todos.setDespuesDeTitulo(ultimo.getTitulo());
+			todos.setDespuesDeId(ultimo.getId());
+			pagina = libroService.filtrar(todos, 3);
+		}
+		assertEquals(10, vistos.size());
+		assertEquals(10, vistos.stream().distinct().count());
+	}
+
+}
@@ -0,0 +1,135 @@
+package mini_biblioteca.services;
+
+import mini_biblioteca.entities.Autor;
+import mini_biblioteca.entities.Categoria;
+import mini_biblioteca.entities.Editorial;
+import mini_biblioteca.entities.EventoCatalogo;
+import mini_biblioteca.entities.Libro;
+import mini_biblioteca.eventos.TipoEntidad;
+import mini_biblioteca.repositories.EventoCatalogoRepository;
+import mini_biblioteca.repositories.LibroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:fusiones;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class FusionCatalogoTests {
+
+	@Autowired
+	private EditorialService editorialService;
+
+	@Autowired
+	private CategoriaService categoriaService;
+
+	@Autowired
+	private AutorService autorService;
+
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private LibroRepository libroRepository;
+
+	@Autowired
+	private EventoCatalogoRepository eventoCatalogoRepository;
+
+	@Test
+	void fusionarEditorialesMueveLosLibrosYBorraElOrigen() {
+		Editorial origen = editorial("Alfaguara");
+		Editorial destino = editorial("Alfaguara S.A.");
+		Categoria categoria = new Categoria();
+		categoria.setNombre("Novela");
+		categoria = categoriaService.guardarCategoria(categoria);
+		List<Long> movidos = new ArrayList<>();
+		for (String titulo : List.of("Rayuela", "Los premios", "62 modelo para armar")) {
+			movidos.add(libro(titulo, origen, categoria));
+		}
+		Long propio = libro("Libro de Manuel", destino, categoria);
+
+		assertEquals(3, editorialService.fusionarEditoriales(origen.getId(), destino.getId()));
+
+		assertTrue(editorialService.buscarPorId(origen.getId()).isEmpty());
+		for (Long id : movidos) {
+			assertEquals(destino.getId(), libroRepository.findById(id).orElseThrow().getEditorial().getId());
+		}
+		assertEquals(destino.getId(), libroRepository.findById(propio).orElseThrow().getEditorial().getId());
+		//Un evento por libro movido en el feed de cambios, ademas del borrado de la editorial
+		List<EventoCatalogo> eventos = eventoCatalogoRepository.findAll();
+		for (Long id : movidos) {
+			assertTrue(eventos.stream().anyMatch(e -> e.getTipo() == TipoEntidad.LIBRO && e.getEntidadId().equals(id)
+					&& !e.isEliminado()));
+		}
+		assertTrue(eventos.stream().anyMatch(e -> e.getTipo() == TipoEntidad.EDITORIAL
+				&& e.getEntidadId().equals(origen.getId()) && e.isEliminado()));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> editorialService.fusionarEditoriales(destino.getId(), destino.getId()));
+		assertThrows(IllegalArgumentException.class,
+				() -> editorialService.fusionarEditoriales(origen.getId(), destino.getId()));
+
+		Categoria otra = new Categoria();
+		otra.setNombre("Novelas");
+		otra = categoriaService.guardarCategoria(otra);
+		assertEquals(4, categoriaService.fusionarCategorias(categoria.getId(), otra.getId()));
+		assertEquals(otra.getId(), libroRepository.findById(propio).orElseThrow().getCategoria().getId());
+		assertTrue(categoriaService.buscarPorId(categoria.getId()).isEmpty());
+	}
+
+	@Test
+	void fusionarAutoresReescribeLibroAutorSinRepetirAlDestino() {
+		Autor origen = autor("J. L. Borges");
+		Autor otroOrigen = autor("Borges, Jorge Luis");
+		Autor destino = autor("Jorge Luis Borges");
+		Long soloOrigen = libroConAutores("Ficciones", origen);
+		Long conDestino = libroConAutores("El Aleph", origen, destino);
+		Long conLosDos = libroConAutores("Antologia", origen, otroOrigen);
+		Long soloOtro = libroConAutores("El hacedor", otroOrigen);
+
+		ResultadoFusionAutores resultado = autorService.fusionarAutores(
+				List.of(otroOrigen.getId(), origen.getId()), destino.getId());
+
+		assertEquals(2, resultado.autoresEliminados());
+		assertEquals(3, resultado.filasReescritas());
+		assertEquals(2, resultado.filasDuplicadasEliminadas());
+		for (Long id : List.of(soloOrigen, conDestino, conLosDos, soloOtro)) {
+			assertEquals(List.of(destino.getId()), libroRepository.findById(id).orElseThrow().getAutores().stream()
+					.map(Autor::getId).toList());
+		}
+		assertTrue(autorService.buscarPorId(origen.getId()).isEmpty());
+		assertTrue(autorService.buscarPorId(otroOrigen.getId()).isEmpty());
+	}
+
+	private Autor autor(String nombre) {
+		Autor autor = new Autor();
+		autor.setNombre(nombre);
+		return autorService.guardarAutor(autor);
+	}
+
+	private Long libroConAutores(String titulo, Autor... autores) {
+		Libro libro = new Libro();
+		libro.setTitulo(titulo);
+		libro.setAutores(new ArrayList<>(List.of(autores)));
+		return libroService.saveLibro(libro).getId();
+	}
+
+	private Editorial editorial(String nombre) {
+		Editorial editorial = new Editorial();
+		editorial.setNombre(nombre);
+		return editorialService.guardarEditorial(editorial);
+	}
+
+	private Long libro(String titulo, Editorial editorial, Categoria categoria) {
+		Libro libro = new Libro();
+		libro.setTitulo(titulo);
+		libro.setEditorial(editorial);
+		libro.setCategoria(categoria);
+		return libroService.saveLibro(libro).getId();
+	}
+}